@@ -0,0 +1,153 @@
+-- =================================================================
+-- Benchmark: PatientSearchDAO.searchPatients against the old
+-- name LIKE '%term%' OR phone LIKE '%term%' search
+-- Database: MySQL 8.0.18+ (needs EXPLAIN ANALYZE)
+--
+-- Builds a scratch copy of `patients` with 500,000 rows in one clinic (plus
+-- 100,000 in another), with the same generated columns and indexes as
+-- migrations V003 and V007, then runs the old search and the new one for a
+-- name prefix, a name infix, a single letter, a phone number, a phone
+-- suffix and a phone fragment.
+--
+-- Run:  mysql -u root -p clinicdb < benchmarks/patient_search.sql
+-- What to look for in the EXPLAIN ANALYZE output:
+--   * Old search: "Table scan" or "Index lookup ... clinic_id" over all
+--     500,000 rows of the clinic for every term, then a sort of every hit.
+--   * New search: each branch is an "Index range scan" / "Index lookup" or a
+--     "Full-text index search" that stops after 1,001 rows; the top line's
+--     "actual time" should stay under 50 ms. The phone fragment branch is
+--     the exception: it reads the clinic's phone_digits entries, which is
+--     why it only runs when nothing matches the whole number or its end.
+-- The scratch tables are dropped at the end.
+-- =================================================================
+USE clinicdb;
+
+DROP TABLE IF EXISTS bench_digits;
+DROP TABLE IF EXISTS bench_patients;
+
+CREATE TABLE bench_digits (d INT PRIMARY KEY) ENGINE=InnoDB;
+INSERT INTO bench_digits VALUES (0), (1), (2), (3), (4), (5), (6), (7), (8), (9);
+
+-- As V007 builds the FULLTEXT index
+SET SESSION innodb_ft_enable_stopword = OFF;
+
+CREATE TABLE bench_patients (
+  patient_id INT AUTO_INCREMENT PRIMARY KEY,
+  clinic_id INT NOT NULL,
+  name VARCHAR(100) NOT NULL,
+  phone VARCHAR(20),
+  phone_digits VARCHAR(20) AS (
+    REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(COALESCE(phone, ''),
+      ' ', ''), '-', ''), '+', ''), '(', ''), ')', ''), '.', '')) STORED,
+  phone_rev VARCHAR(20) AS (
+    REVERSE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(COALESCE(phone, ''),
+      ' ', ''), '-', ''), '+', ''), '(', ''), ')', ''), '.', ''))) STORED,
+  INDEX idx_patients_clinic_phone_digits (clinic_id, phone_digits),
+  INDEX idx_patients_clinic_phone_rev (clinic_id, phone_rev),
+  INDEX idx_patients_clinic_name (clinic_id, name),
+  FULLTEXT INDEX ft_patients_name (name) WITH PARSER ngram
+) ENGINE=InnoDB;
+
+-- 6 * 10^5 rows: n = 0 .. 599999, the first 500,000 in clinic 7. Names
+-- combine 20 first names, 25 surnames and a number; phone numbers are
+-- "98" followed by eight digits derived from n.
+INSERT INTO bench_patients (clinic_id, name, phone)
+SELECT IF(n < 500000, 7, 8),
+       CONCAT(ELT(n % 20 + 1, 'Anil', 'Bindu', 'Chandra', 'Deepa', 'Farhan', 'Gita', 'Hari', 'Indira',
+                  'Joseph', 'Kavya', 'Lakshmi', 'Manoj', 'Nisha', 'Omana', 'Priya', 'Rahul', 'Sara',
+                  'Thomas', 'Usha', 'Vinod'),
+              ' ',
+              ELT(n DIV 20 % 25 + 1, 'Abraham', 'Balan', 'Cherian', 'Das', 'Eapen', 'Francis', 'George',
+                  'Haridas', 'Iyer', 'Jacob', 'Kurian', 'Menon', 'Nair', 'Oommen', 'Pillai', 'Qureshi',
+                  'Raman', 'Samuel', 'Thampi', 'Unni', 'Varghese', 'Warrier', 'Xavier', 'Yusuf', 'Zacharia'),
+              ' ', n DIV 500),
+       CONCAT('98', LPAD((n * 7919) % 100000000, 8, '0'))
+FROM (
+  SELECT a.d + b.d * 10 + c.d * 100 + e.d * 1000 + f.d * 10000 + g.d * 100000 AS n
+  FROM bench_digits a, bench_digits b, bench_digits c, bench_digits e, bench_digits f, bench_digits g
+  WHERE g.d < 6
+) seq;
+
+SET SESSION innodb_ft_enable_stopword = DEFAULT;
+ANALYZE TABLE bench_patients;
+
+-- The new search, as PatientSearchDAO builds it for a name term: a prefix
+-- branch and a FULLTEXT-narrowed infix branch, each capped at 1,001 rows.
+-- Phone terms swap the branches for the ones shown further down.
+SET @term = 'pill';
+
+-- -----------------------------------------------------
+-- Name prefix and infix ("pill" finds "Priya Pillai ...")
+-- -----------------------------------------------------
+EXPLAIN ANALYZE
+SELECT * FROM bench_patients WHERE clinic_id = 7 AND (name LIKE CONCAT('%', @term, '%')
+  OR phone LIKE CONCAT('%', @term, '%')) ORDER BY name ASC;
+
+EXPLAIN ANALYZE
+SELECT p.*, k.total_hits FROM (
+  SELECT patient_id, tier, name, COUNT(*) OVER () AS total_hits FROM (
+    SELECT patient_id, MIN(tier) AS tier, MIN(name) AS name FROM (
+      (SELECT patient_id, 2 AS tier, name FROM bench_patients
+       WHERE clinic_id = 7 AND name LIKE CONCAT(@term, '%') ORDER BY name, patient_id LIMIT 1001)
+      UNION ALL
+      (SELECT patient_id, 3 AS tier, name FROM bench_patients
+       WHERE MATCH(name) AGAINST (CONCAT('"', @term, '"') IN BOOLEAN MODE) AND clinic_id = 7
+         AND name LIKE CONCAT('%', @term, '%') ORDER BY name, patient_id LIMIT 1001)
+    ) hits GROUP BY patient_id) g
+  ORDER BY tier, name, patient_id LIMIT 25 OFFSET 0) k
+JOIN bench_patients p ON p.patient_id = k.patient_id
+ORDER BY k.tier, k.name, k.patient_id;
+
+-- -----------------------------------------------------
+-- An infix that starts no name ("resh" in every "Qureshi", 20,000 rows):
+-- only the FULLTEXT branch finds it
+-- -----------------------------------------------------
+SET @term = 'resh';
+
+EXPLAIN ANALYZE
+SELECT patient_id, 3 AS tier, name FROM bench_patients
+WHERE MATCH(name) AGAINST (CONCAT('"', @term, '"') IN BOOLEAN MODE) AND clinic_id = 7
+  AND name LIKE CONCAT('%', @term, '%') ORDER BY name, patient_id LIMIT 1001;
+
+-- -----------------------------------------------------
+-- A single letter: no FULLTEXT, a name-ordered scan that stops at 1,001 hits
+-- -----------------------------------------------------
+SET @term = 'z';
+
+EXPLAIN ANALYZE
+SELECT * FROM bench_patients WHERE clinic_id = 7 AND (name LIKE CONCAT('%', @term, '%')
+  OR phone LIKE CONCAT('%', @term, '%')) ORDER BY name ASC;
+
+EXPLAIN ANALYZE
+SELECT patient_id, 3 AS tier, name FROM bench_patients
+WHERE clinic_id = 7 AND name LIKE CONCAT('%', @term, '%') ORDER BY name, patient_id LIMIT 1001;
+
+-- -----------------------------------------------------
+-- Phone: whole number, last digits, and a fragment from the middle
+-- -----------------------------------------------------
+SET @phone = (SELECT phone_digits FROM bench_patients WHERE patient_id = 123457);
+SET @suffix = RIGHT(@phone, 4);
+SET @fragment = SUBSTRING(@phone, 4, 4);
+
+EXPLAIN ANALYZE
+SELECT * FROM bench_patients WHERE clinic_id = 7 AND (name LIKE CONCAT('%', @phone, '%')
+  OR phone LIKE CONCAT('%', @phone, '%')) ORDER BY name ASC;
+
+EXPLAIN ANALYZE
+SELECT patient_id, 0 AS tier, name FROM bench_patients
+WHERE clinic_id = 7 AND phone_digits = @phone ORDER BY name, patient_id LIMIT 1001;
+
+EXPLAIN ANALYZE
+SELECT patient_id, 1 AS tier, name FROM bench_patients
+WHERE clinic_id = 7 AND phone_rev LIKE CONCAT(REVERSE(@suffix), '%') ORDER BY name, patient_id LIMIT 1001;
+
+-- Only runs when neither of the above finds anyone
+EXPLAIN ANALYZE
+SELECT patient_id, 4 AS tier, name FROM bench_patients
+WHERE clinic_id = 7 AND phone_digits LIKE CONCAT('%', @fragment, '%')
+  AND NOT EXISTS (SELECT 1 FROM bench_patients WHERE clinic_id = 7 AND phone_digits = @fragment)
+  AND NOT EXISTS (SELECT 1 FROM bench_patients WHERE clinic_id = 7 AND phone_rev LIKE CONCAT(REVERSE(@fragment), '%'))
+ORDER BY name, patient_id LIMIT 1001;
+
+DROP TABLE bench_patients;
+DROP TABLE bench_digits;
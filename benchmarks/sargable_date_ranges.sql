@@ -0,0 +1,105 @@
+-- =================================================================
+-- Benchmark: DATE(column) = ? versus a half-open [start, end) range
+-- Database: MySQL 8.0.18+ (needs EXPLAIN ANALYZE)
+--
+-- Builds a scratch copy of `appointments` with 1,000,000 rows spread over
+-- 20 clinics, 200 doctors and ~3 years, with the same indexes as migration
+-- V001. It then runs each "today" / "by date" lookup in both forms.
+--
+-- Run:  mysql -u root -p clinicdb < benchmarks/sargable_date_ranges.sql
+-- What to look for in the EXPLAIN ANALYZE output:
+--   * DATE(...) form: "Covering index scan" / "Index scan" over every row of
+--     the clinic (or the whole index), rows examined in the 10^4-10^6 range.
+--   * Range form: "Covering index range scan ... (appointment_date >= ...
+--     and appointment_date < ...)", rows examined equal to the rows returned.
+-- The scratch tables are dropped at the end.
+-- =================================================================
+USE clinicdb;
+
+DROP TABLE IF EXISTS bench_digits;
+DROP TABLE IF EXISTS bench_appointments;
+
+CREATE TABLE bench_digits (d INT PRIMARY KEY) ENGINE=InnoDB;
+INSERT INTO bench_digits VALUES (0), (1), (2), (3), (4), (5), (6), (7), (8), (9);
+
+CREATE TABLE bench_appointments (
+  appointment_id INT AUTO_INCREMENT PRIMARY KEY,
+  patient_id INT NOT NULL,
+  doctor_id INT NOT NULL,
+  clinic_id INT NOT NULL,
+  appointment_date DATETIME NOT NULL,
+  status ENUM('Scheduled', 'Completed', 'Cancelled') NOT NULL DEFAULT 'Scheduled',
+  notes TEXT,
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  INDEX idx_appointments_clinic_date (clinic_id, appointment_date, status, doctor_id),
+  INDEX idx_appointments_doctor_date_status (doctor_id, appointment_date, status)
+) ENGINE=InnoDB;
+
+-- 10^6 rows: n = 0 .. 999999. Dates run back ~3 years from today, in
+-- 90-second steps, so every day has roughly 1,000 appointments.
+INSERT INTO bench_appointments (patient_id, doctor_id, clinic_id, appointment_date, status)
+SELECT n % 50000 + 1,
+       n % 200 + 1,
+       n % 20 + 1,
+       NOW() - INTERVAL (n * 90) SECOND,
+       ELT(n % 3 + 1, 'Scheduled', 'Completed', 'Cancelled')
+FROM (
+  SELECT a.d + b.d * 10 + c.d * 100 + e.d * 1000 + f.d * 10000 + g.d * 100000 AS n
+  FROM bench_digits a, bench_digits b, bench_digits c, bench_digits e, bench_digits f, bench_digits g
+) seq;
+
+ANALYZE TABLE bench_appointments;
+
+SET @day_start = CURDATE();
+SET @day_end = CURDATE() + INTERVAL 1 DAY;
+SET @past_start = CURDATE() - INTERVAL 400 DAY;
+SET @past_end = @past_start + INTERVAL 1 DAY;
+
+-- -----------------------------------------------------
+-- ReportDAO.getTodaysAppointmentCountForClinic
+-- -----------------------------------------------------
+EXPLAIN ANALYZE
+SELECT COUNT(*) FROM bench_appointments WHERE clinic_id = 7 AND DATE(appointment_date) = CURDATE();
+
+EXPLAIN ANALYZE
+SELECT COUNT(*) FROM bench_appointments
+WHERE clinic_id = 7 AND appointment_date >= @day_start AND appointment_date < @day_end;
+
+-- -----------------------------------------------------
+-- ReportDAO.getPendingPatientCountForToday
+-- -----------------------------------------------------
+EXPLAIN ANALYZE
+SELECT COUNT(*) FROM bench_appointments
+WHERE clinic_id = 7 AND DATE(appointment_date) = CURDATE() AND status = 'Scheduled';
+
+EXPLAIN ANALYZE
+SELECT COUNT(*) FROM bench_appointments
+WHERE clinic_id = 7 AND appointment_date >= @day_start AND appointment_date < @day_end
+  AND status = 'Scheduled';
+
+-- -----------------------------------------------------
+-- AppointmentDAO.getTodaysAppointmentCountForDoctor
+-- -----------------------------------------------------
+EXPLAIN ANALYZE
+SELECT COUNT(*) FROM bench_appointments WHERE doctor_id = 42 AND DATE(appointment_date) = CURDATE();
+
+EXPLAIN ANALYZE
+SELECT COUNT(*) FROM bench_appointments
+WHERE doctor_id = 42 AND appointment_date >= @day_start AND appointment_date < @day_end;
+
+-- -----------------------------------------------------
+-- AppointmentDAO.getAppointmentsByDate (a day in the past; the DATE() form
+-- scans the clinic's whole history regardless of which day is asked for)
+-- -----------------------------------------------------
+EXPLAIN ANALYZE
+SELECT * FROM bench_appointments
+WHERE clinic_id = 7 AND DATE(appointment_date) = DATE(@past_start)
+ORDER BY appointment_date DESC;
+
+EXPLAIN ANALYZE
+SELECT * FROM bench_appointments
+WHERE clinic_id = 7 AND appointment_date >= @past_start AND appointment_date < @past_end
+ORDER BY appointment_date DESC;
+
+DROP TABLE bench_appointments;
+DROP TABLE bench_digits;
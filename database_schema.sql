@@ -7,13 +7,20 @@ USE clinicdb;
 
 
 -- Drop tables if they exist to start fresh (useful for development)
+-- Indexes and later schema changes are applied by the application at startup
+-- (see src/cms/model/database/migrations); dropping schema_version makes them
+-- run again against the fresh tables.
+DROP TABLE IF EXISTS schema_version;
 DROP TABLE IF EXISTS specialization;
 DROP TABLE IF EXISTS billing;
 -- DROP TABLE IF EXISTS prescriptions;
 DROP TABLE IF EXISTS appointments;
 DROP TABLE IF EXISTS patients;
+DROP TABLE IF EXISTS doctor_daily_stats;
+DROP TABLE IF EXISTS clinic_daily_stats;
 DROP TABLE IF EXISTS doctors;
 DROP TABLE IF EXISTS users;
+DROP TABLE IF EXISTS patient_imports;
 DROP TABLE IF EXISTS clinics;
 DROP TABLE IF EXISTS super_admins;
 
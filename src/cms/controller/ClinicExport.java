@@ -0,0 +1,301 @@
+package cms.controller;
+
+import cms.model.cache.ReportCache;
+import cms.model.dao.ExportDAO;
+import cms.model.dao.ExportDAO.Table;
+import cms.utils.CsvReader;
+import cms.utils.LoggerUtil;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports one clinic's data, or every clinic's for the super admin, to a ZIP
+ * archive: one entry per table (clinics, staff, patients, appointments,
+ * bills) as NDJSON (one JSON object per line) or CSV with a header row, and
+ * a {@code manifest.json} with the row counts.
+ * <p>
+ * Rows are streamed from {@link ExportDAO} straight into the compressor and
+ * out through a buffered file channel, so memory use stays flat however many
+ * rows there are. The archive is written to {@code <file>.part} and only
+ * renamed once complete; a cancelled or failed export leaves nothing behind.
+ * Staff password hashes are never exported.
+ */
+public final class ClinicExport {
+
+    /**
+     * The format of the table entries.
+     */
+    public enum Format {
+        NDJSON("ndjson"), CSV("csv");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    // Deflating is the bottleneck; the fastest level still shrinks row data several times
+    private static final int COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final long PROGRESS_EVERY_ROWS = 10_000;
+
+    /**
+     * How far an export has got.
+     */
+    public static final class Progress {
+        private final String table;
+        private final long tableRows;
+        private final long totalRows;
+
+        private Progress(String table, long tableRows, long totalRows) {
+            this.table = table;
+            this.tableRows = tableRows;
+            this.totalRows = totalRows;
+        }
+
+        /** @return The table being exported, e.g. "patients". */
+        public String getTable() {
+            return table;
+        }
+
+        public long getTableRows() {
+            return tableRows;
+        }
+
+        public long getTotalRows() {
+            return totalRows;
+        }
+    }
+
+    private final int clinicId;
+    private final Path target;
+    private final Format format;
+    private volatile boolean cancelled;
+
+    /**
+     * @param clinicId The clinic, or {@link ReportCache#ALL_CLINICS}.
+     * @param target   The archive to write; replaced if it exists.
+     */
+    public ClinicExport(int clinicId, Path target, Format format) {
+        this.clinicId = clinicId;
+        this.target = target.toAbsolutePath();
+        this.format = format;
+    }
+
+    /**
+     * Stops {@link #run} as soon as possible; the partial archive is deleted.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Writes the archive. Blocks until done or cancelled; call off the EDT.
+     *
+     * @param onProgress Called on this thread every few thousand rows.
+     * @return The row count of each table, or null if cancelled.
+     */
+    public Map<String, Long> run(Consumer<Progress> onProgress) throws IOException, SQLException {
+        long start = System.nanoTime();
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        Map<String, Long> counts = new LinkedHashMap<>();
+        boolean completed = false;
+        try {
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                    ZipOutputStream zip = new ZipOutputStream(
+                            new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_BYTES));
+                    Writer out = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8),
+                            BUFFER_BYTES)) {
+                zip.setLevel(COMPRESSION_LEVEL);
+                TableWriter writer = new TableWriter(zip, out, counts, onProgress);
+                if (!new ExportDAO().export(clinicId, writer)) {
+                    return null;
+                }
+                zip.putNextEntry(new ZipEntry("manifest.json"));
+                out.write(manifest(counts));
+                out.flush();
+                zip.closeEntry();
+            }
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            completed = true;
+            LoggerUtil.logInfo(String.format("Exported %s (%d rows) to %s in %d ms",
+                    clinicId == ReportCache.ALL_CLINICS ? "all clinics" : "clinic " + clinicId,
+                    counts.values().stream().mapToLong(Long::longValue).sum(), target,
+                    (System.nanoTime() - start) / 1_000_000));
+            return counts;
+        } finally {
+            if (!completed) {
+                Files.deleteIfExists(part);
+            }
+        }
+    }
+
+    private String manifest(Map<String, Long> counts) {
+        StringBuilder json = new StringBuilder("{\"clinic_id\":");
+        json.append(clinicId == ReportCache.ALL_CLINICS ? "null" : Integer.toString(clinicId));
+        json.append(",\"exported_at\":");
+        appendJsonString(json, Instant.now().toString());
+        json.append(",\"format\":");
+        appendJsonString(json, format.extension);
+        json.append(",\"tables\":{");
+        boolean first = true;
+        for (Map.Entry<String, Long> count : counts.entrySet()) {
+            json.append(first ? "" : ",");
+            appendJsonString(json, count.getKey());
+            json.append(':').append(count.getValue());
+            first = false;
+        }
+        return json.append("}}").append('\n').toString();
+    }
+
+    /**
+     * Writes each table as one archive entry.
+     */
+    private final class TableWriter implements ExportDAO.RowSink {
+        private final ZipOutputStream zip;
+        private final Writer out;
+        private final Map<String, Long> counts;
+        private final Consumer<Progress> onProgress;
+        private final StringBuilder line = new StringBuilder(1024);
+        private final List<String> fields = new ArrayList<>();
+        private List<String> columns;
+        private String table;
+        private long tableRows;
+        private long totalRows;
+
+        private TableWriter(ZipOutputStream zip, Writer out, Map<String, Long> counts,
+                Consumer<Progress> onProgress) {
+            this.zip = zip;
+            this.out = out;
+            this.counts = counts;
+            this.onProgress = onProgress;
+        }
+
+        @Override
+        public void startTable(Table table, List<String> columns) throws IOException {
+            this.table = table.getFileName();
+            this.columns = columns;
+            this.tableRows = 0;
+            zip.putNextEntry(new ZipEntry(this.table + "." + format.extension));
+            if (format == Format.CSV) {
+                out.write(CsvReader.toLine(columns));
+                out.write('\n');
+            }
+            onProgress.accept(new Progress(this.table, 0, totalRows));
+        }
+
+        @Override
+        public boolean row(Object[] values) throws IOException {
+            if (cancelled) {
+                return false;
+            }
+            line.setLength(0);
+            if (format == Format.NDJSON) {
+                line.append('{');
+                for (int i = 0; i < values.length; i++) {
+                    line.append(i == 0 ? "" : ",");
+                    appendJsonString(line, columns.get(i));
+                    line.append(':');
+                    appendJsonValue(line, values[i]);
+                }
+                line.append('}');
+            } else {
+                fields.clear();
+                for (Object value : values) {
+                    fields.add(value == null ? "" : text(value));
+                }
+                line.append(CsvReader.toLine(fields));
+            }
+            out.append(line).append('\n');
+
+            tableRows++;
+            totalRows++;
+            if (tableRows % PROGRESS_EVERY_ROWS == 0) {
+                onProgress.accept(new Progress(table, tableRows, totalRows));
+            }
+            return true;
+        }
+
+        @Override
+        public void endTable(Table table, long rows) throws IOException {
+            out.flush();
+            zip.closeEntry();
+            counts.put(this.table, rows);
+            onProgress.accept(new Progress(this.table, rows, totalRows));
+        }
+    }
+
+    private static void appendJsonValue(StringBuilder json, Object value) {
+        if (value == null) {
+            json.append("null");
+        } else if (value instanceof BigDecimal decimal) {
+            json.append(decimal.toPlainString());
+        } else if (value instanceof Number || value instanceof Boolean) {
+            json.append(value);
+        } else {
+            appendJsonString(json, text(value));
+        }
+    }
+
+    /**
+     * @return The value as text; dates and times in ISO-8601.
+     */
+    private static String text(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toString();
+        }
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate().toString();
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        return value.toString(); // Strings, and LocalDateTime for DATETIME columns
+    }
+
+    private static void appendJsonString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,635 @@
+package cms.controller;
+
+import cms.model.cache.PatientTypeaheadIndex;
+import cms.model.dao.PatientDAO;
+import cms.model.dao.PatientImportDAO;
+import cms.model.dao.PatientImportDAO.Checkpoint;
+import cms.model.dao.UnitOfWork;
+import cms.model.entities.Patient;
+import cms.utils.CsvReader;
+import cms.utils.LoggerUtil;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Imports a clinic's patients from a CSV file, e.g. 300,000 records brought
+ * over from another system.
+ * <p>
+ * The file is streamed: records are read in chunks of
+ * {@code -Dcms.import.chunkRows} (default 1000), validated and normalized on
+ * {@code -Dcms.import.threads} worker threads, and each chunk's valid rows go
+ * in as one JDBC batch (sent as multi-row INSERTs) in a transaction of its
+ * own. Memory use depends on the chunk size, not the file size.
+ * <p>
+ * Rows that fail validation, or that the database refuses, are written with
+ * the reason to {@code <file>.rejects.csv} next to the file, and the rest of
+ * the file is still imported. Each chunk's transaction also saves a
+ * checkpoint ({@link PatientImportDAO}), so importing the same, unchanged
+ * file again after a crash or {@link #cancel} carries on after the last
+ * committed chunk; once finished, importing it again does nothing. Only one
+ * run at a time imports a given file into a clinic; another fails at once.
+ * <p>
+ * Columns are found by their header, in any order: name, dob, gender (all
+ * required), phone, address, blood_group, allergies and registered. The
+ * registered date is kept as the patient's registration date, so the reports
+ * count imported patients when they first came rather than as new today;
+ * rows without one are dated the day the file was last modified.
+ */
+public final class PatientImport {
+
+    private static final int CHUNK_ROWS = Integer.getInteger("cms.import.chunkRows", 1000);
+    private static final int THREADS = Integer.getInteger("cms.import.threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+    private static final Set<String> BLOOD_GROUPS = Set.of("A+", "A-", "B+", "B-", "AB+", "AB-", "O+", "O-");
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ofPattern("uuuu-M-d").withResolverStyle(ResolverStyle.STRICT),
+            DateTimeFormatter.ofPattern("d/M/uuuu").withResolverStyle(ResolverStyle.STRICT),
+            DateTimeFormatter.ofPattern("d-M-uuuu").withResolverStyle(ResolverStyle.STRICT),
+            DateTimeFormatter.ofPattern("d.M.uuuu").withResolverStyle(ResolverStyle.STRICT));
+    private static final LocalDate EARLIEST_DOB = LocalDate.of(1900, 1, 1);
+    private static final LocalDate EARLIEST_REGISTERED = LocalDate.of(1970, 1, 2); // created_at is a TIMESTAMP
+
+    // Column sizes in the patients table
+    private static final int MAX_NAME = 100;
+    private static final int MAX_ADDRESS = 255;
+    private static final int MAX_ALLERGIES = 16_000; // TEXT holds 64 KB, 4 bytes a character at worst
+
+    // MySQL's "Incorrect string value", reported with the generic SQL state HY000
+    private static final int ER_TRUNCATED_WRONG_VALUE_FOR_FIELD = 1366;
+
+    /**
+     * The columns read from the file, with the header names each may have
+     * (lower case, letters only).
+     */
+    private enum Column {
+        NAME(true, "name", "fullname", "patientname"),
+        DOB(true, "dob", "dateofbirth", "birthdate"),
+        GENDER(true, "gender", "sex"),
+        PHONE(false, "phone", "phonenumber", "mobile", "contact"),
+        ADDRESS(false, "address"),
+        BLOOD_GROUP(false, "bloodgroup", "blood"),
+        ALLERGIES(false, "allergies"),
+        REGISTERED(false, "registered", "registeredon", "registrationdate", "dateregistered", "createdat");
+
+        private final boolean required;
+        private final List<String> headers;
+
+        Column(boolean required, String... headers) {
+            this.required = required;
+            this.headers = List.of(headers);
+        }
+    }
+
+    /**
+     * How far an import has got. Byte counts are of the CSV file.
+     */
+    public static final class Progress {
+        private final long bytesRead;
+        private final long totalBytes;
+        private final long rowsDone;
+        private final long imported;
+        private final long rejected;
+        private final boolean finished;
+
+        private Progress(long bytesRead, long totalBytes, long rowsDone, long imported, long rejected,
+                boolean finished) {
+            this.bytesRead = bytesRead;
+            this.totalBytes = totalBytes;
+            this.rowsDone = rowsDone;
+            this.imported = imported;
+            this.rejected = rejected;
+            this.finished = finished;
+        }
+
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        /** @return The number of records imported or rejected so far. */
+        public long getRowsDone() {
+            return rowsDone;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        /** @return true once every record of the file has been dealt with. */
+        public boolean isFinished() {
+            return finished;
+        }
+
+        public int getPercent() {
+            return finished || totalBytes == 0 ? 100 : (int) Math.min(99, bytesRead * 100 / totalBytes);
+        }
+    }
+
+    private final int clinicId;
+    private final Path file;
+    private final Path rejectFile;
+    private final PatientDAO patientDAO = new PatientDAO();
+    private final PatientImportDAO importDAO = new PatientImportDAO();
+    private volatile boolean cancelled;
+
+    // Committed totals, advanced by each chunk; only touched by the thread in run()
+    private long rowsDone;
+    private long imported;
+    private long rejected;
+    private String sourceKey;
+    private FileChannel rejects;
+
+    /**
+     * @param file The CSV file, UTF-8, with a header row.
+     */
+    public PatientImport(int clinicId, Path file) {
+        this.clinicId = clinicId;
+        this.file = file.toAbsolutePath();
+        this.rejectFile = this.file.resolveSibling(file.getFileName() + ".rejects.csv");
+    }
+
+    /**
+     * @return Where rejected rows are written, with the reason in front.
+     */
+    public Path getRejectFile() {
+        return rejectFile;
+    }
+
+    /**
+     * Stops {@link #run} after the chunk being written; the import can be
+     * resumed later by running it again.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Imports the file, or the rest of it if an earlier run was interrupted.
+     * Blocks until done or cancelled; call off the EDT.
+     *
+     * @param onProgress Called on this thread after each committed chunk.
+     * @return The final progress; not {@link Progress#isFinished} if cancelled.
+     * @throws IOException  If the file can't be read or has no usable header,
+     *                      or the reject file can't be written.
+     * @throws SQLException If the database fails; the committed chunks stay.
+     */
+    public Progress run(Consumer<Progress> onProgress) throws IOException, SQLException {
+        long start = System.nanoTime();
+        long size = Files.size(file);
+        sourceKey = sourceKey(size);
+        try (PatientImportDAO.ImportLock _ = importDAO.lock(clinicId, sourceKey)) {
+            importDAO.start(clinicId, sourceKey, file.getFileName().toString());
+            return runLocked(onProgress, start, size);
+        }
+    }
+
+    // Runs the import holding the file's lock
+    private Progress runLocked(Consumer<Progress> onProgress, long start, long size) throws IOException, SQLException {
+        Checkpoint checkpoint = importDAO.getCheckpoint(clinicId, sourceKey);
+        if (checkpoint != null && checkpoint.isFinished()) {
+            return new Progress(size, size, checkpoint.getRowsDone(), checkpoint.getImported(),
+                    checkpoint.getRejected(), true);
+        }
+        rowsDone = checkpoint == null ? 0 : checkpoint.getRowsDone();
+        imported = checkpoint == null ? 0 : checkpoint.getImported();
+        rejected = checkpoint == null ? 0 : checkpoint.getRejected();
+        long importedBefore = imported;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(THREADS, r -> {
+            Thread t = new Thread(r, "cms-import-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try (CountingInputStream in = new CountingInputStream(Files.newInputStream(file));
+                CsvReader csv = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                FileChannel rejectChannel = FileChannel.open(rejectFile, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE)) {
+            rejects = rejectChannel;
+            List<String> header = csv.next();
+            if (header == null) {
+                throw new IOException("The file is empty.");
+            }
+            header.set(0, header.get(0).replace("\uFEFF", "")); // Excel's byte order mark
+            int[] columns = mapColumns(header);
+            LocalDate fileDate = LocalDate.ofInstant(Files.getLastModifiedTime(file).toInstant(),
+                    ZoneId.systemDefault());
+
+            // Drop rejects written after the last checkpoint; they are rejected again below
+            long rejectsBytes = checkpoint == null ? 0 : checkpoint.getRejectsBytes();
+            rejects.truncate(rejectsBytes);
+            rejects.position(rejectsBytes);
+            if (rejectsBytes == 0) {
+                List<String> rejectHeader = new ArrayList<>(List.of("row", "error"));
+                rejectHeader.addAll(header);
+                writeLine(CsvReader.toLine(rejectHeader));
+            }
+            for (long skipped = 0; skipped < rowsDone && csv.next() != null; skipped++) {
+                // Already imported or rejected
+            }
+
+            // Chunks are validated ahead of the one being written, a few per worker
+            Deque<Future<Chunk>> validating = new ArrayDeque<>();
+            boolean endOfFile = false;
+            while (!endOfFile && !cancelled) {
+                List<List<String>> records = new ArrayList<>(CHUNK_ROWS);
+                List<String> record;
+                while (records.size() < CHUNK_ROWS && (record = csv.next()) != null) {
+                    records.add(record);
+                }
+                endOfFile = records.size() < CHUNK_ROWS;
+                if (!records.isEmpty()) {
+                    long firstRow = csv.getRecordCount() - records.size(); // Rows count from 1 after the header
+                    validating.add(workers.submit(() -> validate(firstRow, records, columns, fileDate)));
+                }
+                while (!validating.isEmpty() && !cancelled && (endOfFile || validating.size() > THREADS * 2)) {
+                    write(await(validating.poll()));
+                    onProgress.accept(new Progress(in.getCount(), size, rowsDone, imported, rejected, false));
+                }
+            }
+
+            boolean finished = endOfFile && validating.isEmpty();
+            if (finished) {
+                Checkpoint done = new Checkpoint(rowsDone, imported, rejected, rejects.position(), true);
+                UnitOfWork.execute(uow -> {
+                    importDAO.saveCheckpoint(uow, clinicId, sourceKey, rowsDone, done);
+                    return null;
+                });
+            }
+            LoggerUtil.logInfo(String.format("Patient import of %s into clinic %d %s: %d imported, %d rejected "
+                    + "in %d ms", file.getFileName(), clinicId, finished ? "finished" : "stopped", imported,
+                    rejected, (System.nanoTime() - start) / 1_000_000));
+            return new Progress(in.getCount(), size, rowsDone, imported, rejected, finished);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            workers.shutdownNow();
+            if (imported > importedBefore) {
+                PatientTypeaheadIndex.requestRefresh(clinicId);
+            }
+        }
+    }
+
+    /**
+     * Identifies the file's contents for resuming: its path, size and last
+     * modification, hashed to fit the checkpoint key.
+     */
+    private String sourceKey(long size) throws IOException {
+        String identity = file + "|" + size + "|" + Files.getLastModifiedTime(file).toMillis();
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(identity.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+    }
+
+    /**
+     * @return The index of each {@link Column} in the file's records, -1 if
+     *         the file doesn't have it.
+     */
+    private static int[] mapColumns(List<String> header) throws IOException {
+        int[] columns = new int[Column.values().length];
+        Arrays.fill(columns, -1);
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).toLowerCase(Locale.ROOT).replaceAll("[^a-z]", "");
+            for (Column column : Column.values()) {
+                if (columns[column.ordinal()] < 0 && column.headers.contains(name)) {
+                    columns[column.ordinal()] = i;
+                }
+            }
+        }
+        for (Column column : Column.values()) {
+            if (column.required && columns[column.ordinal()] < 0) {
+                throw new IOException("The file has no '" + column.headers.get(0) + "' column.");
+            }
+        }
+        return columns;
+    }
+
+    private static Chunk await(Future<Chunk> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("The import was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Validating rows failed.", e.getCause());
+        }
+    }
+
+    // --- Validation (worker threads) ---
+
+    private static Chunk validate(long firstRow, List<List<String>> records, int[] columns, LocalDate fileDate) {
+        Chunk chunk = new Chunk(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            List<String> fields = records.get(i);
+            try {
+                chunk.valid.add(new Row(firstRow + i, fields, toPatient(fields, columns, fileDate)));
+            } catch (IllegalArgumentException e) {
+                chunk.rejects.add(new Row(firstRow + i, fields, e.getMessage()));
+            }
+        }
+        return chunk;
+    }
+
+    private static Patient toPatient(List<String> fields, int[] columns, LocalDate fileDate) {
+        Patient patient = new Patient();
+
+        String name = field(fields, columns, Column.NAME).replaceAll("\\s+", " ");
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Name is required.");
+        }
+        patient.setName(checkLength("Name", name, MAX_NAME));
+        patient.setDob(parseDate("Date of birth", field(fields, columns, Column.DOB), EARLIEST_DOB));
+        patient.setGender(normalizeGender(field(fields, columns, Column.GENDER)));
+        patient.setPhone(normalizePhone(field(fields, columns, Column.PHONE)));
+        patient.setBloodGroup(normalizeBloodGroup(field(fields, columns, Column.BLOOD_GROUP)));
+        patient.setAddress(blankToNull(checkLength("Address", field(fields, columns, Column.ADDRESS), MAX_ADDRESS)));
+        patient.setAllergies(blankToNull(
+                checkLength("Allergies", field(fields, columns, Column.ALLERGIES), MAX_ALLERGIES)));
+        String registered = field(fields, columns, Column.REGISTERED);
+        patient.setCreatedAt((registered.isEmpty() ? fileDate
+                : parseDate("Registration date", registered, EARLIEST_REGISTERED)).atStartOfDay());
+        return patient;
+    }
+
+    private static String field(List<String> fields, int[] columns, Column column) {
+        int index = columns[column.ordinal()];
+        return index < 0 || index >= fields.size() ? "" : fields.get(index).strip();
+    }
+
+    private static LocalDate parseDate(String label, String value, LocalDate earliest) {
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException(label + " is required.");
+        }
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                LocalDate date = LocalDate.parse(value, format);
+                if (date.isAfter(LocalDate.now()) || date.isBefore(earliest)) {
+                    throw new IllegalArgumentException(label + " " + value + " is out of range.");
+                }
+                return date;
+            } catch (DateTimeParseException e) {
+                // Try the next format
+            }
+        }
+        throw new IllegalArgumentException("Unrecognised " + label.toLowerCase(Locale.ROOT) + " '" + value
+                + "'; use yyyy-mm-dd or dd/mm/yyyy.");
+    }
+
+    private static String normalizeGender(String value) {
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "m", "male" -> "Male";
+            case "f", "female" -> "Female";
+            case "o", "other" -> "Other";
+            default -> throw new IllegalArgumentException("Gender must be Male, Female or Other, not '" + value + "'.");
+        };
+    }
+
+    /**
+     * Strips spacing and punctuation ("+91 98470-12345" becomes
+     * "+919847012345") and turns a leading 00 into +.
+     */
+    private static String normalizePhone(String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        String phone = value.replaceAll("[\\s().-]", "");
+        if (phone.startsWith("00")) {
+            phone = "+" + phone.substring(2);
+        }
+        if (!phone.matches("\\+?\\d{7,15}")) {
+            throw new IllegalArgumentException("Phone number '" + value + "' must have 7 to 15 digits.");
+        }
+        return phone;
+    }
+
+    /**
+     * Accepts the usual spellings: "B+", "b +ve", "AB positive", "O NEG".
+     */
+    private static String normalizeBloodGroup(String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        String group = value.toUpperCase(Locale.ROOT).replaceAll("\\s", "")
+                .replace("POSITIVE", "+").replace("NEGATIVE", "-")
+                .replace("POS", "+").replace("NEG", "-")
+                .replace("+VE", "+").replace("-VE", "-");
+        if (group.startsWith("0")) {
+            group = "O" + group.substring(1); // Zero for O
+        }
+        if (!BLOOD_GROUPS.contains(group)) {
+            throw new IllegalArgumentException("Unknown blood group '" + value + "'.");
+        }
+        return group;
+    }
+
+    private static String checkLength(String label, String value, int max) {
+        if (value.length() > max) {
+            throw new IllegalArgumentException(label + " is longer than " + max + " characters.");
+        }
+        return value;
+    }
+
+    private static String blankToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    // --- Writing (the thread in run()) ---
+
+    /**
+     * Inserts a chunk's valid rows as one batch and saves the checkpoint in
+     * the same transaction. If the database refuses the batch, the chunk is
+     * redone row by row and the refused rows are rejected.
+     */
+    private void write(Chunk chunk) throws IOException, SQLException {
+        long rejectsStart = rejects.position();
+        Checkpoint done;
+        try {
+            done = UnitOfWork.execute(uow -> {
+                int added = patientDAO.addPatients(uow, clinicId, chunk.patients());
+                return saveChunk(uow, chunk.size, added, chunk.rejects, rejectsStart);
+            });
+        } catch (BatchUpdateException e) {
+            LoggerUtil.logWarning("Patient import: a batch of " + chunk.valid.size() + " rows was refused ("
+                    + e.getMessage() + "); inserting them one by one.");
+            done = UnitOfWork.execute(uow -> {
+                List<Row> refused = new ArrayList<>(chunk.rejects);
+                int added = 0;
+                for (Row row : chunk.valid) {
+                    try {
+                        added += patientDAO.addPatients(uow, clinicId, List.of(row.patient));
+                    } catch (SQLException rowFailure) {
+                        if (!isBadRow(rowFailure)) {
+                            throw rowFailure;
+                        }
+                        refused.add(new Row(row.number, row.fields, rowFailure.getMessage()));
+                    }
+                }
+                return saveChunk(uow, chunk.size, added, refused, rejectsStart);
+            });
+        }
+        rowsDone = done.getRowsDone();
+        imported = done.getImported();
+        rejected = done.getRejected();
+    }
+
+    /**
+     * Writes the chunk's rejects, durably, and saves the checkpoint that
+     * covers them. Rejects of an earlier attempt at the chunk are replaced.
+     */
+    private Checkpoint saveChunk(UnitOfWork uow, int records, int added, List<Row> chunkRejects, long rejectsStart)
+            throws SQLException {
+        try {
+            rejects.truncate(rejectsStart);
+            rejects.position(rejectsStart);
+            for (Row row : chunkRejects) {
+                List<String> line = new ArrayList<>(row.fields.size() + 2);
+                line.add(Long.toString(row.number));
+                line.add(row.error);
+                line.addAll(row.fields);
+                writeLine(CsvReader.toLine(line));
+            }
+            rejects.force(false);
+            Checkpoint checkpoint = new Checkpoint(rowsDone + records, imported + added,
+                    rejected + chunkRejects.size(), rejects.position(), false);
+            importDAO.saveCheckpoint(uow, clinicId, sourceKey, rowsDone, checkpoint);
+            return checkpoint;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLine(String line) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap((line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            rejects.write(bytes);
+        }
+    }
+
+    /**
+     * @return true if the row's own data was refused, so it can be rejected
+     *         and the import carry on.
+     */
+    private static boolean isBadRow(SQLException e) {
+        String state = e.getSQLState();
+        return (state != null && (state.startsWith("22") || state.startsWith("23")))
+                || e.getErrorCode() == ER_TRUNCATED_WRONG_VALUE_FOR_FIELD;
+    }
+
+    /**
+     * One CSV record; a patient if it is valid, an error if it was rejected.
+     */
+    private static final class Row {
+        private final long number;
+        private final List<String> fields;
+        private final Patient patient;
+        private final String error;
+
+        private Row(long number, List<String> fields, Patient patient) {
+            this.number = number;
+            this.fields = fields;
+            this.patient = patient;
+            this.error = null;
+        }
+
+        private Row(long number, List<String> fields, String error) {
+            this.number = number;
+            this.fields = fields;
+            this.patient = null;
+            this.error = error;
+        }
+    }
+
+    private static final class Chunk {
+        private final int size;
+        private final List<Row> valid = new ArrayList<>();
+        private final List<Row> rejects = new ArrayList<>();
+
+        private Chunk(int size) {
+            this.size = size;
+        }
+
+        private List<Patient> patients() {
+            List<Patient> patients = new ArrayList<>(valid.size());
+            for (Row row : valid) {
+                patients.add(row.patient);
+            }
+            return patients;
+        }
+    }
+
+    /**
+     * Counts the bytes read from the file, for progress.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package cms.controller;
+
+import cms.model.cache.PatientTypeaheadIndex;
+import cms.model.cache.ReportCache;
+import cms.model.dao.AppointmentDAO;
+import cms.model.dao.AsyncDao;
+import cms.model.dao.DoctorDAO;
+import cms.model.dao.Page;
+import cms.model.dao.PageRequest;
+import cms.model.dao.PatientDAO;
+import cms.model.dao.ReportDAO;
+import cms.model.dao.SpecializationDAO;
+import cms.model.entities.Appointment;
+import cms.model.entities.DashboardSnapshot;
+import cms.model.entities.Doctor;
+import cms.model.entities.Enums.Role;
+import cms.model.entities.User;
+import cms.utils.LoggerUtil;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Fetches the data a role's dashboard shows first (its KPI snapshot, today's
+ * appointments), in parallel on virtual threads, while the dashboard frame is
+ * still being built.
+ * <p>
+ * Pages read a warmed value once through {@link #take}, so their first paint
+ * comes from memory; later refreshes (and values that aren't ready or are
+ * older than {@code -Dcms.warmup.maxAgeSeconds}, default 60) go to the
+ * database as before. Reference lists (doctors, specializations) and the
+ * patient type-ahead index are warmed into their own caches instead.
+ */
+public final class SessionWarmup {
+
+    /**
+     * Names one warmed value and its type.
+     */
+    public static final class Key<T> {
+        private final String name;
+
+        private Key(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    public static final Key<Doctor> DOCTOR_PROFILE = new Key<>("doctor profile");
+    public static final Key<DashboardSnapshot> DASHBOARD_SNAPSHOT = new Key<>("dashboard snapshot");
+    public static final Key<List<Appointment>> CLINIC_APPOINTMENTS_TODAY = new Key<>("clinic appointments today");
+    public static final Key<List<Appointment>> DOCTOR_SCHEDULE_TODAY = new Key<>("doctor's schedule today");
+    public static final Key<Page<Appointment>> DOCTOR_QUEUE_FIRST_PAGE = new Key<>("doctor's first queue page");
+
+    /** The page size of the doctor's consultation queue. */
+    public static final int DOCTOR_QUEUE_PAGE_SIZE = 10;
+
+    private static final long MAX_AGE_NANOS = Long.getLong("cms.warmup.maxAgeSeconds", 60L) * 1_000_000_000L;
+
+    private final Map<Key<?>, CompletableFuture<?>> warmed = new ConcurrentHashMap<>();
+    private final List<CompletableFuture<?>> tasks = new ArrayList<>();
+    private final ExecutorService executor;
+    private final long startNanos = System.nanoTime();
+
+    private SessionWarmup(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return A warmup with nothing warmed; every {@link #take} loads.
+     */
+    public static SessionWarmup none() {
+        return new SessionWarmup(null);
+    }
+
+    /**
+     * Starts fetching everything the user's dashboard shows first. Returns
+     * immediately.
+     */
+    public static SessionWarmup start(User user) {
+        SessionWarmup warmup = new SessionWarmup(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("cms-warmup-", 0).factory()));
+        int clinicId = user.getClinicId();
+        ReportDAO reportDAO = new ReportDAO();
+
+        switch (user.getRole()) {
+            case ADMIN -> {
+                warmup.fetch(DASHBOARD_SNAPSHOT, () -> reportDAO.loadDashboardSnapshot(Role.ADMIN, clinicId, 0));
+                warmup.warm(() -> new DoctorDAO().getActiveDoctorsByClinic(clinicId));
+                warmup.warm(() -> new SpecializationDAO().getActiveSpecializationsForClinic(clinicId));
+            }
+            case DOCTOR -> {
+                AppointmentDAO appointmentDAO = new AppointmentDAO();
+                CompletableFuture<Doctor> profile = warmup.fetch(DOCTOR_PROFILE,
+                        () -> new DoctorDAO().getDoctorByUserId(user.getUserId()));
+                // Blocking on the profile is cheap on a virtual thread
+                warmup.fetch(DASHBOARD_SNAPSHOT, () -> forDoctor(profile,
+                        d -> reportDAO.loadDashboardSnapshot(Role.DOCTOR, clinicId, d.getDoctorId())));
+                warmup.fetch(DOCTOR_QUEUE_FIRST_PAGE, () -> forDoctor(profile,
+                        d -> appointmentDAO.getTodaysAppointmentsForDoctor(d.getDoctorId(),
+                                PageRequest.first(DOCTOR_QUEUE_PAGE_SIZE))));
+                warmup.fetch(DOCTOR_SCHEDULE_TODAY, () -> forDoctor(profile,
+                        d -> appointmentDAO.getAppointmentsForDoctorByDate(d.getDoctorId(), LocalDate.now())));
+            }
+            case RECEPTIONIST -> {
+                warmup.fetch(DASHBOARD_SNAPSHOT,
+                        () -> reportDAO.loadDashboardSnapshot(Role.RECEPTIONIST, clinicId, 0));
+                warmup.fetch(CLINIC_APPOINTMENTS_TODAY,
+                        () -> new AppointmentDAO().getAppointmentsByDate(clinicId, LocalDate.now()));
+                warmup.warm(() -> new DoctorDAO().getActiveDoctorsByClinic(clinicId));
+                // Starts the index's own background load; not waited for
+                new PatientDAO().getTypeaheadIndex(clinicId);
+            }
+        }
+        warmup.finish(user);
+        return warmup;
+    }
+
+    /**
+     * Drops what the session kept in memory about its clinic, e.g. on logout,
+     * so nothing of it outlives the session.
+     */
+    public static void endSession() {
+        PatientTypeaheadIndex.evictAll();
+        ReportCache.invalidateAll();
+    }
+
+    /**
+     * Returns the warmed value for {@code key} the first time it's asked for,
+     * waiting for it if it's still being fetched; otherwise (and if warming it
+     * failed or it is stale) returns {@code loader}'s value.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T take(Key<T> key, Supplier<T> loader) {
+        CompletableFuture<T> future = (CompletableFuture<T>) warmed.remove(key);
+        if (future != null && System.nanoTime() - startNanos <= MAX_AGE_NANOS) {
+            try {
+                T value = future.join();
+                if (value != null) {
+                    return value;
+                }
+            } catch (Exception e) {
+                LoggerUtil.logError("Session warmup of " + key + " failed; loading it again", e);
+            }
+        }
+        return loader.get();
+    }
+
+    private <T> CompletableFuture<T> fetch(Key<T> key, Callable<T> loader) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(loader.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e); // take() then loads it again
+            }
+        });
+        warmed.put(key, future);
+        tasks.add(future);
+        return future;
+    }
+
+    // Loaded for its side effect on a cache the page reads through anyway
+    private void warm(Runnable loader) {
+        tasks.add(CompletableFuture.runAsync(loader, executor));
+    }
+
+    private void finish(User user) {
+        executor.shutdown(); // Every task is submitted; the threads end with them
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).whenComplete((_, error) -> {
+            long ms = (System.nanoTime() - startNanos) / 1_000_000;
+            String summary = String.format("Session warmup for %s (%s): %d fetches in %d ms",
+                    user.getUsername(), user.getRole(), tasks.size(), ms);
+            if (error == null) {
+                LoggerUtil.logInfo(summary);
+            } else {
+                LoggerUtil.logError(summary + ", some failed", error);
+            }
+        });
+    }
+
+    private static <T> T forDoctor(CompletableFuture<Doctor> profile, AsyncDao.Call<Doctor, T> fetch)
+            throws Exception {
+        Doctor doctor = profile.join();
+        return doctor == null ? null : fetch.call(doctor);
+    }
+}
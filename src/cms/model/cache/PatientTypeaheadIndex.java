@@ -0,0 +1,353 @@
+package cms.model.cache;
+
+import cms.model.entities.PatientSummary;
+import cms.utils.LoggerUtil;
+import cms.utils.PatientSearchTerm;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory index of one clinic's patients for type-ahead lookups by name
+ * or phone number, so a keystroke doesn't cost a database round trip.
+ * <p>
+ * The index is built lazily in the background from a slim
+ * {@link PatientSummary} projection the first time a clinic is looked up, and
+ * kept fresh by polling for rows whose {@code updated_at} moved since the last
+ * poll. Until the first load finishes {@link #isReady()} is false and callers
+ * fall back to the database.
+ * <p>
+ * Terms are matched and ranked by the rules in {@link PatientSearchTerm},
+ * the same ones {@code PatientSearchDAO} applies in SQL, so a search gives the
+ * same patients whether or not the index has loaded. Names containing a term
+ * of three or more characters are found through a trigram index; shorter
+ * terms, and phone number fragments, scan the clinic's names or numbers.
+ * <p>
+ * The indexes hold every patient of a clinic, so they only live for the
+ * user's session: {@link #evictAll} drops them on logout.
+ * <p>
+ * Patients are never deleted by the application (only with their clinic), so
+ * the index doesn't track deletions.
+ */
+public final class PatientTypeaheadIndex {
+
+    /**
+     * Loads a clinic's patients changed at or after a point in time.
+     */
+    public interface ChangeLoader {
+        /**
+         * @param since null to load every patient of the clinic.
+         */
+        List<PatientSummary> load(int clinicId, LocalDateTime since) throws SQLException;
+    }
+
+    private static final long POLL_INTERVAL_SECONDS = Long.getLong("cms.typeahead.pollSeconds", 10L);
+    // updated_at has one-second precision and a row's timestamp is taken before
+    // it commits, so each poll re-reads a short window behind the watermark.
+    private static final long POLL_OVERLAP_SECONDS = 2;
+
+    private static final int GRAM = 3;
+
+    private static final ConcurrentHashMap<Integer, PatientTypeaheadIndex> INDEXES = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService POLLER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cms-typeahead-poller");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        POLLER.scheduleWithFixedDelay(() -> INDEXES.values().forEach(PatientTypeaheadIndex::refresh),
+                POLL_INTERVAL_SECONDS, POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private final int clinicId;
+    private final ChangeLoader loader;
+    private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // All guarded by lock. Sorted keys are "<key>\0<patient id>" so equal keys don't collide.
+    private final Map<Integer, PatientSummary> byId = new HashMap<>();
+    private final Map<Integer, String> normalizedNames = new HashMap<>();
+    private final TreeMap<String, Integer> byName = new TreeMap<>();
+    private final Map<String, Set<Integer>> byTrigram = new HashMap<>();
+    private final Map<String, Set<Integer>> byPhone = new HashMap<>();
+    private final TreeMap<String, Integer> byReversedPhone = new TreeMap<>();
+
+    // Only touched by the poller thread
+    private LocalDateTime watermark;
+
+    private PatientTypeaheadIndex(int clinicId, ChangeLoader loader) {
+        this.clinicId = clinicId;
+        this.loader = loader;
+    }
+
+    /**
+     * Returns the clinic's index, starting its initial load in the background
+     * if this is the first request for the clinic.
+     */
+    public static PatientTypeaheadIndex forClinic(int clinicId, ChangeLoader loader) {
+        PatientTypeaheadIndex index = INDEXES.get(clinicId);
+        if (index != null) {
+            return index;
+        }
+        PatientTypeaheadIndex created = new PatientTypeaheadIndex(clinicId, loader);
+        index = INDEXES.putIfAbsent(clinicId, created);
+        if (index == null) {
+            POLLER.execute(created::refresh);
+            index = created;
+        }
+        return index;
+    }
+
+    /**
+     * Drops every clinic's index, e.g. when the user logs out; the next
+     * lookup for a clinic loads its index again.
+     */
+    public static void evictAll() {
+        INDEXES.clear();
+    }
+
+    /**
+     * Polls the clinic's index for changes now instead of at the next interval,
+     * e.g. right after this client added or edited a patient. Does nothing if
+     * the clinic's index was never loaded.
+     */
+    public static void requestRefresh(int clinicId) {
+        PatientTypeaheadIndex index = INDEXES.get(clinicId);
+        if (index != null) {
+            POLLER.execute(index::refresh);
+        }
+    }
+
+    /**
+     * @return true once the initial load has finished.
+     */
+    public boolean isReady() {
+        return loaded.isDone();
+    }
+
+    /**
+     * @return A future completed when the initial load has finished.
+     */
+    public CompletableFuture<Void> whenReady() {
+        return loaded;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The patient, or null if not (yet) in the index.
+     */
+    public PatientSummary get(int patientId) {
+        lock.readLock().lock();
+        try {
+            return byId.get(patientId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds patients by name or phone number, best matches first, as set out
+     * in {@link PatientSearchTerm}.
+     *
+     * @param term  The typed text; a blank term lists patients by name.
+     * @param limit The maximum number of patients to return.
+     * @return The matching patients, or an empty list if the index isn't ready.
+     */
+    public List<PatientSummary> search(String term, int limit) {
+        PatientSearchTerm query = PatientSearchTerm.of(term);
+        lock.readLock().lock();
+        try {
+            if (query.isBlank()) {
+                List<PatientSummary> first = new ArrayList<>(Math.min(limit, byName.size()));
+                for (Integer id : byName.values()) {
+                    if (first.size() >= limit) {
+                        break;
+                    }
+                    first.add(byId.get(id));
+                }
+                return first;
+            }
+
+            // Best tier per patient
+            Map<Integer, Integer> tiers = new HashMap<>();
+            if (query.isPhone()) {
+                String digits = query.getDigits();
+                for (Integer id : byPhone.getOrDefault(digits, Collections.emptySet())) {
+                    tiers.merge(id, PatientSearchTerm.TIER_EXACT_PHONE, Math::min);
+                }
+                if (digits.length() >= PatientSearchTerm.MIN_SUFFIX_DIGITS) {
+                    String reversed = new StringBuilder(digits).reverse().toString();
+                    for (Integer id : prefixRange(byReversedPhone, reversed).values()) {
+                        tiers.merge(id, PatientSearchTerm.TIER_PHONE_SUFFIX, Math::min);
+                    }
+                }
+                if (query.isShortPhone() || tiers.isEmpty()) {
+                    for (Map.Entry<String, Set<Integer>> phone : byPhone.entrySet()) {
+                        if (query.containsPhone(phone.getKey())) {
+                            for (Integer id : phone.getValue()) {
+                                tiers.merge(id, PatientSearchTerm.TIER_PHONE_CONTAINS, Math::min);
+                            }
+                        }
+                    }
+                }
+            } else {
+                String folded = query.getFolded();
+                for (Integer id : prefixRange(byName, folded).values()) {
+                    tiers.merge(id, PatientSearchTerm.TIER_NAME_PREFIX, Math::min);
+                }
+                Set<Integer> candidates = folded.length() >= GRAM ? trigramCandidates(folded) : byId.keySet();
+                for (Integer id : candidates) {
+                    if (!tiers.containsKey(id)
+                            && query.tier(normalizedNames.get(id), "") != PatientSearchTerm.NO_MATCH) {
+                        tiers.put(id, PatientSearchTerm.TIER_NAME_CONTAINS);
+                    }
+                }
+            }
+
+            List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(tiers.entrySet());
+            Comparator<Map.Entry<Integer, Integer>> byTier = Map.Entry.comparingByValue();
+            ranked.sort(byTier
+                    .thenComparing(e -> normalizedNames.get(e.getKey()))
+                    .thenComparing(Map.Entry::getKey));
+            List<PatientSummary> result = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (Map.Entry<Integer, Integer> e : ranked) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(byId.get(e.getKey()));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Loads the rows changed since the last poll (everything on the first
+     * call) and applies them. Runs on the poller thread only.
+     */
+    private void refresh() {
+        LocalDateTime since = watermark == null ? null : watermark.minusSeconds(POLL_OVERLAP_SECONDS);
+        List<PatientSummary> changed;
+        try {
+            changed = loader.load(clinicId, since);
+        } catch (Exception e) {
+            LoggerUtil.logError("Failed to refresh the patient type-ahead index for clinic ID: " + clinicId, e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (PatientSummary p : changed) {
+                remove(p.getPatientId());
+                add(p);
+                if (p.getUpdatedAt() != null && (watermark == null || p.getUpdatedAt().isAfter(watermark))) {
+                    watermark = p.getUpdatedAt();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!loaded.isDone()) {
+            loaded.complete(null);
+            LoggerUtil.logInfo(String.format("Loaded patient type-ahead index for clinic %d: %d patients",
+                    clinicId, changed.size()));
+        }
+    }
+
+    private void add(PatientSummary p) {
+        int id = p.getPatientId();
+        byId.put(id, p);
+        String name = PatientSearchTerm.fold(p.getName());
+        normalizedNames.put(id, name);
+        byName.put(name + '\0' + id, id);
+        for (String gram : trigrams(name)) {
+            byTrigram.computeIfAbsent(gram, _ -> new HashSet<>()).add(id);
+        }
+        String digits = PatientSearchTerm.phoneDigits(p.getPhone());
+        if (!digits.isEmpty()) {
+            byPhone.computeIfAbsent(digits, _ -> new HashSet<>()).add(id);
+            byReversedPhone.put(new StringBuilder(digits).reverse().toString() + '\0' + id, id);
+        }
+    }
+
+    private void remove(int id) {
+        PatientSummary old = byId.remove(id);
+        if (old == null) {
+            return;
+        }
+        String name = normalizedNames.remove(id);
+        byName.remove(name + '\0' + id);
+        for (String gram : trigrams(name)) {
+            removePosting(byTrigram, gram, id);
+        }
+        String digits = PatientSearchTerm.phoneDigits(old.getPhone());
+        if (!digits.isEmpty()) {
+            removePosting(byPhone, digits, id);
+            byReversedPhone.remove(new StringBuilder(digits).reverse().toString() + '\0' + id);
+        }
+    }
+
+    private static void removePosting(Map<String, Set<Integer>> postings, String key, int id) {
+        Set<Integer> ids = postings.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            postings.remove(key);
+        }
+    }
+
+    // Every id holding all of the query's trigrams is a candidate; scanning the
+    // shortest posting list is enough since a match must be in all of them.
+    private Set<Integer> trigramCandidates(String query) {
+        Set<Integer> smallest = null;
+        for (String gram : trigrams(query)) {
+            Set<Integer> ids = byTrigram.get(gram);
+            if (ids == null) {
+                return Collections.emptySet();
+            }
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+        }
+        return smallest == null ? Collections.emptySet() : smallest;
+    }
+
+    private static Map<String, Integer> prefixRange(TreeMap<String, Integer> sorted, String prefix) {
+        return sorted.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("patient-typeahead[clinic=%d]: size=%d, ready=%b", clinicId, size(), isReady());
+    }
+}
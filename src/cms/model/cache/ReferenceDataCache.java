@@ -0,0 +1,82 @@
+package cms.model.cache;
+
+import cms.model.entities.Doctor;
+import java.util.List;
+
+/**
+ * Read-through cache for per-clinic reference data that is read on almost
+ * every screen but changes a few times a month: the active doctors and the
+ * active specializations.
+ * <p>
+ * The owning DAOs ({@code DoctorDAO}, {@code SpecializationDAO}) invalidate a
+ * clinic's entry whenever they write to it. The TTL only matters for changes
+ * made by other application instances.
+ */
+public final class ReferenceDataCache {
+
+    private static final long TTL_MILLIS = Long.getLong("cms.cache.referenceDataTtlMs", 10 * 60_000L);
+
+    private static final TtlCache<Integer, List<Doctor>> ACTIVE_DOCTORS = new TtlCache<>("active-doctors",
+            TTL_MILLIS);
+    private static final TtlCache<Integer, List<String>> ACTIVE_SPECIALIZATIONS = new TtlCache<>(
+            "active-specializations", TTL_MILLIS);
+
+    private ReferenceDataCache() {
+    }
+
+    /**
+     * @return The clinic's active doctors, loaded on a miss; the list is read-only.
+     */
+    public static List<Doctor> getActiveDoctors(int clinicId, TtlCache.Loader<Integer, List<Doctor>> loader)
+            throws Exception {
+        return ACTIVE_DOCTORS.getOrLoad(clinicId, id -> List.copyOf(loader.load(id)));
+    }
+
+    /**
+     * @return The clinic's active specialization names, loaded on a miss; the list is read-only.
+     */
+    public static List<String> getActiveSpecializations(int clinicId, TtlCache.Loader<Integer, List<String>> loader)
+            throws Exception {
+        return ACTIVE_SPECIALIZATIONS.getOrLoad(clinicId, id -> List.copyOf(loader.load(id)));
+    }
+
+    public static void invalidateDoctors(int clinicId) {
+        ACTIVE_DOCTORS.invalidate(clinicId);
+    }
+
+    /**
+     * Used when the affected clinic isn't known.
+     */
+    public static void invalidateAllDoctors() {
+        ACTIVE_DOCTORS.invalidateAll();
+    }
+
+    public static void invalidateSpecializations(int clinicId) {
+        ACTIVE_SPECIALIZATIONS.invalidate(clinicId);
+    }
+
+    public static void invalidateAllSpecializations() {
+        ACTIVE_SPECIALIZATIONS.invalidateAll();
+    }
+
+    /**
+     * @return One line of size and hit/miss counters per cache, for logging.
+     */
+    public static List<String> getStats() {
+        return List.of(ACTIVE_DOCTORS.toString(), ACTIVE_SPECIALIZATIONS.toString());
+    }
+
+    /**
+     * @return The active-doctors cache's hit ratio.
+     */
+    public static double getDoctorsHitRatio() {
+        return ACTIVE_DOCTORS.getHitRatio();
+    }
+
+    /**
+     * @return The active-specializations cache's hit ratio.
+     */
+    public static double getSpecializationsHitRatio() {
+        return ACTIVE_SPECIALIZATIONS.getHitRatio();
+    }
+}
@@ -0,0 +1,225 @@
+package cms.model.cache;
+
+import cms.utils.DateRange;
+import cms.utils.LoggerUtil;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Caches the datasets behind the report charts, keyed by report, clinic and
+ * date range, so opening the reports again doesn't re-run every chart query.
+ * <p>
+ * Entries are served stale-while-revalidate: once an entry is older than
+ * {@code -Dcms.cache.reportTtlMs} (default 5 minutes) or has been invalidated,
+ * {@link #get} still returns it at once and reloads it on a background thread,
+ * handing the new snapshot to the caller's callback. Only a report that has
+ * never been loaded makes the caller wait. {@link #refresh} reloads
+ * immediately, for an explicit "Refresh".
+ * <p>
+ * A reload that fails keeps the last good dataset: the caller gets it back
+ * marked with the error, and the next {@link #get} tries again. Entries not
+ * reloaded for 12 TTLs are dropped, and at most
+ * {@code -Dcms.cache.reportMaxEntries} (default 200) are kept, so browsing
+ * many date ranges doesn't grow the cache without bound.
+ */
+public final class ReportCache {
+
+    /** The clinic ID of reports that span every clinic (super admin). */
+    public static final int ALL_CLINICS = 0;
+
+    private static final long TTL_MILLIS = Long.getLong("cms.cache.reportTtlMs", 5 * 60_000L);
+    private static final long EVICT_AFTER_MILLIS = 12 * TTL_MILLIS;
+    private static final int MAX_ENTRIES = Integer.getInteger("cms.cache.reportMaxEntries", 200);
+
+    private static final ConcurrentHashMap<Key, Snapshot<?>> SNAPSHOTS = new ConcurrentHashMap<>();
+    private static final Set<Key> REFRESHING = ConcurrentHashMap.newKeySet();
+
+    // Background reloads are rare and cheap; one thread keeps them off the DB's back
+    private static final ExecutorService REFRESHER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "cms-report-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Loads one report dataset; called off the EDT.
+     */
+    public interface Loader<T> {
+        T load() throws Exception;
+    }
+
+    /**
+     * Identifies one report dataset.
+     */
+    public static final class Key {
+        private final String report;
+        private final int clinicId;
+        private final DateRange range;
+
+        private Key(String report, int clinicId, DateRange range) {
+            this.report = report;
+            this.clinicId = clinicId;
+            this.range = range;
+        }
+
+        /**
+         * @param report   The report's name, unique across report pages.
+         * @param clinicId The clinic, or {@link #ALL_CLINICS}.
+         * @param range    The days the report covers, or null if it shows the
+         *                 current state (e.g. staff by role).
+         */
+        public static Key of(String report, int clinicId, DateRange range) {
+            return new Key(report, clinicId, range);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && report.equals(other.report) && clinicId == other.clinicId
+                    && Objects.equals(range, other.range);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(report, clinicId, range);
+        }
+
+        @Override
+        public String toString() {
+            return report + " (clinic " + clinicId + (range == null ? "" : ", " + range) + ")";
+        }
+    }
+
+    /**
+     * A loaded dataset and when it was loaded.
+     */
+    public static final class Snapshot<T> {
+        private final T value;
+        private final long loadedAt;
+        private final boolean stale;
+        private final Exception error;
+
+        private Snapshot(T value, long loadedAt, boolean stale, Exception error) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+            this.stale = stale;
+            this.error = error;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public Instant getLoadedAt() {
+            return Instant.ofEpochMilli(loadedAt);
+        }
+
+        /**
+         * @return Why the latest reload failed, leaving this older dataset in
+         *         place; null if this is the latest load.
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        private Snapshot<T> markStale(Exception error) {
+            return new Snapshot<>(value, loadedAt, true, error);
+        }
+
+        private boolean needsRefresh() {
+            return stale || System.currentTimeMillis() - loadedAt >= TTL_MILLIS;
+        }
+    }
+
+    private ReportCache() {
+    }
+
+    /**
+     * Returns the cached dataset, loading it on the calling thread if it was
+     * never loaded. A stale dataset is returned as is and reloaded in the
+     * background; {@code onRefreshed} then receives the new snapshot, or the
+     * old one with {@link Snapshot#getError()} set, on that background thread.
+     *
+     * @param loader Loads the dataset; called off the EDT.
+     * @throws Exception whatever the loader threw, if nothing was cached.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Snapshot<T> get(Key key, Loader<T> loader, Consumer<Snapshot<T>> onRefreshed)
+            throws Exception {
+        Snapshot<T> snapshot = (Snapshot<T>) SNAPSHOTS.get(key);
+        if (snapshot == null) {
+            return refresh(key, loader);
+        }
+        if (snapshot.needsRefresh() && REFRESHING.add(key)) {
+            REFRESHER.execute(() -> {
+                try {
+                    onRefreshed.accept(refresh(key, loader));
+                } catch (Exception e) {
+                    // Only reached if the entry was dropped meanwhile; the next get loads it
+                    LoggerUtil.logError("Failed to refresh report " + key, e);
+                } finally {
+                    REFRESHING.remove(key);
+                }
+            });
+        }
+        return snapshot;
+    }
+
+    /**
+     * Loads the dataset now, on the calling thread, and caches it. If that
+     * fails, the cached dataset stays, marked stale and with the error.
+     *
+     * @return The new snapshot, or the cached one with
+     *         {@link Snapshot#getError()} set.
+     * @throws Exception whatever the loader threw, if nothing was cached.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Snapshot<T> refresh(Key key, Loader<T> loader) throws Exception {
+        T value;
+        try {
+            value = loader.load();
+        } catch (Exception e) {
+            Snapshot<T> last = (Snapshot<T>) SNAPSHOTS.computeIfPresent(key, (_, old) -> old.markStale(e));
+            if (last == null) {
+                throw e;
+            }
+            LoggerUtil.logError("Failed to reload report " + key + "; keeping the data from "
+                    + last.getLoadedAt(), e);
+            return last;
+        }
+        Snapshot<T> snapshot = new Snapshot<>(value, System.currentTimeMillis(), false, null);
+        SNAPSHOTS.put(key, snapshot);
+        evictOld();
+        return snapshot;
+    }
+
+    // Drops entries nobody has reloaded for a while, then the oldest beyond the cap
+    private static void evictOld() {
+        long now = System.currentTimeMillis();
+        SNAPSHOTS.values().removeIf(snapshot -> now - snapshot.loadedAt >= EVICT_AFTER_MILLIS);
+        while (SNAPSHOTS.size() > MAX_ENTRIES) {
+            SNAPSHOTS.entrySet().stream()
+                    .min(Comparator.comparingLong(entry -> entry.getValue().loadedAt))
+                    .ifPresent(oldest -> SNAPSHOTS.remove(oldest.getKey(), oldest.getValue()));
+        }
+    }
+
+    /**
+     * Marks a clinic's reports, and the cross-clinic ones, stale. They are
+     * still shown until their background reload finishes.
+     */
+    public static void invalidateClinic(int clinicId) {
+        SNAPSHOTS.replaceAll((key, snapshot) -> key.clinicId == clinicId || key.clinicId == ALL_CLINICS
+                ? snapshot.markStale(snapshot.error)
+                : snapshot);
+    }
+
+    public static void invalidateAll() {
+        SNAPSHOTS.clear();
+    }
+}
@@ -0,0 +1,135 @@
+package cms.model.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * A small thread-safe cache whose entries expire a fixed time after they were
+ * written.
+ * <p>
+ * DAOs use it for values that are expensive to compute but cheap to
+ * invalidate: the owning DAO drops the affected keys on every write, and the
+ * TTL bounds how stale a value can get when another application instance
+ * writes to the same database.
+ *
+ * @param <K> The key type.
+ * @param <V> The value type.
+ */
+public final class TtlCache<K, V> {
+
+    /**
+     * Computes the value for a key on a cache miss.
+     */
+    public interface Loader<K, V> {
+        V load(K key) throws Exception;
+    }
+
+    private final String name;
+    private final long ttlMillis;
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param name      Used in {@link #toString()} when logging statistics.
+     * @param ttlMillis How long an entry stays valid after it was written.
+     */
+    public TtlCache(String name, long ttlMillis) {
+        this.name = name;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @return The cached value, or null if absent or expired.
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || entry.isExpired()) {
+            if (entry != null) {
+                entries.remove(key, entry);
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Returns the cached value, loading and caching it on a miss. Concurrent
+     * misses for the same key may each run the loader; the last one wins.
+     *
+     * @throws Exception whatever the loader threw; nothing is cached then.
+     */
+    public V getOrLoad(K key, Loader<? super K, ? extends V> loader) throws Exception {
+        V value = get(key);
+        if (value == null) {
+            value = loader.load(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Removes every entry whose key matches, e.g. all keys of one clinic.
+     */
+    public void invalidateIf(Predicate<K> matches) {
+        entries.keySet().removeIf(matches);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The share of lookups that were hits, 0 before the first lookup.
+     */
+    public double getHitRatio() {
+        long h = hits.sum();
+        long m = misses.sum();
+        return h + m == 0 ? 0 : (double) h / (h + m);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: size=%d, hits=%d, misses=%d, hitRatio=%.2f", name, entries.size(), hits.sum(),
+                misses.sum(), getHitRatio());
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
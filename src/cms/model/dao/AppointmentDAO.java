@@ -1,8 +1,10 @@
 package cms.model.dao;
 
+import cms.model.cache.TtlCache;
 import cms.model.database.DBConnection;
 import cms.model.entities.Appointment;
 import cms.model.entities.Enums;
+import cms.utils.DateRange;
 import cms.utils.LoggerUtil;
 import java.sql.*;
 import java.time.LocalDate;
@@ -11,6 +13,27 @@ import java.util.List;
 
 public class AppointmentDAO {
 
+    // Scheduled-appointment totals per doctor and day ("doctorId@date") for
+    // "Page x of y"; dropped whenever an appointment is booked or changes status
+    private static final TtlCache<Object, Integer> QUEUE_TOTALS = new TtlCache<>("doctor-queue-totals", 30_000);
+
+    // A doctor's scheduled appointments for a day, latest first;
+    // served by idx_appointments_doctor_date_status
+    private final KeysetQuery<Appointment> scheduledForDoctor = new KeysetQuery<>(
+            "a.*, p.name as patient_name",
+            "appointments a JOIN patients p ON a.patient_id = p.patient_id",
+            "a.doctor_id = ? AND " + DateRange.predicate("a.appointment_date") + " AND a.status = 'Scheduled'",
+            "appointments a", "a.appointment_date", "a.appointment_id", true,
+            QUEUE_TOTALS, rs -> {
+                Appointment appt = new Appointment();
+                appt.setAppointmentId(rs.getInt("appointment_id"));
+                appt.setPatientName(rs.getString("patient_name"));
+                appt.setAppointmentDate(rs.getTimestamp("appointment_date").toLocalDateTime());
+                appt.setStatus(Enums.AppointmentStatus.valueOf(rs.getString("status")));
+                appt.setPatientId(rs.getInt("patient_id"));
+                return appt;
+            });
+
     /**
      * Books a new appointment.
      * 
@@ -23,13 +46,26 @@ public class AppointmentDAO {
         try (Connection con = DBConnection.getConnection();
                 PreparedStatement pst = con.prepareStatement(sql)) {
 
+            // The daily stats are updated in the same transaction; an uncommitted
+            // one is rolled back when the connection goes back to the pool
+            con.setAutoCommit(false);
             pst.setInt(1, appointment.getPatientId());
             pst.setInt(2, appointment.getDoctorId());
             pst.setInt(3, appointment.getClinicId());
             pst.setTimestamp(4, Timestamp.valueOf(appointment.getAppointmentDate()));
             pst.setString(5, appointment.getStatus().name());
 
-            return pst.executeUpdate() > 0;
+            boolean booked = pst.executeUpdate() > 0;
+            if (booked) {
+                DailyStatsDAO.recordAppointment(con, appointment.getClinicId(), appointment.getDoctorId(),
+                        appointment.getAppointmentDate().toLocalDate(), null, appointment.getStatus());
+            }
+            con.commit();
+            if (booked) {
+                DailyStatsDAO.invalidateMonth(appointment.getClinicId(), appointment.getAppointmentDate().toLocalDate());
+            }
+            QUEUE_TOTALS.invalidate(queueKey(appointment.getDoctorId(), appointment.getAppointmentDate().toLocalDate()));
+            return booked;
         } catch (Exception e) {
             LoggerUtil.logError("Failed to book appointment.", e);
             return false;
@@ -51,14 +87,14 @@ public class AppointmentDAO {
                 "JOIN patients p ON a.patient_id = p.patient_id " +
                 "JOIN doctors d ON a.doctor_id = d.doctor_id " +
                 "JOIN users u ON d.user_id = u.user_id " +
-                "WHERE a.clinic_id = ? AND DATE(a.appointment_date) = ? " +
+                "WHERE a.clinic_id = ? AND " + DateRange.predicate("a.appointment_date") + " " +
                 "ORDER BY a.appointment_date DESC";
 
         try (Connection con = DBConnection.getConnection();
                 PreparedStatement pst = con.prepareStatement(sql)) {
 
             pst.setInt(1, clinicId);
-            pst.setDate(2, java.sql.Date.valueOf(date));
+            DateRange.ofDay(date).bind(pst, 2);
 
             ResultSet rs = pst.executeQuery();
             while (rs.next()) {
@@ -85,9 +121,21 @@ public class AppointmentDAO {
         String sql = "UPDATE appointments SET status = ? WHERE appointment_id = ?";
         try (Connection con = DBConnection.getConnection();
                 PreparedStatement pst = con.prepareStatement(sql)) {
+            con.setAutoCommit(false);
+            Appointment before = lockForStatusChange(con, appointmentId);
             pst.setString(1, newStatus.name());
             pst.setInt(2, appointmentId);
-            return pst.executeUpdate() > 0;
+            boolean updated = pst.executeUpdate() > 0;
+            if (updated && before != null) {
+                DailyStatsDAO.recordAppointment(con, before.getClinicId(), before.getDoctorId(),
+                        before.getAppointmentDate().toLocalDate(), before.getStatus(), newStatus);
+            }
+            con.commit();
+            if (updated && before != null) {
+                DailyStatsDAO.invalidateMonth(before.getClinicId(), before.getAppointmentDate().toLocalDate());
+            }
+            QUEUE_TOTALS.invalidateAll();
+            return updated;
         } catch (Exception e) {
             LoggerUtil.logError("Failed to update status for appointment ID: " + appointmentId, e);
             return false;
@@ -95,41 +143,23 @@ public class AppointmentDAO {
     }
 
     /**
-     * Fetches today's appointments for a specific doctor.
+     * Fetches one page of today's scheduled appointments for a specific doctor,
+     * together with the total number of them.
      * 
      * @param doctorId The ID of the doctor (from the 'doctors' table).
-     * @return A list of Appointment objects.
+     * @param request  The first page, or a cursor from a previous page.
+     * @return The page of Appointment objects.
      */
-    public List<Appointment> getTodaysAppointmentsForDoctor(int doctorId, int page, int pageSize) {
-        List<Appointment> appointmentList = new ArrayList<>();
-        // This query gets today's appointments that are 'Scheduled' or 'Completed'
-        String sql = "SELECT a.*,p.patient_id, p.name as patient_name " +
-                "FROM appointments a " +
-                "JOIN patients p ON a.patient_id = p.patient_id " +
-                "WHERE a.doctor_id = ? AND DATE(a.appointment_date) = CURDATE() " +
-                "AND a.status = 'Scheduled' " +
-                "ORDER BY a.appointment_date DESC LIMIT ? OFFSET ?";
-        int offset = (page - 1) * pageSize;
-        try (Connection con = DBConnection.getConnection();
-                PreparedStatement pst = con.prepareStatement(sql)) {
-            pst.setInt(1, doctorId);
-            pst.setInt(2, pageSize);
-            pst.setInt(3, offset);
-            ResultSet rs = pst.executeQuery();
-            while (rs.next()) {
-                Appointment appt = new Appointment();
-                appt.setAppointmentId(rs.getInt("appointment_id"));
-                appt.setPatientName(rs.getString("patient_name"));
-                appt.setAppointmentDate(rs.getTimestamp("appointment_date").toLocalDateTime());
-                appt.setStatus(Enums.AppointmentStatus.valueOf(rs.getString("status")));
-                appt.setPatientId(rs.getInt("patient_id"));
-
-                appointmentList.add(appt);
-            }
+    public Page<Appointment> getTodaysAppointmentsForDoctor(int doctorId, PageRequest request) {
+        try (Connection con = DBConnection.getConnection()) {
+            return scheduledForDoctor.fetch(con, request, (pst, i) -> {
+                pst.setInt(i, doctorId);
+                return DateRange.today().bind(pst, i + 1);
+            }, queueKey(doctorId, LocalDate.now()));
         } catch (Exception e) {
             LoggerUtil.logError("Failed to fetch today's appointments for doctor ID: " + doctorId, e);
+            return Page.empty();
         }
-        return appointmentList;
     }
 
     /**
@@ -140,17 +170,64 @@ public class AppointmentDAO {
      * @return true if successful, false otherwise.
      */
     public boolean completeAppointment(int appointmentId, String notes) {
+        try {
+            return UnitOfWork.execute(uow -> completeAppointment(uow, appointmentId, notes));
+        } catch (Exception e) {
+            LoggerUtil.logError("Failed to complete appointment ID: " + appointmentId, e);
+            return false;
+        }
+    }
+
+    /**
+     * Marks an appointment as 'Completed' and saves the notes as part of a
+     * larger unit of work.
+     *
+     * @return true if the appointment was found and updated.
+     */
+    public boolean completeAppointment(UnitOfWork uow, int appointmentId, String notes) throws SQLException {
         // In a real system, 'notes' might go to a 'prescriptions' or 'visit_details'
         // table.
         // For now, we can update the notes in the appointments table.
         String sql = "UPDATE appointments SET status = 'Completed', notes = ? WHERE appointment_id = ?";
-        try (Connection con = DBConnection.getConnection();
-                PreparedStatement pst = con.prepareStatement(sql)) {
+        Connection con = uow.getConnection();
+        try (PreparedStatement pst = con.prepareStatement(sql)) {
+            Appointment before = lockForStatusChange(con, appointmentId);
             pst.setString(1, notes);
             pst.setInt(2, appointmentId);
-            return pst.executeUpdate() > 0;
+            boolean completed = pst.executeUpdate() > 0;
+            if (completed && before != null) {
+                DailyStatsDAO.recordAppointment(con, before.getClinicId(), before.getDoctorId(),
+                        before.getAppointmentDate().toLocalDate(), before.getStatus(),
+                        Enums.AppointmentStatus.Completed);
+                uow.afterCommit(() -> DailyStatsDAO.invalidateMonth(before.getClinicId(),
+                        before.getAppointmentDate().toLocalDate()));
+            }
+            uow.afterCommit(QUEUE_TOTALS::invalidateAll);
+            return completed;
+        }
+    }
+
+    /**
+     * Completes a consultation: marks the appointment 'Completed' with the
+     * doctor's notes and bills the fee, in one transaction. If either step
+     * fails neither is kept.
+     *
+     * @param fee The consultation fee to bill.
+     * @return true if the appointment was completed and billed.
+     */
+    public boolean completeAndBill(int appointmentId, String notes, double fee) {
+        BillingDAO billingDAO = new BillingDAO();
+        try {
+            return UnitOfWork.execute(uow -> {
+                if (!completeAppointment(uow, appointmentId, notes)
+                        || !billingDAO.createBillForAppointment(uow, appointmentId, fee)) {
+                    uow.setRollbackOnly();
+                    return false;
+                }
+                return true;
+            });
         } catch (Exception e) {
-            LoggerUtil.logError("Failed to complete appointment ID: " + appointmentId, e);
+            LoggerUtil.logError("Failed to complete and bill appointment ID: " + appointmentId, e);
             return false;
         }
     }
@@ -201,9 +278,11 @@ public class AppointmentDAO {
     }
 
     public int getTodaysAppointmentCountForDoctor(int doctorId) {
-        String sql = "SELECT COUNT(*) FROM appointments WHERE doctor_id = ? AND DATE(appointment_date) = CURDATE()";
+        String sql = "SELECT COUNT(*) FROM appointments WHERE doctor_id = ? AND "
+                + DateRange.predicate("appointment_date");
         try (Connection con = DBConnection.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
             pst.setInt(1, doctorId);
+            DateRange.today().bind(pst, 2);
             ResultSet rs = pst.executeQuery();
             if (rs.next()) {
                 return rs.getInt(1);
@@ -230,14 +309,14 @@ public class AppointmentDAO {
                 "a.appointment_date, a.status, a.notes, p.name as patient_name " +
                 "FROM appointments a " +
                 "JOIN patients p ON a.patient_id = p.patient_id " +
-                "WHERE a.doctor_id = ? AND DATE(a.appointment_date) = ? " +
+                "WHERE a.doctor_id = ? AND " + DateRange.predicate("a.appointment_date") + " " +
                 "ORDER BY a.appointment_date DESC";
 
         try (Connection con = DBConnection.getConnection();
                 PreparedStatement pst = con.prepareStatement(sql)) {
 
             pst.setInt(1, doctorId);
-            pst.setDate(2, java.sql.Date.valueOf(date));
+            DateRange.ofDay(date).bind(pst, 2);
 
             ResultSet rs = pst.executeQuery();
             while (rs.next()) {
@@ -255,4 +334,36 @@ public class AppointmentDAO {
         }
         return appointmentList;
     }
+
+    private static String queueKey(int doctorId, LocalDate day) {
+        return doctorId + "@" + day;
+    }
+
+    /**
+     * Reads the fields the daily stats need from an appointment and locks its
+     * row until the caller's transaction ends, so concurrent status changes
+     * are counted one after the other.
+     *
+     * @return The appointment's clinic, doctor, date and current status, or
+     *         null if it doesn't exist.
+     */
+    private static Appointment lockForStatusChange(Connection con, int appointmentId) throws SQLException {
+        String sql = "SELECT clinic_id, doctor_id, appointment_date, status FROM appointments "
+                + "WHERE appointment_id = ? FOR UPDATE";
+        try (PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setInt(1, appointmentId);
+            try (ResultSet rs = pst.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Appointment appt = new Appointment();
+                appt.setAppointmentId(appointmentId);
+                appt.setClinicId(rs.getInt("clinic_id"));
+                appt.setDoctorId(rs.getInt("doctor_id"));
+                appt.setAppointmentDate(rs.getTimestamp("appointment_date").toLocalDateTime());
+                appt.setStatus(Enums.AppointmentStatus.valueOf(rs.getString("status")));
+                return appt;
+            }
+        }
+    }
 }
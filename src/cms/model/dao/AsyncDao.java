@@ -0,0 +1,107 @@
+package cms.model.dao;
+
+import cms.model.database.DBConnection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs a DAO's blocking calls on virtual threads and returns
+ * {@link CompletableFuture}s, so views can load data without blocking the
+ * EDT or writing a {@code SwingWorker} per call:
+ *
+ * <pre>
+ * AsyncDao&lt;BillingDAO&gt; billing = AsyncDao.of(new BillingDAO());
+ * SwingFutures.onEdt(billing.call(dao -&gt; dao.getBillsByStatus(clinicId, "Unpaid")),
+ *         SwingFutures.busyCursor(this), this::showBills, this::showError);
+ * </pre>
+ *
+ * A virtual thread per call is cheap; the connection pool is what bounds how
+ * many calls reach the database at once. Cancelling a returned future
+ * cancels the query its call is running with {@code Statement.cancel()}; the
+ * call's thread is only interrupted while it waits for a pooled connection,
+ * since interrupting a virtual thread in socket I/O would close the
+ * connection. To run several calls as one unit, with a deadline, use
+ * {@link DaoScope}.
+ *
+ * @param <D> The DAO type.
+ */
+public final class AsyncDao<D> {
+
+    /**
+     * One call on the DAO.
+     */
+    public interface Call<D, T> {
+        T call(D dao) throws Exception;
+    }
+
+    /**
+     * A task run by {@link #submit}, with the token its future cancels.
+     */
+    interface Task<T> {
+        T run(CancellationToken token) throws Exception;
+    }
+
+    private static final ExecutorService EXECUTOR = Executors
+            .newThreadPerTaskExecutor(Thread.ofVirtual().name("cms-dao-", 0).factory());
+
+    private final D dao;
+
+    private AsyncDao(D dao) {
+        this.dao = dao;
+    }
+
+    public static <D> AsyncDao<D> of(D dao) {
+        return new AsyncDao<>(dao);
+    }
+
+    /**
+     * @return The wrapped DAO, for calls made off the EDT already.
+     */
+    public D blocking() {
+        return dao;
+    }
+
+    /**
+     * Starts the call on a virtual thread.
+     *
+     * @return A future for the call's result; cancelling it cancels the call.
+     */
+    public <T> CompletableFuture<T> call(Call<? super D, ? extends T> call) {
+        return submit(_ -> call.call(dao));
+    }
+
+    /**
+     * Runs the task on a virtual thread. Cancelling the returned future
+     * cancels the task's token, which cancels the thread's database work.
+     */
+    static <T> CompletableFuture<T> submit(Task<? extends T> task) {
+        CancellableFuture<T> future = new CancellableFuture<>();
+        EXECUTOR.execute(() -> {
+            Thread thread = Thread.currentThread();
+            future.token.onCancel(() -> DBConnection.cancel(thread));
+            if (future.isDone()) {
+                return; // Cancelled before it started
+            }
+            try {
+                future.complete(task.run(future.token));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private static final class CancellableFuture<T> extends CompletableFuture<T> {
+        private final CancellationToken token = new CancellationToken();
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                token.cancel();
+            }
+            return cancelled;
+        }
+    }
+}
@@ -5,9 +5,15 @@ import cms.model.entities.Bill; // You will need to create this entity
 import cms.model.entities.Enums;
 import cms.utils.LoggerUtil;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -64,11 +70,36 @@ public class BillingDAO {
      */
     public boolean updateBillStatus(int billId, Enums.BillingStatus newStatus) {
         String sql = "UPDATE billing SET status = ? WHERE bill_id = ?";
+        // Locks the bill so concurrent status changes reach the daily stats one at a time
+        String lockSql = "SELECT b.amount, b.status, DATE(b.created_at) AS bill_day, a.clinic_id "
+                + "FROM billing b JOIN appointments a ON b.appointment_id = a.appointment_id "
+                + "WHERE b.bill_id = ? FOR UPDATE";
         try (Connection con = DBConnection.getConnection();
+                PreparedStatement lock = con.prepareStatement(lockSql);
                 PreparedStatement pst = con.prepareStatement(sql)) {
-            pst.setString(1, newStatus.name());
-            pst.setInt(2, billId);
-            return pst.executeUpdate() > 0;
+            // The daily stats are updated in the same transaction; an uncommitted
+            // one is rolled back when the connection goes back to the pool
+            con.setAutoCommit(false);
+            lock.setInt(1, billId);
+            int clinicId;
+            LocalDate billDay;
+            try (ResultSet rs = lock.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                pst.setString(1, newStatus.name());
+                pst.setInt(2, billId);
+                if (pst.executeUpdate() == 0) {
+                    return false;
+                }
+                clinicId = rs.getInt("clinic_id");
+                billDay = rs.getDate("bill_day").toLocalDate();
+                DailyStatsDAO.recordBillStatus(con, clinicId, billDay, rs.getBigDecimal("amount"),
+                        Enums.BillingStatus.valueOf(rs.getString("status")), newStatus);
+            }
+            con.commit();
+            DailyStatsDAO.invalidateMonth(clinicId, billDay);
+            return true;
         } catch (Exception e) {
             LoggerUtil.logError("Failed to update status for bill ID: " + billId, e);
             return false;
@@ -82,23 +113,52 @@ public class BillingDAO {
  * @return true if the bill was created successfully, false otherwise.
  */
 public boolean createBillForAppointment(int appointmentId, double amount) {
+    try {
+        return UnitOfWork.execute(uow -> createBillForAppointment(uow, appointmentId, amount));
+    } catch (Exception e) {
+        LoggerUtil.logError("Failed to create bill for appointment ID: " + appointmentId, e);
+        return false;
+    }
+}
+
+/**
+ * Creates a new bill for a completed appointment as part of a larger unit of work.
+ * @return true if the appointment was found and billed.
+ */
+public boolean createBillForAppointment(UnitOfWork uow, int appointmentId, double amount) throws SQLException {
     // This query uses a SELECT to get the patient_id from the appointments table
-    String sql = "INSERT INTO billing (appointment_id, patient_id, amount, status) " +
-                 "SELECT ?, patient_id, ?, 'Unpaid' FROM appointments WHERE appointment_id = ?";
+    String sql = "INSERT INTO billing (appointment_id, patient_id, amount, status, created_at) " +
+                 "SELECT ?, patient_id, ?, 'Unpaid', ? FROM appointments WHERE appointment_id = ?";
+    String clinicSql = "SELECT clinic_id FROM appointments WHERE appointment_id = ?";
     
     // Optional: First check if a bill already exists to prevent duplicates
     // ...
     
-    try (Connection con = DBConnection.getConnection();
-         PreparedStatement pst = con.prepareStatement(sql)) {
+    // The daily stats are updated in the same transaction
+    Connection con = uow.getConnection();
+    try (PreparedStatement pst = con.prepareStatement(sql);
+         PreparedStatement clinic = con.prepareStatement(clinicSql)) {
+        BigDecimal billed = BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP); // As stored
         pst.setInt(1, appointmentId);
-        pst.setDouble(2, amount);
-        pst.setInt(3, appointmentId);
-        return pst.executeUpdate() > 0;
-    } catch (Exception e) {
-        LoggerUtil.logError("Failed to create bill for appointment ID: " + appointmentId, e);
-        return false;
+        pst.setBigDecimal(2, billed);
+        // One clock for the row and its daily stats, so a rebuild counts it on the same day
+        LocalDateTime now = LocalDateTime.now();
+        pst.setTimestamp(3, Timestamp.valueOf(now));
+        pst.setInt(4, appointmentId);
+        if (pst.executeUpdate() == 0) {
+            return false;
+        }
+        clinic.setInt(1, appointmentId);
+        try (ResultSet rs = clinic.executeQuery()) {
+            if (rs.next()) {
+                int clinicId = rs.getInt(1);
+                DailyStatsDAO.recordNewBill(con, clinicId, now.toLocalDate(), billed,
+                        Enums.BillingStatus.Unpaid);
+                uow.afterCommit(() -> DailyStatsDAO.invalidateMonth(clinicId, now.toLocalDate()));
+            }
+        }
+        return true;
     }
 }
 
-}
\ No newline at end of file
+}
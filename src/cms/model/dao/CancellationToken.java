@@ -0,0 +1,86 @@
+package cms.model.dao;
+
+import cms.utils.LoggerUtil;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lets a caller abort a query that is still running, e.g. a search the user
+ * has already typed past.
+ * <p>
+ * A DAO attaches its statement while it executes; {@link #cancel()} then
+ * calls {@link Statement#cancel()} on it, which makes MySQL kill the query
+ * server-side. Cancelling before the query starts stops it from running at
+ * all. A token is meant for one query.
+ * <p>
+ * {@link AsyncDao} gives each call a token of its own, which cancels
+ * whatever the call's thread is doing with the database.
+ */
+public final class CancellationToken {
+
+    private Statement statement;
+    private boolean cancelled;
+    private final List<Runnable> onCancel = new ArrayList<>();
+
+    /**
+     * Cancels the attached query, if any, and any query attached later.
+     * Safe to call from any thread, any number of times.
+     */
+    public void cancel() {
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            if (statement != null) {
+                try {
+                    statement.cancel();
+                } catch (SQLException e) {
+                    LoggerUtil.logWarning("Failed to cancel a running query: " + e.getMessage());
+                }
+            }
+        }
+        // Outside the lock: an action may cancel other tokens
+        onCancel.forEach(Runnable::run);
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Runs {@code action} when the token is cancelled, or right away if it
+     * already was.
+     */
+    void onCancel(Runnable action) {
+        synchronized (this) {
+            if (!cancelled) {
+                onCancel.add(action);
+                return;
+            }
+        }
+        action.run();
+    }
+
+    /**
+     * Registers the statement about to run.
+     *
+     * @throws SQLException if the token was already cancelled.
+     */
+    synchronized void attach(Statement statement) throws SQLException {
+        if (cancelled) {
+            throw new SQLException("Query was cancelled before it started.");
+        }
+        this.statement = statement;
+    }
+
+    /**
+     * Unregisters the statement. Must be called before the statement is
+     * closed, since a closed statement goes back to the connection's cache.
+     */
+    synchronized void detach() {
+        statement = null;
+    }
+}
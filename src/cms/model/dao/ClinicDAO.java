@@ -1,5 +1,6 @@
 package cms.model.dao;
 
+import cms.model.cache.TtlCache;
 import cms.model.database.DBConnection;
 import cms.model.entities.Clinic;
 import cms.model.entities.Enums;
@@ -11,6 +12,19 @@ import java.util.List;
 
 public class ClinicDAO {
 
+    // Total clinic count for "Page x of y" (single key); dropped on add/delete
+    private static final TtlCache<Object, Integer> CLINIC_TOTALS = new TtlCache<>("clinic-totals", 60_000);
+    private static final String ALL_CLINICS = "all";
+
+    // Clinics by login code for UserDAO.validateLogin, so most logins are a
+    // single user lookup; dropped whenever a clinic is updated or deleted
+    static final TtlCache<String, Clinic> CLINICS_BY_CODE = new TtlCache<>("clinics-by-code", 5 * 60_000);
+
+    // Newest clinics first; served by idx_clinics_created
+    private final KeysetQuery<Clinic> clinicsPage = new KeysetQuery<>(
+            "clinic_id, code, name, email, phone, address, status, created_at, updated_at", "clinics",
+            null, "clinics", "created_at", "clinic_id", true, CLINIC_TOTALS, this::getClinicDetails);
+
     // Add new clinic
     public int addClinic(Clinic clinic) {
         String sql = "INSERT INTO clinics (code, name, email, phone, address, status) VALUES (?,?,?,?,?,?)";
@@ -31,6 +45,7 @@ public class ClinicDAO {
             pst.setString(6, statusStringToSave);
 
             int affectedRows = pst.executeUpdate();
+            CLINIC_TOTALS.invalidateAll();
 
             if (affectedRows > 0) {
                 try (ResultSet generatedKeys = pst.getGeneratedKeys()) {
@@ -65,6 +80,8 @@ public class ClinicDAO {
             pst.setString(6, clinic.getStatus().name());
             pst.setInt(7, clinic.getClinicId());
             pst.executeUpdate();
+            // The code or status may have changed, e.g. the clinic was suspended
+            CLINICS_BY_CODE.invalidateAll();
         } catch (Exception e) {
             LoggerUtil.logError("Failed to update clinic with ID: " + clinic.getClinicId(), e);
         }
@@ -76,6 +93,8 @@ public class ClinicDAO {
         try (Connection con = DBConnection.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
             pst.setInt(1, clinicId);
             pst.executeUpdate();
+            CLINIC_TOTALS.invalidateAll();
+            CLINICS_BY_CODE.invalidateAll();
         } catch (Exception e) {
             LoggerUtil.logError("Failed to delete clinic with ID: " + clinicId, e);
         }
@@ -126,23 +145,14 @@ public class ClinicDAO {
         return c;
     }
 
-    // Fetch paginated clinics
-    public List<Clinic> getClinicsPage(int page, int pageSize) {
-        List<Clinic> clinics = new ArrayList<>();
-        String sql = "SELECT clinic_id, code, name, email, phone, address, status, created_at, updated_at "
-                + "FROM clinics ORDER BY created_at DESC LIMIT ? OFFSET ?";
-        int offset = (page - 1) * pageSize;
-        try (Connection con = DBConnection.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
-            pst.setInt(1, pageSize);
-            pst.setInt(2, offset);
-            ResultSet rs = pst.executeQuery();
-            while (rs.next()) {
-                clinics.add(getClinicDetails(rs));
-            }
+    // Fetch one page of clinics, newest first, together with the total count
+    public Page<Clinic> getClinicsPage(PageRequest request) {
+        try (Connection con = DBConnection.getConnection()) {
+            return clinicsPage.fetch(con, request, null, ALL_CLINICS);
         } catch (Exception e) {
             LoggerUtil.logError("Failed to fetch paginated clinics.", e);
+            return Page.empty();
         }
-        return clinics;
     }
 
     public enum Status {
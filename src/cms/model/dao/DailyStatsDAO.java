@@ -0,0 +1,389 @@
+package cms.model.dao;
+
+import cms.model.cache.ReportCache;
+import cms.model.cache.TtlCache;
+import cms.model.database.DBConnection;
+import cms.model.entities.DailyStats;
+import cms.model.entities.Enums;
+import cms.utils.DateRange;
+import cms.utils.Granularity;
+import cms.utils.LoggerUtil;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the {@code clinic_daily_stats} and {@code doctor_daily_stats}
+ * rollups (migration V005) that the report charts read.
+ * <p>
+ * Every write that changes a rolled-up number calls one of the package-private
+ * {@code record...} methods on its own connection, inside the same
+ * transaction, so a rollup row is never out of step with the rows it counts.
+ * {@link #rebuild} recomputes a clinic's rollups from the raw tables, for the
+ * initial backfill and to repair them after changes made outside the
+ * application.
+ * <p>
+ * {@link #getBuckets} answers any range of days at day, week or month
+ * granularity by summing the daily rows. It reads them a calendar month at a
+ * time through a cache ({@code -Dcms.cache.rollupTtlMs}, default 10 minutes),
+ * so widening a report's range only queries the months it didn't cover yet.
+ * Writers drop the month they changed through {@link #invalidateMonth}
+ * once their transaction has committed.
+ */
+public class DailyStatsDAO {
+
+    // Wide enough for any appointment, patient or bill; TIMESTAMP columns end in 2038
+    private static final DateRange ALL_TIME = DateRange.between(LocalDate.of(1970, 1, 2), LocalDate.of(9999, 12, 30));
+
+    private static final String UPSERT_CLINIC_DAY = "INSERT INTO clinic_daily_stats (clinic_id, stat_date, "
+            + "appointments_scheduled, appointments_completed, appointments_cancelled, new_patients, "
+            + "revenue_billed, revenue_paid) VALUES (?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE "
+            + "appointments_scheduled = appointments_scheduled + VALUES(appointments_scheduled), "
+            + "appointments_completed = appointments_completed + VALUES(appointments_completed), "
+            + "appointments_cancelled = appointments_cancelled + VALUES(appointments_cancelled), "
+            + "new_patients = new_patients + VALUES(new_patients), "
+            + "revenue_billed = revenue_billed + VALUES(revenue_billed), "
+            + "revenue_paid = revenue_paid + VALUES(revenue_paid)";
+
+    private static final String UPSERT_DOCTOR_DAY = "INSERT INTO doctor_daily_stats "
+            + "(clinic_id, stat_date, doctor_id, appointments_completed) VALUES (?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE appointments_completed = appointments_completed + VALUES(appointments_completed)";
+
+    private static final long CACHE_TTL_MILLIS = Long.getLong("cms.cache.rollupTtlMs", 10 * 60_000L);
+
+    // A clinic's (or all clinics') daily rows for one month, indexed by day of month - 1; null = no row
+    private static final TtlCache<MonthKey, DailyStats[]> MONTHS = new TtlCache<>("daily-stats-months",
+            CACHE_TTL_MILLIS);
+
+    // --- Incremental maintenance, inside the caller's transaction ---
+
+    /**
+     * Records an appointment being booked ({@code from} null) or moving from
+     * one status to another.
+     *
+     * @param day The day the appointment is for.
+     */
+    static void recordAppointment(Connection con, int clinicId, int doctorId, LocalDate day,
+            Enums.AppointmentStatus from, Enums.AppointmentStatus to) throws SQLException {
+        if (from == to) {
+            return;
+        }
+        int[] deltas = new int[Enums.AppointmentStatus.values().length];
+        if (from != null) {
+            deltas[from.ordinal()]--;
+        }
+        deltas[to.ordinal()]++;
+        upsertClinicDay(con, clinicId, day, deltas[Enums.AppointmentStatus.Scheduled.ordinal()],
+                deltas[Enums.AppointmentStatus.Completed.ordinal()],
+                deltas[Enums.AppointmentStatus.Cancelled.ordinal()], 0, BigDecimal.ZERO, BigDecimal.ZERO);
+
+        int completed = deltas[Enums.AppointmentStatus.Completed.ordinal()];
+        if (completed != 0) {
+            try (PreparedStatement pst = con.prepareStatement(UPSERT_DOCTOR_DAY)) {
+                pst.setInt(1, clinicId);
+                pst.setDate(2, java.sql.Date.valueOf(day));
+                pst.setInt(3, doctorId);
+                pst.setInt(4, completed);
+                pst.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Records a patient registered on {@code day}.
+     *
+     * @param day The date part of the {@code created_at} the caller wrote.
+     */
+    static void recordNewPatient(Connection con, int clinicId, LocalDate day) throws SQLException {
+        recordNewPatients(con, clinicId, day, 1);
+    }
+
+    /**
+     * Records {@code count} patients registered on {@code day}, e.g. one chunk
+     * of an import.
+     *
+     * @param day The date part of the {@code created_at} the caller wrote.
+     */
+    static void recordNewPatients(Connection con, int clinicId, LocalDate day, int count) throws SQLException {
+        upsertClinicDay(con, clinicId, day, 0, 0, 0, count, BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+
+    /**
+     * Records a bill created on {@code day} with the given status.
+     *
+     * @param day The date part of the {@code created_at} the caller wrote.
+     */
+    static void recordNewBill(Connection con, int clinicId, LocalDate day, BigDecimal amount,
+            Enums.BillingStatus status) throws SQLException {
+        upsertClinicDay(con, clinicId, day, 0, 0, 0, 0, amount,
+                status == Enums.BillingStatus.Paid ? amount : BigDecimal.ZERO);
+    }
+
+    /**
+     * Records a bill being marked paid or unpaid.
+     *
+     * @param billDay The day the bill was created.
+     */
+    static void recordBillStatus(Connection con, int clinicId, LocalDate billDay, BigDecimal amount,
+            Enums.BillingStatus from, Enums.BillingStatus to) throws SQLException {
+        if (from == to) {
+            return;
+        }
+        BigDecimal paid = to == Enums.BillingStatus.Paid ? amount : amount.negate();
+        upsertClinicDay(con, clinicId, billDay, 0, 0, 0, 0, BigDecimal.ZERO, paid);
+    }
+
+    private static void upsertClinicDay(Connection con, int clinicId, LocalDate day, int scheduled, int completed,
+            int cancelled, int newPatients, BigDecimal billed, BigDecimal paid) throws SQLException {
+        try (PreparedStatement pst = con.prepareStatement(UPSERT_CLINIC_DAY)) {
+            pst.setInt(1, clinicId);
+            pst.setDate(2, java.sql.Date.valueOf(day));
+            pst.setInt(3, scheduled);
+            pst.setInt(4, completed);
+            pst.setInt(5, cancelled);
+            pst.setInt(6, newPatients);
+            pst.setBigDecimal(7, billed);
+            pst.setBigDecimal(8, paid);
+            pst.executeUpdate();
+        }
+    }
+
+    /**
+     * Drops the cached month holding {@code day}, for the clinic and for all
+     * clinics. Call after the transaction that recorded the change has
+     * committed, so no reader can re-cache the old month in between.
+     */
+    static void invalidateMonth(int clinicId, LocalDate day) {
+        YearMonth month = YearMonth.from(day);
+        MONTHS.invalidateIf(key -> key.month.equals(month)
+                && (key.clinicId == clinicId || key.clinicId == ReportCache.ALL_CLINICS));
+    }
+
+    // --- Reading ---
+
+    /**
+     * Sums the rollups of each bucket of days in a range. Buckets without any
+     * rows are included as {@link DailyStats#ZERO}; the first and last bucket
+     * only count the days inside the range.
+     *
+     * @param clinicId    The ID of the clinic, or {@link ReportCache#ALL_CLINICS}.
+     * @param days        The days to cover.
+     * @param granularity The size of the buckets.
+     * @return A map of {Bucket start -> Totals} in date order.
+     * @throws SQLException If the rollups couldn't be read.
+     */
+    public Map<LocalDate, DailyStats> getBuckets(int clinicId, DateRange days, Granularity granularity)
+            throws SQLException {
+        LocalDate first = days.getStart().toLocalDate();
+        LocalDate last = days.getEnd().minusNanos(1).toLocalDate();
+
+        Map<YearMonth, DailyStats[]> months = getMonths(clinicId, YearMonth.from(first), YearMonth.from(last));
+
+        Map<LocalDate, DailyStats> buckets = new LinkedHashMap<>();
+        for (LocalDate bucket = granularity.bucketOf(first); !bucket.isAfter(last); bucket = granularity.next(bucket)) {
+            buckets.put(bucket, DailyStats.ZERO);
+        }
+        for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+            DailyStats stats = months.get(YearMonth.from(day))[day.getDayOfMonth() - 1];
+            if (stats != null) {
+                buckets.merge(granularity.bucketOf(day), stats, DailyStats::plus);
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Returns the daily rows of every month from {@code from} to {@code to},
+     * reading the ones that aren't cached in a single query.
+     */
+    private Map<YearMonth, DailyStats[]> getMonths(int clinicId, YearMonth from, YearMonth to) throws SQLException {
+        Map<YearMonth, DailyStats[]> months = new HashMap<>();
+        YearMonth firstMissing = null;
+        YearMonth lastMissing = null;
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            DailyStats[] cached = MONTHS.get(new MonthKey(clinicId, month));
+            if (cached != null) {
+                months.put(month, cached);
+            } else {
+                firstMissing = firstMissing == null ? month : firstMissing;
+                lastMissing = month;
+            }
+        }
+        if (firstMissing == null) {
+            return months;
+        }
+
+        // Cached months between the missing ones are read again; that's cheaper than a query per gap
+        Map<YearMonth, DailyStats[]> loaded = new HashMap<>();
+        for (YearMonth month = firstMissing; !month.isAfter(lastMissing); month = month.plusMonths(1)) {
+            loaded.put(month, new DailyStats[month.lengthOfMonth()]);
+        }
+        String sql = "SELECT stat_date, SUM(appointments_scheduled), SUM(appointments_completed), "
+                + "SUM(appointments_cancelled), SUM(new_patients), SUM(revenue_billed), SUM(revenue_paid) "
+                + "FROM clinic_daily_stats WHERE "
+                + (clinicId == ReportCache.ALL_CLINICS ? "" : "clinic_id = ? AND ")
+                + DateRange.predicate("stat_date") + " GROUP BY stat_date";
+        try (Connection con = DBConnection.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
+            int index = 1;
+            if (clinicId != ReportCache.ALL_CLINICS) {
+                pst.setInt(index++, clinicId);
+            }
+            DateRange.between(firstMissing.atDay(1), lastMissing.atEndOfMonth()).bind(pst, index);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    LocalDate day = rs.getDate(1).toLocalDate();
+                    loaded.get(YearMonth.from(day))[day.getDayOfMonth() - 1] = new DailyStats(rs.getInt(2),
+                            rs.getInt(3), rs.getInt(4), rs.getInt(5), rs.getBigDecimal(6), rs.getBigDecimal(7));
+                }
+            }
+        }
+        for (Map.Entry<YearMonth, DailyStats[]> entry : loaded.entrySet()) {
+            MONTHS.put(new MonthKey(clinicId, entry.getKey()), entry.getValue());
+        }
+        months.putAll(loaded);
+        return months;
+    }
+
+    // --- Rebuild ---
+
+    /**
+     * Recomputes a clinic's rollups for a range of days from the raw tables,
+     * in one transaction. The INSERT ... SELECTs lock the rows they read, so
+     * writes to the same days wait until the rebuild has committed.
+     *
+     * @param clinicId The ID of the clinic.
+     * @param days     The days to rebuild.
+     * @return true if the rollups were rebuilt, false otherwise.
+     */
+    public boolean rebuild(int clinicId, DateRange days) {
+        String[] statements = {
+                "DELETE FROM clinic_daily_stats WHERE clinic_id = ? AND " + DateRange.predicate("stat_date"),
+                "DELETE FROM doctor_daily_stats WHERE clinic_id = ? AND " + DateRange.predicate("stat_date"),
+                "INSERT INTO clinic_daily_stats (clinic_id, stat_date, appointments_scheduled, "
+                        + "appointments_completed, appointments_cancelled) "
+                        + "SELECT clinic_id, DATE(appointment_date), SUM(status = 'Scheduled'), "
+                        + "SUM(status = 'Completed'), SUM(status = 'Cancelled') FROM appointments "
+                        + "WHERE clinic_id = ? AND " + DateRange.predicate("appointment_date")
+                        + " GROUP BY clinic_id, DATE(appointment_date)",
+                "INSERT INTO clinic_daily_stats (clinic_id, stat_date, new_patients) "
+                        + "SELECT clinic_id, DATE(created_at), COUNT(*) FROM patients "
+                        + "WHERE clinic_id = ? AND " + DateRange.predicate("created_at")
+                        + " GROUP BY clinic_id, DATE(created_at) "
+                        + "ON DUPLICATE KEY UPDATE new_patients = VALUES(new_patients)",
+                "INSERT INTO clinic_daily_stats (clinic_id, stat_date, revenue_billed, revenue_paid) "
+                        + "SELECT a.clinic_id, DATE(b.created_at), SUM(b.amount), "
+                        + "SUM(CASE WHEN b.status = 'Paid' THEN b.amount ELSE 0 END) "
+                        + "FROM billing b JOIN appointments a ON b.appointment_id = a.appointment_id "
+                        + "WHERE a.clinic_id = ? AND " + DateRange.predicate("b.created_at")
+                        + " GROUP BY a.clinic_id, DATE(b.created_at) "
+                        + "ON DUPLICATE KEY UPDATE revenue_billed = VALUES(revenue_billed), "
+                        + "revenue_paid = VALUES(revenue_paid)",
+                "INSERT INTO doctor_daily_stats (clinic_id, stat_date, doctor_id, appointments_completed) "
+                        + "SELECT clinic_id, DATE(appointment_date), doctor_id, COUNT(*) FROM appointments "
+                        + "WHERE clinic_id = ? AND status = 'Completed' AND "
+                        + DateRange.predicate("appointment_date")
+                        + " GROUP BY clinic_id, DATE(appointment_date), doctor_id",
+        };
+
+        long start = System.nanoTime();
+        try (Connection con = DBConnection.getConnection()) {
+            // An uncommitted transaction is rolled back when the connection goes back to the pool
+            con.setAutoCommit(false);
+            for (String sql : statements) {
+                try (PreparedStatement pst = con.prepareStatement(sql)) {
+                    pst.setInt(1, clinicId);
+                    days.bind(pst, 2);
+                    pst.executeUpdate();
+                }
+            }
+            con.commit();
+        } catch (Exception e) {
+            LoggerUtil.logError("Failed to rebuild daily stats for clinic ID: " + clinicId + " " + days, e);
+            return false;
+        }
+        MONTHS.invalidateIf(key -> key.clinicId == clinicId || key.clinicId == ReportCache.ALL_CLINICS);
+        ReportCache.invalidateClinic(clinicId);
+        LoggerUtil.logInfo(String.format("Rebuilt daily stats for clinic %d %s in %d ms", clinicId, days,
+                (System.nanoTime() - start) / 1_000_000));
+        return true;
+    }
+
+    /**
+     * Recomputes every clinic's rollups over their whole history, one clinic
+     * per transaction.
+     *
+     * @return The number of clinics rebuilt.
+     */
+    public int rebuildAll() {
+        List<Integer> clinicIds = new ArrayList<>();
+        try (Connection con = DBConnection.getConnection();
+                PreparedStatement pst = con.prepareStatement("SELECT clinic_id FROM clinics");
+                ResultSet rs = pst.executeQuery()) {
+            while (rs.next()) {
+                clinicIds.add(rs.getInt(1));
+            }
+        } catch (Exception e) {
+            LoggerUtil.logError("Failed to list clinics for the daily stats rebuild.", e);
+            return 0;
+        }
+
+        int rebuilt = 0;
+        for (int clinicId : clinicIds) {
+            if (rebuild(clinicId, ALL_TIME)) {
+                rebuilt++;
+            }
+        }
+        return rebuilt;
+    }
+
+    /**
+     * Backfills the rollups from the full history if they have never been
+     * filled (e.g. right after migration V005). Call at startup, off the EDT.
+     */
+    public void backfillIfEmpty() {
+        try (Connection con = DBConnection.getConnection();
+                PreparedStatement pst = con.prepareStatement(
+                        "SELECT EXISTS (SELECT 1 FROM clinic_daily_stats), EXISTS (SELECT 1 FROM appointments), "
+                                + "EXISTS (SELECT 1 FROM patients)");
+                ResultSet rs = pst.executeQuery()) {
+            if (!rs.next() || rs.getBoolean(1) || (!rs.getBoolean(2) && !rs.getBoolean(3))) {
+                return;
+            }
+        } catch (Exception e) {
+            LoggerUtil.logError("Failed to check whether the daily stats need a backfill.", e);
+            return;
+        }
+        LoggerUtil.logInfo("Daily stats are empty; backfilling from history.");
+        rebuildAll();
+    }
+
+    private static final class MonthKey {
+        private final int clinicId;
+        private final YearMonth month;
+
+        private MonthKey(int clinicId, YearMonth month) {
+            this.clinicId = clinicId;
+            this.month = month;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof MonthKey other && clinicId == other.clinicId && month.equals(other.month);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * clinicId + month.hashCode();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package cms.model.dao;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs several DAO calls concurrently as one unit: they share a deadline,
+ * the first one to fail cancels the rest, and none outlives the scope.
+ * <p>
+ * This follows {@code StructuredTaskScope.ShutdownOnFailure}, which is still
+ * a preview API in the Java version the project targets:
+ *
+ * <pre>
+ * try (DaoScope scope = DaoScope.open(Duration.ofSeconds(10))) {
+ *     Supplier&lt;List&lt;Doctor&gt;&gt; doctors = scope.fork(() -&gt; doctorDAO.getActiveDoctorsByClinic(clinicId));
+ *     Supplier&lt;List&lt;Appointment&gt;&gt; today = scope.fork(() -&gt; appointmentDAO.getAppointmentsByDate(clinicId, day));
+ *     scope.join();
+ *     return new Screen(doctors.get(), today.get());
+ * }
+ * </pre>
+ *
+ * From the EDT, {@link #supply} runs such a block on a virtual thread and
+ * returns a future for its result. Only the thread that opened a scope may
+ * fork and join in it.
+ */
+public final class DaoScope implements AutoCloseable {
+
+    /**
+     * The body of a scope run by {@link #supply}.
+     */
+    public interface Body<R> {
+        R run(DaoScope scope) throws Exception;
+    }
+
+    private final long deadlineNanos;
+    private final List<CompletableFuture<?>> forks = new ArrayList<>(); // Guarded by this
+    private final CompletableFuture<Void> firstFailure = new CompletableFuture<>();
+    private boolean joined;
+    private boolean cancelled; // Guarded by this
+
+    private DaoScope(Duration timeout) {
+        this.deadlineNanos = System.nanoTime() + timeout.toNanos();
+    }
+
+    /**
+     * Opens a scope whose calls must all finish within {@code timeout}.
+     */
+    public static DaoScope open(Duration timeout) {
+        return new DaoScope(timeout);
+    }
+
+    /**
+     * Runs {@code body} in a new scope on a virtual thread. Cancelling the
+     * returned future cancels the scope and every call in it.
+     */
+    public static <R> CompletableFuture<R> supply(Duration timeout, Body<R> body) {
+        return AsyncDao.submit(token -> {
+            try (DaoScope scope = open(timeout)) {
+                token.onCancel(scope::cancel); // Fails the join() the body is waiting in
+                return body.run(scope);
+            }
+        });
+    }
+
+    /**
+     * Starts a call on its own virtual thread.
+     *
+     * @return The call's result, readable after {@link #join} returned.
+     */
+    public <T> Supplier<T> fork(Callable<? extends T> call) {
+        if (joined) {
+            throw new IllegalStateException("Already joined");
+        }
+        CompletableFuture<T> future = AsyncDao.submit(_ -> call.call());
+        future.whenComplete((_, error) -> {
+            if (error != null) {
+                firstFailure.completeExceptionally(error);
+            }
+        });
+        synchronized (this) {
+            forks.add(future);
+            if (cancelled) {
+                future.cancel(false);
+            }
+        }
+        return () -> {
+            if (!joined) {
+                throw new IllegalStateException("Read before join()");
+            }
+            return future.join();
+        };
+    }
+
+    /**
+     * Waits for every forked call. If one fails, the deadline passes or the
+     * waiting thread is interrupted, the unfinished calls are cancelled and
+     * the problem is thrown.
+     *
+     * @throws ExecutionException   with the first failed call's exception, or
+     *                              a {@link CancellationException} if the
+     *                              scope was cancelled.
+     * @throws TimeoutException     if the calls didn't finish by the deadline.
+     * @throws InterruptedException if the waiting thread was interrupted.
+     */
+    public void join() throws ExecutionException, TimeoutException, InterruptedException {
+        CompletableFuture<Void> all;
+        synchronized (this) {
+            all = CompletableFuture.allOf(forks.toArray(new CompletableFuture<?>[0]));
+        }
+        try {
+            CompletableFuture.anyOf(all, firstFailure).get(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+            joined = true;
+        } catch (ExecutionException | TimeoutException | InterruptedException e) {
+            cancel();
+            throw e;
+        }
+    }
+
+    /**
+     * Cancels every call that hasn't finished, and any forked later, and
+     * fails a {@link #join} that is waiting. Safe to call from any thread.
+     */
+    public void cancel() {
+        List<CompletableFuture<?>> running;
+        synchronized (this) {
+            cancelled = true;
+            running = List.copyOf(forks);
+        }
+        firstFailure.completeExceptionally(new CancellationException("The scope was cancelled."));
+        for (CompletableFuture<?> fork : running) {
+            fork.cancel(false);
+        }
+    }
+
+    /**
+     * Cancels whatever is still running, e.g. when the body threw before
+     * joining.
+     */
+    @Override
+    public void close() {
+        cancel();
+    }
+}
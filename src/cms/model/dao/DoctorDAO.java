@@ -1,5 +1,6 @@
 package cms.model.dao;
 
+import cms.model.cache.ReferenceDataCache;
 import cms.model.database.DBConnection;
 import cms.model.entities.Doctor;
 import cms.model.entities.Enums;
@@ -7,6 +8,7 @@ import cms.utils.LoggerUtil;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -20,18 +22,33 @@ public class DoctorDAO {
      * @return true if the record was added successfully, false otherwise.
      */
     public boolean addDoctorDetails(Doctor doctor) {
+        try {
+            return UnitOfWork.execute(uow -> addDoctorDetails(uow, doctor));
+        } catch (Exception e) {
+            LoggerUtil.logError("Failed to add doctor details for user ID: " + doctor.getUserId(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Adds a doctor's details as part of a larger unit of work, e.g. together
+     * with their user row (see {@link UserDAO#addDoctor}).
+     *
+     * @return true if the record was added.
+     */
+    public boolean addDoctorDetails(UnitOfWork uow, Doctor doctor) throws SQLException {
         String sql = "INSERT INTO doctors (user_id, specialization, consultation_fee, schedule, status) VALUES (?, ?, ?, ?, ?)";
-        try (Connection con = DBConnection.getConnection();
-                PreparedStatement pst = con.prepareStatement(sql)) {
+        Connection con = uow.getConnection();
+        try (PreparedStatement pst = con.prepareStatement(sql)) {
             pst.setInt(1, doctor.getUserId());
             pst.setString(2, doctor.getSpecialization());
             pst.setDouble(3, doctor.getConsultationFee());
             pst.setString(4, doctor.getSchedule());
             pst.setString(5, doctor.getStatus().name() != null ? doctor.getStatus().name() : "Active");
-            return pst.executeUpdate() > 0;
-        } catch (Exception e) {
-            LoggerUtil.logError("Failed to add doctor details for user ID: " + doctor.getUserId(), e);
-            return false;
+            boolean added = pst.executeUpdate() > 0;
+            int clinicId = clinicOfUser(con, doctor.getUserId());
+            uow.afterCommit(() -> invalidateCachedDoctors(clinicId));
+            return added;
         }
     }
 
@@ -50,7 +67,9 @@ public class DoctorDAO {
             pst.setString(3, doctor.getSchedule());
             pst.setString(4, doctor.getStatus().name());
             pst.setInt(5, doctor.getUserId());
-            return pst.executeUpdate() > 0;
+            boolean updated = pst.executeUpdate() > 0;
+            invalidateCachedDoctors(con, doctor.getUserId());
+            return updated;
         } catch (Exception e) {
             LoggerUtil.logError("Failed to update doctor details for user ID: " + doctor.getUserId(), e);
             return false;
@@ -69,7 +88,9 @@ public class DoctorDAO {
         try (Connection con = DBConnection.getConnection();
                 PreparedStatement pst = con.prepareStatement(sql)) {
             pst.setInt(1, userId);
-            return pst.executeUpdate() > 0;
+            boolean updated = pst.executeUpdate() > 0;
+            invalidateCachedDoctors(con, userId);
+            return updated;
         } catch (Exception e) {
             LoggerUtil.logError("Failed to set doctor status to inactive for user ID: " + userId, e);
             return false;
@@ -154,11 +175,21 @@ public Doctor getDoctorByUserId(int userId) {
     /**
      * Fetches a list of all ACTIVE doctors for a specific clinic.
      * Used to populate dropdowns in the Appointment Booking panel.
+     * Served from {@link ReferenceDataCache}; this DAO's writes invalidate it.
      * 
      * @param clinicId The ID of the clinic.
-     * @return A list of Doctor objects.
+     * @return A read-only list of Doctor objects.
      */
     public List<Doctor> getActiveDoctorsByClinic(int clinicId) {
+        try {
+            return ReferenceDataCache.getActiveDoctors(clinicId, this::loadActiveDoctors);
+        } catch (Exception e) {
+            LoggerUtil.logError("Failed to fetch active doctors for clinic ID: " + clinicId, e);
+            return new ArrayList<>();
+        }
+    }
+
+    private List<Doctor> loadActiveDoctors(int clinicId) throws SQLException {
         List<Doctor> doctorList = new ArrayList<>();
         // Join with users table to get the name and filter by clinic
         String sql = "SELECT d.doctor_id, d.user_id, d.specialization, d.consultation_fee, u.name " +
@@ -179,9 +210,38 @@ public Doctor getDoctorByUserId(int userId) {
                 doc.setConsultationFee(rs.getDouble("consultation_fee"));
                 doctorList.add(doc);
             }
-        } catch (Exception e) {
-            LoggerUtil.logError("Failed to fetch active doctors for clinic ID: " + clinicId, e);
         }
         return doctorList;
     }
-}
\ No newline at end of file
+
+    // Drops the cached active doctors of the user's clinic (of every clinic if
+    // that can't be looked up)
+    private static void invalidateCachedDoctors(Connection con, int userId) {
+        invalidateCachedDoctors(clinicOfUser(con, userId));
+    }
+
+    private static void invalidateCachedDoctors(int clinicId) {
+        if (clinicId > 0) {
+            ReferenceDataCache.invalidateDoctors(clinicId);
+        } else {
+            ReferenceDataCache.invalidateAllDoctors();
+        }
+    }
+
+    /**
+     * @return The user's clinic ID, or -1 if it couldn't be looked up.
+     */
+    private static int clinicOfUser(Connection con, int userId) {
+        try (PreparedStatement pst = con.prepareStatement("SELECT clinic_id FROM users WHERE user_id = ?")) {
+            pst.setInt(1, userId);
+            try (ResultSet rs = pst.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            LoggerUtil.logWarning("Failed to look up the clinic of user ID " + userId + ": " + e.getMessage());
+        }
+        return -1;
+    }
+}
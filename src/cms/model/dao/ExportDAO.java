@@ -0,0 +1,173 @@
+package cms.model.dao;
+
+import cms.model.cache.ReportCache;
+import cms.model.database.DBConnection;
+import cms.utils.LoggerUtil;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a clinic's data, or every clinic's, for an export, one row at a time.
+ * <p>
+ * Each table is read with a forward-only, read-only statement whose fetch
+ * size is {@link Integer#MIN_VALUE}, which makes the MySQL driver stream the
+ * rows instead of loading the whole result into memory, and without an
+ * ORDER BY, so the server doesn't sort either. All tables are read on one
+ * connection in one read-only transaction with a consistent snapshot, so
+ * the export is a point-in-time copy even while the clinic keeps working.
+ */
+public class ExportDAO {
+
+    /**
+     * The exported tables, in export order. Staff exclude password hashes.
+     */
+    public enum Table {
+        CLINICS("clinics",
+                "SELECT clinic_id, code, name, email, phone, address, status, created_at FROM clinics",
+                "clinic_id"),
+        STAFF("staff",
+                "SELECT u.user_id, u.clinic_id, u.name, u.username, u.role, u.status, u.created_at, "
+                        + "d.doctor_id, d.specialization, d.consultation_fee, d.schedule, "
+                        + "d.status AS doctor_status "
+                        + "FROM users u LEFT JOIN doctors d ON d.user_id = u.user_id",
+                "u.clinic_id"),
+        PATIENTS("patients",
+                "SELECT patient_id, clinic_id, name, dob, gender, phone, address, blood_group, allergies, "
+                        + "created_at, updated_at FROM patients",
+                "clinic_id"),
+        APPOINTMENTS("appointments",
+                "SELECT appointment_id, clinic_id, patient_id, doctor_id, appointment_date, status, notes, "
+                        + "created_at FROM appointments",
+                "clinic_id"),
+        BILLS("bills",
+                "SELECT b.bill_id, a.clinic_id, b.appointment_id, b.patient_id, b.amount, b.status, b.created_at "
+                        + "FROM billing b JOIN appointments a ON a.appointment_id = b.appointment_id",
+                "a.clinic_id");
+
+        private final String fileName;
+        private final String sql;
+        private final String clinicColumn;
+
+        Table(String fileName, String sql, String clinicColumn) {
+            this.fileName = fileName;
+            this.sql = sql;
+            this.clinicColumn = clinicColumn;
+        }
+
+        /** @return The table's name in the export, e.g. "patients". */
+        public String getFileName() {
+            return fileName;
+        }
+    }
+
+    /**
+     * Receives the exported rows, table by table.
+     */
+    public interface RowSink {
+        void startTable(Table table, List<String> columns) throws IOException;
+
+        /**
+         * @param values The row's values as returned by
+         *               {@link ResultSet#getObject(int)}; the array is reused
+         *               for the next row.
+         * @return false to stop the export.
+         */
+        boolean row(Object[] values) throws IOException;
+
+        void endTable(Table table, long rows) throws IOException;
+    }
+
+    /**
+     * Streams every {@link Table} to the sink.
+     *
+     * @param clinicId The clinic, or {@link ReportCache#ALL_CLINICS}.
+     * @return false if the sink stopped the export.
+     */
+    public boolean export(int clinicId, RowSink sink) throws SQLException, IOException {
+        try (Connection con = DBConnection.getConnection()) {
+            con.setReadOnly(true);
+            con.setAutoCommit(false);
+            // A snapshot needs REPEATABLE READ, which is the server default
+            try (Statement st = con.createStatement()) {
+                st.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+            }
+            try {
+                for (Table table : Table.values()) {
+                    if (!exportTable(con, clinicId, table, sink)) {
+                        return false;
+                    }
+                }
+                return true;
+            } finally {
+                con.commit(); // Ends the snapshot; nothing was written
+            }
+        }
+    }
+
+    private boolean exportTable(Connection con, int clinicId, Table table, RowSink sink)
+            throws SQLException, IOException {
+        String sql = clinicId == ReportCache.ALL_CLINICS ? table.sql
+                : table.sql + " WHERE " + table.clinicColumn + " = ?";
+        boolean stopped = false;
+        try (PreparedStatement pst = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY)) {
+            pst.setFetchSize(Integer.MIN_VALUE); // Stream rows one at a time
+            if (clinicId != ReportCache.ALL_CLINICS) {
+                pst.setInt(1, clinicId);
+            }
+            try (ResultSet rs = pst.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int columnCount = meta.getColumnCount();
+                List<String> columns = new ArrayList<>(columnCount);
+                for (int i = 1; i <= columnCount; i++) {
+                    columns.add(meta.getColumnLabel(i));
+                }
+                sink.startTable(table, columns);
+
+                Object[] values = new Object[columnCount];
+                long rows = 0;
+                try {
+                    while (!stopped && rs.next()) {
+                        for (int i = 0; i < columnCount; i++) {
+                            values[i] = rs.getObject(i + 1);
+                        }
+                        rows++;
+                        stopped = !sink.row(values);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    stopped = true;
+                    throw e;
+                } finally {
+                    if (stopped) {
+                        cancel(pst);
+                    }
+                }
+                if (!stopped) {
+                    sink.endTable(table, rows);
+                }
+            }
+        } catch (SQLException e) {
+            if (!stopped) {
+                throw e;
+            }
+            // Reading past the cancelled query fails; the rows weren't wanted
+        }
+        return !stopped;
+    }
+
+    // Closing a streamed result reads the rest of it; stopping the query first makes that quick
+    private static void cancel(PreparedStatement pst) {
+        try {
+            pst.cancel();
+        } catch (SQLException e) {
+            LoggerUtil.logWarning("Failed to cancel an export query: " + e.getMessage());
+        }
+    }
+}
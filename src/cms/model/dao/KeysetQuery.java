@@ -0,0 +1,280 @@
+package cms.model.dao;
+
+import cms.model.cache.TtlCache;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keyset ("seek") pagination over a {@code (sort column, id)} key.
+ * <p>
+ * Instead of {@code LIMIT ? OFFSET ?}, which reads and throws away every row
+ * before the requested page, each page starts from the key of the last row
+ * the user saw:
+ *
+ * <pre>
+ * WHERE ... AND (created_at &lt; ? OR (created_at = ? AND id &lt; ?))
+ * ORDER BY created_at DESC, id DESC LIMIT size + 1
+ * </pre>
+ *
+ * With an index on the filter columns plus the sort column, every page costs
+ * the same no matter how deep it is. The extra row tells us whether another
+ * page exists. Going backwards runs the same query with the comparison and
+ * order flipped, then reverses the rows.
+ * <p>
+ * The sort column must be a timestamp or a string; the id breaks ties so the
+ * order is total. Both must appear in the select list. A NULL sort key sorts
+ * before every value, as in MySQL's ORDER BY.
+ * <p>
+ * Paginated screens also show "Page x of y". Totals are kept in a
+ * {@link TtlCache} that the owning DAO invalidates on writes; on a miss the
+ * count is fetched in the same statement as a scalar subquery over the base
+ * filter, so a page flip is always a single round trip.
+ *
+ * @param <T> The row type.
+ */
+final class KeysetQuery<T> {
+
+    /**
+     * Binds the parameters of the base filter.
+     */
+    interface Binder {
+        /**
+         * @return The index of the next parameter to bind.
+         */
+        int bind(PreparedStatement pst, int index) throws SQLException;
+    }
+
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private static final String TOTAL_LABEL = "page_total";
+
+    private final String columns;
+    private final String from;
+    private final String where;
+    private final String countFrom;
+    private final String sortColumn;
+    private final String idColumn;
+    private final boolean descending;
+    private final TtlCache<Object, Integer> totals;
+    private final RowMapper<T> mapper;
+
+    /**
+     * @param columns    The select list, without the SELECT keyword.
+     * @param from       The FROM clause (with any JOINs), without the keyword.
+     * @param where      The base filter without the WHERE keyword, or null.
+     * @param countFrom  The FROM clause of the total's count subquery; usually
+     *                   just the main table of {@code from}.
+     * @param sortColumn The (optionally table-qualified) sort column.
+     * @param idColumn   The (optionally table-qualified) unique tie-breaker.
+     * @param descending true to list the newest/highest key first.
+     * @param totals     Cache of totals per base filter, keyed by the
+     *                   {@code totalKey} passed to {@link #fetch}.
+     */
+    KeysetQuery(String columns, String from, String where, String countFrom, String sortColumn, String idColumn,
+            boolean descending, TtlCache<Object, Integer> totals, RowMapper<T> mapper) {
+        this.columns = columns;
+        this.from = from;
+        this.where = where;
+        this.countFrom = countFrom;
+        this.sortColumn = sortColumn;
+        this.idColumn = idColumn;
+        this.descending = descending;
+        this.totals = totals;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Runs the query for the requested page.
+     *
+     * @param binder   Binds the base filter's parameters, or null if none.
+     * @param totalKey Identifies the base filter's parameters in the totals
+     *                 cache, e.g. the clinic ID.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    Page<T> fetch(Connection con, PageRequest request, Binder binder, Object totalKey) throws SQLException {
+        Integer knownTotal = totals.get(totalKey);
+        Cursor cursor = Cursor.decode(request.getCursor());
+        boolean backward = cursor != null && !cursor.forward;
+        // Seek past the cursor in the direction we are reading
+        boolean readDescending = descending != backward;
+        boolean hasWhere = where != null && !where.isBlank();
+        boolean countInline = knownTotal == null;
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns);
+        if (countInline) {
+            sql.append(", (SELECT COUNT(*) FROM ").append(countFrom);
+            if (hasWhere) {
+                sql.append(" WHERE ").append(where);
+            }
+            sql.append(") AS ").append(TOTAL_LABEL);
+        }
+        sql.append(" FROM ").append(from);
+        List<String> conditions = new ArrayList<>();
+        if (hasWhere) {
+            conditions.add("(" + where + ")");
+        }
+        if (cursor != null) {
+            conditions.add(seekCondition(cursor, readDescending));
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        String dir = readDescending ? "DESC" : "ASC";
+        sql.append(" ORDER BY ").append(sortColumn).append(' ').append(dir)
+                .append(", ").append(idColumn).append(' ').append(dir)
+                .append(" LIMIT ?");
+
+        List<T> items = new ArrayList<>();
+        List<Object> keys = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        int total = countInline ? 0 : knownTotal;
+        try (PreparedStatement pst = con.prepareStatement(sql.toString())) {
+            int index = 1;
+            if (binder != null) {
+                // The count subquery's parameters come first in the statement
+                if (countInline && hasWhere) {
+                    index = binder.bind(pst, index);
+                }
+                index = binder.bind(pst, index);
+            }
+            if (cursor != null) {
+                index = cursor.bind(pst, index);
+            }
+            pst.setInt(index, request.getSize() + 1);
+
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    if (countInline && items.isEmpty()) {
+                        total = rs.getInt(TOTAL_LABEL);
+                    }
+                    items.add(mapper.map(rs));
+                    keys.add(rs.getObject(label(sortColumn)));
+                    ids.add(rs.getInt(label(idColumn)));
+                }
+            }
+        }
+
+        boolean more = items.size() > request.getSize();
+        if (more) {
+            int last = items.size() - 1;
+            items.remove(last);
+            keys.remove(last);
+            ids.remove(last);
+        }
+        if (backward) {
+            Collections.reverse(items);
+            Collections.reverse(keys);
+            Collections.reverse(ids);
+        }
+        // An empty page past a cursor says nothing about the total
+        if (countInline && (!items.isEmpty() || cursor == null)) {
+            totals.put(totalKey, total);
+        }
+        if (items.isEmpty()) {
+            return new Page<>(items, null, null, total);
+        }
+
+        boolean hasNext = backward || more;
+        boolean hasPrevious = backward ? more : cursor != null;
+        int last = items.size() - 1;
+        String next = hasNext ? new Cursor(true, keys.get(last), ids.get(last)).encode() : null;
+        String previous = hasPrevious ? new Cursor(false, keys.get(0), ids.get(0)).encode() : null;
+        return new Page<>(items, next, previous, total);
+    }
+
+    /**
+     * @return The condition selecting the rows past the cursor, with the
+     *         parameters {@link Cursor#bind} binds.
+     */
+    String seekCondition(Cursor cursor, boolean readDescending) {
+        String op = readDescending ? "<" : ">";
+        if (cursor.key == null) {
+            String sameKey = "(" + sortColumn + " IS NULL AND " + idColumn + " " + op + " ?)";
+            // Reading up from NULL, every non-NULL key comes next
+            return readDescending ? sameKey : "(" + sameKey + " OR " + sortColumn + " IS NOT NULL)";
+        }
+        String seek = sortColumn + " " + op + " ? OR (" + sortColumn + " = ? AND " + idColumn + " " + op + " ?)";
+        // Reading down, the NULL keys come last
+        return readDescending ? "(" + seek + " OR " + sortColumn + " IS NULL)" : "(" + seek + ")";
+    }
+
+    private static String label(String column) {
+        return column.substring(column.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * The position just after ({@code forward}) or just before a row.
+     * Encoded as URL-safe base64 so callers treat it as opaque.
+     */
+    static final class Cursor {
+        final boolean forward;
+        final Object key;
+        final int id;
+
+        Cursor(boolean forward, Object key, int id) {
+            this.forward = forward;
+            this.key = key instanceof LocalDateTime ldt ? Timestamp.valueOf(ldt) : key;
+            this.id = id;
+        }
+
+        /**
+         * Binds the parameters of {@link KeysetQuery#seekCondition}.
+         *
+         * @return The index of the next parameter to bind.
+         */
+        int bind(PreparedStatement pst, int index) throws SQLException {
+            if (key != null) {
+                bindKey(pst, index++);
+                bindKey(pst, index++);
+            }
+            pst.setInt(index, id);
+            return index + 1;
+        }
+
+        private void bindKey(PreparedStatement pst, int index) throws SQLException {
+            if (key instanceof Timestamp ts) {
+                pst.setTimestamp(index, ts);
+            } else {
+                pst.setString(index, (String) key);
+            }
+        }
+
+        String encode() {
+            String type = key == null ? "N" : key instanceof Timestamp ? "T" : "S";
+            String raw = (forward ? "A" : "B") + "|" + type + "|" + id + "|" + (key == null ? "" : key);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * @throws IllegalArgumentException if the cursor is malformed.
+         */
+        static Cursor decode(String encoded) {
+            if (encoded == null) {
+                return null;
+            }
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            if (parts.length != 4 || !parts[0].matches("[AB]")) {
+                throw new IllegalArgumentException("Malformed page cursor.");
+            }
+            Object key = switch (parts[1]) {
+                case "N" -> null;
+                case "T" -> Timestamp.valueOf(parts[3]);
+                case "S" -> parts[3];
+                default -> throw new IllegalArgumentException("Malformed page cursor.");
+            };
+            return new Cursor("A".equals(parts[0]), key, Integer.parseInt(parts[2]));
+        }
+    }
+}
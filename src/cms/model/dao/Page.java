@@ -0,0 +1,73 @@
+package cms.model.dao;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated list.
+ * <p>
+ * The cursors are opaque strings: pass {@link #getNextCursor()} or
+ * {@link #getPreviousCursor()} back in a {@link PageRequest} to move one page
+ * forwards or backwards. A cursor is null when there is no page in that
+ * direction.
+ * <p>
+ * {@link #getTotal()} is the number of rows across all pages, so screens can
+ * show "Page x of y" without a separate count query.
+ *
+ * @param <T> The row type.
+ */
+public final class Page<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+    private final String previousCursor;
+    private final int total;
+
+    Page(List<T> items, String nextCursor, String previousCursor, int total) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+        this.previousCursor = previousCursor;
+        this.total = total;
+    }
+
+    /**
+     * @return An empty page with no neighbours, used when a query fails.
+     */
+    public static <T> Page<T> empty() {
+        return new Page<>(Collections.emptyList(), null, null, 0);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
+    /**
+     * @return The number of rows across all pages.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return The number of pages of the given size, at least 1.
+     */
+    public int getTotalPages(int pageSize) {
+        return total == 0 ? 1 : (total + pageSize - 1) / pageSize;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean hasPrevious() {
+        return previousCursor != null;
+    }
+}
@@ -0,0 +1,42 @@
+package cms.model.dao;
+
+/**
+ * Asks a DAO for one page of a list: the first page, or the page next to a
+ * cursor taken from a previously returned {@link Page}.
+ */
+public final class PageRequest {
+
+    private final String cursor;
+    private final int size;
+
+    private PageRequest(String cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1: " + size);
+        }
+        this.cursor = cursor;
+        this.size = size;
+    }
+
+    /**
+     * @return A request for the first page.
+     */
+    public static PageRequest first(int size) {
+        return new PageRequest(null, size);
+    }
+
+    /**
+     * @param cursor A cursor from {@link Page#getNextCursor()} or
+     *               {@link Page#getPreviousCursor()}; null means the first page.
+     */
+    public static PageRequest at(String cursor, int size) {
+        return new PageRequest(cursor, size);
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
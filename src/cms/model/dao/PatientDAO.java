@@ -1,14 +1,29 @@
 package cms.model.dao;
 
+import cms.model.cache.PatientTypeaheadIndex;
+import cms.model.cache.TtlCache;
 import cms.model.database.DBConnection;
 import cms.model.entities.Patient;
+import cms.model.entities.PatientSummary;
 import cms.utils.LoggerUtil;
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class PatientDAO {
 
+    // Patient totals per clinic ID for "Page x of y"; dropped when a patient is added
+    private static final TtlCache<Object, Integer> PATIENT_TOTALS = new TtlCache<>("patient-totals", 60_000);
+
+    // Newest patients first; served by idx_patients_clinic_created
+    private final KeysetQuery<Patient> patientsByClinic = new KeysetQuery<>(
+            "*", "patients", "clinic_id = ?", "patients", "created_at", "patient_id", true,
+            PATIENT_TOTALS, PatientDAO::mapResultSetToPatient);
+
     /**
      * Adds a new patient to the database.
      * 
@@ -16,22 +31,28 @@ public class PatientDAO {
      * @return true if the patient was added successfully, false otherwise.
      */
     public boolean addPatient(Patient patient) {
-        String sql = "INSERT INTO patients (clinic_id, name, dob, gender, phone, address, blood_group, allergies) "
-                +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO patients (clinic_id, name, dob, gender, phone, address, blood_group, allergies, "
+                + "created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        // One clock for the row and its daily stats, so a rebuild counts it on the same day
+        LocalDateTime now = LocalDateTime.now();
         try (Connection con = DBConnection.getConnection();
                 PreparedStatement pst = con.prepareStatement(sql)) {
 
-            pst.setInt(1, patient.getClinicId());
-            pst.setString(2, patient.getName());
-            pst.setDate(3, java.sql.Date.valueOf(patient.getDob())); // Convert LocalDate to sql.Date
-            pst.setString(4, patient.getGender());
-            pst.setString(5, patient.getPhone());
-            pst.setString(6, patient.getAddress());
-            pst.setString(7, patient.getBloodGroup());
-            pst.setString(8, patient.getAllergies());
+            // The daily stats are updated in the same transaction; an uncommitted
+            // one is rolled back when the connection goes back to the pool
+            con.setAutoCommit(false);
+            bindNewPatient(pst, patient, now);
 
             int affectedRows = pst.executeUpdate();
+            if (affectedRows > 0) {
+                DailyStatsDAO.recordNewPatient(con, patient.getClinicId(), now.toLocalDate());
+            }
+            con.commit();
+            if (affectedRows > 0) {
+                DailyStatsDAO.invalidateMonth(patient.getClinicId(), now.toLocalDate());
+            }
+            PATIENT_TOTALS.invalidate(patient.getClinicId());
+            PatientTypeaheadIndex.requestRefresh(patient.getClinicId());
             return affectedRows > 0;
         } catch (java.sql.SQLIntegrityConstraintViolationException e) {
             LoggerUtil.logWarning("Attempted to insert a patient with a duplicate phone number: " + patient.getPhone());
@@ -42,6 +63,60 @@ public class PatientDAO {
         }
     }
 
+    /**
+     * Inserts patients of one clinic as a single JDBC batch, which the driver
+     * sends as multi-row INSERTs, as part of a larger unit of work. Used by
+     * the bulk import. A patient's {@link Patient#getCreatedAt()}, if set, is
+     * kept as their registration time, and the daily stats count them on
+     * that day.
+     *
+     * @return The number of patients inserted.
+     * @throws java.sql.BatchUpdateException If any row is refused; the unit
+     *                                       should then be rolled back.
+     */
+    public int addPatients(UnitOfWork uow, int clinicId, List<Patient> patients) throws SQLException {
+        if (patients.isEmpty()) {
+            return 0;
+        }
+        String sql = "INSERT INTO patients (clinic_id, name, dob, gender, phone, address, blood_group, allergies, "
+                + "created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        LocalDateTime now = LocalDateTime.now();
+        Map<LocalDate, Integer> perDay = new TreeMap<>();
+        try (PreparedStatement pst = uow.getConnection().prepareStatement(sql)) {
+            for (Patient patient : patients) {
+                LocalDateTime createdAt = patient.getCreatedAt() == null ? now : patient.getCreatedAt();
+                patient.setClinicId(clinicId);
+                bindNewPatient(pst, patient, createdAt);
+                pst.addBatch();
+                perDay.merge(createdAt.toLocalDate(), 1, Integer::sum);
+            }
+            // Every row goes in or the batch throws; a rewritten batch's
+            // per-row counts are SUCCESS_NO_INFO, so they aren't summed
+            pst.executeBatch();
+        }
+        for (Map.Entry<LocalDate, Integer> day : perDay.entrySet()) {
+            DailyStatsDAO.recordNewPatients(uow.getConnection(), clinicId, day.getKey(), day.getValue());
+        }
+        uow.afterCommit(() -> {
+            PATIENT_TOTALS.invalidate(clinicId);
+            perDay.keySet().forEach(day -> DailyStatsDAO.invalidateMonth(clinicId, day));
+        });
+        return patients.size();
+    }
+
+    private static void bindNewPatient(PreparedStatement pst, Patient patient, LocalDateTime createdAt)
+            throws SQLException {
+        pst.setInt(1, patient.getClinicId());
+        pst.setString(2, patient.getName());
+        pst.setDate(3, java.sql.Date.valueOf(patient.getDob())); // Convert LocalDate to sql.Date
+        pst.setString(4, patient.getGender());
+        pst.setString(5, patient.getPhone());
+        pst.setString(6, patient.getAddress());
+        pst.setString(7, patient.getBloodGroup());
+        pst.setString(8, patient.getAllergies());
+        pst.setTimestamp(9, Timestamp.valueOf(createdAt));
+    }
+
     /**
      * Updates an existing patient's details in the database.
      * 
@@ -63,7 +138,9 @@ public class PatientDAO {
             pst.setString(7, patient.getAllergies());
             pst.setInt(8, patient.getPatientId());
 
-            return pst.executeUpdate() > 0;
+            boolean updated = pst.executeUpdate() > 0;
+            PatientTypeaheadIndex.requestRefresh(patient.getClinicId());
+            return updated;
         } catch (Exception e) {
             LoggerUtil.logError("Failed to update patient with ID: " + patient.getPatientId(), e);
             return false;
@@ -93,33 +170,53 @@ public class PatientDAO {
     }
 
     /**
-     * Searches for patients by name or phone number within a specific clinic.
+     * Returns the clinic's in-memory type-ahead index, loading it in the
+     * background on first use.
      * 
-     * @param clinicId   The ID of the clinic.
-     * @param searchTerm The name or phone number to search for.
-     * @return A list of matching Patient objects.
+     * @param clinicId The ID of the clinic.
+     * @return The index; check {@link PatientTypeaheadIndex#isReady()} before searching.
      */
-    public List<Patient> searchPatients(int clinicId, String searchTerm) {
-        List<Patient> patientList = new ArrayList<>();
-        String sql = "SELECT * FROM patients WHERE clinic_id = ? AND (name LIKE ? OR phone LIKE ?) ORDER BY name ASC";
+    public PatientTypeaheadIndex getTypeaheadIndex(int clinicId) {
+        return PatientTypeaheadIndex.forClinic(clinicId, this::getPatientSummariesChangedSince);
+    }
+
+    /**
+     * Fetches the slim projection of a clinic's patients changed at or after a
+     * point in time; feeds the type-ahead index. Unlike the other methods this
+     * one throws, so the index can tell a failed poll from "nothing changed".
+     * 
+     * @param clinicId The ID of the clinic.
+     * @param since    The earliest update time, or null for every patient.
+     * @return The changed patients.
+     */
+    List<PatientSummary> getPatientSummariesChangedSince(int clinicId, LocalDateTime since) throws SQLException {
+        // Served by idx_patients_clinic_updated
+        String sql = "SELECT patient_id, name, phone, gender, dob, updated_at FROM patients WHERE clinic_id = ?"
+                + (since == null ? "" : " AND updated_at >= ?");
+        List<PatientSummary> patients = new ArrayList<>();
         try (Connection con = DBConnection.getConnection();
                 PreparedStatement pst = con.prepareStatement(sql)) {
             pst.setInt(1, clinicId);
-            pst.setString(2, "%" + searchTerm + "%"); // Use wildcards for partial matches
-            pst.setString(3, "%" + searchTerm + "%");
-            ResultSet rs = pst.executeQuery();
-            while (rs.next()) {
-                patientList.add(mapResultSetToPatient(rs));
+            if (since != null) {
+                pst.setTimestamp(2, Timestamp.valueOf(since));
+            }
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    Date dob = rs.getDate("dob");
+                    Timestamp updatedAt = rs.getTimestamp("updated_at");
+                    patients.add(new PatientSummary(rs.getInt("patient_id"), rs.getString("name"),
+                            rs.getString("phone"), rs.getString("gender"),
+                            dob == null ? null : dob.toLocalDate(),
+                            updatedAt == null ? null : updatedAt.toLocalDateTime()));
+                }
             }
-        } catch (Exception e) {
-            LoggerUtil.logError("Failed to search for patients with term: " + searchTerm, e);
         }
-        return patientList;
+        return patients;
     }
 
     // Helper method to map a ResultSet row to a Patient object to avoid code
-    // duplication
-    private Patient mapResultSetToPatient(ResultSet rs) throws SQLException {
+    // duplication (also used by PatientSearchDAO)
+    static Patient mapResultSetToPatient(ResultSet rs) throws SQLException {
         Patient p = new Patient();
         p.setPatientId(rs.getInt("patient_id"));
         p.setClinicId(rs.getInt("clinic_id"));
@@ -172,29 +269,22 @@ public class PatientDAO {
     }
 
     /**
-     * Fetches a paginated list of patients for a specific clinic.
+     * Fetches one page of a clinic's patients, newest first, together with the
+     * clinic's total patient count.
      * 
      * @param clinicId The ID of the clinic.
-     * @param page     The page number to fetch.
-     * @param pageSize The number of records per page.
-     * @return A list of Patient objects.
+     * @param request  The first page, or a cursor from a previous page.
+     * @return The page of Patient objects.
      */
-    public List<Patient> getPaginatedPatientsByClinic(int clinicId, int page, int pageSize) {
-        List<Patient> patientList = new ArrayList<>();
-        String sql = "SELECT * FROM patients WHERE clinic_id = ? ORDER BY created_at DESC LIMIT ? OFFSET ?";
-        int offset = (page - 1) * pageSize;
-        try (Connection con = DBConnection.getConnection();
-                PreparedStatement pst = con.prepareStatement(sql)) {
-            pst.setInt(1, clinicId);
-            pst.setInt(2, pageSize);
-            pst.setInt(3, offset);
-            ResultSet rs = pst.executeQuery();
-            while (rs.next()) {
-                patientList.add(mapResultSetToPatient(rs)); // Assuming you have this helper
-            }
+    public Page<Patient> getPaginatedPatientsByClinic(int clinicId, PageRequest request) {
+        try (Connection con = DBConnection.getConnection()) {
+            return patientsByClinic.fetch(con, request, (pst, i) -> {
+                pst.setInt(i, clinicId);
+                return i + 1;
+            }, clinicId);
         } catch (Exception e) {
             LoggerUtil.logError("Failed to fetch paginated patients for clinic ID: " + clinicId, e);
+            return Page.empty();
         }
-        return patientList;
     }
 }
\ No newline at end of file
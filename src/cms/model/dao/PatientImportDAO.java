@@ -0,0 +1,182 @@
+package cms.model.dao;
+
+import cms.model.database.DBConnection;
+import cms.utils.LoggerUtil;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Checkpoints of the bulk patient import ({@code patient_imports}), one per
+ * clinic and file. A checkpoint is saved in the same unit of work as the
+ * chunk of patients it covers, so it never claims rows that were rolled
+ * back.
+ * <p>
+ * Only one run at a time may import a given file into a clinic: it holds
+ * {@link #lock}, and each save only moves the checkpoint on from where that
+ * run last left it, so a second run (say, in another application instance)
+ * can't insert the same rows again.
+ * <p>
+ * Unlike most DAOs these methods throw: an import that can't read its
+ * checkpoint must not start over and insert the file a second time.
+ */
+public class PatientImportDAO {
+
+    /**
+     * How far an import of one file has got.
+     */
+    public static final class Checkpoint {
+        private final long rowsDone;
+        private final long imported;
+        private final long rejected;
+        private final long rejectsBytes;
+        private final boolean finished;
+
+        public Checkpoint(long rowsDone, long imported, long rejected, long rejectsBytes, boolean finished) {
+            this.rowsDone = rowsDone;
+            this.imported = imported;
+            this.rejected = rejected;
+            this.rejectsBytes = rejectsBytes;
+            this.finished = finished;
+        }
+
+        /** @return The number of CSV records consumed, imported or rejected. */
+        public long getRowsDone() {
+            return rowsDone;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        /** @return The length of the reject file when this was saved. */
+        public long getRejectsBytes() {
+            return rejectsBytes;
+        }
+
+        public boolean isFinished() {
+            return finished;
+        }
+    }
+
+    /**
+     * A named MySQL lock on one file's import, held by a connection of its
+     * own until closed.
+     */
+    public static final class ImportLock implements AutoCloseable {
+        private final Connection con;
+        private final String name;
+
+        private ImportLock(Connection con, String name) {
+            this.con = con;
+            this.name = name;
+        }
+
+        @Override
+        public void close() {
+            try (Connection c = con; PreparedStatement pst = c.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                pst.setString(1, name);
+                pst.executeQuery().close();
+            } catch (SQLException e) {
+                LoggerUtil.logWarning("Failed to release the import lock " + name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Takes the lock on importing a file into a clinic, without waiting.
+     *
+     * @param sourceKey Identifies the file, see {@code PatientImport}.
+     * @throws SQLException If another run holds the lock, or the database
+     *                      fails.
+     */
+    public ImportLock lock(int clinicId, String sourceKey) throws SQLException {
+        // MySQL lock names are at most 64 characters; half the hex key is plenty to tell files apart
+        String name = "patient_import:" + clinicId + ":" + sourceKey.substring(0, Math.min(32, sourceKey.length()));
+        Connection con = DBConnection.getConnection();
+        try (PreparedStatement pst = con.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+            pst.setString(1, name);
+            try (ResultSet rs = pst.executeQuery()) {
+                if (rs.next() && rs.getInt(1) == 1) {
+                    return new ImportLock(con, name);
+                }
+            }
+        } catch (SQLException e) {
+            con.close();
+            throw e;
+        }
+        con.close();
+        throw new SQLException("This file is already being imported into this clinic.");
+    }
+
+    /**
+     * Creates the file's checkpoint at zero rows if it has none yet, so that
+     * {@link #saveCheckpoint} only ever updates it. Call holding the lock.
+     */
+    public void start(int clinicId, String sourceKey, String fileName) throws SQLException {
+        String sql = "INSERT IGNORE INTO patient_imports (clinic_id, source_key, file_name) VALUES (?, ?, ?)";
+        try (Connection con = DBConnection.getConnection();
+                PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setInt(1, clinicId);
+            pst.setString(2, sourceKey);
+            pst.setString(3, fileName.length() > 255 ? fileName.substring(0, 255) : fileName);
+            pst.executeUpdate();
+        }
+    }
+
+    /**
+     * @param sourceKey Identifies the file, see {@code PatientImport}.
+     * @return The file's checkpoint, or null if it was never imported.
+     */
+    public Checkpoint getCheckpoint(int clinicId, String sourceKey) throws SQLException {
+        String sql = "SELECT rows_done, rows_imported, rows_rejected, rejects_bytes, finished_at "
+                + "FROM patient_imports WHERE clinic_id = ? AND source_key = ?";
+        try (Connection con = DBConnection.getConnection();
+                PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setInt(1, clinicId);
+            pst.setString(2, sourceKey);
+            try (ResultSet rs = pst.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new Checkpoint(rs.getLong("rows_done"), rs.getLong("rows_imported"),
+                        rs.getLong("rows_rejected"), rs.getLong("rejects_bytes"), rs.getTimestamp("finished_at") != null);
+            }
+        }
+    }
+
+    /**
+     * Moves the file's checkpoint on as part of the unit that imported its
+     * latest chunk.
+     *
+     * @param previousRowsDone The rows done as this run last read or saved
+     *                         them.
+     * @throws SQLException If the checkpoint has moved since, or is finished:
+     *                      another run imported the same rows, so the unit
+     *                      must be rolled back.
+     */
+    public void saveCheckpoint(UnitOfWork uow, int clinicId, String sourceKey, long previousRowsDone,
+            Checkpoint checkpoint) throws SQLException {
+        String sql = "UPDATE patient_imports SET rows_done = ?, rows_imported = ?, rows_rejected = ?, "
+                + "rejects_bytes = ?, finished_at = ? "
+                + "WHERE clinic_id = ? AND source_key = ? AND rows_done = ? AND finished_at IS NULL";
+        try (PreparedStatement pst = uow.getConnection().prepareStatement(sql)) {
+            pst.setLong(1, checkpoint.getRowsDone());
+            pst.setLong(2, checkpoint.getImported());
+            pst.setLong(3, checkpoint.getRejected());
+            pst.setLong(4, checkpoint.getRejectsBytes());
+            pst.setTimestamp(5, checkpoint.isFinished() ? new java.sql.Timestamp(System.currentTimeMillis()) : null);
+            pst.setInt(6, clinicId);
+            pst.setString(7, sourceKey);
+            pst.setLong(8, previousRowsDone);
+            if (pst.executeUpdate() == 0) {
+                throw new SQLException("The import checkpoint of this file moved on; another import of it ran.");
+            }
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package cms.model.dao;
+
+import cms.model.cache.PatientTypeaheadIndex;
+import cms.model.database.DBConnection;
+import cms.model.entities.Patient;
+import cms.model.entities.PatientSummary;
+import cms.utils.LoggerUtil;
+import cms.utils.PatientSearchTerm;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Ranked, paginated patient search within a clinic.
+ * <p>
+ * Which patients a term finds, and in what order, is set out in
+ * {@link PatientSearchTerm}. Each way of matching is one branch of a single
+ * statement, backed by an index from migrations V003 and V007 where one
+ * exists:
+ * <ul>
+ * <li>whole phone number: {@code (clinic_id, phone_digits)},</li>
+ * <li>end of the phone number: {@code (clinic_id, phone_rev)}, the digits
+ * reversed, so the suffix becomes an indexable prefix,</li>
+ * <li>start of the name: {@code (clinic_id, name)},</li>
+ * <li>name containing the term: the ngram FULLTEXT index narrows the rows and
+ * {@code LIKE '%term%'} confirms them; terms of one character, or with spaces
+ * or punctuation, scan the clinic's {@code (clinic_id, name)} entries in name
+ * order instead,</li>
+ * <li>middle of the phone number: a scan of the clinic's
+ * {@code (clinic_id, phone_digits)} entries, only run when
+ * {@link PatientSearchTerm} says so.</li>
+ * </ul>
+ * Each branch reads at most {@link PatientSearchTerm#MAX_HITS} + 1 rows in name
+ * order, which is enough to rank and count the best
+ * {@link PatientSearchTerm#MAX_HITS} patients, so a one-letter term costs no
+ * more than a specific one. The capped total comes back with the page via
+ * {@code COUNT(*) OVER ()}. {@code benchmarks/patient_search.sql} measures each
+ * branch on a 500,000-patient clinic.
+ * <p>
+ * Once the clinic's {@link PatientTypeaheadIndex} has loaded, searches are
+ * answered from memory with the same rules and cursors instead.
+ */
+public class PatientSearchDAO {
+
+    private final PatientDAO patientDAO = new PatientDAO();
+
+    // Letters and digits only: anything else could be a FULLTEXT operator or a
+    // word break. One character is shorter than an ngram.
+    private static final String FULLTEXT_SAFE = "[\\p{L}\\p{N}]{2,}";
+    // Searches this slow are logged, to catch a plan that stopped using its index
+    private static final long SLOW_SEARCH_MS = 50;
+
+    /**
+     * Searches a clinic's patients by name or phone number.
+     *
+     * @param clinicId   The ID of the clinic.
+     * @param searchTerm The name, part of a name, or (part of) a phone number.
+     * @param request    The first page, or a cursor from a previous page.
+     * @return The page of matching patients, best matches first.
+     */
+    public Page<Patient> searchPatients(int clinicId, String searchTerm, PageRequest request) {
+        return searchPatients(clinicId, searchTerm, request, new CancellationToken());
+    }
+
+    /**
+     * Searches a clinic's patients by name or phone number; the query can be
+     * aborted through {@code token} while it runs, e.g. when the user has
+     * typed on and a newer search supersedes this one.
+     *
+     * @param clinicId   The ID of the clinic.
+     * @param searchTerm The name, part of a name, or (part of) a phone number.
+     * @param request    The first page, or a cursor from a previous page.
+     * @param token      Cancels the search.
+     * @return The page of matching patients, best matches first, or an empty
+     *         page if the search was cancelled. The total is capped at
+     *         {@link PatientSearchTerm#MAX_HITS}.
+     */
+    public Page<Patient> searchPatients(int clinicId, String searchTerm, PageRequest request,
+            CancellationToken token) {
+        PatientSearchTerm term = PatientSearchTerm.of(searchTerm);
+        if (term.isBlank()) {
+            return Page.empty();
+        }
+        PatientTypeaheadIndex typeahead = patientDAO.getTypeaheadIndex(clinicId);
+        if (typeahead.isReady()) {
+            return searchIndex(typeahead, clinicId, term, request);
+        }
+
+        List<String> branches = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        if (term.isPhone()) {
+            String digits = term.getDigits();
+            String reversed = new StringBuilder(digits).reverse() + "%";
+            addBranch(branches, params, PatientSearchTerm.TIER_EXACT_PHONE, "clinic_id = ? AND phone_digits = ?",
+                    clinicId, digits);
+            if (digits.length() >= PatientSearchTerm.MIN_SUFFIX_DIGITS) {
+                addBranch(branches, params, PatientSearchTerm.TIER_PHONE_SUFFIX, "clinic_id = ? AND phone_rev LIKE ?",
+                        clinicId, reversed);
+            }
+            if (term.isShortPhone()) {
+                addBranch(branches, params, PatientSearchTerm.TIER_PHONE_CONTAINS,
+                        "clinic_id = ? AND phone_digits LIKE ?", clinicId, "%" + digits + "%");
+            } else {
+                // Uncorrelated, so each NOT EXISTS runs once, on its index
+                addBranch(branches, params, PatientSearchTerm.TIER_PHONE_CONTAINS,
+                        "clinic_id = ? AND phone_digits LIKE ?"
+                                + " AND NOT EXISTS (SELECT 1 FROM patients WHERE clinic_id = ? AND phone_digits = ?)"
+                                + " AND NOT EXISTS (SELECT 1 FROM patients WHERE clinic_id = ? AND phone_rev LIKE ?)",
+                        clinicId, "%" + digits + "%", clinicId, digits, clinicId, reversed);
+            }
+        } else {
+            String text = term.getText();
+            addBranch(branches, params, PatientSearchTerm.TIER_NAME_PREFIX, "clinic_id = ? AND name LIKE ?",
+                    clinicId, escapeLike(text) + "%");
+            if (text.matches(FULLTEXT_SAFE)) {
+                // Quoted, so the ngram parser matches the term as a substring
+                addBranch(branches, params, PatientSearchTerm.TIER_NAME_CONTAINS,
+                        "MATCH(name) AGAINST (? IN BOOLEAN MODE) AND clinic_id = ? AND name LIKE ?",
+                        "\"" + text + "\"", clinicId, "%" + escapeLike(text) + "%");
+            } else {
+                addBranch(branches, params, PatientSearchTerm.TIER_NAME_CONTAINS, "clinic_id = ? AND name LIKE ?",
+                        clinicId, "%" + escapeLike(text) + "%");
+            }
+        }
+
+        String sql = "SELECT p.*, k.total_hits FROM ("
+                + "SELECT patient_id, tier, name, COUNT(*) OVER () AS total_hits FROM ("
+                + "SELECT patient_id, MIN(tier) AS tier, MIN(name) AS name FROM ("
+                + String.join(" UNION ALL ", branches)
+                + ") hits GROUP BY patient_id) g "
+                + "ORDER BY tier, name, patient_id LIMIT ? OFFSET ?) k "
+                + "JOIN patients p ON p.patient_id = k.patient_id "
+                + "ORDER BY k.tier, k.name, k.patient_id";
+
+        int size = request.getSize();
+        int offset = 0;
+        List<Patient> patients = new ArrayList<>();
+        int total = 0;
+        long start = System.nanoTime();
+        try (Connection con = DBConnection.getConnection();
+                PreparedStatement pst = con.prepareStatement(sql)) {
+            offset = Math.min(decodeOffset(request.getCursor()), PatientSearchTerm.MAX_HITS);
+            int index = 1;
+            for (Object param : params) {
+                if (param instanceof Integer i) {
+                    pst.setInt(index++, i);
+                } else {
+                    pst.setString(index++, (String) param);
+                }
+            }
+            pst.setInt(index++, Math.min(size, PatientSearchTerm.MAX_HITS - offset));
+            pst.setInt(index, offset);
+
+            token.attach(pst);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    total = Math.min(rs.getInt("total_hits"), PatientSearchTerm.MAX_HITS);
+                    patients.add(PatientDAO.mapResultSetToPatient(rs));
+                }
+            } finally {
+                token.detach();
+            }
+        } catch (Exception e) {
+            if (token.isCancelled()) {
+                return Page.empty(); // Superseded; the caller discards the result
+            }
+            LoggerUtil.logError("Failed to search for patients with term: " + term.getText(), e);
+            return Page.empty();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        if (elapsedMs >= SLOW_SEARCH_MS) {
+            LoggerUtil.logWarning(String.format("Slow patient search in clinic %d: %d ms for \"%s\"",
+                    clinicId, elapsedMs, term.getText()));
+        }
+
+        String next = offset + size < total ? encodeOffset(offset + size) : null;
+        String previous = offset > 0 ? encodeOffset(Math.max(0, offset - size)) : null;
+        return new Page<>(patients, next, previous, total);
+    }
+
+    /**
+     * Adds one way of matching as a {@code UNION ALL} branch yielding
+     * {@code (patient_id, tier, name)} for its first
+     * {@link PatientSearchTerm#MAX_HITS} + 1 rows by name.
+     */
+    private static void addBranch(List<String> branches, List<Object> params, int tier, String where,
+            Object... args) {
+        branches.add("(SELECT patient_id, " + tier + " AS tier, name FROM patients WHERE " + where
+                + " ORDER BY name, patient_id LIMIT " + (PatientSearchTerm.MAX_HITS + 1) + ")");
+        params.addAll(List.of(args));
+    }
+
+    /**
+     * Fetches one slice of a clinic's patients for a picker, as slim
+     * {@code (id, name, phone)} rows. A term with letters filters by name
+     * prefix, a term of digits by phone number prefix; a blank term lists
+     * everyone. Rows are ordered by name (or phone number).
+     * <p>
+     * The offset is applied to the covering {@code (clinic_id, name)} or
+     * {@code (clinic_id, phone_digits)} index in a derived table, so only the
+     * returned rows are read from the table itself.
+     *
+     * @param clinicId     The ID of the clinic.
+     * @param term         The typed text, or blank.
+     * @param offset       The index of the first row to return.
+     * @param limit        The maximum number of rows to return.
+     * @param includeTotal true to also count every matching row into
+     *                     {@link Page#getTotal()} (read from the returned rows,
+     *                     so pass it with offset 0); otherwise the total is 0.
+     * @return The slice; its cursors are always null.
+     * @throws SQLException If the slice couldn't be read, so the picker can
+     *                      tell a failed page from an empty one.
+     */
+    public Page<PatientSummary> getPatientSummaries(int clinicId, String term, int offset, int limit,
+            boolean includeTotal) throws SQLException {
+        String text = term == null ? "" : term.trim();
+        String digits = text.replaceAll("[\\s\\-+().]", "");
+        String filter = "clinic_id = ?";
+        String sortColumn = "name";
+        String pattern = null;
+        if (!digits.isEmpty() && digits.chars().allMatch(Character::isDigit)) {
+            filter += " AND phone_digits LIKE ?";
+            sortColumn = "phone_digits";
+            pattern = digits + "%";
+        } else if (!text.isEmpty()) {
+            filter += " AND name LIKE ?";
+            pattern = escapeLike(text) + "%";
+        }
+
+        String sql = "SELECT p.patient_id, p.name, p.phone"
+                + (includeTotal ? ", (SELECT COUNT(*) FROM patients WHERE " + filter + ") AS total" : "")
+                + " FROM patients p JOIN (SELECT patient_id FROM patients WHERE " + filter
+                + " ORDER BY " + sortColumn + ", patient_id LIMIT ? OFFSET ?) k ON k.patient_id = p.patient_id"
+                + " ORDER BY p." + sortColumn + ", p.patient_id";
+
+        List<PatientSummary> patients = new ArrayList<>();
+        int total = 0;
+        try (Connection con = DBConnection.getConnection();
+                PreparedStatement pst = con.prepareStatement(sql)) {
+            int index = 1;
+            for (int i = includeTotal ? 0 : 1; i < 2; i++) {
+                pst.setInt(index++, clinicId);
+                if (pattern != null) {
+                    pst.setString(index++, pattern);
+                }
+            }
+            pst.setInt(index++, limit);
+            pst.setInt(index, offset);
+
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    if (includeTotal) {
+                        total = rs.getInt("total");
+                    }
+                    patients.add(new PatientSummary(rs.getInt("patient_id"), rs.getString("name"),
+                            rs.getString("phone"), null, null, null));
+                }
+            }
+        }
+        return new Page<>(patients, null, null, total);
+    }
+
+    private static Page<Patient> searchIndex(PatientTypeaheadIndex index, int clinicId, PatientSearchTerm term,
+            PageRequest request) {
+        int offset;
+        try {
+            offset = decodeOffset(request.getCursor());
+        } catch (IllegalArgumentException e) {
+            LoggerUtil.logError("Invalid search cursor for term: " + term.getText(), e);
+            return Page.empty();
+        }
+        List<PatientSummary> hits = index.search(term.getText(), PatientSearchTerm.MAX_HITS);
+        int size = request.getSize();
+        int total = hits.size();
+
+        List<Patient> patients = new ArrayList<>();
+        for (PatientSummary s : hits.subList(Math.min(offset, total), Math.min(offset + size, total))) {
+            Patient p = new Patient();
+            p.setPatientId(s.getPatientId());
+            p.setClinicId(clinicId);
+            p.setName(s.getName());
+            p.setPhone(s.getPhone());
+            p.setGender(s.getGender());
+            p.setDob(s.getDob());
+            patients.add(p);
+        }
+        String next = offset + size < total ? encodeOffset(offset + size) : null;
+        String previous = offset > 0 ? encodeOffset(Math.max(0, offset - size)) : null;
+        return new Page<>(patients, next, previous, total);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    // Search results are ranked, not ordered by a column, so their cursors
+    // are plain offsets; the result set is small enough for that.
+    private static String encodeOffset(int offset) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("S|" + offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int decodeOffset(String cursor) {
+        if (cursor == null) {
+            return 0;
+        }
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        if (!raw.startsWith("S|")) {
+            throw new IllegalArgumentException("Not a search cursor.");
+        }
+        return Integer.parseInt(raw.substring(2));
+    }
+}
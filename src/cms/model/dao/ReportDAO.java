@@ -1,18 +1,31 @@
 package cms.model.dao;
 
+import cms.model.cache.ReportCache;
 import cms.model.database.DBConnection;
+import cms.model.entities.DailyStats;
+import cms.model.entities.DashboardSnapshot;
+import cms.model.entities.Enums;
+import cms.utils.DateRange;
+import cms.utils.Granularity;
 import cms.utils.LoggerUtil;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.ToIntFunction;
 
 public class ReportDAO {
 
-    // Fetches a map of {Clinic Name -> Patient Count}
-    public Map<String, Integer> getPatientCountPerClinic() {
+    private final DailyStatsDAO dailyStatsDAO = new DailyStatsDAO();
+
+    // Fetches a map of {Clinic Name -> Patient Count}; throws so the report
+    // cache can keep its last good snapshot
+    public Map<String, Integer> getPatientCountPerClinic() throws SQLException {
         Map<String, Integer> data = new LinkedHashMap<>();
         String sql = "SELECT c.name, COUNT(p.patient_id) as patient_count "
                 + "FROM clinics c LEFT JOIN patients p ON c.clinic_id = p.clinic_id "
@@ -23,14 +36,12 @@ public class ReportDAO {
             while (rs.next()) {
                 data.put(rs.getString("name"), rs.getInt("patient_count"));
             }
-        } catch (Exception e) {
-            LoggerUtil.logError("Failed to fetch patient count per clinic.", e);
         }
         return data;
     }
 
     // Fetches a map of {Role -> User Count}
-    public Map<String, Integer> getUserCountByRole() {
+    public Map<String, Integer> getUserCountByRole() throws SQLException {
         Map<String, Integer> data = new LinkedHashMap<>();
         String sql = "SELECT role, COUNT(user_id) as user_count FROM users GROUP BY role";
         try (Connection con = DBConnection.getConnection();
@@ -39,27 +50,19 @@ public class ReportDAO {
             while (rs.next()) {
                 data.put(rs.getString("role"), rs.getInt("user_count"));
             }
-        } catch (Exception e) {
-            LoggerUtil.logError("Failed to fetch user count by role.", e);
         }
         return data;
     }
 
-    // Fetches a map of {Month -> New Patient Count}
-    public Map<String, Integer> getNewPatientsPerMonth() {
-        Map<String, Integer> data = new LinkedHashMap<>();
-        String sql = "SELECT DATE_FORMAT(created_at, '%Y-%m') as month, COUNT(patient_id) as new_patients "
-                + "FROM patients GROUP BY month ORDER BY month ASC LIMIT 12"; // Last 12 months
-        try (Connection con = DBConnection.getConnection();
-                Statement st = con.createStatement();
-                ResultSet rs = st.executeQuery(sql)) {
-            while (rs.next()) {
-                data.put(rs.getString("month"), rs.getInt("new_patients"));
-            }
-        } catch (Exception e) {
-            LoggerUtil.logError("Failed to fetch new patient count per month.", e);
-        }
-        return data;
+    // The 12 months up to and including the month of the given day
+    public static DateRange lastTwelveMonths(LocalDate today) {
+        return DateRange.between(today.minusMonths(11).withDayOfMonth(1), today);
+    }
+
+    // Fetches a map of {Month -> New Patient Count} across all clinics for a
+    // range such as lastTwelveMonths(); months without new patients show 0
+    public Map<String, Integer> getNewPatientsPerMonth(DateRange months) throws SQLException {
+        return getNewPatientCounts(ReportCache.ALL_CLINICS, months, Granularity.MONTH);
     }
 
     // Fetches the number of patients for a specific clinic
@@ -79,10 +82,11 @@ public class ReportDAO {
 
     // Fetches today's appointment count for a specific clinic
     public int getTodaysAppointmentCountForClinic(int clinicId) {
-        // CURDATE() is a MySQL function to get the current date
-        String sql = "SELECT COUNT(*) FROM appointments WHERE clinic_id = ? AND DATE(appointment_date) = CURDATE()";
+        String sql = "SELECT COUNT(*) FROM appointments WHERE clinic_id = ? AND "
+                + DateRange.predicate("appointment_date");
         try (Connection con = DBConnection.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
             pst.setInt(1, clinicId);
+            DateRange.today().bind(pst, 2);
             ResultSet rs = pst.executeQuery();
             if (rs.next()) {
                 return rs.getInt(1);
@@ -114,13 +118,15 @@ public class ReportDAO {
     // Fetches today's active (non-cancelled) appointment count for a specific
     // doctor
 public int getTodaysAppointmentCountForDoctor(int clinicId, int doctorId) {
-    String sql = "SELECT COUNT(*) FROM appointments WHERE clinic_id = ? AND doctor_id = ? AND DATE(appointment_date) = CURDATE() AND status != 'Cancelled' ";
+    String sql = "SELECT COUNT(*) FROM appointments WHERE clinic_id = ? AND doctor_id = ? AND "
+            + DateRange.predicate("appointment_date") + " AND status != 'Cancelled' ";
 
     try (Connection con = DBConnection.getConnection();
          PreparedStatement pst = con.prepareStatement(sql)) {
 
         pst.setInt(1, clinicId);
         pst.setInt(2, doctorId);
+        DateRange.today().bind(pst, 3);
 
         ResultSet rs = pst.executeQuery();
         if (rs.next()) {
@@ -135,53 +141,43 @@ public int getTodaysAppointmentCountForDoctor(int clinicId, int doctorId) {
 }
 
     /**
-     * Fetches the number of appointments per day for the last 7 days for a
-     * specific clinic.
+     * Fetches the number of appointments, whatever their status, in each
+     * bucket of a range for a specific clinic. Empty buckets are included
+     * with 0.
      *
-     * @param clinicId The ID of the clinic.
-     * @return A map of {Date -> Appointment Count}.
+     * @param clinicId    The ID of the clinic.
+     * @param days        The days to cover.
+     * @param granularity The size of the buckets.
+     * @return A map of {Bucket label -> Appointment Count}.
+     * @throws SQLException If the rollups couldn't be read.
      */
-    public Map<String, Integer> getAppointmentsLast7Days(int clinicId) {
-        Map<String, Integer> data = new LinkedHashMap<>();
-        // This query groups appointments by date for the last 7 days for a specific
-        // clinic.
-        String sql = "SELECT DATE(appointment_date) as day, COUNT(appointment_id) as count "
-                + "FROM appointments "
-                + "WHERE clinic_id = ? AND appointment_date >= CURDATE() - INTERVAL 6 DAY "
-                + "GROUP BY day ORDER BY day ASC";
-        try (Connection con = DBConnection.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
-            pst.setInt(1, clinicId);
-            ResultSet rs = pst.executeQuery();
-            while (rs.next()) {
-                data.put(rs.getString("day"), rs.getInt("count"));
-            }
-        } catch (Exception e) {
-            LoggerUtil.logError("Failed to get appointments for last 7 days for clinic ID: " + clinicId, e);
-        }
-        return data;
+    public Map<String, Integer> getAppointmentCounts(int clinicId, DateRange days, Granularity granularity)
+            throws SQLException {
+        return countPerBucket(clinicId, days, granularity, DailyStats::getAppointments);
     }
 
     /**
-     * Fetches the number of new patients registered per day for the last 30
-     * days for a specific clinic.
+     * Fetches the number of new patients registered in each bucket of a
+     * range for a specific clinic. Empty buckets are included with 0.
      *
-     * @param clinicId The ID of the clinic.
-     * @return A map of {Date -> New Patient Count}.
+     * @param clinicId    The ID of the clinic.
+     * @param days        The days to cover.
+     * @param granularity The size of the buckets.
+     * @return A map of {Bucket label -> New Patient Count}.
+     * @throws SQLException If the rollups couldn't be read.
      */
-    public Map<String, Integer> getNewPatientsLast30Days(int clinicId) {
+    public Map<String, Integer> getNewPatientCounts(int clinicId, DateRange days, Granularity granularity)
+            throws SQLException {
+        return countPerBucket(clinicId, days, granularity, DailyStats::getNewPatients);
+    }
+
+    // Reads the daily rollups (V005) through DailyStatsDAO's month cache
+    private Map<String, Integer> countPerBucket(int clinicId, DateRange days, Granularity granularity,
+            ToIntFunction<DailyStats> count) throws SQLException {
         Map<String, Integer> data = new LinkedHashMap<>();
-        String sql = "SELECT DATE(created_at) as day, COUNT(patient_id) as count "
-                + "FROM patients "
-                + "WHERE clinic_id = ? AND created_at >= CURDATE() - INTERVAL 29 DAY "
-                + "GROUP BY day ORDER BY day ASC";
-        try (Connection con = DBConnection.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
-            pst.setInt(1, clinicId);
-            ResultSet rs = pst.executeQuery();
-            while (rs.next()) {
-                data.put(rs.getString("day"), rs.getInt("count"));
-            }
-        } catch (Exception e) {
-            LoggerUtil.logError("Failed to get new patients for last 30 days for clinic ID: " + clinicId, e);
+        for (Map.Entry<LocalDate, DailyStats> bucket : dailyStatsDAO.getBuckets(clinicId, days, granularity)
+                .entrySet()) {
+            data.put(granularity.label(bucket.getKey()), count.applyAsInt(bucket.getValue()));
         }
         return data;
     }
@@ -192,8 +188,9 @@ public int getTodaysAppointmentCountForDoctor(int clinicId, int doctorId) {
      *
      * @param clinicId The ID of the clinic.
      * @return A map of {Role -> Staff Count}.
+     * @throws SQLException If the query failed.
      */
-    public Map<String, Integer> getStaffCountByRoleForClinic(int clinicId) {
+    public Map<String, Integer> getStaffCountByRoleForClinic(int clinicId) throws SQLException {
         Map<String, Integer> data = new LinkedHashMap<>();
         String sql = "SELECT role, COUNT(user_id) as count FROM users "
                 + "WHERE clinic_id = ? "
@@ -204,39 +201,40 @@ public int getTodaysAppointmentCountForDoctor(int clinicId, int doctorId) {
             while (rs.next()) {
                 data.put(rs.getString("role"), rs.getInt("count"));
             }
-        } catch (Exception e) {
-            LoggerUtil.logError("Failed to get staff count by role for clinic ID: " + clinicId, e);
         }
         return data;
     }
 
     /**
      * Fetches the performance of each doctor in a specific clinic, ranked by
-     * the number of completed appointments in the last 30 days.
+     * the number of completed appointments in a range of days.
      *
      * @param clinicId The ID of the clinic.
+     * @param days     The days to count.
      * @return A map of {Doctor Name -> Completed Appointment Count}.
+     * @throws SQLException If the query failed.
      */
-    public Map<String, Integer> getDoctorPerformance(int clinicId) {
+    public Map<String, Integer> getDoctorPerformance(int clinicId, DateRange days) throws SQLException {
         // Use LinkedHashMap to preserve the order from the SQL query (sorted by
         // performance)
         Map<String, Integer> data = new LinkedHashMap<>();
 
-        // SQL query to join appointments, doctors, and users tables
-        String sql = "SELECT u.name, COUNT(a.appointment_id) as appointment_count "
-                + "FROM appointments a "
-                + "JOIN doctors d ON a.doctor_id = d.doctor_id "
+        // SQL query to join the per-doctor daily rollup (V005) with doctors and users
+        String sql = "SELECT u.name, SUM(s.appointments_completed) as appointment_count "
+                + "FROM doctor_daily_stats s "
+                + "JOIN doctors d ON s.doctor_id = d.doctor_id "
                 + "JOIN users u ON d.user_id = u.user_id "
-                + "WHERE a.clinic_id = ? "
-                + "AND a.status = 'Completed' "
-                + "AND a.appointment_date >= CURDATE() - INTERVAL 29 DAY "
+                + "WHERE s.clinic_id = ? "
+                + "AND " + DateRange.predicate("s.stat_date") + " "
                 + "GROUP BY u.user_id, u.name "
+                + "HAVING appointment_count > 0 "
                 + "ORDER BY appointment_count DESC";
 
         try (Connection con = DBConnection.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
 
-            // Set the clinic_id parameter for the WHERE clause
+            // Set the clinic_id and date range parameters for the WHERE clause
             pst.setInt(1, clinicId);
+            days.bind(pst, 2);
 
             ResultSet rs = pst.executeQuery();
 
@@ -246,8 +244,6 @@ public int getTodaysAppointmentCountForDoctor(int clinicId, int doctorId) {
                 int appointmentCount = rs.getInt("appointment_count");
                 data.put(doctorName, appointmentCount);
             }
-        } catch (Exception e) {
-            LoggerUtil.logError("Failed to get doctor performance for clinic ID: " + clinicId, e);
         }
 
         return data;
@@ -260,11 +256,11 @@ public int getTodaysAppointmentCountForDoctor(int clinicId, int doctorId) {
      * @return The number of new patients.
      */
     public int getNewPatientCountForToday(int clinicId) {
-        // CURDATE() is a MySQL function that gets the current date
-        String sql = "SELECT COUNT(*) FROM patients WHERE clinic_id = ? AND DATE(created_at) = CURDATE()";
+        String sql = "SELECT COUNT(*) FROM patients WHERE clinic_id = ? AND " + DateRange.predicate("created_at");
         try (Connection con = DBConnection.getConnection();
                 PreparedStatement pst = con.prepareStatement(sql)) {
             pst.setInt(1, clinicId);
+            DateRange.today().bind(pst, 2);
             ResultSet rs = pst.executeQuery();
             if (rs.next()) {
                 return rs.getInt(1);
@@ -306,16 +302,16 @@ public int getTodaysAppointmentCountForDoctor(int clinicId, int doctorId) {
      * @return The number of pending patients.
      */
     public int getPendingPatientCountForToday(int clinicId) {
-        // CURDATE() gets the current date. We look for appointments on this date
-        // with the status 'Scheduled'.
+        // We look for appointments today with the status 'Scheduled'.
         String sql = "SELECT COUNT(*) FROM appointments " +
                 "WHERE clinic_id = ? " +
-                "AND DATE(appointment_date) = CURDATE() " +
+                "AND " + DateRange.predicate("appointment_date") + " " +
                 "AND status = 'Scheduled'";
 
         try (Connection con = DBConnection.getConnection();
                 PreparedStatement pst = con.prepareStatement(sql)) {
             pst.setInt(1, clinicId);
+            DateRange.today().bind(pst, 2);
 
             ResultSet rs = pst.executeQuery();
             if (rs.next()) {
@@ -326,4 +322,85 @@ public int getTodaysAppointmentCountForDoctor(int clinicId, int doctorId) {
         }
         return 0;
     }
+
+    /**
+     * Reads every number on a role's home page in one statement. Today's
+     * appointment counts are conditional sums over a single range scan of
+     * {@code idx_appointments_clinic_date}; the role's other counts are
+     * index-only scalar subqueries in the same statement.
+     *
+     * @param role     The role whose home page is shown.
+     * @param clinicId The ID of the clinic.
+     * @param doctorId The doctor's ID for a doctor snapshot; ignored otherwise.
+     * @return The snapshot, or an all-zero one if the query failed.
+     */
+    public DashboardSnapshot getDashboardSnapshot(Enums.Role role, int clinicId, int doctorId) {
+        try {
+            return loadDashboardSnapshot(role, clinicId, doctorId);
+        } catch (SQLException e) {
+            LoggerUtil.logError("Failed to load the " + role + " dashboard for clinic ID: " + clinicId, e);
+            return DashboardSnapshot.empty(role);
+        }
+    }
+
+    /**
+     * Like {@link #getDashboardSnapshot}, but a failed query is thrown instead
+     * of read as all zeros.
+     */
+    public DashboardSnapshot loadDashboardSnapshot(Enums.Role role, int clinicId, int doctorId) throws SQLException {
+        boolean admin = role == Enums.Role.ADMIN;
+        boolean receptionist = role == Enums.Role.RECEPTIONIST;
+        boolean doctor = role == Enums.Role.DOCTOR;
+
+        StringBuilder sql = new StringBuilder("SELECT t.todays_appointments, t.pending_today, t.doctor_today");
+        if (receptionist) {
+            sql.append(", (SELECT COUNT(*) FROM patients WHERE clinic_id = ? AND ")
+                    .append(DateRange.predicate("created_at")).append(") AS new_patients_today")
+                    .append(", (SELECT COUNT(b.bill_id) FROM billing b")
+                    .append(" JOIN appointments a ON b.appointment_id = a.appointment_id")
+                    .append(" WHERE a.clinic_id = ? AND b.status = 'Unpaid') AS unpaid_bills");
+        }
+        if (admin) {
+            sql.append(", (SELECT COUNT(*) FROM patients WHERE clinic_id = ?) AS total_patients")
+                    .append(", (SELECT COUNT(*) FROM users WHERE clinic_id = ? AND role != 'ADMIN') AS staff_count");
+        }
+        sql.append(" FROM (SELECT COUNT(*) AS todays_appointments,")
+                .append(" COALESCE(SUM(status = 'Scheduled'), 0) AS pending_today,")
+                .append(" COALESCE(SUM(doctor_id = ? AND status != 'Cancelled'), 0) AS doctor_today")
+                .append(" FROM appointments WHERE clinic_id = ? AND ")
+                .append(DateRange.predicate("appointment_date")).append(") t");
+
+        DateRange today = DateRange.today();
+        try (Connection con = DBConnection.getConnection();
+                PreparedStatement pst = con.prepareStatement(sql.toString())) {
+            int index = 1;
+            if (receptionist) {
+                pst.setInt(index++, clinicId);
+                index = today.bind(pst, index);
+                pst.setInt(index++, clinicId);
+            }
+            if (admin) {
+                pst.setInt(index++, clinicId);
+                pst.setInt(index++, clinicId);
+            }
+            pst.setInt(index++, doctor ? doctorId : 0);
+            pst.setInt(index++, clinicId);
+            today.bind(pst, index);
+
+            try (ResultSet rs = pst.executeQuery()) {
+                if (rs.next()) {
+                    return new DashboardSnapshot(role,
+                            rs.getInt("todays_appointments"),
+                            rs.getInt("pending_today"),
+                            receptionist ? rs.getInt("new_patients_today") : 0,
+                            receptionist ? rs.getInt("unpaid_bills") : 0,
+                            admin ? rs.getInt("total_patients") : 0,
+                            admin ? rs.getInt("staff_count") : 0,
+                            doctor ? rs.getInt("doctor_today") : 0,
+                            LocalDateTime.now());
+                }
+            }
+        }
+        throw new SQLException("The dashboard query returned no row.");
+    }
 }
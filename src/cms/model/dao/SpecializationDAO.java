@@ -1,5 +1,6 @@
 package cms.model.dao;
 
+import cms.model.cache.ReferenceDataCache;
 import cms.model.database.DBConnection;
 import cms.model.entities.Enums;
 import cms.utils.LoggerUtil;
@@ -51,7 +52,17 @@ public class SpecializationDAO {
         return list;
     }
 
+    // Served from ReferenceDataCache; the writes below invalidate it
     public List<String> getActiveSpecializationsForClinic(int clinicId) {
+        try {
+            return ReferenceDataCache.getActiveSpecializations(clinicId, this::loadActiveSpecializations);
+        } catch (Exception e) {
+            LoggerUtil.logError("Failed to fetch active specializations for clinic: " + clinicId, e);
+            return new ArrayList<>();
+        }
+    }
+
+    private List<String> loadActiveSpecializations(int clinicId) throws SQLException {
         List<String> list = new ArrayList<>();
         String sql = "SELECT name FROM specializations WHERE clinic_id = ? AND status = 'Active' ORDER BY name ASC";
         try (Connection con = DBConnection.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
@@ -60,8 +71,6 @@ public class SpecializationDAO {
             while (rs.next()) {
                 list.add(rs.getString("name"));
             }
-        } catch (Exception e) {
-            LoggerUtil.logError("Failed to fetch active specializations for clinic: " + clinicId, e);
         }
         return list;
     }
@@ -71,7 +80,9 @@ public class SpecializationDAO {
         try (Connection con = DBConnection.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
             pst.setInt(1, clinicId);
             pst.setString(2, name);
-            return pst.executeUpdate() > 0;
+            boolean added = pst.executeUpdate() > 0;
+            ReferenceDataCache.invalidateSpecializations(clinicId);
+            return added;
         } catch (Exception e) {
             LoggerUtil.logError("Failed to add specialization '" + name + "' for clinic: " + clinicId, e);
             return false;
@@ -85,7 +96,9 @@ public class SpecializationDAO {
             pst.setString(1, newName);
             pst.setString(2, newStatus.name());
             pst.setInt(3, specializationId);
-            return pst.executeUpdate() > 0;
+            boolean updated = pst.executeUpdate() > 0;
+            invalidateCachedSpecializations(con, specializationId);
+            return updated;
         } catch (Exception e) {
             LoggerUtil.logError("Failed to update specialization with ID: " + specializationId, e);
             return false;
@@ -96,6 +109,8 @@ public class SpecializationDAO {
         String sql = "DELETE FROM specializations WHERE specialization_id = ?";
         try (Connection con = DBConnection.getConnection();
              PreparedStatement pst = con.prepareStatement(sql)) {
+            // Look up the clinic while the row still exists
+            invalidateCachedSpecializations(con, specializationId);
             pst.setInt(1, specializationId);
             return pst.executeUpdate() > 0;
         } catch (Exception e) {
@@ -103,4 +118,23 @@ public class SpecializationDAO {
             return false;
         }
     }
-}
+
+    // Drops the cached active specializations of the specialization's clinic
+    // (of every clinic if that can't be looked up)
+    private static void invalidateCachedSpecializations(Connection con, int specializationId) {
+        String sql = "SELECT clinic_id FROM specializations WHERE specialization_id = ?";
+        try (PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setInt(1, specializationId);
+            try (ResultSet rs = pst.executeQuery()) {
+                if (rs.next()) {
+                    ReferenceDataCache.invalidateSpecializations(rs.getInt(1));
+                    return;
+                }
+            }
+        } catch (SQLException e) {
+            LoggerUtil.logWarning("Failed to look up the clinic of specialization ID " + specializationId + ": "
+                    + e.getMessage());
+        }
+        ReferenceDataCache.invalidateAllSpecializations();
+    }
+}
\ No newline at end of file
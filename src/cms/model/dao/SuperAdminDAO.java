@@ -9,33 +9,59 @@ import cms.utils.PasswordUtils;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 
 public class SuperAdminDAO {
 
     public SuperAdmin validateLogin(String username, String password) {
         String sql = "SELECT * FROM super_admins WHERE username=?";
+        SuperAdmin sa = null;
+        String storedHash = null;
         try (Connection con = DBConnection.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
 
             pst.setString(1, username);
 
-            ResultSet rs = pst.executeQuery();
-            if (rs.next()) {
-                String storedHash = rs.getString("password");
-                System.out.println("User input: " + password);
-                System.out.println("Stored hash: " + storedHash);
-                System.out.println("Check result: " + PasswordUtils.checkPassword(password, storedHash));
-                if (PasswordUtils.checkPassword(password, storedHash)) {
-                    SuperAdmin sa = new SuperAdmin();
+            try (ResultSet rs = pst.executeQuery()) {
+                if (rs.next()) {
+                    storedHash = rs.getString("password");
+                    sa = new SuperAdmin();
                     sa.setSuperAdminId(rs.getInt("super_admin_id"));
                     sa.setName(rs.getString("name"));
                     sa.setUsername(rs.getString("username"));
-                    return sa;
                 }
             }
         } catch (Exception e) {
             LoggerUtil.logError("Failed to validate Super Admin login for username: " + username, e);
+            return null;
+        }
+
+        // Checked once the connection is back in the pool
+        if (sa == null) {
+            return null;
+        }
+        PasswordUtils.Verification check = PasswordUtils.verify(password, storedHash);
+        if (!check.matches()) {
+            return null;
+        }
+        if (check.getRehashed() != null) {
+            rehashPassword(sa.getSuperAdminId(), storedHash, check.getRehashed());
+        }
+        return sa;
+    }
+
+    // Replaces a hash made with an outdated BCrypt cost; only if nobody changed
+    // the password in the meantime. Failing here must not fail the login.
+    private static void rehashPassword(int superAdminId, String oldHash, String newHash) {
+        String sql = "UPDATE super_admins SET password = ? WHERE super_admin_id = ? AND password = ?";
+        try (Connection con = DBConnection.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setString(1, newHash);
+            pst.setInt(2, superAdminId);
+            pst.setString(3, oldHash);
+            pst.executeUpdate();
+        } catch (SQLException e) {
+            LoggerUtil.logWarning("Failed to rehash password for super admin ID " + superAdminId + ": "
+                    + e.getMessage());
         }
-        return null;
     }
 
     public void addAdmin(User user) {
@@ -0,0 +1,100 @@
+package cms.model.dao;
+
+import cms.model.database.DBConnection;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs several DAO writes on one pooled connection as one transaction with a
+ * single commit, so a multi-step operation either happens in full or not at
+ * all:
+ *
+ * <pre>
+ * boolean done = UnitOfWork.execute(uow -&gt; {
+ *     if (!appointmentDAO.completeAppointment(uow, appointmentId, notes)
+ *             || !billingDAO.createBillForAppointment(uow, appointmentId, fee)) {
+ *         uow.setRollbackOnly();
+ *         return false;
+ *     }
+ *     return true;
+ * });
+ * </pre>
+ *
+ * DAO methods that take a {@code UnitOfWork} write on its connection and let
+ * {@link SQLException}s through; any exception out of the work rolls the
+ * whole unit back. Cache invalidations registered with {@link #afterCommit}
+ * run only once the commit has succeeded, so no reader can re-cache the old
+ * rows in between.
+ */
+public final class UnitOfWork {
+
+    /**
+     * The writes of one unit.
+     */
+    public interface Work<T> {
+        T run(UnitOfWork uow) throws SQLException;
+    }
+
+    private final Connection connection;
+    private final List<Runnable> afterCommit = new ArrayList<>();
+    private boolean rollbackOnly;
+
+    private UnitOfWork(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Borrows one connection, runs {@code work} on it in a transaction and
+     * commits, unless the work threw or called {@link #setRollbackOnly}.
+     *
+     * @return What the work returned.
+     */
+    public static <T> T execute(Work<T> work) throws SQLException {
+        try (Connection con = DBConnection.getConnection()) {
+            con.setAutoCommit(false);
+            UnitOfWork uow = new UnitOfWork(con);
+            T result;
+            try {
+                result = work.run(uow);
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    con.rollback();
+                } catch (SQLException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                }
+                throw e;
+            }
+            if (uow.rollbackOnly) {
+                con.rollback();
+                return result;
+            }
+            con.commit();
+            uow.afterCommit.forEach(Runnable::run);
+            return result;
+        }
+    }
+
+    /**
+     * @return The unit's connection; it is closed by {@link #execute}.
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Runs {@code action} after the unit commits; dropped if it rolls back.
+     */
+    public void afterCommit(Runnable action) {
+        afterCommit.add(action);
+    }
+
+    /**
+     * Makes the unit roll back instead of committing, e.g. when a step
+     * affected no rows.
+     */
+    public void setRollbackOnly() {
+        rollbackOnly = true;
+    }
+}
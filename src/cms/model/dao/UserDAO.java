@@ -1,107 +1,152 @@
 package cms.model.dao;
 
 import cms.controller.AuthResult;
+import cms.model.cache.ReferenceDataCache;
+import cms.model.cache.TtlCache;
 import cms.model.database.DBConnection;
 import cms.model.entities.Clinic;
+import cms.model.entities.Doctor;
 import cms.model.entities.Enums;
 import cms.model.entities.User;
 import cms.utils.LoggerUtil;
 import cms.utils.PasswordUtils;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 
 public class UserDAO {
 
-    // Validate login and return User object if found
-    public AuthResult validateLogin(String clinicCode, String username, String password) {
-        Connection con = null;
-        try {
-            con = DBConnection.getConnection();
+    // Staff totals per clinic ID for "Page x of y"; dropped on every staff write
+    private static final TtlCache<Object, Integer> STAFF_TOTALS = new TtlCache<>("staff-totals", 60_000);
 
-            // --- STEP 1: Validate the Clinic First ---
-            String clinicSql = "SELECT clinic_id, name, address, phone, status FROM clinics WHERE code = ?";
-            Clinic clinic = null;
-            try (PreparedStatement pstClinic = con.prepareStatement(clinicSql)) {
-                pstClinic.setString(1, clinicCode);
-                ResultSet rsClinic = pstClinic.executeQuery();
+    // Newest staff first; served by idx_users_clinic_created
+    private final KeysetQuery<User> staffByClinic = new KeysetQuery<>(
+            "u.user_id, u.name, u.username, u.role, u.status, u.created_at, d.specialization, d.status",
+            "users u LEFT JOIN doctors d ON u.user_id = d.user_id",
+            "u.clinic_id = ? AND u.role != 'ADMIN'", "users u", "u.created_at", "u.user_id", true,
+            STAFF_TOTALS, rs -> {
+                User user = new User();
+                user.setUserId(rs.getInt("user_id"));
+                user.setName(rs.getString("name"));
+                user.setUsername(rs.getString("username"));
+                user.setRole(Enums.Role.valueOf(rs.getString("role")));
+                user.setStatus(Enums.Status.valueOf(rs.getString("status")));
 
-                if (!rsClinic.next()) {
-                    // Clinic with the given code does not exist.
-                    return new AuthResult(AuthResult.AuthStatus.CLINIC_NOT_FOUND, clinicCode);
-                }
+                user.setSpecialization(rs.getString("specialization"));
+                return user;
+            });
 
-                // Clinic exists, now check its status.
-                String clinicStatusStr = rsClinic.getString("status");
-                if (!"Active".equalsIgnoreCase(clinicStatusStr)) {
+    // Validate login and return User object if found.
+    // One round trip: a cached clinic only needs the user row, otherwise the
+    // clinic and user come back together from one joined query.
+    public AuthResult validateLogin(String clinicCode, String username, String password) {
+        User user = new User();
+        try (Connection con = DBConnection.getConnection()) {
+            Clinic clinic = ClinicDAO.CLINICS_BY_CODE.get(clinicCode);
+            String sql;
+            if (clinic != null) {
+                // --- Clinic known: check its status before touching the database ---
+                if (clinic.getStatus() != Enums.Status.Active) {
                     return new AuthResult(AuthResult.AuthStatus.CLINIC_SUSPENDED);
                 }
-
-                // If we are here, the clinic is valid and active. Build the Clinic object.
-                clinic = new Clinic();
-                clinic.setClinicId(rsClinic.getInt("clinic_id"));
-                clinic.setClinicCode(clinicCode); // We already have this
-                clinic.setClinicName(rsClinic.getString("name"));
-                clinic.setAddress(rsClinic.getString("address"));
-
-                clinic.setPhone(rsClinic.getString("phone"));
-                clinic.setStatus(Enums.Status.valueOf(clinicStatusStr));
+                sql = "SELECT user_id, name AS user_name, username, password, role, status AS user_status "
+                        + "FROM users WHERE clinic_id = ? AND username = ?";
+            } else {
+                // LEFT JOIN: no row means no such clinic, a NULL user_id means no such user
+                sql = "SELECT c.clinic_id, c.name, c.address, c.phone, c.status, "
+                        + "u.user_id, u.name AS user_name, u.username, u.password, u.role, u.status AS user_status "
+                        + "FROM clinics c "
+                        + "LEFT JOIN users u ON u.clinic_id = c.clinic_id AND u.username = ? "
+                        + "WHERE c.code = ?";
             }
 
-            // --- STEP 2: Validate the User Second ---
-            String userSql = "SELECT user_id, name, username, password, role, status FROM users WHERE clinic_id = ? AND username = ?";
-            try (PreparedStatement pstUser = con.prepareStatement(userSql)) {
-                pstUser.setInt(1, clinic.getClinicId());
-                pstUser.setString(2, username);
-                ResultSet rsUser = pstUser.executeQuery();
-
-                if (!rsUser.next()) {
-                    // The clinic was valid, but this username doesn't exist in it.
-                    return new AuthResult(AuthResult.AuthStatus.INVALID_CREDENTIALS);
-                }
-
-                // User exists, now check their status.
-                String userStatusStr = rsUser.getString("status");
-                if (!"Active".equalsIgnoreCase(userStatusStr)) {
-                    return new AuthResult(AuthResult.AuthStatus.USER_BLOCKED);
+            try (PreparedStatement pst = con.prepareStatement(sql)) {
+                if (clinic != null) {
+                    pst.setInt(1, clinic.getClinicId());
+                    pst.setString(2, username);
+                } else {
+                    pst.setString(1, username);
+                    pst.setString(2, clinicCode);
                 }
+                try (ResultSet rs = pst.executeQuery()) {
+                    if (clinic == null) {
+                        if (!rs.next()) {
+                            // Clinic with the given code does not exist.
+                            return new AuthResult(AuthResult.AuthStatus.CLINIC_NOT_FOUND, clinicCode);
+                        }
+                        clinic = new Clinic();
+                        clinic.setClinicId(rs.getInt("clinic_id"));
+                        clinic.setClinicCode(clinicCode);
+                        clinic.setClinicName(rs.getString("name"));
+                        clinic.setAddress(rs.getString("address"));
+                        clinic.setPhone(rs.getString("phone"));
+                        clinic.setStatus(Enums.Status.valueOf(rs.getString("status")));
+                        ClinicDAO.CLINICS_BY_CODE.put(clinicCode, clinic);
 
-                // Finally, check the password.
-                String storedHash = rsUser.getString("password");
-                if (!PasswordUtils.checkPassword(password, storedHash)) {
-                    return new AuthResult(AuthResult.AuthStatus.INVALID_CREDENTIALS);
-                }
+                        if (clinic.getStatus() != Enums.Status.Active) {
+                            return new AuthResult(AuthResult.AuthStatus.CLINIC_SUSPENDED);
+                        }
+                        rs.getInt("user_id");
+                        if (rs.wasNull()) {
+                            // The clinic was valid, but this username doesn't exist in it.
+                            return new AuthResult(AuthResult.AuthStatus.INVALID_CREDENTIALS);
+                        }
+                    } else if (!rs.next()) {
+                        return new AuthResult(AuthResult.AuthStatus.INVALID_CREDENTIALS);
+                    }
 
-                // --- ALL CHECKS PASSED: SUCCESS ---
-                User user = new User();
-                user.setUserId(rsUser.getInt("user_id"));
-                user.setClinicId(clinic.getClinicId());
-                user.setName(rsUser.getString("name"));
-                user.setUsername(rsUser.getString("username"));
-                user.setPassword(storedHash); // Store the hash
-                user.setRole(Enums.Role.valueOf(rsUser.getString("role").toUpperCase()));
-                user.setStatus(Enums.Status.valueOf(userStatusStr));
+                    // User exists, now check their status.
+                    String userStatusStr = rs.getString("user_status");
+                    if (!"Active".equalsIgnoreCase(userStatusStr)) {
+                        return new AuthResult(AuthResult.AuthStatus.USER_BLOCKED);
+                    }
 
-                user.setClinic(clinic); // Set the relationship
+                    // Read the row; the password is checked once the connection is back in the pool
+                    user.setUserId(rs.getInt("user_id"));
+                    user.setClinicId(clinic.getClinicId());
+                    user.setName(rs.getString("user_name"));
+                    user.setUsername(rs.getString("username"));
+                    user.setPassword(rs.getString("password")); // Store the hash
+                    user.setRole(Enums.Role.valueOf(rs.getString("role").toUpperCase()));
+                    user.setStatus(Enums.Status.valueOf(userStatusStr));
 
-                return new AuthResult(user);
+                    user.setClinic(clinic); // Set the relationship
+                }
             }
-
         } catch (Exception e) {
             LoggerUtil.logError("Failed to validate login for user: " + username, e);
             // Return a generic error to the UI for security in case of unexpected
             // exceptions
             return new AuthResult(AuthResult.AuthStatus.INVALID_CREDENTIALS);
-        } finally {
-            // Ensure the connection is closed in a single-connection model
-            if (con != null) {
-                try {
-                    con.close();
-                } catch (SQLException e) {
-                    LoggerUtil.logError("Failed to close connection in validateLogin.", e);
-                }
-            }
+        }
+
+        // Finally, check the password.
+        String storedHash = user.getPassword();
+        PasswordUtils.Verification check = PasswordUtils.verify(password, storedHash);
+        if (!check.matches()) {
+            return new AuthResult(AuthResult.AuthStatus.INVALID_CREDENTIALS);
+        }
+        if (check.getRehashed() != null) {
+            // Stored with an outdated BCrypt cost
+            user.setPassword(rehashPassword(user.getUserId(), storedHash, check.getRehashed()));
+        }
+
+        // --- ALL CHECKS PASSED: SUCCESS ---
+        return new AuthResult(user);
+    }
+
+    // Replaces a hash made with an outdated BCrypt cost, only if nobody changed
+    // the password in the meantime; returns the hash now stored. Failing here
+    // must not fail the login.
+    private static String rehashPassword(int userId, String oldHash, String newHash) {
+        String sql = "UPDATE users SET password = ? WHERE user_id = ? AND password = ?";
+        try (Connection con = DBConnection.getConnection();
+                PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setString(1, newHash);
+            pst.setInt(2, userId);
+            pst.setString(3, oldHash);
+            return pst.executeUpdate() > 0 ? newHash : oldHash;
+        } catch (SQLException e) {
+            LoggerUtil.logWarning("Failed to rehash password for user ID " + userId + ": " + e.getMessage());
+            return oldHash;
         }
     }
 
@@ -139,9 +184,30 @@ public class UserDAO {
     }
 
     public int addUser(User user) {
+        try {
+            return UnitOfWork.execute(uow -> addUser(uow, user));
+        } catch (java.sql.SQLIntegrityConstraintViolationException e) {
+            // This is a specific, expected error (duplicate username), so we log it as a
+            // warning.
+            LoggerUtil.logWarning("Attempted to insert a duplicate username: " + user.getUsername() + " for clinic ID: "
+                    + user.getClinicId());
+        } catch (Exception e) {
+            // This is an unexpected database error.
+            LoggerUtil.logError("Failed to add user: " + user.getUsername(), e);
+        }
+        return -1;
+    }
+
+    /**
+     * Inserts a user as part of a larger unit of work.
+     *
+     * @return The new user_id, or -1 if no row was inserted.
+     * @throws java.sql.SQLIntegrityConstraintViolationException If the username
+     *                                                           is taken.
+     */
+    public int addUser(UnitOfWork uow, User user) throws SQLException {
         String sql = "INSERT INTO users (clinic_id, name, username, password, role, status) VALUES (?, ?, ?, ?, ?, ?)";
-        try (Connection con = DBConnection.getConnection();
-                PreparedStatement pst = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement pst = uow.getConnection().prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             pst.setInt(1, user.getClinicId());
             pst.setString(2, user.getName());
             pst.setString(3, user.getUsername());
@@ -149,6 +215,7 @@ public class UserDAO {
             pst.setString(5, user.getRole().name()); // Convert enum to string
             pst.setString(6, (user.getStatus() != null) ? user.getStatus().name() : "Active");
             int affectedRows = pst.executeUpdate();
+            uow.afterCommit(() -> STAFF_TOTALS.invalidate(user.getClinicId()));
             if (affectedRows > 0) {
                 try (ResultSet rs = pst.getGeneratedKeys()) {
                     if (rs.next()) {
@@ -156,15 +223,37 @@ public class UserDAO {
                     }
                 }
             }
+        }
+        return -1;
+    }
 
+    /**
+     * Adds a doctor: the user and their doctor details, in one transaction.
+     * If either insert fails neither is kept.
+     *
+     * @param details The doctor details; their user ID is filled in here.
+     * @return The new user_id, or -1 on failure (including a duplicate
+     *         username).
+     */
+    public int addDoctor(User user, Doctor details) {
+        DoctorDAO doctorDAO = new DoctorDAO();
+        try {
+            return UnitOfWork.execute(uow -> {
+                int userId = addUser(uow, user);
+                if (userId > 0) {
+                    details.setUserId(userId);
+                    if (doctorDAO.addDoctorDetails(uow, details)) {
+                        return userId;
+                    }
+                }
+                uow.setRollbackOnly();
+                return -1;
+            });
         } catch (java.sql.SQLIntegrityConstraintViolationException e) {
-            // This is a specific, expected error (duplicate username), so we log it as a
-            // warning.
             LoggerUtil.logWarning("Attempted to insert a duplicate username: " + user.getUsername() + " for clinic ID: "
                     + user.getClinicId());
         } catch (Exception e) {
-            // This is an unexpected database error.
-            LoggerUtil.logError("Failed to add user: " + user.getUsername(), e);
+            LoggerUtil.logError("Failed to add doctor: " + user.getUsername(), e);
         }
         return -1;
     }
@@ -180,7 +269,12 @@ public class UserDAO {
             pst.setString(3, user.getRole().name());
             pst.setString(4, user.getStatus().name());
             pst.setInt(5, user.getUserId());
-            return pst.executeUpdate() > 0;
+            boolean updated = pst.executeUpdate() > 0;
+            // A role change can move the user in or out of the staff list
+            STAFF_TOTALS.invalidateAll();
+            // Doctor names and status come from the users row
+            ReferenceDataCache.invalidateAllDoctors();
+            return updated;
         } catch (Exception e) {
             LoggerUtil.logError("Failed to update status for user ID: " + user.getUserId(), e);
             return false;
@@ -192,47 +286,29 @@ public class UserDAO {
         String sql = "DELETE FROM users WHERE user_id = ?";
         try (Connection con = DBConnection.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
             pst.setInt(1, userId);
-            return pst.executeUpdate() > 0;
+            boolean deleted = pst.executeUpdate() > 0;
+            STAFF_TOTALS.invalidateAll();
+            ReferenceDataCache.invalidateAllDoctors();
+            return deleted;
         } catch (Exception e) {
             LoggerUtil.logError("Failed to delete user with ID: " + userId, e);
             return false;
         }
     }
 
-    // You already have getUsersByClinicId for the list
-    // Let's add pagination to it
-    public List<User> getPaginatedUsersByClinicId(int clinicId, int page,
-            int pageSize) {
-        List<User> userList = new ArrayList<>();
-        String sql = "SELECT u.user_id, u.name, u.username, u.role, u.status, d.specialization, d.status " +
-                "FROM users u " +
-                "LEFT JOIN doctors d ON u.user_id = d.user_id " +
-                "WHERE u.clinic_id = ? AND u.role != 'ADMIN' " +
-                "ORDER BY u.created_at DESC LIMIT ? OFFSET ?";
-        int offset = (page - 1) * pageSize;
-        try (Connection con = DBConnection.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
-            pst.setInt(1, clinicId);
-            pst.setInt(2, pageSize);
-            pst.setInt(3, offset);
-            ResultSet rs = pst.executeQuery();
-            while (rs.next()) {
-                User user = new User();
-                user.setUserId(rs.getInt("user_id"));
-                user.setName(rs.getString("name"));
-                user.setUsername(rs.getString("username"));
-                user.setRole(Enums.Role.valueOf(rs.getString("role")));
-                user.setStatus(Enums.Status.valueOf(rs.getString("status")));
-
-                user.setSpecialization(rs.getString("specialization"));
-
-                userList.add(user);
-            }
+    // Fetches one page of a clinic's staff (excluding ADMINs), newest first,
+    // together with the total staff count
+    public Page<User> getPaginatedUsersByClinicId(int clinicId, PageRequest request) {
+        try (Connection con = DBConnection.getConnection()) {
+            return staffByClinic.fetch(con, request, (pst, i) -> {
+                pst.setInt(i, clinicId);
+                return i + 1;
+            }, clinicId);
         } catch (Exception e) {
             LoggerUtil.logError("Failed to fetch paginated users for clinic ID: " + clinicId, e);
-            // On failure, return an empty list to prevent the UI from crashing.
-            return Collections.emptyList();
+            // On failure, return an empty page to prevent the UI from crashing.
+            return Page.empty();
         }
-        return userList;
     }
 
     /**
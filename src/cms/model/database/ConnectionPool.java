@@ -0,0 +1,460 @@
+package cms.model.database;
+
+import cms.utils.EdtWatchdog;
+import cms.utils.LoggerUtil;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * A small, bounded JDBC connection pool.
+ * <p>
+ * Borrowed connections are handed out as proxies: calling {@code close()} on
+ * them returns the physical connection to the pool instead of closing it, so
+ * the existing DAO try-with-resources blocks keep working unchanged. Idle
+ * connections are evicted after {@code idleTimeout}, every connection is
+ * retired after {@code maxLifetime}, and a background housekeeper keeps at
+ * least {@code minIdle} connections open and ready.
+ * <p>
+ * Each physical connection also keeps an LRU cache of prepared statements
+ * (see {@link StatementCache}), so repeated DAO queries skip the prepare step.
+ */
+public class ConnectionPool implements DataSource {
+
+    // Connections idle for longer than this are validated before being handed out
+    private static final long VALIDATE_AFTER_IDLE_MILLIS = 30_000;
+    private static final long HOUSEKEEPING_PERIOD_MILLIS = 30_000;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final int minIdle;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final long connectionTimeoutMillis;
+    private final int statementCacheSize;
+
+    // LIFO: the most recently returned connection is reused first, so the
+    // least recently used ones age out through idle eviction.
+    private final BlockingDeque<PhysicalConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger total = new AtomicInteger();
+    // Threads blocked waiting for a permit; guarded by itself
+    private final Set<Thread> waiting = new HashSet<>();
+
+    // --- Statistics ---
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder closedCount = new LongAdder();
+
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown = false;
+
+    public ConnectionPool(String url, String user, String password, int maxSize, int minIdle,
+            long idleTimeoutMillis, long maxLifetimeMillis, long connectionTimeoutMillis, int statementCacheSize) {
+        if (maxSize < 1 || minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: maxSize=" + maxSize + ", minIdle=" + minIdle);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.minIdle = minIdle;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.connectionTimeoutMillis = connectionTimeoutMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cms-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, HOUSEKEEPING_PERIOD_MILLIS,
+                HOUSEKEEPING_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens connections until the pool holds at least {@code minIdle} of them.
+     * Called once at startup so the first screens don't pay the TCP/auth
+     * handshake, and periodically by the housekeeper afterwards.
+     */
+    public void warmUp() {
+        while (!shutdown && idle.size() + active.get() < minIdle && total.get() < maxSize) {
+            try {
+                idle.offerLast(openPhysical());
+            } catch (SQLException e) {
+                LoggerUtil.logError("Failed to open connection while warming up the pool.", e);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool has been shut down.");
+        }
+        long start = System.nanoTime();
+        Thread thread = Thread.currentThread();
+        boolean acquired;
+        synchronized (waiting) {
+            waiting.add(thread);
+        }
+        try {
+            acquired = permits.tryAcquire(connectionTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            thread.interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection.", e);
+        } finally {
+            synchronized (waiting) {
+                waiting.remove(thread);
+            }
+        }
+        if (acquired && thread.isInterrupted()) {
+            // Cancelled just as a permit came free; don't start I/O with the flag set
+            permits.release();
+            throw new SQLException("Interrupted while waiting for a pooled connection.");
+        }
+        if (!acquired) {
+            timeoutCount.increment();
+            throw new SQLTimeoutException("Timed out after " + connectionTimeoutMillis
+                    + " ms waiting for a pooled connection (" + getStats() + ")");
+        }
+
+        try {
+            PhysicalConnection physical = takeIdle();
+            if (physical == null) {
+                physical = openPhysical();
+            }
+            recordWait(System.nanoTime() - start);
+            active.incrementAndGet();
+            return physical.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The pool only serves its configured credentials.");
+    }
+
+    /**
+     * Cancels what {@code thread} is doing with the database: a query it is
+     * running on a cached statement is cancelled with
+     * {@link Statement#cancel()}, and a wait for a connection is interrupted.
+     * Nothing else interrupts it, since an interrupted virtual thread closes
+     * the socket it is blocked on and the pooled connection with it.
+     */
+    public void cancel(Thread thread) {
+        synchronized (waiting) {
+            if (waiting.contains(thread)) {
+                thread.interrupt();
+                return;
+            }
+        }
+        StatementCache.cancelExecuting(thread);
+    }
+
+    /**
+     * @return A point-in-time snapshot of the pool's counters.
+     */
+    public PoolStats getStats() {
+        long borrows = borrowCount.sum();
+        double avgWaitMillis = borrows == 0 ? 0 : totalWaitNanos.sum() / 1_000_000.0 / borrows;
+        return new PoolStats(active.get(), idle.size(), total.get(), maxSize, permits.getQueueLength(),
+                borrows, avgWaitMillis, maxWaitNanos.get() / 1_000_000.0, timeoutCount.sum(),
+                createdCount.sum(), closedCount.sum());
+    }
+
+    /**
+     * Closes all idle connections and stops the housekeeper. Connections that
+     * are currently borrowed are closed as soon as they are returned.
+     */
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PhysicalConnection physical;
+        while ((physical = idle.pollFirst()) != null) {
+            closePhysical(physical);
+        }
+    }
+
+    // --- Internals ---
+
+    private PhysicalConnection takeIdle() {
+        PhysicalConnection physical;
+        while ((physical = idle.pollFirst()) != null) {
+            long now = System.currentTimeMillis();
+            if (physical.isExpired(now) || (physical.idleFor(now) > VALIDATE_AFTER_IDLE_MILLIS && !physical.isValid())) {
+                closePhysical(physical);
+                continue;
+            }
+            return physical;
+        }
+        return null;
+    }
+
+    private PhysicalConnection openPhysical() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, user, password);
+        PhysicalConnection physical;
+        try {
+            physical = new PhysicalConnection(raw, raw.getTransactionIsolation(), raw.getCatalog());
+        } catch (SQLException e) {
+            raw.close();
+            throw e;
+        }
+        total.incrementAndGet();
+        createdCount.increment();
+        return physical;
+    }
+
+    private void closePhysical(PhysicalConnection physical) {
+        total.decrementAndGet();
+        closedCount.increment();
+        if (physical.statements != null) {
+            physical.statements.closeAll();
+        }
+        try {
+            physical.raw.close();
+        } catch (SQLException e) {
+            LoggerUtil.logWarning("Failed to close pooled connection: " + e.getMessage());
+        }
+    }
+
+    private void release(PhysicalConnection physical, boolean resetOk) {
+        active.decrementAndGet();
+        physical.lastReturned = System.currentTimeMillis();
+        if (!resetOk || shutdown || physical.isExpired(physical.lastReturned)) {
+            closePhysical(physical);
+        } else {
+            idle.offerFirst(physical);
+        }
+        permits.release();
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private void houseKeep() {
+        long now = System.currentTimeMillis();
+        for (PhysicalConnection physical : idle) {
+            boolean expired = physical.isExpired(now);
+            boolean stale = physical.idleFor(now) > idleTimeoutMillis && idle.size() > minIdle;
+            // remove() only succeeds if no borrower grabbed it in the meantime
+            if ((expired || stale) && idle.remove(physical)) {
+                closePhysical(physical);
+            }
+        }
+        warmUp();
+    }
+
+    /**
+     * One physical JDBC connection owned by the pool.
+     */
+    private final class PhysicalConnection {
+        private final Connection raw;
+        private final StatementCache statements;
+        // What resetState() puts back if a borrower changed them
+        private final int isolation;
+        private final String catalog;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile long lastReturned = createdAt;
+
+        private PhysicalConnection(Connection raw, int isolation, String catalog) {
+            this.raw = raw;
+            this.isolation = isolation;
+            this.catalog = catalog;
+            this.statements = statementCacheSize > 0 ? new StatementCache(raw, statementCacheSize) : null;
+        }
+
+        private boolean isExpired(long now) {
+            return maxLifetimeMillis > 0 && now - createdAt > maxLifetimeMillis;
+        }
+
+        private long idleFor(long now) {
+            return now - lastReturned;
+        }
+
+        private boolean isValid() {
+            try {
+                return raw.isValid(2);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private Connection lease() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new LeaseHandler(this));
+        }
+    }
+
+    /**
+     * Routes calls on a borrowed connection to the physical connection, and
+     * turns {@code close()} into "return to pool".
+     */
+    private final class LeaseHandler implements InvocationHandler {
+        private final PhysicalConnection physical;
+        private boolean closed = false;
+        private boolean stateChanged = false;
+
+        private LeaseHandler(PhysicalConnection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(physical, resetState());
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || physical.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical.raw + (closed ? ", returned" : "") + "]";
+                case "prepareStatement":
+                    EdtWatchdog.noteSql((String) args[0]);
+                    if (!closed && physical.statements != null && isCacheable(args)) {
+                        int keys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                        return physical.statements.prepare((Connection) proxy, (String) args[0], keys);
+                    }
+                    break;
+                case "setAutoCommit":
+                case "setReadOnly":
+                case "setTransactionIsolation":
+                case "setCatalog":
+                    stateChanged = true;
+                    break;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool.");
+            }
+            try {
+                return method.invoke(physical.raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * Only the plain {@code prepareStatement(sql)} and
+         * {@code prepareStatement(sql, autoGeneratedKeys)} forms are cached;
+         * scrollable/streaming variants get a fresh statement every time.
+         */
+        private boolean isCacheable(Object[] args) {
+            return args.length == 1 || (args.length == 2 && args[1] instanceof Integer);
+        }
+
+        /**
+         * Puts the physical connection back into its default state so the next
+         * borrower never inherits an open transaction, isolation level or catalog.
+         *
+         * @return false if the connection is unusable and should be discarded.
+         */
+        private boolean resetState() {
+            try {
+                if (physical.raw.isClosed()) {
+                    return false;
+                }
+                if (stateChanged) {
+                    if (!physical.raw.getAutoCommit()) {
+                        physical.raw.rollback();
+                        physical.raw.setAutoCommit(true);
+                    }
+                    physical.raw.setReadOnly(false);
+                    if (physical.raw.getTransactionIsolation() != physical.isolation) {
+                        physical.raw.setTransactionIsolation(physical.isolation);
+                    }
+                    if (physical.catalog != null && !physical.catalog.equals(physical.raw.getCatalog())) {
+                        physical.raw.setCatalog(physical.catalog);
+                    }
+                }
+                physical.raw.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                LoggerUtil.logWarning("Discarding pooled connection that failed to reset: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    // --- Unused DataSource plumbing ---
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return (int) TimeUnit.MILLISECONDS.toSeconds(connectionTimeoutMillis);
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -1,26 +1,89 @@
 package cms.model.database;
 
+import cms.utils.LoggerUtil;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.List;
 
+/**
+ * Entry point for all database access. Connections are served from a bounded
+ * pool; closing a connection returns it to the pool.
+ * <p>
+ * Pool settings can be overridden with system properties, e.g.
+ * {@code -Dcms.db.pool.maxSize=20}.
+ */
 public class DBConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/clinicdb";
+    // Server-side prepares: pooled connections keep their prepared statements
+    // open (see StatementCache), so each hot query is parsed once per connection.
+    // Batched INSERTs (the patient import) are sent as multi-row INSERTs.
+    private static final String URL = "jdbc:mysql://localhost:3306/clinicdb?useServerPrepStmts=true"
+            + "&rewriteBatchedStatements=true";
 
     private static final String USER = "root";
     private static final String PASSWORD = "password";
 
-    private static Connection connection = null;
+    // --- Pool configuration ---
+    private static final int POOL_MAX_SIZE = Integer.getInteger("cms.db.pool.maxSize", 10);
+    private static final int POOL_MIN_IDLE = Integer.getInteger("cms.db.pool.minIdle", 2);
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("cms.db.pool.idleTimeoutMs", 5 * 60_000L);
+    private static final long POOL_MAX_LIFETIME_MS = Long.getLong("cms.db.pool.maxLifetimeMs", 30 * 60_000L);
+    private static final long POOL_CONNECTION_TIMEOUT_MS = Long.getLong("cms.db.pool.connectionTimeoutMs", 10_000L);
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("cms.db.pool.statementCacheSize", 64);
 
+    private static final ConnectionPool pool = new ConnectionPool(URL, USER, PASSWORD, POOL_MAX_SIZE,
+            POOL_MIN_IDLE, POOL_IDLE_TIMEOUT_MS, POOL_MAX_LIFETIME_MS, POOL_CONNECTION_TIMEOUT_MS,
+            STATEMENT_CACHE_SIZE);
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(pool::shutdown, "cms-pool-shutdown"));
+    }
+
+    private DBConnection() {
+    }
+
+    /**
+     * Borrows a connection from the pool. Callers must close it (normally via
+     * try-with-resources), which hands it back to the pool.
+     */
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            try {
-                // For modern JDBC drivers, Class.forName() is optional.
-                connection = DriverManager.getConnection(URL, USER, PASSWORD);
-            } catch (Exception e) {
-                System.out.println("JDBC Driver not found: " + e.getMessage());
-            }
-        }
-        return connection;
+        return pool.getConnection();
+    }
+
+    /**
+     * Cancels the query {@code thread} is running, or its wait for a
+     * connection. See {@link ConnectionPool#cancel}.
+     */
+    public static void cancel(Thread thread) {
+        pool.cancel(thread);
+    }
+
+    /**
+     * Opens the pool's minimum idle connections and applies any pending schema
+     * migrations. Call this once at application startup, off the Event
+     * Dispatch Thread, and wait for it before anything else queries the
+     * database: screens rely on the columns and tables the migrations add.
+     *
+     * @return false if the schema could not be brought up to date.
+     */
+    public static boolean initialize() {
+        long start = System.nanoTime();
+        pool.warmUp();
+        LoggerUtil.logInfo(String.format("Connection pool warmed up in %d ms (%s)",
+                (System.nanoTime() - start) / 1_000_000, pool.getStats()));
+        return MigrationRunner.migrate() >= 0;
+    }
+
+    /**
+     * @return Current pool statistics (active, idle, wait times).
+     */
+    public static PoolStats getPoolStats() {
+        return pool.getStats();
+    }
+
+    /**
+     * @return Prepared statement cache hit/miss counters, one entry per SQL.
+     */
+    public static List<StatementStats.Entry> getStatementStats() {
+        return StatementStats.snapshot();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,187 @@
+package cms.model.database;
+
+import cms.utils.LoggerUtil;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies numbered schema migrations at startup and records each one in the
+ * {@code schema_version} table, so every script runs exactly once per
+ * database.
+ * <p>
+ * Scripts live next to this class under {@code migrations/} and are listed in
+ * {@link #MIGRATIONS} in the order they must run (classpath directories can't
+ * be listed reliably from inside a jar). To add a migration, drop a new
+ * {@code V00N__description.sql} file there and append it to the list; never
+ * edit a script that has already shipped.
+ */
+public final class MigrationRunner {
+
+    private static final String[] MIGRATIONS = {
+            "V001__performance_indexes.sql",
+            "V002__keyset_pagination_indexes.sql",
+            "V003__patient_search.sql",
+            "V004__patient_change_polling.sql",
+            "V005__clinic_daily_stats.sql",
+            "V006__patient_imports.sql",
+            "V007__patient_search_stopwords.sql",
+    };
+
+    private static final String RESOURCE_DIR = "/cms/model/database/migrations/";
+
+    // Serialises migrations across application instances starting at the same time
+    private static final String LOCK_NAME = "clinicdb.schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    // MySQL has no CREATE INDEX / ADD COLUMN IF NOT EXISTS; a re-run after a
+    // partial failure hits these for the objects already created, which is harmless.
+    private static final int ER_DUP_FIELDNAME = 1060;
+    private static final int ER_DUP_KEYNAME = 1061;
+
+    private MigrationRunner() {
+    }
+
+    /**
+     * Applies every migration newer than the database's current version.
+     *
+     * @return The number of migrations applied, or -1 if migrating failed.
+     */
+    public static int migrate() {
+        try (Connection con = DBConnection.getConnection()) {
+            createVersionTable(con);
+            if (!acquireLock(con)) {
+                // Carrying on could run against a half-migrated schema
+                LoggerUtil.logWarning("Timed out waiting for another instance to finish migrating the schema.");
+                return -1;
+            }
+            try {
+                int current = currentVersion(con);
+                int applied = 0;
+                for (String script : MIGRATIONS) {
+                    int version = versionOf(script);
+                    if (version > current) {
+                        apply(con, version, script);
+                        applied++;
+                    }
+                }
+                return applied;
+            } finally {
+                releaseLock(con);
+            }
+        } catch (Exception e) {
+            LoggerUtil.logError("Schema migration failed.", e);
+            return -1;
+        }
+    }
+
+    private static void createVersionTable(Connection con) throws SQLException {
+        String sql = "CREATE TABLE IF NOT EXISTS schema_version ("
+                + "version INT PRIMARY KEY, "
+                + "script VARCHAR(255) NOT NULL, "
+                + "execution_ms INT NOT NULL, "
+                + "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP"
+                + ") ENGINE=InnoDB";
+        try (Statement st = con.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    private static int currentVersion(Connection con) throws SQLException {
+        try (PreparedStatement pst = con.prepareStatement("SELECT COALESCE(MAX(version), 0) FROM schema_version");
+                ResultSet rs = pst.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void apply(Connection con, int version, String script) throws SQLException, IOException {
+        long start = System.nanoTime();
+        // DDL commits implicitly in MySQL, so a script can't be wrapped in a
+        // transaction; the version row is only written once every statement ran.
+        try (Statement st = con.createStatement()) {
+            for (String sql : readStatements(script)) {
+                try {
+                    st.execute(sql);
+                } catch (SQLException e) {
+                    if (e.getErrorCode() != ER_DUP_KEYNAME && e.getErrorCode() != ER_DUP_FIELDNAME) {
+                        throw e;
+                    }
+                    LoggerUtil.logWarning("Migration " + script + ": already applied, skipping: " + sql);
+                }
+            }
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        try (PreparedStatement pst = con.prepareStatement(
+                "INSERT INTO schema_version (version, script, execution_ms) VALUES (?, ?, ?)")) {
+            pst.setInt(1, version);
+            pst.setString(2, script);
+            pst.setLong(3, elapsedMs);
+            pst.executeUpdate();
+        }
+        LoggerUtil.logInfo(String.format("Applied migration %s in %d ms", script, elapsedMs));
+    }
+
+    /**
+     * Splits a script into statements on trailing semicolons, dropping
+     * {@code --} comment lines.
+     */
+    private static List<String> readStatements(String script) throws IOException {
+        String text;
+        try (InputStream in = MigrationRunner.class.getResourceAsStream(RESOURCE_DIR + script)) {
+            if (in == null) {
+                throw new IOException("Migration script not found on classpath: " + script);
+            }
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : text.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                String sql = current.toString().trim();
+                statements.add(sql.substring(0, sql.length() - 1));
+                current.setLength(0);
+            }
+        }
+        if (!current.toString().isBlank()) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+
+    private static int versionOf(String script) {
+        return Integer.parseInt(script.substring(1, script.indexOf("__")));
+    }
+
+    private static boolean acquireLock(Connection con) throws SQLException {
+        try (PreparedStatement pst = con.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            pst.setString(1, LOCK_NAME);
+            pst.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void releaseLock(Connection con) {
+        try (PreparedStatement pst = con.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pst.setString(1, LOCK_NAME);
+            pst.executeQuery().close();
+        } catch (SQLException e) {
+            LoggerUtil.logWarning("Failed to release the schema migration lock: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package cms.model.database;
+
+/**
+ * An immutable snapshot of the connection pool's counters, used to size the
+ * pool (see {@link DBConnection#getPoolStats()}).
+ */
+public class PoolStats {
+
+    private final int active;
+    private final int idle;
+    private final int total;
+    private final int maxSize;
+    private final int waitingThreads;
+    private final long totalBorrows;
+    private final double avgWaitMillis;
+    private final double maxWaitMillis;
+    private final long timeouts;
+    private final long connectionsCreated;
+    private final long connectionsClosed;
+
+    public PoolStats(int active, int idle, int total, int maxSize, int waitingThreads, long totalBorrows,
+            double avgWaitMillis, double maxWaitMillis, long timeouts, long connectionsCreated,
+            long connectionsClosed) {
+        this.active = active;
+        this.idle = idle;
+        this.total = total;
+        this.maxSize = maxSize;
+        this.waitingThreads = waitingThreads;
+        this.totalBorrows = totalBorrows;
+        this.avgWaitMillis = avgWaitMillis;
+        this.maxWaitMillis = maxWaitMillis;
+        this.timeouts = timeouts;
+        this.connectionsCreated = connectionsCreated;
+        this.connectionsClosed = connectionsClosed;
+    }
+
+    public int getActive() { return active; }
+    public int getIdle() { return idle; }
+    public int getTotal() { return total; }
+    public int getMaxSize() { return maxSize; }
+    public int getWaitingThreads() { return waitingThreads; }
+    public long getTotalBorrows() { return totalBorrows; }
+    public double getAvgWaitMillis() { return avgWaitMillis; }
+    public double getMaxWaitMillis() { return maxWaitMillis; }
+    public long getTimeouts() { return timeouts; }
+    public long getConnectionsCreated() { return connectionsCreated; }
+    public long getConnectionsClosed() { return connectionsClosed; }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "active=%d, idle=%d, total=%d/%d, waiting=%d, borrows=%d, avgWait=%.2fms, maxWait=%.2fms, "
+                        + "timeouts=%d, created=%d, closed=%d",
+                active, idle, total, maxSize, waitingThreads, totalBorrows, avgWaitMillis, maxWaitMillis,
+                timeouts, connectionsCreated, connectionsClosed);
+    }
+}
@@ -0,0 +1,245 @@
+package cms.model.database;
+
+import cms.utils.LoggerUtil;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An LRU cache of prepared statements belonging to one physical connection.
+ * <p>
+ * DAOs keep calling {@code con.prepareStatement(sql)} and closing the result
+ * in try-with-resources. The pool routes those calls here: a cached statement
+ * is handed out as a proxy whose {@code close()} closes its result sets,
+ * clears its parameters and parks it for the next caller, so the statement is
+ * only parsed/prepared once per connection.
+ */
+final class StatementCache {
+
+    // The cached statement each thread is executing, for cancelExecuting()
+    private static final Map<Thread, Statement> EXECUTING = new ConcurrentHashMap<>();
+
+    private final Connection raw;
+    private final int capacity;
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, CachedStatement> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(Connection raw, int capacity) {
+        this.raw = raw;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns a (possibly cached) prepared statement for the given SQL.
+     *
+     * @param lease             The borrowed connection the caller holds, so
+     *                          {@code getConnection()} never leaks the raw one.
+     * @param autoGeneratedKeys {@link Statement#RETURN_GENERATED_KEYS} or
+     *                          {@link Statement#NO_GENERATED_KEYS}.
+     */
+    synchronized PreparedStatement prepare(Connection lease, String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : sql;
+        CachedStatement cached = entries.get(key);
+        if (cached != null && !cached.inUse) {
+            StatementStats.recordHit(sql);
+            return cached.checkOut(lease);
+        }
+
+        StatementStats.recordMiss(sql);
+        PreparedStatement physical = raw.prepareStatement(sql, autoGeneratedKeys);
+        if (cached != null) {
+            // Same SQL is already checked out on this connection (nested use);
+            // hand out an ordinary statement that really closes.
+            return physical;
+        }
+        CachedStatement created = new CachedStatement(key, physical);
+        entries.put(key, created);
+        evictOverflow();
+        return created.checkOut(lease);
+    }
+
+    /**
+     * Cancels the query {@code thread} is executing on a cached statement, if
+     * any. The entry is only removed once the execute call has returned, so
+     * the statement can't have been handed to another caller yet.
+     */
+    static void cancelExecuting(Thread thread) {
+        EXECUTING.computeIfPresent(thread, (_, statement) -> {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                LoggerUtil.logWarning("Failed to cancel a running query: " + e.getMessage());
+            }
+            return statement;
+        });
+    }
+
+    /**
+     * Physically closes every cached statement. Called before the owning
+     * connection is closed.
+     */
+    synchronized void closeAll() {
+        for (CachedStatement cached : entries.values()) {
+            cached.closePhysical();
+        }
+        entries.clear();
+    }
+
+    private void evictOverflow() {
+        Iterator<CachedStatement> it = entries.values().iterator();
+        while (entries.size() > capacity && it.hasNext()) {
+            CachedStatement eldest = it.next();
+            if (!eldest.inUse) {
+                it.remove();
+                eldest.closePhysical();
+            }
+        }
+    }
+
+    private synchronized void checkIn(CachedStatement cached, boolean reusable) {
+        cached.inUse = false;
+        if (!reusable) {
+            entries.remove(cached.key, cached);
+            cached.closePhysical();
+        } else if (!entries.containsKey(cached.key)) {
+            // Evicted while checked out
+            cached.closePhysical();
+        }
+    }
+
+    /**
+     * One physical prepared statement plus its checkout state.
+     */
+    private final class CachedStatement {
+        private final String key;
+        private final PreparedStatement physical;
+        private boolean inUse = false;
+
+        private CachedStatement(String key, PreparedStatement physical) {
+            this.key = key;
+            this.physical = physical;
+        }
+
+        private PreparedStatement checkOut(Connection lease) {
+            inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, new CheckoutHandler(this, lease));
+        }
+
+        private void closePhysical() {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                LoggerUtil.logWarning("Failed to close cached statement: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Handles one checkout of a cached statement. {@code close()} returns the
+     * statement to the cache; any per-call settings that would leak into the
+     * next caller make it non-reusable instead.
+     */
+    private final class CheckoutHandler implements InvocationHandler {
+        private final CachedStatement cached;
+        private final Connection lease;
+        private final List<ResultSet> openResults = new ArrayList<>();
+        private boolean closed = false;
+        private boolean dirty = false;
+
+        private CheckoutHandler(CachedStatement cached, Connection lease) {
+            this.cached = cached;
+            this.lease = lease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        checkIn(cached, reset());
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return lease;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + cached.key + "]";
+                case "setMaxRows":
+                case "setLargeMaxRows":
+                case "setFetchSize":
+                case "setFetchDirection":
+                case "setQueryTimeout":
+                case "setMaxFieldSize":
+                case "setEscapeProcessing":
+                case "setPoolable":
+                case "closeOnCompletion":
+                    dirty = true;
+                    break;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement has already been closed.");
+            }
+            boolean executing = method.getName().startsWith("execute");
+            Thread thread = Thread.currentThread();
+            if (executing) {
+                EXECUTING.put(thread, cached.physical);
+            }
+            Object result;
+            try {
+                result = method.invoke(cached.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                if (executing) {
+                    EXECUTING.remove(thread);
+                }
+            }
+            if (result instanceof ResultSet rs) {
+                openResults.add(rs);
+            }
+            return result;
+        }
+
+        /**
+         * @return true if the statement can safely be handed to the next caller.
+         */
+        private boolean reset() {
+            try {
+                for (ResultSet rs : openResults) {
+                    rs.close();
+                }
+                openResults.clear();
+                if (dirty) {
+                    return false;
+                }
+                cached.physical.clearParameters();
+                cached.physical.clearBatch();
+                cached.physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+}
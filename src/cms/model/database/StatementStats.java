@@ -0,0 +1,98 @@
+package cms.model.database;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Application-wide hit/miss counters for the per-connection prepared
+ * statement cache, keyed by SQL text. Query it at runtime through
+ * {@link DBConnection#getStatementStats()}.
+ * <p>
+ * Some DAOs build their SQL text from the filters in use, so at most
+ * {@code -Dcms.db.statementStats.maxEntries} (default 500) statements are
+ * counted separately; any further ones share the {@link #OTHER} entry.
+ */
+public final class StatementStats {
+
+    /** The SQL text of the entry counting statements past the limit. */
+    public static final String OTHER = "(other statements)";
+
+    private static final int MAX_ENTRIES = Integer.getInteger("cms.db.statementStats.maxEntries", 500);
+
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private StatementStats() {
+    }
+
+    static void recordHit(String sql) {
+        counter(sql).hits.increment();
+    }
+
+    static void recordMiss(String sql) {
+        counter(sql).misses.increment();
+    }
+
+    private static Counter counter(String sql) {
+        Counter counter = counters.get(sql);
+        if (counter != null) {
+            return counter;
+        }
+        // The size check races with other threads, so the limit may be passed by a few entries
+        return counters.computeIfAbsent(counters.size() < MAX_ENTRIES ? sql : OTHER, _ -> new Counter());
+    }
+
+    /**
+     * @return One entry per distinct SQL statement, busiest first.
+     */
+    public static List<Entry> snapshot() {
+        List<Entry> entries = new ArrayList<>();
+        counters.forEach((sql, c) -> entries.add(new Entry(sql, c.hits.sum(), c.misses.sum())));
+        entries.sort(Comparator.comparingLong(Entry::getTotal).reversed());
+        return entries;
+    }
+
+    /**
+     * Clears all counters, e.g. before measuring a specific screen.
+     */
+    public static void reset() {
+        counters.clear();
+    }
+
+    private static final class Counter {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+    }
+
+    /**
+     * Hit/miss counts for a single SQL statement.
+     */
+    public static final class Entry {
+        private final String sql;
+        private final long hits;
+        private final long misses;
+
+        Entry(String sql, long hits, long misses) {
+            this.sql = sql;
+            this.hits = hits;
+            this.misses = misses;
+        }
+
+        public String getSql() { return sql; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getTotal() { return hits + misses; }
+
+        public double getHitRatio() {
+            return getTotal() == 0 ? 0 : (double) hits / getTotal();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d, ratio=%.2f: %s", hits, misses, getHitRatio(), sql);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+-- =================================================================
+-- V001: Secondary indexes for the dashboard, report, appointment and
+-- billing queries. Each index is listed with the queries it serves; the
+-- trailing columns make the COUNT(*) queries index-only (covering).
+-- =================================================================
+
+-- ReportDAO: today's / pending appointment counts, 7-day appointment chart,
+-- doctor performance (status + doctor_id are read from the index);
+-- AppointmentDAO.getAppointmentsByDate.
+CREATE INDEX idx_appointments_clinic_date
+  ON appointments (clinic_id, appointment_date, status, doctor_id);
+
+-- AppointmentDAO: a doctor's queue, schedule and daily count;
+-- ReportDAO.getTodaysAppointmentCountForDoctor.
+CREATE INDEX idx_appointments_doctor_date_status
+  ON appointments (doctor_id, appointment_date, status);
+
+-- ReportDAO: total / today's / 30-day new patient counts per clinic.
+CREATE INDEX idx_patients_clinic_created
+  ON patients (clinic_id, created_at);
+
+-- PatientDAO.searchPatients: lookup by phone within a clinic.
+CREATE INDEX idx_patients_clinic_phone
+  ON patients (clinic_id, phone);
+
+-- ReportDAO.getUnpaidBillCount and BillingDAO.getBillsByStatus.
+CREATE INDEX idx_billing_status_appointment
+  ON billing (status, appointment_id);
+
+-- ReportDAO: staff count and role breakdown per clinic.
+CREATE INDEX idx_users_clinic_role
+  ON users (clinic_id, role);
@@ -0,0 +1,14 @@
+-- =================================================================
+-- V002: Indexes for the keyset-paginated lists (see KeysetQuery). Each one
+-- ends with the list's sort column; InnoDB appends the primary key, which
+-- is the tie-breaker, so a page is a single index range read.
+-- Patients and the doctor queue are already covered by V001.
+-- =================================================================
+
+-- UserDAO.getPaginatedUsersByClinicId (StaffPage).
+CREATE INDEX idx_users_clinic_created
+  ON users (clinic_id, created_at);
+
+-- ClinicDAO.getClinicsPage (ClinicPanel).
+CREATE INDEX idx_clinics_created
+  ON clinics (created_at);
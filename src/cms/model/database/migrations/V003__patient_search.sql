@@ -0,0 +1,29 @@
+-- =================================================================
+-- V003: Indexes for PatientSearchDAO (ranked patient search).
+-- =================================================================
+
+-- Phone numbers are stored as typed ("+91 98470-12345"). phone_digits keeps
+-- only the digits for exact matches; phone_rev is the same digits reversed,
+-- so a "last N digits" search becomes an indexable prefix LIKE 'reversed%'.
+ALTER TABLE patients
+  ADD COLUMN phone_digits VARCHAR(20) AS (
+    REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(COALESCE(phone, ''),
+      ' ', ''), '-', ''), '+', ''), '(', ''), ')', ''), '.', '')) STORED,
+  ADD COLUMN phone_rev VARCHAR(20) AS (
+    REVERSE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(COALESCE(phone, ''),
+      ' ', ''), '-', ''), '+', ''), '(', ''), ')', ''), '.', ''))) STORED;
+
+CREATE INDEX idx_patients_clinic_phone_digits
+  ON patients (clinic_id, phone_digits);
+
+CREATE INDEX idx_patients_clinic_phone_rev
+  ON patients (clinic_id, phone_rev);
+
+-- Name prefix matches (LIKE 'term%') within a clinic.
+CREATE INDEX idx_patients_clinic_name
+  ON patients (clinic_id, name);
+
+-- Substring ("fuzzy") name matches. The ngram parser indexes every
+-- 2-character sequence, so it also works for names without spaces.
+CREATE FULLTEXT INDEX ft_patients_name
+  ON patients (name) WITH PARSER ngram;
@@ -0,0 +1,10 @@
+-- =================================================================
+-- V004: Incremental change polling for the in-memory patient type-ahead
+-- index (PatientTypeaheadIndex). Each poll reads the clinic's patients
+-- changed since the last one, so it must be a short range read rather
+-- than a scan of the clinic.
+-- =================================================================
+
+-- PatientDAO.getPatientSummariesChangedSince.
+CREATE INDEX idx_patients_clinic_updated
+  ON patients (clinic_id, updated_at);
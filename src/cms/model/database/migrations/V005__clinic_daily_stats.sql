@@ -0,0 +1,35 @@
+-- =================================================================
+-- V005: Per-clinic daily rollups for the report charts, so ReportDAO no
+-- longer GROUPs BY over the full appointments / patients history.
+--
+-- The DAOs update these rows in the same transaction as the write they
+-- summarise (see DailyStatsDAO); DailyStatsDAO.rebuild recomputes them
+-- from the raw tables, and backfills them on first start.
+-- =================================================================
+
+-- Appointments count on the day they are for, by their current status.
+-- New patients and bills count on the day they were created; a bill's
+-- amount moves into revenue_paid when it is marked Paid.
+CREATE TABLE IF NOT EXISTS clinic_daily_stats (
+  clinic_id INT NOT NULL,
+  stat_date DATE NOT NULL,
+  appointments_scheduled INT NOT NULL DEFAULT 0,
+  appointments_completed INT NOT NULL DEFAULT 0,
+  appointments_cancelled INT NOT NULL DEFAULT 0,
+  new_patients INT NOT NULL DEFAULT 0,
+  revenue_billed DECIMAL(12, 2) NOT NULL DEFAULT 0.00,
+  revenue_paid DECIMAL(12, 2) NOT NULL DEFAULT 0.00,
+  PRIMARY KEY (clinic_id, stat_date),
+  FOREIGN KEY (clinic_id) REFERENCES clinics(clinic_id) ON DELETE CASCADE
+) ENGINE=InnoDB;
+
+-- Completed appointments per doctor and day (ReportDAO.getDoctorPerformance).
+CREATE TABLE IF NOT EXISTS doctor_daily_stats (
+  clinic_id INT NOT NULL,
+  stat_date DATE NOT NULL,
+  doctor_id INT NOT NULL,
+  appointments_completed INT NOT NULL DEFAULT 0,
+  PRIMARY KEY (clinic_id, stat_date, doctor_id),
+  FOREIGN KEY (clinic_id) REFERENCES clinics(clinic_id) ON DELETE CASCADE,
+  FOREIGN KEY (doctor_id) REFERENCES doctors(doctor_id) ON DELETE CASCADE
+) ENGINE=InnoDB;
@@ -0,0 +1,24 @@
+-- =================================================================
+-- V006: Checkpoints for the bulk patient CSV import (PatientImport).
+--
+-- A file's row is written in the same transaction as each chunk of
+-- patients it inserts, so after a crash the import resumes right after
+-- the last committed chunk without inserting anything twice.
+-- =================================================================
+
+-- source_key identifies the file (path, size, last modified); a changed
+-- file starts over. rows_done counts the CSV records consumed, inserted or
+-- rejected; rejects_bytes is the length of the reject file at that point.
+CREATE TABLE IF NOT EXISTS patient_imports (
+  clinic_id INT NOT NULL,
+  source_key CHAR(64) NOT NULL,
+  file_name VARCHAR(255) NOT NULL,
+  rows_done BIGINT NOT NULL DEFAULT 0,
+  rows_imported BIGINT NOT NULL DEFAULT 0,
+  rows_rejected BIGINT NOT NULL DEFAULT 0,
+  rejects_bytes BIGINT NOT NULL DEFAULT 0,
+  finished_at TIMESTAMP NULL,
+  updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (clinic_id, source_key),
+  FOREIGN KEY (clinic_id) REFERENCES clinics(clinic_id) ON DELETE CASCADE
+) ENGINE=InnoDB;
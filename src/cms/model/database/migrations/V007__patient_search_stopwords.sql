@@ -0,0 +1,15 @@
+-- =================================================================
+-- V007: Rebuild the patient name FULLTEXT index without stopwords.
+-- =================================================================
+
+-- The ngram parser drops every token that contains a stopword, and InnoDB's
+-- default list has "a" and "i", so most two-letter pieces of a name were
+-- never indexed and "contains" searches for them found nothing. Stopwords
+-- are read when the index is built, so it is rebuilt with them turned off.
+SET SESSION innodb_ft_enable_stopword = OFF;
+
+ALTER TABLE patients
+  DROP INDEX ft_patients_name,
+  ADD FULLTEXT INDEX ft_patients_name (name) WITH PARSER ngram;
+
+SET SESSION innodb_ft_enable_stopword = DEFAULT;
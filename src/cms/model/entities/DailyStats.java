@@ -0,0 +1,63 @@
+package cms.model.entities;
+
+import java.math.BigDecimal;
+
+/**
+ * The rolled-up numbers of one bucket of days (a day, week or month) from
+ * {@code clinic_daily_stats}, for one clinic or summed over all of them.
+ */
+public class DailyStats {
+
+    /** A bucket with nothing in it. */
+    public static final DailyStats ZERO = new DailyStats(0, 0, 0, 0, BigDecimal.ZERO, BigDecimal.ZERO);
+
+    private final int appointmentsScheduled;
+    private final int appointmentsCompleted;
+    private final int appointmentsCancelled;
+    private final int newPatients;
+    private final BigDecimal revenueBilled;
+    private final BigDecimal revenuePaid;
+
+    public DailyStats(int appointmentsScheduled, int appointmentsCompleted, int appointmentsCancelled,
+            int newPatients, BigDecimal revenueBilled, BigDecimal revenuePaid) {
+        this.appointmentsScheduled = appointmentsScheduled;
+        this.appointmentsCompleted = appointmentsCompleted;
+        this.appointmentsCancelled = appointmentsCancelled;
+        this.newPatients = newPatients;
+        this.revenueBilled = revenueBilled;
+        this.revenuePaid = revenuePaid;
+    }
+
+    /**
+     * @return The sum of this bucket and {@code other}.
+     */
+    public DailyStats plus(DailyStats other) {
+        return new DailyStats(appointmentsScheduled + other.appointmentsScheduled,
+                appointmentsCompleted + other.appointmentsCompleted,
+                appointmentsCancelled + other.appointmentsCancelled,
+                newPatients + other.newPatients,
+                revenueBilled.add(other.revenueBilled),
+                revenuePaid.add(other.revenuePaid));
+    }
+
+    // --- Getters ---
+
+    /**
+     * @return All appointments, whatever their status.
+     */
+    public int getAppointments() {
+        return appointmentsScheduled + appointmentsCompleted + appointmentsCancelled;
+    }
+
+    public int getAppointmentsScheduled() { return appointmentsScheduled; }
+
+    public int getAppointmentsCompleted() { return appointmentsCompleted; }
+
+    public int getAppointmentsCancelled() { return appointmentsCancelled; }
+
+    public int getNewPatients() { return newPatients; }
+
+    public BigDecimal getRevenueBilled() { return revenueBilled; }
+
+    public BigDecimal getRevenuePaid() { return revenuePaid; }
+}
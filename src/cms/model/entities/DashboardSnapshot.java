@@ -0,0 +1,74 @@
+package cms.model.entities;
+
+import java.time.LocalDateTime;
+
+/**
+ * The numbers on a role's home page, read together in one query by
+ * {@code ReportDAO.getDashboardSnapshot}. Counts a role's page doesn't show
+ * aren't computed and read as 0.
+ */
+public class DashboardSnapshot {
+
+    private final Enums.Role role;
+    private final int todaysAppointments;
+    private final int pendingPatientsToday;
+    private final int newPatientsToday;
+    private final int unpaidBills;
+    private final int totalPatients;
+    private final int staffCount;
+    private final int doctorAppointmentsToday;
+    private final LocalDateTime loadedAt;
+
+    public DashboardSnapshot(Enums.Role role, int todaysAppointments, int pendingPatientsToday, int newPatientsToday,
+            int unpaidBills, int totalPatients, int staffCount, int doctorAppointmentsToday,
+            LocalDateTime loadedAt) {
+        this.role = role;
+        this.todaysAppointments = todaysAppointments;
+        this.pendingPatientsToday = pendingPatientsToday;
+        this.newPatientsToday = newPatientsToday;
+        this.unpaidBills = unpaidBills;
+        this.totalPatients = totalPatients;
+        this.staffCount = staffCount;
+        this.doctorAppointmentsToday = doctorAppointmentsToday;
+        this.loadedAt = loadedAt;
+    }
+
+    /**
+     * @return An all-zero snapshot, shown when loading failed.
+     */
+    public static DashboardSnapshot empty(Enums.Role role) {
+        return new DashboardSnapshot(role, 0, 0, 0, 0, 0, 0, 0, LocalDateTime.now());
+    }
+
+    // --- Getters ---
+
+    public Enums.Role getRole() { return role; }
+
+    /**
+     * @return All of the clinic's appointments today, whatever their status.
+     */
+    public int getTodaysAppointments() { return todaysAppointments; }
+
+    /**
+     * @return The clinic's appointments today that are still scheduled.
+     */
+    public int getPendingPatientsToday() { return pendingPatientsToday; }
+
+    public int getNewPatientsToday() { return newPatientsToday; }
+
+    public int getUnpaidBills() { return unpaidBills; }
+
+    public int getTotalPatients() { return totalPatients; }
+
+    /**
+     * @return The clinic's staff, not counting admins.
+     */
+    public int getStaffCount() { return staffCount; }
+
+    /**
+     * @return The doctor's non-cancelled appointments today (doctor snapshots only).
+     */
+    public int getDoctorAppointmentsToday() { return doctorAppointmentsToday; }
+
+    public LocalDateTime getLoadedAt() { return loadedAt; }
+}
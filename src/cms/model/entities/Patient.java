@@ -1,6 +1,7 @@
 package cms.model.entities;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 /**
  * Represents a patient record in the clinic.
@@ -24,6 +25,8 @@ public class Patient {
     private String bloodGroup;
     private String allergies;
 
+    private LocalDateTime createdAt; // maps to DB created_at; null = when inserted
+
     // No-argument constructor (required by some frameworks)
     public Patient() {}
 
@@ -56,6 +59,9 @@ public class Patient {
     public String getAllergies() { return allergies; }
     public void setAllergies(String allergies) { this.allergies = allergies; }
 
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
     /**
      * Provides a string representation of the patient, useful for debugging
      * and for displaying in UI components like JComboBox.
@@ -0,0 +1,56 @@
+package cms.model.entities;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A slim, read-only view of a patient: just the columns needed to find and
+ * pick one (name, phone and the fields shown in patient lists).
+ * Used by the type-ahead index and patient pickers instead of the full
+ * {@link Patient}, which also carries the address and allergies.
+ */
+public class PatientSummary {
+
+    private final int patientId;
+    private final String name;
+    private final String phone;
+    private final String gender;
+    private final LocalDate dob;
+    private final LocalDateTime updatedAt;
+
+    public PatientSummary(int patientId, String name, String phone, String gender, LocalDate dob,
+            LocalDateTime updatedAt) {
+        this.patientId = patientId;
+        this.name = name;
+        this.phone = phone;
+        this.gender = gender;
+        this.dob = dob;
+        this.updatedAt = updatedAt;
+    }
+
+    // --- Getters ---
+
+    public int getPatientId() { return patientId; }
+
+    public String getName() { return name; }
+
+    public String getPhone() { return phone; }
+
+    public String getGender() { return gender; }
+
+    public LocalDate getDob() { return dob; }
+
+    /**
+     * @return When the row last changed, as stored in {@code patients.updated_at}.
+     */
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+
+    /**
+     * Shown in pickers; the phone number tells apart patients with the same name.
+     * @return The patient's name, followed by their phone number if known.
+     */
+    @Override
+    public String toString() {
+        return phone == null || phone.isBlank() ? name : name + " (" + phone + ")";
+    }
+}
@@ -0,0 +1,90 @@
+package cms.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt work (and logins, which are dominated by it) off the Swing EDT.
+ * <p>
+ * A BCrypt hash or check takes hundreds of milliseconds of pure CPU, so the
+ * pool has one thread per core and a bounded queue; when the queue is full
+ * the task fails with a {@link RejectedExecutionException} rather than piling
+ * up. {@link SwingFutures#onEdt} delivers results back on the EDT.
+ */
+public final class CredentialExecutor {
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int QUEUE_CAPACITY = 256;
+
+    private static final ThreadPoolExecutor EXECUTOR;
+
+    static {
+        AtomicInteger count = new AtomicInteger();
+        EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread t = new Thread(r, "cms-credentials-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        EXECUTOR.allowCoreThreadTimeOut(true); // Logins are bursty; don't keep idle threads
+    }
+
+    private CredentialExecutor() {
+    }
+
+    /**
+     * Runs arbitrary credential work, such as a login, on the pool.
+     */
+    public static <T> CompletableFuture<T> supply(Supplier<T> work) {
+        try {
+            return CompletableFuture.supplyAsync(work, EXECUTOR);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * @return A future for the BCrypt hash of the password.
+     */
+    public static CompletableFuture<String> hash(String plainPassword) {
+        return supply(() -> PasswordUtils.hashPassword(plainPassword));
+    }
+
+    /**
+     * @return A future for whether the password matches the hash.
+     */
+    public static CompletableFuture<Boolean> check(String plainPassword, String hashedPassword) {
+        return supply(() -> PasswordUtils.checkPassword(plainPassword, hashedPassword));
+    }
+
+    /**
+     * Hashes many passwords in parallel, one per core at a time. Each core's
+     * share runs as a single task, so a large batch can't overflow the queue.
+     *
+     * @return A future for the hashes, in the order of the passwords.
+     */
+    public static CompletableFuture<List<String>> hashAll(List<String> plainPasswords) {
+        String[] hashes = new String[plainPasswords.size()];
+        int lanes = Math.min(THREADS, hashes.length);
+        List<CompletableFuture<Void>> work = new ArrayList<>(lanes);
+        for (int lane = 0; lane < lanes; lane++) {
+            int first = lane;
+            work.add(supply(() -> {
+                for (int i = first; i < hashes.length; i += lanes) {
+                    hashes[i] = PasswordUtils.hashPassword(plainPasswords.get(i));
+                }
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(work.toArray(new CompletableFuture<?>[0]))
+                .thenApply(_ -> Arrays.asList(hashes));
+    }
+}
@@ -0,0 +1,133 @@
+package cms.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV one record at a time, so a file of any size is parsed
+ * in constant memory. Fields may be quoted, with {@code ""} for a quote and
+ * line breaks inside the quotes; records end at {@code \n}, {@code \r\n} or
+ * {@code \r}. Blank lines are skipped.
+ */
+public final class CsvReader implements Closeable {
+
+    private final Reader in;
+    private final char[] buffer = new char[64 * 1024];
+    private int position;
+    private int limit;
+    private long records;
+
+    public CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * @return The next record's fields, or null at the end of the input.
+     * @throws IOException If reading fails or the input ends inside quotes.
+     */
+    public List<String> next() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean empty = true; // Nothing read for this record yet
+        int c;
+        while ((c = read()) != -1) {
+            empty = false;
+            if (quoted) {
+                if (c != '"') {
+                    field.append((char) c);
+                } else if (peek() == '"') {
+                    read();
+                    field.append('"');
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                if (fields.isEmpty() && field.isEmpty()) {
+                    empty = true; // A blank line
+                    continue;
+                }
+                break;
+            } else {
+                field.append((char) c);
+            }
+        }
+        if (quoted) {
+            throw new IOException("The file ends inside a quoted field of record " + (records + 1) + ".");
+        }
+        if (empty) {
+            return null;
+        }
+        fields.add(field.toString());
+        records++;
+        return fields;
+    }
+
+    /**
+     * @return The number of records returned by {@link #next} so far.
+     */
+    public long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Formats fields as one CSV line, without the line break, quoting those
+     * that need it.
+     */
+    public static String toLine(List<String> fields) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            String value = fields.get(i) == null ? "" : fields.get(i);
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                    || value.indexOf('\r') >= 0) {
+                sb.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                sb.append(value);
+            }
+        }
+        return sb.toString();
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer);
+        if (n <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
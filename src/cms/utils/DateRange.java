@@ -0,0 +1,114 @@
+package cms.utils;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A half-open timestamp range {@code [start, end)} computed on the client.
+ * <p>
+ * DAOs use this instead of {@code DATE(column) = CURDATE()}: wrapping an
+ * indexed column in a function stops MySQL from using the index, whereas
+ * {@code column >= ? AND column < ?} is a plain range scan.
+ *
+ * <pre>
+ * String sql = "SELECT COUNT(*) FROM appointments WHERE clinic_id = ? AND "
+ *         + DateRange.predicate("appointment_date");
+ * pst.setInt(1, clinicId);
+ * DateRange.today().bind(pst, 2);
+ * </pre>
+ */
+public final class DateRange {
+
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+
+    private DateRange(LocalDateTime start, LocalDateTime end) {
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("Empty date range: " + start + " to " + end);
+        }
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * @return The range covering the whole of the given day.
+     */
+    public static DateRange ofDay(LocalDate day) {
+        return new DateRange(day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * @return The range covering today.
+     */
+    public static DateRange today() {
+        return ofDay(LocalDate.now());
+    }
+
+    /**
+     * @return The last {@code days} calendar days, including today.
+     */
+    public static DateRange lastDays(int days) {
+        if (days < 1) {
+            throw new IllegalArgumentException("days must be at least 1: " + days);
+        }
+        LocalDate today = LocalDate.now();
+        return new DateRange(today.minusDays(days - 1L).atStartOfDay(), today.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * @return The range from the start of {@code from} to the end of
+     *         {@code to}, both days inclusive.
+     */
+    public static DateRange between(LocalDate from, LocalDate to) {
+        return new DateRange(from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * Builds the SQL predicate for this kind of range. It has two parameters,
+     * which {@link #bind(PreparedStatement, int)} fills in.
+     *
+     * @param column The (optionally table-qualified) timestamp column.
+     * @return {@code column >= ? AND column < ?}
+     */
+    public static String predicate(String column) {
+        return column + " >= ? AND " + column + " < ?";
+    }
+
+    /**
+     * Sets the start and end of this range as two consecutive parameters.
+     *
+     * @param index The index of the first ("&gt;=") parameter.
+     * @return The index of the next parameter after this range.
+     */
+    public int bind(PreparedStatement pst, int index) throws SQLException {
+        pst.setTimestamp(index, Timestamp.valueOf(start));
+        pst.setTimestamp(index + 1, Timestamp.valueOf(end));
+        return index + 2;
+    }
+
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DateRange other && start.equals(other.start) && end.equals(other.end);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * start.hashCode() + end.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "[" + start + ", " + end + ")";
+    }
+}
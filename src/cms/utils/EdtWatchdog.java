@@ -0,0 +1,283 @@
+package cms.utils;
+
+import java.awt.AWTEvent;
+import java.awt.Component;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.InvocationEvent;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in detector for EDT stalls: events whose handler runs for
+ * {@code -Dcms.edt.stallMs} (default 200) or longer, freezing the UI. Enable
+ * it with {@code -Dcms.edt.watchdog=true}.
+ * <p>
+ * It wraps the system event queue to time every event, and a sampler thread
+ * grabs the EDT's stack once an event runs past the threshold. Each stall is
+ * logged with the view method and DAO method in that stack and the last SQL
+ * the event prepared (reported by the connection pool through
+ * {@link #noteSql}). Events are counted per screen, the {@code cms.view}
+ * class that handled them, with a histogram of stall lengths; {@link #report}
+ * returns it, and it is logged every {@code -Dcms.edt.reportMinutes} (default
+ * 5) and at exit. A screen with events but no stalls is clean.
+ * <p>
+ * Time an event spends in a nested event loop (a modal dialog) is waiting
+ * for the user, so it doesn't count towards the event's own time.
+ */
+public final class EdtWatchdog {
+
+    private static final boolean ENABLED = Boolean.getBoolean("cms.edt.watchdog");
+    private static final long STALL_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("cms.edt.stallMs", 200L));
+    private static final long REPORT_NANOS = TimeUnit.MINUTES.toNanos(Long.getLong("cms.edt.reportMinutes", 5L));
+
+    // Upper bounds of the histogram buckets above the threshold; the last bucket is open
+    private static final long[] BUCKET_LIMITS_MS = { 500, 1000, 2000 };
+    private static final String[] BUCKET_NAMES = { "<500ms", "<1s", "<2s", ">=2s" };
+
+    private static final String OTHER_SCREEN = "(other)";
+
+    private static final Map<String, ScreenStats> SCREENS = new ConcurrentHashMap<>();
+
+    // The innermost event being dispatched; written by the EDT, read by the sampler
+    private static volatile Dispatch current;
+
+    private EdtWatchdog() {
+    }
+
+    /**
+     * Starts watching the EDT if {@code -Dcms.edt.watchdog=true}. Call once,
+     * at startup.
+     */
+    public static void installIfEnabled() {
+        if (!ENABLED) {
+            return;
+        }
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(new WatchedQueue());
+
+        long periodMillis = Math.max(10, TimeUnit.NANOSECONDS.toMillis(STALL_NANOS) / 4);
+        Thread sampler = new Thread(() -> {
+            long lastReport = System.nanoTime();
+            while (true) {
+                try {
+                    Thread.sleep(periodMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                sample();
+                if (System.nanoTime() - lastReport >= REPORT_NANOS) {
+                    lastReport = System.nanoTime();
+                    LoggerUtil.logInfo(report());
+                }
+            }
+        }, "cms-edt-watchdog");
+        sampler.setDaemon(true);
+        sampler.start();
+
+        // Best effort: the logging framework's own shutdown hook may close the log file first
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> LoggerUtil.logInfo(report()), "cms-edt-report"));
+        LoggerUtil.logInfo("EDT watchdog on; reporting events over " + TimeUnit.NANOSECONDS.toMillis(STALL_NANOS)
+                + " ms");
+    }
+
+    /**
+     * Remembers the SQL being prepared if the calling thread is the EDT, so a
+     * stall can name its query. Called by the connection pool; cheap when the
+     * watchdog is off.
+     */
+    public static void noteSql(String sql) {
+        Dispatch dispatch = current;
+        if (dispatch != null && dispatch.thread == Thread.currentThread()) {
+            dispatch.lastSql = sql;
+        }
+    }
+
+    /**
+     * @return Events, stalls, a histogram of stall lengths and the longest
+     *         stall per screen, screens in name order.
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder(String.format("EDT stalls (>= %d ms) per screen: events, stalls %s, max",
+                TimeUnit.NANOSECONDS.toMillis(STALL_NANOS), String.join("/", BUCKET_NAMES)));
+        new TreeMap<>(SCREENS).forEach((screen, stats) -> sb.append(System.lineSeparator())
+                .append(String.format("  %-28s %8d events, %4d stalls %s, max %d ms%s", screen, stats.events.sum(),
+                        stats.stalls.sum(), stats.histogram, stats.maxMillis.get(),
+                        stats.stalls.sum() == 0 ? " (clean)" : "")));
+        return sb.toString();
+    }
+
+    /**
+     * Clears the counters, e.g. before exercising one screen.
+     */
+    public static void reset() {
+        SCREENS.clear();
+    }
+
+    // Runs on the sampler thread
+    private static void sample() {
+        Dispatch dispatch = current;
+        if (dispatch != null && dispatch.stack == null && dispatch.firstNestedStart == 0
+                && System.nanoTime() - dispatch.start >= STALL_NANOS) {
+            dispatch.stack = dispatch.thread.getStackTrace();
+        }
+    }
+
+    private static void finish(Dispatch dispatch) {
+        long end = System.nanoTime();
+        if (dispatch.parent != null) {
+            dispatch.parent.nested(dispatch.start, end);
+        }
+        long ownNanos = dispatch.firstNestedStart == 0
+                ? end - dispatch.start
+                : (dispatch.firstNestedStart - dispatch.start) + (end - dispatch.lastNestedEnd);
+
+        StackTraceElement viewFrame = firstFrame(dispatch.stack, "cms.view.");
+        String screen = viewFrame != null ? screenOf(viewFrame.getClassName()) : screenOf(dispatch.event);
+        ScreenStats stats = SCREENS.computeIfAbsent(screen, _ -> new ScreenStats());
+        stats.events.increment();
+        if (ownNanos < STALL_NANOS) {
+            return;
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(ownNanos);
+        stats.record(millis);
+        StackTraceElement daoFrame = firstFrame(dispatch.stack, "cms.model.");
+        LoggerUtil.logWarning(String.format("EDT stall of %d ms on %s%s%s%s", millis, screen,
+                viewFrame == null ? "" : " in " + describe(viewFrame),
+                daoFrame == null ? "" : " via " + describe(daoFrame),
+                dispatch.lastSql == null ? "" : ", SQL: " + dispatch.lastSql));
+    }
+
+    private static StackTraceElement firstFrame(StackTraceElement[] stack, String packagePrefix) {
+        if (stack == null) {
+            return null;
+        }
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().startsWith(packagePrefix)) {
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    private static String describe(StackTraceElement frame) {
+        String className = frame.getClassName();
+        return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName() + "("
+                + frame.getFileName() + ":" + frame.getLineNumber() + ")";
+    }
+
+    /**
+     * @return The simple name of the screen class, without inner-class or
+     *         lambda suffixes.
+     */
+    private static String screenOf(String className) {
+        int inner = className.indexOf('$');
+        String outer = inner < 0 ? className : className.substring(0, inner);
+        return outer.substring(outer.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Attributes an event without a sampled stack: a component's nearest
+     * {@code cms.view} screen, or the class that posted an invokeLater.
+     */
+    private static String screenOf(AWTEvent event) {
+        if (event.getSource() instanceof Component component) {
+            for (Component c = component; c != null; c = c.getParent()) {
+                String name = c.getClass().getName();
+                if (name.startsWith("cms.view.") && !name.startsWith("cms.view.components.")) {
+                    return screenOf(name);
+                }
+            }
+        } else if (event instanceof InvocationEvent) {
+            // paramString() names the runnable, e.g. "runnable=cms.view...HomePage$$Lambda/0x...@1f"
+            String params = event.paramString();
+            int at = params.indexOf("runnable=cms.view.");
+            if (at >= 0) {
+                int start = at + "runnable=".length();
+                int end = start;
+                while (end < params.length() && params.charAt(end) != '@' && params.charAt(end) != ',') {
+                    end++;
+                }
+                return screenOf(params.substring(start, end));
+            }
+        }
+        return OTHER_SCREEN;
+    }
+
+    private static final class WatchedQueue extends EventQueue {
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            Dispatch dispatch = new Dispatch(event, current, Thread.currentThread());
+            current = dispatch;
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                current = dispatch.parent;
+                finish(dispatch);
+            }
+        }
+    }
+
+    private static final class Dispatch {
+        private final AWTEvent event;
+        private final Dispatch parent;
+        private final Thread thread;
+        private final long start = System.nanoTime();
+        private volatile StackTraceElement[] stack;
+        private volatile String lastSql;
+        private volatile long firstNestedStart;
+        private long lastNestedEnd;
+
+        private Dispatch(AWTEvent event, Dispatch parent, Thread thread) {
+            this.event = event;
+            this.parent = parent;
+            this.thread = thread;
+        }
+
+        private void nested(long nestedStart, long nestedEnd) {
+            if (firstNestedStart == 0) {
+                firstNestedStart = nestedStart;
+            }
+            lastNestedEnd = nestedEnd;
+        }
+    }
+
+    private static final class ScreenStats {
+        private final LongAdder events = new LongAdder();
+        private final LongAdder stalls = new LongAdder();
+        private final Histogram histogram = new Histogram();
+        private final AtomicLong maxMillis = new AtomicLong();
+
+        private void record(long millis) {
+            stalls.increment();
+            histogram.record(millis);
+            maxMillis.accumulateAndGet(millis, Math::max);
+        }
+    }
+
+    private static final class Histogram {
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_NAMES.length);
+
+        private void record(long millis) {
+            int bucket = 0;
+            while (bucket < BUCKET_LIMITS_MS.length && millis >= BUCKET_LIMITS_MS[bucket]) {
+                bucket++;
+            }
+            counts.incrementAndGet(bucket);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < counts.length(); i++) {
+                sb.append(i == 0 ? "" : "/").append(counts.get(i));
+            }
+            return sb.append(']').toString();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package cms.utils;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+/**
+ * The size of the buckets a report groups its days into. Weeks start on
+ * Monday.
+ */
+public enum Granularity {
+
+    DAY("Day"),
+    WEEK("Week"),
+    MONTH("Month");
+
+    private final String displayName;
+
+    Granularity(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * @return The first day of the bucket that {@code day} falls in.
+     */
+    public LocalDate bucketOf(LocalDate day) {
+        return switch (this) {
+            case DAY -> day;
+            case WEEK -> day.with(DayOfWeek.MONDAY);
+            case MONTH -> day.withDayOfMonth(1);
+        };
+    }
+
+    /**
+     * @return The first day of the bucket after the one starting on {@code bucket}.
+     */
+    public LocalDate next(LocalDate bucket) {
+        return switch (this) {
+            case DAY -> bucket.plusDays(1);
+            case WEEK -> bucket.plusWeeks(1);
+            case MONTH -> bucket.plusMonths(1);
+        };
+    }
+
+    /**
+     * @return The bucket's chart label, e.g. "2025-03-14", "Wk 2025-03-10" or "2025-03".
+     */
+    public String label(LocalDate bucket) {
+        return switch (this) {
+            case DAY -> bucket.toString();
+            case WEEK -> "Wk " + bucket;
+            case MONTH -> bucket.toString().substring(0, 7);
+        };
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -23,7 +23,7 @@ public class LoggerUtil {
             SimpleFormatter formatter = new SimpleFormatter();
             fileHandler.setFormatter(formatter);
             logger.addHandler(fileHandler);
-            logger.setLevel(Level.WARNING); // Log warnings and severe errors
+            logger.setLevel(Level.INFO); // Log info (timings, stats), warnings and severe errors
 
         } catch (IOException e) {
             // If the logger itself fails, print to console as a last resort
@@ -48,4 +48,12 @@ public class LoggerUtil {
     public static void logWarning(String message) {
         logger.log(Level.WARNING, message);
     }
+
+    /**
+     * Logs an informational message, such as a timing or statistics line.
+     * @param message The message.
+     */
+    public static void logInfo(String message) {
+        logger.log(Level.INFO, message);
+    }
 }
\ No newline at end of file
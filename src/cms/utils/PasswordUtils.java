@@ -2,15 +2,150 @@ package cms.utils;
 
 import org.mindrot.jbcrypt.BCrypt;
 
+/**
+ * BCrypt hashing and verification.
+ * <p>
+ * The work factor ("cost") is chosen once per run: {@code -Dcms.bcrypt.cost}
+ * if set, else the highest cost from {@value #DEFAULT_COST} up whose hash fits
+ * the latency budget {@code -Dcms.bcrypt.budgetMs} on this machine, else
+ * {@value #DEFAULT_COST}. Call {@link #calibrate()} at startup so the
+ * measurement doesn't delay the first login.
+ * Stored hashes with a different cost are replaced on the next successful
+ * login (see {@link #verify}), so the cost can be tuned without a password
+ * reset.
+ */
 public class PasswordUtils {
 
+    // OWASP's floor; BCrypt itself caps at 31 but anything past 15 is seconds per login
+    private static final int MIN_COST = 10;
+    private static final int MAX_COST = 15;
+    private static final int DEFAULT_COST = 12;
+    private static final int CONFIGURED_COST = Integer.getInteger("cms.bcrypt.cost", 0);
+    private static final long BUDGET_MS = Long.getLong("cms.bcrypt.budgetMs", 0L);
+
+    private static volatile int targetCost; // 0 until chosen
+
+    /**
+     * The outcome of checking a password against its stored hash.
+     */
+    public static final class Verification {
+        private final boolean matches;
+        private final String rehashed;
+
+        private Verification(boolean matches, String rehashed) {
+            this.matches = matches;
+            this.rehashed = rehashed;
+        }
+
+        public boolean matches() {
+            return matches;
+        }
+
+        /**
+         * @return A fresh hash at the target cost that should replace the
+         *         stored one, or null if the stored hash is fine (or the
+         *         password didn't match).
+         */
+        public String getRehashed() {
+            return rehashed;
+        }
+    }
+
     // Create a hash
     public static String hashPassword(String plainPassword) {
-        return BCrypt.hashpw(plainPassword, BCrypt.gensalt(12));
+        return BCrypt.hashpw(plainPassword, BCrypt.gensalt(getTargetCost()));
     }
 
     // Check entered password against DB hash
     public static boolean checkPassword(String plainPassword, String hashedPassword) {
         return BCrypt.checkpw(plainPassword, hashedPassword);
     }
-}
\ No newline at end of file
+
+    /**
+     * Checks a login attempt with exactly one BCrypt verification, plus one
+     * hash at the target cost if the stored hash should be replaced.
+     *
+     * @param plainPassword  The password as typed.
+     * @param hashedPassword The stored hash.
+     */
+    public static Verification verify(String plainPassword, String hashedPassword) {
+        try {
+            if (!checkPassword(plainPassword, hashedPassword)) {
+                return new Verification(false, null);
+            }
+        } catch (IllegalArgumentException e) {
+            LoggerUtil.logWarning("Stored password hash is not a BCrypt hash: " + e.getMessage());
+            return new Verification(false, null);
+        }
+        int cost = costOf(hashedPassword);
+        String rehashed = cost > 0 && cost != getTargetCost() ? hashPassword(plainPassword) : null;
+        return new Verification(true, rehashed);
+    }
+
+    /**
+     * Chooses the target cost now, timing BCrypt if a budget is set. Safe to
+     * call from a background thread; a login that needs the cost meanwhile
+     * waits for it.
+     */
+    public static void calibrate() {
+        getTargetCost();
+    }
+
+    /**
+     * @return The cost new hashes are created with.
+     */
+    public static int getTargetCost() {
+        int cost = targetCost;
+        if (cost == 0) {
+            synchronized (PasswordUtils.class) {
+                cost = targetCost;
+                if (cost == 0) {
+                    cost = chooseCost();
+                    targetCost = cost;
+                }
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * @return The cost encoded in a "$2a$NN$..." hash, or 0 if it isn't one.
+     */
+    private static int costOf(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(6) != '$') {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(hash.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static int chooseCost() {
+        if (CONFIGURED_COST > 0) {
+            int cost = Math.max(MIN_COST, Math.min(MAX_COST, CONFIGURED_COST));
+            LoggerUtil.logInfo("BCrypt cost " + cost + " (configured)");
+            return cost;
+        }
+
+        // Time the cheapest cost (best of two, the first run warms up the JIT);
+        // every further cost step doubles the work.
+        long nanos = Long.MAX_VALUE;
+        for (int i = 0; i < 2; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", BCrypt.gensalt(MIN_COST));
+            nanos = Math.min(nanos, System.nanoTime() - start);
+        }
+        // A budget only raises the cost; lowering it takes an explicit -Dcms.bcrypt.cost
+        double ms = nanos / 1_000_000.0 * (1 << (DEFAULT_COST - MIN_COST));
+        int cost = DEFAULT_COST;
+        while (BUDGET_MS > 0 && cost < MAX_COST && ms * 2 <= BUDGET_MS) {
+            ms *= 2;
+            cost++;
+        }
+        LoggerUtil.logInfo(String.format("BCrypt cost %d: ~%.0f ms per hash on this host (budget %s)",
+                cost, ms, BUDGET_MS > 0 ? BUDGET_MS + " ms" : "not set"));
+        return cost;
+    }
+}
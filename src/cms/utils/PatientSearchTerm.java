@@ -0,0 +1,163 @@
+package cms.utils;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * A patient search term and the rules that decide which patients it finds,
+ * and how well. The SQL search ({@code PatientSearchDAO}) and the in-memory
+ * type-ahead index ({@code PatientTypeaheadIndex}) both follow these rules, so
+ * a search gives the same results whichever of them answers it.
+ * <p>
+ * A term with digits and no letters is a phone number; it matches, best
+ * first:
+ * <ol>
+ * <li>{@link #TIER_EXACT_PHONE}: the whole number, ignoring the spaces and
+ * dashes on either side, so "98470 12345" finds "98470-12345",</li>
+ * <li>{@link #TIER_PHONE_SUFFIX}: the end of the number, for at least
+ * {@link #MIN_SUFFIX_DIGITS} digits,</li>
+ * <li>{@link #TIER_PHONE_CONTAINS}: digits anywhere in the number, but only
+ * for terms shorter than {@link #MIN_SUFFIX_DIGITS}, or when no number matches
+ * as a whole or by its end. Nothing indexes the middle of a number, so this
+ * is kept off the common path.</li>
+ * </ol>
+ * Any other term is (part of) a name, matched case- and accent-insensitively:
+ * <ol>
+ * <li>{@link #TIER_NAME_PREFIX}: the name starts with the term,</li>
+ * <li>{@link #TIER_NAME_CONTAINS}: the name contains the term anywhere.</li>
+ * </ol>
+ * Within a tier, patients are ordered by name, then ID. A search ranks and
+ * counts at most {@link #MAX_HITS} patients; a term matching more than that
+ * should be refined.
+ */
+public final class PatientSearchTerm {
+
+    public static final int TIER_EXACT_PHONE = 0;
+    public static final int TIER_PHONE_SUFFIX = 1;
+    public static final int TIER_NAME_PREFIX = 2;
+    public static final int TIER_NAME_CONTAINS = 3;
+    public static final int TIER_PHONE_CONTAINS = 4;
+    /** Returned by {@link #tier} for a patient the term doesn't find. */
+    public static final int NO_MATCH = -1;
+
+    /** Shorter digit runs would match a large part of the clinic by suffix. */
+    public static final int MIN_SUFFIX_DIGITS = 3;
+    public static final int MAX_HITS = 1000;
+
+    private final String text;
+    private final String folded;
+    private final String digits;
+    private final boolean phone;
+
+    private PatientSearchTerm(String text) {
+        this.text = text;
+        this.folded = fold(text);
+        this.digits = text.replaceAll("\\D", "");
+        this.phone = !digits.isEmpty() && text.codePoints().noneMatch(Character::isLetter);
+    }
+
+    /**
+     * @param term The typed text; null counts as blank.
+     */
+    public static PatientSearchTerm of(String term) {
+        return new PatientSearchTerm(term == null ? "" : term.trim());
+    }
+
+    public boolean isBlank() {
+        return text.isEmpty();
+    }
+
+    /**
+     * @return true if the term is a phone number, false if it is a name.
+     */
+    public boolean isPhone() {
+        return phone;
+    }
+
+    /**
+     * @return The term, trimmed.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return The term as {@link #fold} compares names.
+     */
+    public String getFolded() {
+        return folded;
+    }
+
+    /**
+     * @return The term's digits.
+     */
+    public String getDigits() {
+        return digits;
+    }
+
+    /**
+     * @return true if the term may also match the middle of phone numbers
+     *         even when some number matches as a whole or by its end.
+     */
+    public boolean isShortPhone() {
+        return phone && digits.length() < MIN_SUFFIX_DIGITS;
+    }
+
+    /**
+     * Ranks one patient against the term, ignoring
+     * {@link #TIER_PHONE_CONTAINS}, which depends on the other patients.
+     *
+     * @param foldedName  The patient's name as returned by {@link #fold}.
+     * @param phoneDigits The patient's number as returned by
+     *                    {@link #phoneDigits}.
+     * @return The best tier the patient matches, or {@link #NO_MATCH}.
+     */
+    public int tier(String foldedName, String phoneDigits) {
+        if (phone) {
+            if (phoneDigits.equals(digits)) {
+                return TIER_EXACT_PHONE;
+            }
+            if (digits.length() >= MIN_SUFFIX_DIGITS && phoneDigits.endsWith(digits)) {
+                return TIER_PHONE_SUFFIX;
+            }
+            return NO_MATCH;
+        }
+        if (foldedName.startsWith(folded)) {
+            return TIER_NAME_PREFIX;
+        }
+        return foldedName.contains(folded) ? TIER_NAME_CONTAINS : NO_MATCH;
+    }
+
+    /**
+     * @param phoneDigits The patient's number as returned by
+     *                    {@link #phoneDigits}.
+     * @return true if the patient matches by {@link #TIER_PHONE_CONTAINS},
+     *         should that tier apply.
+     */
+    public boolean containsPhone(String phoneDigits) {
+        return phone && phoneDigits.contains(digits);
+    }
+
+    /**
+     * Lower-cases text and strips its accents, as the database's
+     * case- and accent-insensitive collation compares names.
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        if (lower.chars().allMatch(c -> c < 0x80)) {
+            return lower;
+        }
+        return Normalizer.normalize(lower, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+    }
+
+    /**
+     * @return A stored phone number without the separators people type, as
+     *         the {@code patients.phone_digits} column holds it.
+     */
+    public static String phoneDigits(String phone) {
+        return phone == null ? "" : phone.replaceAll("[ \\-+().]", "");
+    }
+}
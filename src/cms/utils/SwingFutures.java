@@ -0,0 +1,64 @@
+package cms.utils;
+
+import java.awt.Component;
+import java.awt.Cursor;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * Hands the outcome of background work ({@link CredentialExecutor},
+ * {@code AsyncDao}, {@code DaoScope}) back to the Swing EDT.
+ */
+public final class SwingFutures {
+
+    /**
+     * Shows that background work is in progress, e.g. by disabling a button.
+     * Always called on the EDT.
+     */
+    public interface BusyIndicator {
+        void setBusy(boolean busy);
+    }
+
+    /** For work that shouldn't show anything while it runs. */
+    public static final BusyIndicator NOT_SHOWN = _ -> {
+    };
+
+    private SwingFutures() {
+    }
+
+    /**
+     * Marks {@code busy} while the future runs, then hands its outcome to one
+     * of the callbacks on the EDT. A cancelled future calls neither. Call
+     * from the EDT.
+     */
+    public static <T> void onEdt(CompletableFuture<T> future, BusyIndicator busy, Consumer<? super T> onSuccess,
+            Consumer<Throwable> onFailure) {
+        busy.setBusy(true);
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            busy.setBusy(false);
+            if (error == null) {
+                onSuccess.accept(result);
+            } else if (!(error instanceof CancellationException)) {
+                onFailure.accept(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause()
+                        : error);
+            }
+        }));
+    }
+
+    /**
+     * @return An indicator that shows a wait cursor over {@code window} and
+     *         disables {@code controls} while busy.
+     */
+    public static BusyIndicator busyCursor(Component window, Component... controls) {
+        return busy -> {
+            window.setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+            for (Component control : controls) {
+                control.setEnabled(!busy);
+            }
+        };
+    }
+}
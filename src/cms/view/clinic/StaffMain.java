@@ -1,11 +1,30 @@
 package cms.view.clinic;
 
 
+import cms.model.dao.DailyStatsDAO;
+import cms.model.database.DBConnection;
+import cms.utils.EdtWatchdog;
+import cms.utils.PasswordUtils;
 import cms.view.login.ClinicLoginView;
+import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
 
 public class StaffMain {
     public static void main(String[] args) {
+        EdtWatchdog.installIfEnabled(); // -Dcms.edt.watchdog=true
+
+        // The schema must be up to date before the login window can query it
+        if (!DBConnection.initialize()) {
+            SwingUtilities.invokeLater(() -> {
+                JOptionPane.showMessageDialog(null, "Could not connect to or upgrade the database.\n"
+                        + "See clinic-app-errors.log for details.", "Startup Error", JOptionPane.ERROR_MESSAGE);
+                System.exit(1);
+            });
+            return;
+        }
+        Thread.ofVirtual().name("cms-stats-backfill").start(() -> new DailyStatsDAO().backfillIfEmpty());
+        Thread.ofVirtual().name("cms-bcrypt-calibration").start(PasswordUtils::calibrate); // Done before anyone logs in
+
         // This is the starting point for the staff application.
         SwingUtilities.invokeLater(() -> {
             new ClinicLoginView().setVisible(true);
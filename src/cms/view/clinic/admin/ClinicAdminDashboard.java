@@ -1,5 +1,6 @@
 package cms.view.clinic.admin;
 
+import cms.controller.SessionWarmup;
 import cms.model.entities.User;
 import cms.view.components.DashboardTemplate;
 import cms.view.components.SidebarButton;
@@ -20,9 +21,15 @@ public class ClinicAdminDashboard extends DashboardTemplate {
 
     // --- State ---
     private final User loggedInAdmin;
+    private final SessionWarmup warmup;
 
     public ClinicAdminDashboard(User admin) {
+        this(admin, SessionWarmup.none());
+    }
+
+    public ClinicAdminDashboard(User admin, SessionWarmup warmup) {
         this.loggedInAdmin = admin;
+        this.warmup = warmup;
         buildDashboard(getClinicName(loggedInAdmin) + " - Admin Dashboard");
     }
 
@@ -48,7 +55,7 @@ public class ClinicAdminDashboard extends DashboardTemplate {
         // This method populates the 'contentPanel' created by the template.
         // It's now safe to use 'loggedInAdmin' because this runs after the constructor has set it.
 
-        homePanel = new HomePage(loggedInAdmin);
+        homePanel = new HomePage(loggedInAdmin, warmup);
         staffPanel = new StaffPage(loggedInAdmin.getClinicId());
         specializationPanel = new SpecializationPage(loggedInAdmin.getClinicId());
         reportPanel = new ReportPage(loggedInAdmin);
@@ -99,6 +106,7 @@ public class ClinicAdminDashboard extends DashboardTemplate {
                     "Are you sure you want to log out?", "Confirm Logout",
                     JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
             if (choice == JOptionPane.YES_OPTION) {
+                SessionWarmup.endSession();
                 new ClinicLoginView().setVisible(true);
                 dispose();
             }
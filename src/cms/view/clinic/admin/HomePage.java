@@ -1,9 +1,12 @@
 package cms.view.clinic.admin; // Assuming you are organizing by role
 
+import cms.controller.SessionWarmup;
 import cms.model.dao.ReportDAO;
-import cms.model.dao.UserDAO;
+import cms.model.entities.DashboardSnapshot;
+import cms.model.entities.Enums;
 import cms.model.entities.User;
 import cms.utils.FontUtils;
+import cms.view.components.DashboardRefresher;
 import cms.view.components.UIStyler.StatCardPanel;
 
 import javax.swing.*;
@@ -17,16 +20,18 @@ public class HomePage extends JPanel {
 
     // DAOs
     private final ReportDAO reportDAO;
-    private final UserDAO userDAO;
+    private final SessionWarmup warmup;
 
     // Stat cards for this dashboard
     private final StatCardPanel totalPatientsCard, todaysAppointmentsCard, totalStaffCard;
 
-    public HomePage(User admin) {
+    private final DashboardRefresher refresher;
+
+    public HomePage(User admin, SessionWarmup warmup) {
         this.loggedInAdmin = admin;
+        this.warmup = warmup;
         this.clinicId = admin.getClinicId(); // Get the ID of the current clinic
         this.reportDAO = new ReportDAO();
-        this.userDAO = new UserDAO();
 
         setLayout(new BorderLayout(20, 20));
         setBorder(new EmptyBorder(20, 20, 20, 20));
@@ -66,17 +71,25 @@ public class HomePage extends JPanel {
         add(welcomeLabel, BorderLayout.NORTH);
         add(centerWrapper, BorderLayout.CENTER);
 
+        // All three counts come from one query, off the EDT; the first from the login warmup
+        refresher = new DashboardRefresher(this,
+                () -> warmup.take(SessionWarmup.DASHBOARD_SNAPSHOT,
+                        () -> reportDAO.getDashboardSnapshot(Enums.Role.ADMIN, clinicId, 0)),
+                this::showSnapshot);
+
         // Load data when the panel is created
         refreshData();
     }
 
     // This method can be called to refresh the stats
     public void refreshData() {
-        SwingUtilities.invokeLater(() -> {
-            totalPatientsCard.setValue(String.valueOf(reportDAO.getPatientCountForClinic(clinicId)));
-            todaysAppointmentsCard.setValue(String.valueOf(reportDAO.getTodaysAppointmentCountForClinic(clinicId)));
-            totalStaffCard.setValue(String.valueOf(userDAO.getUserCountByClinic(clinicId, true)));
-        });
+        refresher.refresh();
+    }
+
+    private void showSnapshot(DashboardSnapshot snapshot) {
+        totalPatientsCard.setValue(String.valueOf(snapshot.getTotalPatients()));
+        todaysAppointmentsCard.setValue(String.valueOf(snapshot.getTodaysAppointments()));
+        totalStaffCard.setValue(String.valueOf(snapshot.getStaffCount()));
     }
 
 }
@@ -1,10 +1,22 @@
 package cms.view.clinic.admin;
 
+import cms.model.cache.ReportCache;
 import cms.model.dao.ReportDAO;
 import cms.model.entities.User;
+import cms.utils.DateRange;
 import cms.utils.FontUtils;
+import cms.utils.Granularity;
+import cms.view.components.ReportChartCard;
+import com.toedter.calendar.JDateChooser;
 import java.awt.*;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import org.jfree.chart.ChartFactory;
@@ -23,6 +35,15 @@ public class ReportPage extends JPanel {
     private final ReportDAO reportDAO;
     private final User loggedInAdmin;
 
+    private final JPanel chartGrid = new JPanel(new GridLayout(2, 2, 20, 20));
+    private final List<Report> reports = new ArrayList<>();
+    private boolean chartsShown;
+
+    // --- Range selector; the appointment, new patient and doctor charts follow it ---
+    private final JDateChooser dcFrom = new JDateChooser();
+    private final JDateChooser dcTo = new JDateChooser();
+    private final JComboBox<Granularity> cbGranularity = new JComboBox<>(Granularity.values());
+
     public ReportPage(User admin) {
         this.loggedInAdmin = admin;
         this.reportDAO = new ReportDAO();
@@ -31,6 +52,30 @@ public class ReportPage extends JPanel {
         setBorder(new EmptyBorder(20, 20, 20, 20));
         setBackground(Color.WHITE);
 
+        int clinicId = admin.getClinicId();
+        reports.add(new Report("clinic-appointments", true,
+                (range, granularity) -> reportDAO.getAppointmentCounts(clinicId, range, granularity),
+                this::createAppointmentsChart));
+        reports.add(new Report("clinic-staff-by-role", false,
+                (_, _) -> reportDAO.getStaffCountByRoleForClinic(clinicId),
+                (data, _) -> createStaffDistributionChart(data)));
+        reports.add(new Report("clinic-new-patients", true,
+                (range, granularity) -> reportDAO.getNewPatientCounts(clinicId, range, granularity),
+                this::createNewPatientsChart));
+        reports.add(new Report("clinic-doctor-performance", true,
+                (range, _) -> reportDAO.getDoctorPerformance(clinicId, range),
+                (data, _) -> createDoctorPerformanceChart(data)));
+
+        chartGrid.setBackground(Color.WHITE);
+        for (Report report : reports) {
+            chartGrid.add(report.card);
+        }
+
+        // Default to the last 30 days, by day
+        LocalDate today = LocalDate.now();
+        dcFrom.setDate(toDate(today.minusDays(29)));
+        dcTo.setDate(toDate(today));
+
         showPlaceholder();
     }
 
@@ -45,70 +90,143 @@ public class ReportPage extends JPanel {
         this.repaint();
     }
 
+    /**
+     * Shows the reports for the selected range, from the report cache where
+     * possible; stale charts are redrawn when their background reload
+     * finishes.
+     */
     public void loadReportData() {
-        // Show a loading message while data is being fetched
-        this.removeAll();
-        setLayout(new BorderLayout());
-        add(new JLabel("Generating reports, please wait...", SwingConstants.CENTER), BorderLayout.CENTER);
-        this.revalidate();
-        this.repaint();
+        load(false);
+    }
+
+    private void load(boolean force) {
+        if (!chartsShown) {
+            showCharts();
+        }
+        Date from = dcFrom.getDate();
+        Date to = dcTo.getDate();
+        if (from == null || to == null) {
+            return; // Wait until both ends are picked
+        }
+        LocalDate first = toLocalDate(from);
+        LocalDate last = toLocalDate(to);
+        if (last.isBefore(first)) {
+            JOptionPane.showMessageDialog(this, "The 'To' date must not be before the 'From' date.",
+                    "Invalid Range", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        DateRange range = DateRange.between(first, last);
+        Granularity granularity = (Granularity) cbGranularity.getSelectedItem();
+
+        // Each chart loads on the report pool and appears as soon as it's ready
+        for (Report report : reports) {
+            report.load(force, range, granularity);
+        }
+    }
+
+    private void showCharts() {
+        chartsShown = true;
+        removeAll();
+        setLayout(new BorderLayout(0, 10));
+
+        for (JDateChooser chooser : new JDateChooser[] { dcFrom, dcTo }) {
+            chooser.setDateFormatString("yyyy-MM-dd");
+            chooser.setFont(FontUtils.getUiFont(Font.PLAIN, 14));
+            chooser.setPreferredSize(new Dimension(140, 30));
+            chooser.addPropertyChangeListener("date", _ -> load(false));
+        }
+        cbGranularity.addActionListener(_ -> load(false));
 
-        SwingWorker<JPanel, Void> worker = new SwingWorker<>() {
-            @Override
-            protected JPanel doInBackground() throws Exception {
-                // This happens on a background thread
-                JPanel chartContainer = new JPanel(new GridLayout(2, 2, 20, 20));
-                chartContainer.setBackground(Color.WHITE);
-
-                // --- Chart 1: Appointments This Week (Line Chart) ---
-                chartContainer.add(createAppointmentsChart());
-
-                // --- Chart 2: Staff Distribution (Pie Chart) ---
-                chartContainer.add(createStaffDistributionChart());
-
-                // --- Chart 3: New Patients This Month (Bar Chart) ---
-                chartContainer.add(createNewPatientsChart());
-
-                // --- Chart 4: Doctor Performance (Bar Chart)
-                chartContainer.add(createDoctorPerformanceChart());
-
-                return chartContainer;
-            }
-
-            @Override
-            protected void done() {
-                try {
-                    JPanel resultPanel = get();
-                    removeAll();
-                    setLayout(new BorderLayout());
-                    add(resultPanel, BorderLayout.CENTER);
-                    revalidate();
-                    repaint();
-                } catch (Exception e) {
-                    // Handle exceptions
-                }
-            }
-        };
-        worker.execute();
+        JButton btnRefresh = new JButton("Refresh");
+        btnRefresh.setToolTipText("Reload every report from the database");
+        btnRefresh.addActionListener(_ -> load(true));
+
+        JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
+        toolbar.setBackground(Color.WHITE);
+        toolbar.add(new JLabel("From:"));
+        toolbar.add(dcFrom);
+        toolbar.add(new JLabel("To:"));
+        toolbar.add(dcTo);
+        toolbar.add(new JLabel("Group by:"));
+        toolbar.add(cbGranularity);
+        toolbar.add(btnRefresh);
+
+        add(toolbar, BorderLayout.NORTH);
+        add(chartGrid, BorderLayout.CENTER);
+        revalidate();
+        repaint();
+    }
+
+    private static Date toDate(LocalDate day) {
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    /**
+     * Loads one report's data for a range and bucket size.
+     */
+    private interface Query {
+        Map<String, Integer> load(DateRange range, Granularity granularity) throws SQLException;
+    }
+
+    /**
+     * Draws one report's chart; the bucket size names its axis.
+     */
+    private interface Chart {
+        ChartPanel draw(Map<String, Integer> data, Granularity granularity);
+    }
+
+    /**
+     * One chart on the page: its cache key, how to load its data and how to
+     * draw it.
+     */
+    private final class Report {
+        private final String name;
+        private final boolean ranged;
+        private final Query query;
+        private final Chart chart;
+        private final ReportChartCard card = new ReportChartCard();
+
+        /**
+         * @param ranged Whether the report follows the range selector; the
+         *               others show the current state.
+         */
+        private Report(String name, boolean ranged, Query query, Chart chart) {
+            this.name = name;
+            this.ranged = ranged;
+            this.query = query;
+            this.chart = chart;
+        }
+
+        private void load(boolean force, DateRange range, Granularity granularity) {
+            ReportCache.Key key = ranged
+                    ? ReportCache.Key.of(name + "/" + granularity.name(), loggedInAdmin.getClinicId(), range)
+                    : ReportCache.Key.of(name, loggedInAdmin.getClinicId(), null);
+            ReportCache.Loader<Map<String, Integer>> loader = () -> query.load(range, granularity);
+            Function<Map<String, Integer>, ChartPanel> draw = data -> chart.draw(data, granularity);
+            card.load(onRefreshed -> force ? ReportCache.refresh(key, loader)
+                    : ReportCache.get(key, loader, onRefreshed), draw);
+        }
     }
 
     // --- New Chart Creation Methods ---
-    private ChartPanel createAppointmentsChart() {
+    private ChartPanel createAppointmentsChart(Map<String, Integer> data, Granularity granularity) {
         DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-        Map<String, Integer> data = reportDAO.getAppointmentsLast7Days(loggedInAdmin.getClinicId());
         for (Map.Entry<String, Integer> entry : data.entrySet()) {
             dataset.addValue(entry.getValue(), "Appointments", entry.getKey());
         }
         JFreeChart lineChart = ChartFactory.createLineChart(
-                "Appointments This Week", "Date", "Number of Appointments",
+                "Appointments", granularity.toString(), "Number of Appointments",
                 dataset, PlotOrientation.VERTICAL, false, true, false);
         styleChart(lineChart);
         return new ChartPanel(lineChart);
     }
 
-    private ChartPanel createStaffDistributionChart() {
+    private ChartPanel createStaffDistributionChart(Map<String, Integer> data) {
         DefaultPieDataset<String> dataset = new DefaultPieDataset<>();
-        Map<String, Integer> data = reportDAO.getStaffCountByRoleForClinic(loggedInAdmin.getClinicId());
         for (Map.Entry<String, Integer> entry : data.entrySet()) {
             dataset.setValue(entry.getKey(), entry.getValue());
         }
@@ -118,29 +236,26 @@ public class ReportPage extends JPanel {
         return new ChartPanel(pieChart);
     }
 
-    private ChartPanel createNewPatientsChart() {
+    private ChartPanel createNewPatientsChart(Map<String, Integer> data, Granularity granularity) {
         DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-        Map<String, Integer> data = reportDAO.getNewPatientsLast30Days(loggedInAdmin.getClinicId());
         for (Map.Entry<String, Integer> entry : data.entrySet()) {
             dataset.addValue(entry.getValue(), "New Patients", entry.getKey());
         }
         JFreeChart barChart = ChartFactory.createBarChart(
-                "New Patients (Last 30 Days)", "Date", "Number of New Patients",
+                "New Patients", granularity.toString(), "Number of New Patients",
                 dataset, PlotOrientation.VERTICAL, false, true, false);
         styleBarChart(barChart);
         return new ChartPanel(barChart);
     }
 
-    private ChartPanel createDoctorPerformanceChart() {
+    private ChartPanel createDoctorPerformanceChart(Map<String, Integer> data) {
         DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-        // You'll need to add the getDoctorPerformance method to your ReportDAO
-        Map<String, Integer> data = reportDAO.getDoctorPerformance(loggedInAdmin.getClinicId());
         for (Map.Entry<String, Integer> entry : data.entrySet()) {
             dataset.addValue(entry.getValue(), "Completed Appointments", entry.getKey());
         }
         // A horizontal bar chart is great for rankings
         JFreeChart barChart = ChartFactory.createBarChart(
-                "Doctor Performance (Last 30 Days)", "Doctor", "Completed Appointments",
+                "Doctor Performance", "Doctor", "Completed Appointments",
                 dataset, PlotOrientation.VERTICAL, false, true, false);
         styleChart(barChart);
         return new ChartPanel(barChart);
@@ -2,11 +2,15 @@ package cms.view.clinic.admin;
 
 import cms.model.dao.UserDAO;
 import cms.model.entities.User;
+import cms.utils.CredentialExecutor;
 import cms.utils.FontUtils;
-import cms.utils.PasswordUtils;
+import cms.utils.LoggerUtil;
+import cms.utils.SwingFutures;
+import cms.view.components.ExportDialog;
 import cms.view.components.UIStyler;
 
 import java.awt.*;
+import java.util.concurrent.CompletableFuture;
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
 
@@ -19,6 +23,7 @@ public class SettingsPage extends JPanel {
     private JPasswordField pfNewPassword;
     private JPasswordField pfConfirmPassword;
     private JButton btnUpdatePassword;
+    private JButton btnExport;
 
     public SettingsPage(User admin) {
         this.loggedInAdmin = admin;
@@ -69,6 +74,10 @@ public class SettingsPage extends JPanel {
         btnUpdatePassword = new JButton("Update Password");
         UIStyler.styleButton(btnUpdatePassword, (new Color(0, 102, 102)));
         btnUpdatePassword.addActionListener(_ -> updatePassword());
+        btnExport = new JButton("Export Clinic Data");
+        UIStyler.styleButton(btnExport, new Color(108, 117, 125)); // Gray
+        btnExport.addActionListener(_ -> ExportDialog.export(this, loggedInAdmin.getClinicId(), "Clinic Data"));
+        buttonPanel.add(btnExport);
         buttonPanel.add(btnUpdatePassword);
 
         formContainer.add(buttonPanel, BorderLayout.SOUTH);
@@ -92,16 +101,28 @@ public class SettingsPage extends JPanel {
             return;
         }
 
-        // Validate the current password using the hash stored in the logged-in user
-        // object
-        if (!PasswordUtils.checkPassword(current, loggedInAdmin.getPassword())) {
+        // Validate the current password against the hash stored in the logged-in
+        // user object, then hash the new one; both off the EDT. A null result
+        // means the current password was wrong.
+        String storedHash = loggedInAdmin.getPassword();
+        CompletableFuture<String> newHash = CredentialExecutor.check(current, storedHash)
+                .thenCompose(ok -> ok ? CredentialExecutor.hash(newPassword) : CompletableFuture.completedFuture(null));
+
+        SwingFutures.onEdt(newHash, SwingFutures.busyCursor(this, btnUpdatePassword),
+                this::saveNewPassword,
+                e -> {
+                    LoggerUtil.logError("Failed to hash the new password for user ID: " + loggedInAdmin.getUserId(), e);
+                    JOptionPane.showMessageDialog(this, "Failed to update password. Please try again.", "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                });
+    }
+
+    private void saveNewPassword(String newHashedPassword) {
+        if (newHashedPassword == null) {
             JOptionPane.showMessageDialog(this, "Current password is incorrect.", "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
-        // Hash the new password before sending it to the DAO
-        String newHashedPassword = PasswordUtils.hashPassword(newPassword);
-
         if (userDAO.updateUserPassword(loggedInAdmin.getUserId(), newHashedPassword)) {
             JOptionPane.showMessageDialog(this, "Password updated successfully!", "Success",
                     JOptionPane.INFORMATION_MESSAGE);
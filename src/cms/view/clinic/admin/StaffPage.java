@@ -1,17 +1,22 @@
 package cms.view.clinic.admin;
 
+import cms.model.dao.AsyncDao;
 import cms.model.dao.DoctorDAO;
+import cms.model.dao.Page;
+import cms.model.dao.PageRequest;
 import cms.model.dao.UserDAO;
 import cms.model.entities.Doctor;
 import cms.model.entities.Enums;
 import cms.model.entities.User;
+import cms.utils.CredentialExecutor;
 import cms.utils.FontUtils;
-import cms.utils.PasswordUtils;
+import cms.utils.LoggerUtil;
+import cms.utils.SwingFutures;
 import cms.view.components.UIStyler;
 import cms.view.components.StatusRenderer;
 import java.awt.*;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
@@ -34,6 +39,7 @@ public class StaffPage extends JPanel {
     private int currentPage = 1;
     private final int pageSize = 10;
     private int totalPages;
+    private Page<User> staffPage = Page.empty();
     private JButton btnPrev, btnNext;
     private JLabel lblPage;
 
@@ -209,15 +215,13 @@ public class StaffPage extends JPanel {
 
         // Pagination listeners...
         btnPrev.addActionListener(_ -> {
-            if (currentPage > 1) {
-                currentPage--;
-                loadStaffPage(currentPage);
+            if (staffPage.hasPrevious()) {
+                loadStaffPage(staffPage.getPreviousCursor(), currentPage - 1);
             }
         });
         btnNext.addActionListener(_ -> {
-            if (currentPage < totalPages) {
-                currentPage++;
-                loadStaffPage(currentPage);
+            if (staffPage.hasNext()) {
+                loadStaffPage(staffPage.getNextCursor(), currentPage + 1);
             }
         });
 
@@ -243,18 +247,28 @@ public class StaffPage extends JPanel {
 
     // This is the public method called by the dashboard to load/reload data
     public void refreshStaffList() {
-        currentPage = 1;
-        loadStaffPage(currentPage);
+        loadStaffPage(null, 1);
         clearForm();
     }
 
-    private void loadStaffPage(int page) {
-        int totalRecords = userDAO.getUserCountByClinic(clinicId, true);
-        totalPages = (totalRecords == 0) ? 1 : (int) Math.ceil((double) totalRecords / pageSize);
+    private void loadStaffPage(String cursor, int page) {
+        // Rows and total come back from a single query (or a cached count), off the EDT
+        CompletableFuture<Page<User>> load = AsyncDao.of(userDAO)
+                .call(dao -> dao.getPaginatedUsersByClinicId(clinicId, PageRequest.at(cursor, pageSize)));
+        SwingFutures.onEdt(load, SwingFutures.busyCursor(this, btnPrev, btnNext),
+                loaded -> showStaffPage(loaded, page), e -> {
+                    LoggerUtil.logError("Failed to load staff page " + page + " for clinic ID: " + clinicId, e);
+                    btnPrev.setEnabled(staffPage.hasPrevious());
+                    btnNext.setEnabled(staffPage.hasNext());
+                });
+    }
 
+    private void showStaffPage(Page<User> loaded, int page) {
+        staffPage = loaded;
+        currentPage = page;
+        totalPages = staffPage.getTotalPages(pageSize);
         model.setRowCount(0);
-        List<User> staffList = userDAO.getPaginatedUsersByClinicId(clinicId, page, pageSize);
-        for (User user : staffList) {
+        for (User user : staffPage.getItems()) {
             model.addRow(new Object[] {
                     user.getUserId(),
                     user.getName(),
@@ -266,8 +280,8 @@ public class StaffPage extends JPanel {
         }
 
         lblPage.setText("Page " + currentPage + " of " + totalPages);
-        btnPrev.setEnabled(currentPage > 1);
-        btnNext.setEnabled(currentPage < totalPages);
+        btnPrev.setEnabled(staffPage.hasPrevious());
+        btnNext.setEnabled(staffPage.hasNext());
     }
 
     private void addStaffMember() {
@@ -285,17 +299,45 @@ public class StaffPage extends JPanel {
         newUser.setClinicId(this.clinicId);
         newUser.setName(name);
         newUser.setUsername(username);
-        newUser.setPassword(PasswordUtils.hashPassword(password));
         newUser.setRole((Enums.Role) cbRole.getSelectedItem());
         newUser.setStatus((Enums.Status) cbStatus.getSelectedItem());
 
-        int newUserId = userDAO.addUser(newUser);
+        // A doctor's details are asked for up front, so the user and the details are saved together
+        Doctor doctorDetails = null;
+        if (newUser.getRole() == Enums.Role.DOCTOR) {
+            DoctorDetailsDialog dialog = new DoctorDetailsDialog((Frame) SwingUtilities.getWindowAncestor(this), 0,
+                    this.clinicId);
+            dialog.setVisible(true);
+            doctorDetails = dialog.getResult();
+            if (doctorDetails == null) {
+                return; // Closed without saving; nothing is added
+            }
+        }
+        Doctor newDoctorDetails = doctorDetails;
+
+        // Hash off the EDT; the form stays disabled until the user is saved
+        SwingFutures.onEdt(CredentialExecutor.hash(password),
+                SwingFutures.busyCursor(this, btnAdd, btnUpdate, btnDelete),
+                hashed -> {
+                    newUser.setPassword(hashed);
+                    saveNewStaffMember(newUser, newDoctorDetails);
+                },
+                e -> {
+                    LoggerUtil.logError("Failed to hash the password for new staff member: " + username, e);
+                    JOptionPane.showMessageDialog(this, "Could not add the staff member. Please try again.",
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                });
+    }
+
+    // doctorDetails is null unless the new user is a doctor
+    private void saveNewStaffMember(User newUser, Doctor doctorDetails) {
+        String name = newUser.getName();
+        String username = newUser.getUsername();
+        int newUserId = doctorDetails == null
+                ? userDAO.addUser(newUser)
+                : userDAO.addDoctor(newUser, doctorDetails);
 
         if (newUserId > 0) { // Success!
-            // If the new user is a doctor, save their specialization
-            if (newUser.getRole() == Enums.Role.DOCTOR) {
-                editDoctorDetails(newUserId, true);
-            }
             JOptionPane.showMessageDialog(this, "Staff member '" + name + "' was added successfully!",
                     "Success", JOptionPane.INFORMATION_MESSAGE);
             refreshStaffList(); // This also clears the form
@@ -320,11 +362,11 @@ public class StaffPage extends JPanel {
             return;
         }
         int userId = (int) model.getValueAt(selectedRow, 0);
-        editDoctorDetails(userId, false); // Call helper for existing doctor
+        editDoctorDetails(userId); // Call helper for existing doctor
     }
 
-    // Helper method for both adding and editing doctor details
-    private void editDoctorDetails(int userId, boolean isNewDoctor) {
+    // Helper method for adding or editing an existing user's doctor details
+    private void editDoctorDetails(int userId) {
         DoctorDetailsDialog dialog = new DoctorDetailsDialog((Frame) SwingUtilities.getWindowAncestor(this), userId,
                 this.clinicId);
         dialog.setVisible(true);
@@ -332,7 +374,7 @@ public class StaffPage extends JPanel {
         Doctor doctorDetails = dialog.getResult();
         if (doctorDetails != null) {
             boolean success;
-            if (isNewDoctor || !doctorDAO.doctorExists(userId)) {
+            if (!doctorDAO.doctorExists(userId)) {
                 success = doctorDAO.addDoctorDetails(doctorDetails);
             } else {
                 success = doctorDAO.updateDoctorDetails(doctorDetails);
@@ -1,7 +1,9 @@
 package cms.view.clinic.doctor;
 
+import cms.controller.SessionWarmup;
 import cms.model.dao.AppointmentDAO;
-import cms.model.dao.BillingDAO;
+import cms.model.dao.Page;
+import cms.model.dao.PageRequest;
 import cms.model.dao.PatientDAO;
 import cms.model.entities.Appointment;
 import cms.model.entities.Doctor;
@@ -27,23 +29,24 @@ public class ConsultationPage extends JPanel {
 
     // --- Pagination ---
     private int currentPage = 1;
-    private final int pageSize = 10;
+    private final int pageSize = SessionWarmup.DOCTOR_QUEUE_PAGE_SIZE;
     private int totalPages;
+    private Page<Appointment> appointmentPage = Page.empty();
     private JButton btnPrev, btnNext;
     private JLabel lblPage;
 
     // --- State & DAOs ---
     private final Doctor loggedInDoctor;
     private final AppointmentDAO appointmentDAO;
-    private final BillingDAO billingDAO;
     private final PatientDAO patientDAO;
+    private final SessionWarmup warmup;
     private Appointment selectedAppointment = null; // Store the full selected appointment
     private List<Appointment> todaysAppointments; // Cache the list for the day
 
-    public ConsultationPage(Doctor doctor) {
+    public ConsultationPage(Doctor doctor, SessionWarmup warmup) {
         this.loggedInDoctor = doctor;
+        this.warmup = warmup;
         this.appointmentDAO = new AppointmentDAO();
-        this.billingDAO = new BillingDAO();
         this.patientDAO = new PatientDAO();
 
         setLayout(new BorderLayout(20, 20));
@@ -214,15 +217,15 @@ public class ConsultationPage extends JPanel {
         btnCompleteConsultation.addActionListener(_ -> completeConsultation());
         // Pagination listeners...
         btnPrev.addActionListener(_ -> {
-            if (currentPage > 1) {
+            if (appointmentPage.hasPrevious()) {
                 currentPage--;
-                loadAppointmentPage(currentPage);
+                loadAppointmentPage(appointmentPage.getPreviousCursor());
             }
         });
         btnNext.addActionListener(_ -> {
-            if (currentPage < totalPages) {
+            if (appointmentPage.hasNext()) {
                 currentPage++;
-                loadAppointmentPage(currentPage);
+                loadAppointmentPage(appointmentPage.getNextCursor());
             }
         });
 
@@ -269,17 +272,20 @@ public class ConsultationPage extends JPanel {
 
     public void refreshData() {
         currentPage = 1;
-        loadAppointmentPage(currentPage);
+        loadAppointmentPage(null);
         clearConsultationPanel();
     }
 
-    private void loadAppointmentPage(int page) {
-        int totalRecords = appointmentDAO.getTodaysAppointmentCountForDoctor(loggedInDoctor.getDoctorId());
-        totalPages = (totalRecords == 0) ? 1 : (int) Math.ceil((double) totalRecords / pageSize);
-
+    private void loadAppointmentPage(String cursor) {
         model.setRowCount(0);
-        todaysAppointments = appointmentDAO.getTodaysAppointmentsForDoctor(loggedInDoctor.getDoctorId(), page,
-                pageSize);
+        // Rows and total come back from a single query (or a cached count)
+        PageRequest request = PageRequest.at(cursor, pageSize);
+        appointmentPage = cursor == null
+                ? warmup.take(SessionWarmup.DOCTOR_QUEUE_FIRST_PAGE,
+                        () -> appointmentDAO.getTodaysAppointmentsForDoctor(loggedInDoctor.getDoctorId(), request))
+                : appointmentDAO.getTodaysAppointmentsForDoctor(loggedInDoctor.getDoctorId(), request);
+        totalPages = appointmentPage.getTotalPages(pageSize);
+        todaysAppointments = appointmentPage.getItems();
 
         model.setRowCount(0);
         for (Appointment appt : todaysAppointments) {
@@ -292,8 +298,8 @@ public class ConsultationPage extends JPanel {
             });
         }
         lblPage.setText("Page " + currentPage + " of " + totalPages);
-        btnPrev.setEnabled(currentPage > 1);
-        btnNext.setEnabled(currentPage < totalPages);
+        btnPrev.setEnabled(appointmentPage.hasPrevious());
+        btnNext.setEnabled(appointmentPage.hasNext());
     }
 
     private void completeConsultation() {
@@ -306,27 +312,17 @@ public class ConsultationPage extends JPanel {
         // Get the notes from the text area
         String notes = taConsultationNotes.getText();
 
-        // DAO call to update appointment status and save notes
-        boolean statusUpdated = appointmentDAO.completeAppointment(selectedAppointment.getAppointmentId(), notes);
-
-        if (statusUpdated) {
-            // Get doctor's fee from the in-memory Doctor object
-            double fee = this.loggedInDoctor.getConsultationFee();
+        // Get doctor's fee from the in-memory Doctor object
+        double fee = this.loggedInDoctor.getConsultationFee();
 
-            // Create the bill
-            boolean billCreated = billingDAO.createBillForAppointment(selectedAppointment.getAppointmentId(), fee);
-
-            if (billCreated) {
-                JOptionPane.showMessageDialog(this, "Consultation completed. A bill has been sent to the front desk.",
-                        "Success", JOptionPane.INFORMATION_MESSAGE);
-                refreshData(); // Refresh the table to show the updated "Completed" status
-            } else {
-                JOptionPane.showMessageDialog(this,
-                        "Appointment completed, but there was an error generating the bill.", "Billing Error",
-                        JOptionPane.ERROR_MESSAGE);
-            }
+        // Completing the appointment and creating the bill commit together, or not at all
+        if (appointmentDAO.completeAndBill(selectedAppointment.getAppointmentId(), notes, fee)) {
+            JOptionPane.showMessageDialog(this, "Consultation completed. A bill has been sent to the front desk.",
+                    "Success", JOptionPane.INFORMATION_MESSAGE);
+            refreshData(); // Refresh the table to show the updated "Completed" status
         } else {
-            JOptionPane.showMessageDialog(this, "Failed to update the appointment status.", "Database Error",
+            JOptionPane.showMessageDialog(this,
+                    "Failed to complete the consultation. Nothing was saved; please try again.", "Database Error",
                     JOptionPane.ERROR_MESSAGE);
         }
     }
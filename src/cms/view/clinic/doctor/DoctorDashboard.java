@@ -1,5 +1,6 @@
 package cms.view.clinic.doctor;
 
+import cms.controller.SessionWarmup;
 import cms.model.dao.DoctorDAO;
 import cms.model.entities.Doctor;
 import cms.model.entities.User;
@@ -20,9 +21,16 @@ public class DoctorDashboard extends DashboardTemplate {
 
     // --- State ---
     private final Doctor loggedInDoctor;
+    private final SessionWarmup warmup;
 
     public DoctorDashboard(User user) {
-        this.loggedInDoctor = new DoctorDAO().getDoctorByUserId(user.getUserId());
+        this(user, SessionWarmup.none());
+    }
+
+    public DoctorDashboard(User user, SessionWarmup warmup) {
+        this.warmup = warmup;
+        this.loggedInDoctor = warmup.take(SessionWarmup.DOCTOR_PROFILE,
+                () -> new DoctorDAO().getDoctorByUserId(user.getUserId()));
         this.loggedInDoctor.setUser(user);
         buildDashboard(getClinicName(user) + " - Doctor Dashboard");
 
@@ -41,9 +49,9 @@ public class DoctorDashboard extends DashboardTemplate {
 
     @Override
     protected void addContentPanels() {
-        homePanel = new HomePage(loggedInDoctor);
-        consultationPanel = new ConsultationPage(loggedInDoctor);
-        fullSchedulePanel = new FullSchedulePage(loggedInDoctor);
+        homePanel = new HomePage(loggedInDoctor, warmup);
+        consultationPanel = new ConsultationPage(loggedInDoctor, warmup);
+        fullSchedulePanel = new FullSchedulePage(loggedInDoctor, warmup);
 
         contentPanel.add(homePanel, "Home");
         contentPanel.add(consultationPanel, "Consultations");
@@ -75,6 +83,7 @@ public class DoctorDashboard extends DashboardTemplate {
                     this, "Are you sure you want to log out?", "Confirm Logout",
                     JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
             if (choice == JOptionPane.YES_OPTION) {
+                SessionWarmup.endSession();
                 new ClinicLoginView().setVisible(true);
                 dispose();
             }
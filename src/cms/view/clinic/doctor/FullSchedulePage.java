@@ -1,5 +1,6 @@
 package cms.view.clinic.doctor;
 
+import cms.controller.SessionWarmup;
 import cms.model.dao.AppointmentDAO;
 import cms.model.entities.Appointment;
 import cms.model.entities.Doctor;
@@ -27,10 +28,12 @@ public class FullSchedulePage extends JPanel {
     // --- State & DAO ---
     private final Doctor loggedInDoctor;
     private final AppointmentDAO appointmentDAO;
+    private final SessionWarmup warmup;
     private List<Appointment> currentAppointments = new ArrayList<>();
 
-    public FullSchedulePage(Doctor doctor) {
+    public FullSchedulePage(Doctor doctor, SessionWarmup warmup) {
         this.loggedInDoctor = doctor;
+        this.warmup = warmup;
         this.appointmentDAO = new AppointmentDAO();
 
         setLayout(new BorderLayout(10, 10));
@@ -116,8 +119,11 @@ public class FullSchedulePage extends JPanel {
         LocalDate localDate = selectedDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
 
         // Fetch the appointments for this doctor on the selected date
-        List<Appointment> appointments = appointmentDAO.getAppointmentsForDoctorByDate(loggedInDoctor.getDoctorId(),
-                localDate);
+        // Today's schedule was fetched at login for the first paint
+        List<Appointment> appointments = localDate.equals(LocalDate.now())
+                ? warmup.take(SessionWarmup.DOCTOR_SCHEDULE_TODAY,
+                        () -> appointmentDAO.getAppointmentsForDoctorByDate(loggedInDoctor.getDoctorId(), localDate))
+                : appointmentDAO.getAppointmentsForDoctorByDate(loggedInDoctor.getDoctorId(), localDate);
 
         model.setRowCount(0); // Clear existing rows
         for (Appointment appt : appointments) {
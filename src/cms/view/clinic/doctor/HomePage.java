@@ -1,8 +1,12 @@
 package cms.view.clinic.doctor;
 
+import cms.controller.SessionWarmup;
 import cms.model.dao.ReportDAO;
+import cms.model.entities.DashboardSnapshot;
 import cms.model.entities.Doctor;
+import cms.model.entities.Enums;
 import cms.utils.FontUtils;
+import cms.view.components.DashboardRefresher;
 import cms.view.components.UIStyler;
 import cms.view.components.UIStyler.StatCardPanel;
 
@@ -15,13 +19,17 @@ public class HomePage extends JPanel {
     private final Doctor loggedInDoctor;
     private final int clinicId;
     private final ReportDAO reportDAO;
+    private final SessionWarmup warmup;
 
     // Stat cards
     private StatCardPanel todaysAppointmentsCard;
     private StatCardPanel pendingAppointmentsCard;
 
-    public HomePage(Doctor doctor) {
+    private final DashboardRefresher refresher;
+
+    public HomePage(Doctor doctor, SessionWarmup warmup) {
         this.loggedInDoctor = doctor;
+        this.warmup = warmup;
         this.clinicId = doctor.getUser().getClinicId();
         this.reportDAO = new ReportDAO();
 
@@ -56,17 +64,22 @@ public class HomePage extends JPanel {
         add(welcomeLabel, BorderLayout.NORTH);
         add(centerWrapper, BorderLayout.CENTER);
 
+        // Both counts come from one query, off the EDT; the first from the login warmup
+        refresher = new DashboardRefresher(this,
+                () -> warmup.take(SessionWarmup.DASHBOARD_SNAPSHOT,
+                        () -> reportDAO.getDashboardSnapshot(Enums.Role.DOCTOR, clinicId,
+                                loggedInDoctor.getDoctorId())),
+                this::showSnapshot);
         refreshData();
     }
 
     public void refreshData() {
-        SwingUtilities.invokeLater(() -> {
-            todaysAppointmentsCard.setValue(String.valueOf(
-                    reportDAO.getTodaysAppointmentCountForDoctor(clinicId, this.loggedInDoctor.getDoctorId())));
-
-            pendingAppointmentsCard.setValue(String.valueOf(reportDAO.getPendingPatientCountForToday(clinicId)));
+        refresher.refresh();
+    }
 
-        });
+    private void showSnapshot(DashboardSnapshot snapshot) {
+        todaysAppointmentsCard.setValue(String.valueOf(snapshot.getDoctorAppointmentsToday()));
+        pendingAppointmentsCard.setValue(String.valueOf(snapshot.getPendingPatientsToday()));
     }
 
 }
\ No newline at end of file
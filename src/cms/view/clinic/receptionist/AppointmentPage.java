@@ -1,19 +1,26 @@
 package cms.view.clinic.receptionist;
 
+import cms.controller.SessionWarmup;
 import cms.model.dao.AppointmentDAO;
+import cms.model.dao.AsyncDao;
 import cms.model.dao.DoctorDAO;
 import cms.model.dao.PatientDAO;
 import cms.model.entities.Appointment;
 import cms.model.entities.Doctor;
 import cms.model.entities.Enums;
-import cms.model.entities.Patient;
+import cms.model.entities.PatientSummary;
 import cms.utils.FontUtils;
+import cms.utils.LoggerUtil;
+import cms.utils.SwingFutures;
 import cms.view.components.UIStyler;
 
 import com.toedter.calendar.JDateChooser;
 
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
+import javax.swing.plaf.basic.ComboPopup;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 
@@ -24,11 +31,12 @@ import java.time.ZoneId;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class AppointmentPage extends JPanel {
 
     // --- UI Components ---
-    private JComboBox<Patient> cbPatients;
+    private JComboBox<PatientSummary> cbPatients;
     private JComboBox<Doctor> cbDoctors;
     private JDateChooser dcAppointmentDate;
     private JSpinner timeSpinner;
@@ -39,14 +47,24 @@ public class AppointmentPage extends JPanel {
     // --- State & DAOs ---
     private final int clinicId;
     private final AppointmentDAO appointmentDAO;
-    private final PatientDAO patientDAO;
-    private final DoctorDAO doctorDAO;
+    private final AsyncDao<AppointmentDAO> appointments;
+    private final AsyncDao<PatientDAO> patients;
+    private final AsyncDao<DoctorDAO> doctors;
+    private final SessionWarmup warmup;
 
-    public AppointmentPage(int clinicId) {
+    // The latest load of the table; a newer one cancels it so an old date can't overwrite the table
+    private CompletableFuture<?> tableLoad = CompletableFuture.completedFuture(null);
+
+    // --- Patient picker ---
+    private PatientPickerModel patientChoices;
+
+    public AppointmentPage(int clinicId, SessionWarmup warmup) {
         this.clinicId = clinicId;
+        this.warmup = warmup;
         this.appointmentDAO = new AppointmentDAO();
-        this.patientDAO = new PatientDAO();
-        this.doctorDAO = new DoctorDAO();
+        this.appointments = AsyncDao.of(appointmentDAO);
+        this.patients = AsyncDao.of(new PatientDAO());
+        this.doctors = AsyncDao.of(new DoctorDAO());
 
         setLayout(new BorderLayout(10, 20));
         setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
@@ -82,7 +100,30 @@ public class AppointmentPage extends JPanel {
         gbc.insets = new Insets(8, 8, 8, 8);
         gbc.weightx = 1.0;
 
-        cbPatients = new JComboBox<>();
+        // Type to filter; matches are fetched a page at a time as the list scrolls
+        patientChoices = new PatientPickerModel(clinicId);
+        cbPatients = new JComboBox<>(patientChoices) {
+            @Override
+            public int getSelectedIndex() {
+                return patientChoices.getSelectedIndex(); // The default scans, and so loads, every row
+            }
+        };
+        cbPatients.setEditable(true);
+        cbPatients.setRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                    boolean isSelected, boolean cellHasFocus) {
+                Object shown = value == null && index >= 0 ? "Loading..." : value;
+                return super.getListCellRendererComponent(list, shown, index, isSelected, cellHasFocus);
+            }
+        });
+        // Fixed sizes keep the combo box and its list from measuring every row
+        PatientSummary prototype = new PatientSummary(0, "XXXXXXXXXXXXXXXXXXXXXXXXX", "0000000000", null, null,
+                null);
+        cbPatients.setPrototypeDisplayValue(prototype);
+        if (cbPatients.getUI().getAccessibleChild(cbPatients, 0) instanceof ComboPopup popup) {
+            popup.getList().setPrototypeCellValue(prototype);
+        }
         cbDoctors = new JComboBox<>();
         dcAppointmentDate = new JDateChooser(new Date()); // Default to today
         dcAppointmentDate.setDateFormatString("yyyy-MM-dd");
@@ -151,6 +192,29 @@ public class AppointmentPage extends JPanel {
         btnBookAppointment.addActionListener(_ -> bookAppointment());
         btnCancelAppointment.addActionListener(_ -> cancelAppointment());
 
+        JTextField patientEditor = (JTextField) cbPatients.getEditor().getEditorComponent();
+        patientChoices.setOnFiltered(() -> {
+            if (patientEditor.isFocusOwner() && patientChoices.getSize() > 0) {
+                cbPatients.showPopup();
+            }
+        });
+        patientEditor.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                // The document can't be modified from inside its own listener
+                SwingUtilities.invokeLater(() -> updatePatientChoices(patientEditor.getText()));
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                SwingUtilities.invokeLater(() -> updatePatientChoices(patientEditor.getText()));
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+
         // Add a listener to the date chooser to refresh the table when the date changes
         dcAppointmentDate.addPropertyChangeListener("date", _ -> refreshAppointmentTable());
     }
@@ -158,38 +222,74 @@ public class AppointmentPage extends JPanel {
     // --- Public methods for data loading and interaction ---
 
     public void refreshData() {
-        // Load lists of patients and doctors for the dropdowns
-        List<Patient> patients = patientDAO.getPatientsByClinic(clinicId);
-        cbPatients.setModel(new DefaultComboBoxModel<>(patients.toArray(new Patient[0])));
-
-        List<Doctor> doctors = doctorDAO.getActiveDoctorsByClinic(clinicId);
-        cbDoctors.setModel(new DefaultComboBoxModel<>(doctors.toArray(new Doctor[0])));
-
-        // Load today's appointments for the table
+        // Patients are looked up as the user types; start with the first page by name
+        patientChoices.setFilter("");
         dcAppointmentDate.setDate(new Date()); // Ensure it's set to today
+
+        // The doctors load alongside today's appointments, off the EDT, in a
+        // future of their own: changing the date replaces only the table load
+        SwingFutures.onEdt(doctors.call(dao -> dao.getActiveDoctorsByClinic(clinicId)), SwingFutures.NOT_SHOWN,
+                list -> cbDoctors.setModel(new DefaultComboBoxModel<>(list.toArray(new Doctor[0]))),
+                e -> showError("Could not load the doctors.", e));
         refreshAppointmentTable();
     }
 
+    /**
+     * Picks the patient in the drop-down once they have loaded, unless the
+     * user has picked or typed something else by then.
+     */
     public void setPatientForBooking(int patientId) {
-        // Find the patient in the combo box and select them
-        for (int i = 0; i < cbPatients.getItemCount(); i++) {
-            if (cbPatients.getItemAt(i).getPatientId() == patientId) {
-                cbPatients.setSelectedIndex(i);
-                break;
+        Object before = cbPatients.getSelectedItem();
+        SwingFutures.onEdt(patients.call(dao -> dao.getPatientById(patientId)), SwingFutures.NOT_SHOWN, p -> {
+            if (p != null && cbPatients.getSelectedItem() == before) {
+                cbPatients.setSelectedItem(new PatientSummary(p.getPatientId(), p.getName(), p.getPhone(),
+                        p.getGender(), p.getDob(), null));
             }
+        }, e -> showError("Could not load the patient.", e));
+    }
+
+    /**
+     * Filters the patient drop-down by the typed text.
+     */
+    private void updatePatientChoices(String text) {
+        if (text.equals(patientChoices.getFilter())) {
+            return; // Also ignores the editor being reset to the same text
         }
+        if (cbPatients.getSelectedItem() instanceof PatientSummary p && p.toString().equals(text)) {
+            return; // A match was picked and its text shown
+        }
+        patientChoices.setFilter(text);
     }
 
     private void refreshAppointmentTable() {
         Date selectedDate = dcAppointmentDate.getDate();
         if (selectedDate == null) {
+            replaceTableLoad(CompletableFuture.completedFuture(null));
             model.setRowCount(0); // Clear table if no date is selected
             return;
         }
 
         LocalDate localDate = selectedDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-        List<Appointment> appointments = appointmentDAO.getAppointmentsByDate(clinicId, localDate);
+        CompletableFuture<List<Appointment>> load = appointments.call(dao -> fetchAppointments(dao, localDate));
+        replaceTableLoad(load);
+        SwingFutures.onEdt(load, SwingFutures.busyCursor(this), this::showAppointments,
+                e -> showError("Could not load the appointments.", e));
+    }
 
+    // Blocking; runs on a virtual thread
+    private List<Appointment> fetchAppointments(AppointmentDAO dao, LocalDate day) {
+        // Today's appointments were fetched at login for the first paint
+        return day.equals(LocalDate.now())
+                ? warmup.take(SessionWarmup.CLINIC_APPOINTMENTS_TODAY, () -> dao.getAppointmentsByDate(clinicId, day))
+                : dao.getAppointmentsByDate(clinicId, day);
+    }
+
+    private void replaceTableLoad(CompletableFuture<?> load) {
+        tableLoad.cancel(false);
+        tableLoad = load;
+    }
+
+    private void showAppointments(List<Appointment> appointments) {
         model.setRowCount(0);
         for (Appointment appt : appointments) {
             model.addRow(new Object[] {
@@ -203,7 +303,8 @@ public class AppointmentPage extends JPanel {
     }
 
     private void bookAppointment() {
-        Patient selectedPatient = (Patient) cbPatients.getSelectedItem();
+        // Free text that wasn't picked from the matches isn't a patient
+        PatientSummary selectedPatient = cbPatients.getSelectedItem() instanceof PatientSummary p ? p : null;
         Doctor selectedDoctor = (Doctor) cbDoctors.getSelectedItem();
         Date selectedDate = dcAppointmentDate.getDate();
         Date selectedTime = (Date) timeSpinner.getValue();
@@ -226,14 +327,17 @@ public class AppointmentPage extends JPanel {
         newAppointment.setAppointmentDate(fullDateTime);
         newAppointment.setStatus(Enums.AppointmentStatus.Scheduled);
 
-        if (appointmentDAO.bookAppointment(newAppointment)) {
-            JOptionPane.showMessageDialog(this, "Appointment booked successfully!", "Success",
-                    JOptionPane.INFORMATION_MESSAGE);
-            refreshAppointmentTable(); // Refresh the table to show the new appointment
-        } else {
-            JOptionPane.showMessageDialog(this, "Failed to book the appointment. Please try again.", "Database Error",
-                    JOptionPane.ERROR_MESSAGE);
-        }
+        SwingFutures.onEdt(appointments.call(dao -> dao.bookAppointment(newAppointment)),
+                SwingFutures.busyCursor(this, btnBookAppointment), booked -> {
+                    if (booked) {
+                        JOptionPane.showMessageDialog(this, "Appointment booked successfully!", "Success",
+                                JOptionPane.INFORMATION_MESSAGE);
+                        refreshAppointmentTable(); // Refresh the table to show the new appointment
+                    } else {
+                        JOptionPane.showMessageDialog(this, "Failed to book the appointment. Please try again.",
+                                "Database Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                }, e -> showError("Failed to book the appointment.", e));
     }
 
     private void cancelAppointment() {
@@ -252,14 +356,24 @@ public class AppointmentPage extends JPanel {
                 JOptionPane.YES_NO_OPTION);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            // You'll need an updateAppointmentStatus method in your DAO
-            if (appointmentDAO.updateAppointmentStatus(appointmentId, Enums.AppointmentStatus.Cancelled)) {
-                JOptionPane.showMessageDialog(this, "Appointment cancelled successfully.");
-                refreshAppointmentTable();
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to cancel the appointment.", "Error",
-                        JOptionPane.ERROR_MESSAGE);
-            }
+            SwingFutures.onEdt(
+                    appointments.call(dao -> dao.updateAppointmentStatus(appointmentId,
+                            Enums.AppointmentStatus.Cancelled)),
+                    SwingFutures.busyCursor(this, btnCancelAppointment), cancelled -> {
+                        if (cancelled) {
+                            JOptionPane.showMessageDialog(this, "Appointment cancelled successfully.");
+                            refreshAppointmentTable();
+                        } else {
+                            JOptionPane.showMessageDialog(this, "Failed to cancel the appointment.", "Error",
+                                    JOptionPane.ERROR_MESSAGE);
+                        }
+                    }, e -> showError("Failed to cancel the appointment.", e));
         }
     }
+
+    private void showError(String message, Throwable e) {
+        LoggerUtil.logError(message, e);
+        JOptionPane.showMessageDialog(this, message + " Please try again.", "Database Error",
+                JOptionPane.ERROR_MESSAGE);
+    }
 }
\ No newline at end of file
@@ -1,8 +1,11 @@
 package cms.view.clinic.receptionist;
 
+import cms.model.dao.AsyncDao;
 import cms.model.dao.BillingDAO;
 import cms.model.entities.Bill;
 import cms.model.entities.Enums; // Assuming BillingStatus is in your Enums file
+import cms.utils.LoggerUtil;
+import cms.utils.SwingFutures;
 import cms.view.components.StatusRenderer;
 import cms.view.components.UIStyler;
 
@@ -13,6 +16,7 @@ import java.awt.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class BillingPage extends JPanel {
 
@@ -24,11 +28,14 @@ public class BillingPage extends JPanel {
 
     // --- State & DAO ---
     private final int clinicId;
-    private final BillingDAO billingDAO;
+    private final AsyncDao<BillingDAO> billingDAO;
+
+    // The latest load of the list; a newer one (e.g. another filter) cancels it
+    private CompletableFuture<?> listLoad = CompletableFuture.completedFuture(null);
 
     public BillingPage(int clinicId) {
         this.clinicId = clinicId;
-        this.billingDAO = new BillingDAO();
+        this.billingDAO = AsyncDao.of(new BillingDAO());
 
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
@@ -86,8 +93,19 @@ public class BillingPage extends JPanel {
     public void refreshBillList() {
         Enums.BillingStatus selectedStatus = (Enums.BillingStatus) cbStatusFilter.getSelectedItem();
 
+        // The "Mark as Paid" button should only be enabled when viewing Unpaid bills
+        btnMarkAsPaid.setVisible(selectedStatus == Enums.BillingStatus.Unpaid);
+
+        CompletableFuture<List<Bill>> load = billingDAO.call(dao -> dao.getBillsByStatus(clinicId,
+                selectedStatus.name()));
+        listLoad.cancel(false);
+        listLoad = load;
+        SwingFutures.onEdt(load, SwingFutures.busyCursor(this), this::showBills,
+                e -> showError("Could not load the bills.", e));
+    }
+
+    private void showBills(List<Bill> bills) {
         model.setRowCount(0); // Clear table
-        List<Bill> bills = billingDAO.getBillsByStatus(clinicId, selectedStatus.name());
         for (Bill bill : bills) {
             model.addRow(new Object[] {
                     bill.getBillId(),
@@ -98,9 +116,6 @@ public class BillingPage extends JPanel {
                     bill.getStatus() // Add the status to the row
             });
         }
-
-        // The "Mark as Paid" button should only be enabled when viewing Unpaid bills
-        btnMarkAsPaid.setVisible(selectedStatus == Enums.BillingStatus.Unpaid);
     }
 
     private void markAsPaid() {
@@ -119,17 +134,26 @@ public class BillingPage extends JPanel {
                 "Confirm Payment", JOptionPane.YES_NO_OPTION);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            if (billingDAO.updateBillStatus(billId, Enums.BillingStatus.Paid)) {
-                JOptionPane.showMessageDialog(this, "Payment recorded successfully!", "Success",
-                        JOptionPane.INFORMATION_MESSAGE);
-                refreshBillList(); // Refresh the list
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to update payment status.", "Database Error",
-                        JOptionPane.ERROR_MESSAGE);
-            }
+            SwingFutures.onEdt(billingDAO.call(dao -> dao.updateBillStatus(billId, Enums.BillingStatus.Paid)),
+                    SwingFutures.busyCursor(this, btnMarkAsPaid), paid -> {
+                        if (paid) {
+                            JOptionPane.showMessageDialog(this, "Payment recorded successfully!", "Success",
+                                    JOptionPane.INFORMATION_MESSAGE);
+                            refreshBillList(); // Refresh the list
+                        } else {
+                            JOptionPane.showMessageDialog(this, "Failed to update payment status.",
+                                    "Database Error", JOptionPane.ERROR_MESSAGE);
+                        }
+                    }, e -> showError("Failed to update payment status.", e));
         }
     }
 
+    private void showError(String message, Throwable e) {
+        LoggerUtil.logError(message, e);
+        JOptionPane.showMessageDialog(this, message + " Please try again.", "Database Error",
+                JOptionPane.ERROR_MESSAGE);
+    }
+
     private void viewReceipt() {
         int selectedRow = billsTable.getSelectedRow();
         if (selectedRow == -1) {
@@ -1,8 +1,12 @@
 package cms.view.clinic.receptionist;
 
+import cms.controller.SessionWarmup;
 import cms.model.dao.ReportDAO;
+import cms.model.entities.DashboardSnapshot;
+import cms.model.entities.Enums;
 import cms.model.entities.User;
 import cms.utils.FontUtils;
+import cms.view.components.DashboardRefresher;
 import cms.view.components.UIStyler.StatCardPanel;
 
 import javax.swing.*;
@@ -14,6 +18,7 @@ public class HomePage extends JPanel {
     private final User loggedInUser;
     private final int clinicId;
     private final ReportDAO reportDAO;
+    private final SessionWarmup warmup;
 
     // Stat cards
     private StatCardPanel todaysAppointmentsCard;
@@ -21,8 +26,11 @@ public class HomePage extends JPanel {
     private StatCardPanel pendingPatientsCard;
     private StatCardPanel unpaidBillsCard;
 
-    public HomePage(User user) {
+    private final DashboardRefresher refresher;
+
+    public HomePage(User user, SessionWarmup warmup) {
         this.loggedInUser = user;
+        this.warmup = warmup;
         this.clinicId = user.getClinicId();
         this.reportDAO = new ReportDAO();
 
@@ -68,19 +76,23 @@ public class HomePage extends JPanel {
         // Add the wrapper to the center, which will handle the vertical alignment
         add(verticalCenterWrapper, BorderLayout.CENTER);
 
+        // All four counts come from one query, off the EDT; the first from the login warmup
+        refresher = new DashboardRefresher(this,
+                () -> warmup.take(SessionWarmup.DASHBOARD_SNAPSHOT,
+                        () -> reportDAO.getDashboardSnapshot(Enums.Role.RECEPTIONIST, clinicId, 0)),
+                this::showSnapshot);
         refreshData();
     }
 
     public void refreshData() {
-        SwingUtilities.invokeLater(() -> {
-            todaysAppointmentsCard.setValue(String.valueOf(reportDAO.getTodaysAppointmentCountForClinic(clinicId)));
-
-            newPatientsTodayCard.setValue(String.valueOf(reportDAO.getNewPatientCountForToday(clinicId)));
-
-            pendingPatientsCard.setValue(String.valueOf(reportDAO.getPendingPatientCountForToday(clinicId)));
+        refresher.refresh();
+    }
 
-            unpaidBillsCard.setValue(String.valueOf(reportDAO.getUnpaidBillCount(clinicId)));
-        });
+    private void showSnapshot(DashboardSnapshot snapshot) {
+        todaysAppointmentsCard.setValue(String.valueOf(snapshot.getTodaysAppointments()));
+        newPatientsTodayCard.setValue(String.valueOf(snapshot.getNewPatientsToday()));
+        pendingPatientsCard.setValue(String.valueOf(snapshot.getPendingPatientsToday()));
+        unpaidBillsCard.setValue(String.valueOf(snapshot.getUnpaidBills()));
     }
 
 }
\ No newline at end of file
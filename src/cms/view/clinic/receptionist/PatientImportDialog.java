@@ -0,0 +1,146 @@
+package cms.view.clinic.receptionist;
+
+import cms.controller.PatientImport;
+import cms.utils.FontUtils;
+import cms.utils.LoggerUtil;
+import cms.utils.SwingFutures;
+import cms.utils.TitleBarManager;
+import cms.view.components.UIStyler;
+
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.swing.*;
+
+/**
+ * Runs a {@link PatientImport} and shows its progress. Cancelling, or
+ * closing the dialog, stops the import after the chunk being written; the
+ * same file can be imported again later to carry on.
+ */
+public class PatientImportDialog extends JDialog {
+
+    private final PatientImport job;
+    private final JProgressBar progressBar = new JProgressBar(0, 100);
+    private final JLabel lblStatus = new JLabel("Reading the file...");
+    private final JButton btnCancel = new JButton("Cancel");
+    private boolean running;
+    private boolean imported; // True once any patient went in, so the list needs reloading
+
+    public PatientImportDialog(Frame parent, int clinicId, Path file) {
+        super(parent, "Import Patients", true);
+        this.job = new PatientImport(clinicId, file);
+        initComponents(file);
+    }
+
+    private void initComponents(Path file) {
+        setUndecorated(true);
+        setSize(520, 220);
+        setLocationRelativeTo(getOwner());
+        setLayout(new BorderLayout());
+
+        add(TitleBarManager.createTitleBar(this, "Import Patients"), BorderLayout.NORTH);
+
+        JPanel body = new JPanel(new GridLayout(3, 1, 0, 10));
+        body.setBorder(BorderFactory.createEmptyBorder(20, 20, 10, 20));
+        JLabel lblFile = new JLabel("File: " + file.getFileName());
+        lblFile.setFont(FontUtils.getUiFont(Font.BOLD, 14));
+        progressBar.setStringPainted(true);
+        body.add(lblFile);
+        body.add(progressBar);
+        body.add(lblStatus);
+        add(body, BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        UIStyler.styleButton(btnCancel, new Color(108, 117, 125)); // Gray
+        btnCancel.addActionListener(_ -> {
+            if (running) {
+                job.cancel();
+                btnCancel.setEnabled(false);
+                lblStatus.setText("Stopping after the current chunk...");
+            } else {
+                dispose();
+            }
+        });
+        buttonPanel.add(btnCancel);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                start();
+            }
+
+            @Override
+            public void windowClosed(WindowEvent e) {
+                job.cancel(); // Closed from the title bar while running
+            }
+        });
+    }
+
+    /**
+     * @return true if any patient was imported, so the caller should reload
+     *         its list.
+     */
+    public boolean hasImported() {
+        return imported;
+    }
+
+    private void start() {
+        running = true;
+        CompletableFuture<PatientImport.Progress> run = CompletableFuture.supplyAsync(() -> {
+            try {
+                return job.run(progress -> SwingUtilities.invokeLater(() -> showProgress(progress)));
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, r -> {
+            Thread t = new Thread(r, "cms-patient-import");
+            t.setDaemon(true);
+            t.start();
+        });
+        SwingFutures.onEdt(run, SwingFutures.NOT_SHOWN, this::showResult, this::showError);
+    }
+
+    private void showProgress(PatientImport.Progress progress) {
+        progressBar.setValue(progress.getPercent());
+        lblStatus.setText(String.format("%,d rows done: %,d imported, %,d rejected", progress.getRowsDone(),
+                progress.getImported(), progress.getRejected()));
+        imported |= progress.getImported() > 0;
+    }
+
+    private void showResult(PatientImport.Progress progress) {
+        running = false;
+        showProgress(progress);
+        btnCancel.setText("Close");
+        btnCancel.setEnabled(true);
+        if (!progress.isFinished()) {
+            lblStatus.setText(lblStatus.getText() + ". Stopped; import the file again to continue.");
+            return;
+        }
+        if (progress.getRejected() > 0) {
+            JOptionPane.showMessageDialog(this, String.format(
+                    "%,d patients imported. %,d rows were rejected; they are listed with the reason in%n%s",
+                    progress.getImported(), progress.getRejected(), job.getRejectFile()),
+                    "Import Finished", JOptionPane.WARNING_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this,
+                    String.format("%,d patients imported.", progress.getImported()),
+                    "Import Finished", JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
+
+    private void showError(Throwable e) {
+        running = false;
+        LoggerUtil.logError("Patient import failed.", e);
+        btnCancel.setText("Close");
+        btnCancel.setEnabled(true);
+        lblStatus.setText("Import failed; the rows imported so far are kept.");
+        JOptionPane.showMessageDialog(this, "The import failed: " + e.getMessage()
+                + "\nImport the file again to continue from where it stopped.", "Import Error",
+                JOptionPane.ERROR_MESSAGE);
+    }
+}
@@ -1,8 +1,13 @@
 package cms.view.clinic.receptionist;
 
+import cms.model.dao.CancellationToken;
+import cms.model.dao.Page;
+import cms.model.dao.PageRequest;
 import cms.model.dao.PatientDAO;
+import cms.model.dao.PatientSearchDAO;
 import cms.model.entities.Patient;
 import cms.utils.FontUtils;
+import cms.utils.LoggerUtil;
 import cms.view.components.UIStyler;
 
 import com.toedter.calendar.JDateChooser;
@@ -10,11 +15,13 @@ import com.toedter.calendar.JDateChooser;
 import java.awt.*;
 import java.sql.Date;
 import java.time.ZoneId;
-import java.util.List;
 import java.util.Map;
 
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
 
 public class PatientPage extends JPanel {
@@ -24,7 +31,7 @@ public class PatientPage extends JPanel {
     private JComboBox<String> cbGender, cbBloodGroup;
     private JDateChooser dcDob; // Using a proper date chooser
     private JTextArea taAllergies, taAddress;
-    private JButton btnAdd, btnUpdate, btnClear, btnSearch, btnBookAppointment, btnShowAll;
+    private JButton btnAdd, btnUpdate, btnClear, btnSearch, btnBookAppointment, btnShowAll, btnImport;
     private JTable table;
     private DefaultTableModel model;
 
@@ -32,17 +39,27 @@ public class PatientPage extends JPanel {
     private int currentPage = 1;
     private final int pageSize = 10;
     private int totalPages;
+    private Page<Patient> patientPage = Page.empty();
+    private String activeSearchTerm; // Non-null while the table shows search results
     private JButton btnPrev, btnNext;
     private JLabel lblPage;
 
+    // --- Search-as-you-type ---
+    private static final int SEARCH_DEBOUNCE_MS = 300; // Search once typing pauses this long
+    private Timer searchDebounce;
+    private CancellationToken searchToken; // Cancels the search in flight, if any
+    private int searchGeneration; // Bumped per search; results of older ones are dropped
+
     // --- State & DAO ---
     private final int clinicId;
     private final PatientDAO patientDAO;
+    private final PatientSearchDAO patientSearchDAO;
     private Integer selectedPatientId = null;
 
     public PatientPage(int clinicId) {
         this.clinicId = clinicId;
         this.patientDAO = new PatientDAO();
+        this.patientSearchDAO = new PatientSearchDAO();
 
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
@@ -219,16 +236,19 @@ public class PatientPage extends JPanel {
         btnUpdate = new JButton("Update Selected Patient");
         btnClear = new JButton("Clear Form");
         btnBookAppointment = new JButton("Book Appointment for Selected");
+        btnImport = new JButton("Import CSV...");
 
         UIStyler.styleButton(btnAdd, new Color(40, 167, 69)); // Green
         UIStyler.styleButton(btnUpdate, new Color(23, 162, 184)); // Blue
         UIStyler.styleButton(btnClear, new Color(108, 117, 125)); // Gray
         UIStyler.styleButton(btnBookAppointment, new Color(0, 102, 102));
+        UIStyler.styleButton(btnImport, new Color(108, 117, 125)); // Gray
 
         buttonPanel.add(btnAdd);
         buttonPanel.add(btnUpdate);
         buttonPanel.add(btnClear);
         buttonPanel.add(btnBookAppointment);
+        buttonPanel.add(btnImport);
         return buttonPanel;
     }
 
@@ -237,19 +257,38 @@ public class PatientPage extends JPanel {
         btnUpdate.addActionListener(_ -> updatePatient());
         btnClear.addActionListener(_ -> clearForm());
         btnSearch.addActionListener(_ -> searchPatients());
+
+        searchDebounce = new Timer(SEARCH_DEBOUNCE_MS, _ -> searchPatients());
+        searchDebounce.setRepeats(false);
+        tfSearch.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchDebounce.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchDebounce.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
         btnBookAppointment.addActionListener(_ -> bookAppointmentForSelectedPatient());
+        btnImport.addActionListener(_ -> importPatients());
         btnShowAll.addActionListener(_ -> refreshPatientsList());
 
         btnPrev.addActionListener(_ -> {
-            if (currentPage > 1) {
+            if (patientPage.hasPrevious()) {
                 currentPage--;
-                loadPatientsPage(currentPage);
+                loadCurrentView(patientPage.getPreviousCursor());
             }
         });
         btnNext.addActionListener(_ -> {
-            if (currentPage < totalPages) {
+            if (patientPage.hasNext()) {
                 currentPage++;
-                loadPatientsPage(currentPage);
+                loadCurrentView(patientPage.getNextCursor());
             }
         });
 
@@ -260,45 +299,133 @@ public class PatientPage extends JPanel {
         });
     }
 
+    /**
+     * Imports patients from a CSV file chosen by the user, e.g. when a clinic
+     * moves over from another system.
+     */
+    private void importPatients() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import Patients from CSV");
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV files (*.csv)", "csv"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        PatientImportDialog dialog = new PatientImportDialog((Frame) SwingUtilities.getWindowAncestor(this),
+                clinicId, chooser.getSelectedFile().toPath());
+        dialog.setVisible(true);
+        if (dialog.hasImported()) {
+            refreshPatientsList();
+        }
+    }
+
     public void refreshPatientsList() {
         currentPage = 1;
         tfSearch.setText("");
-        loadPatientsPage(currentPage);
+        activeSearchTerm = null;
+        loadPatientsPage(null);
         clearForm();
     }
 
-    private void loadPatientsPage(int page) {
-        int totalRecords = patientDAO.getTotalPatientsByClinic(clinicId);
-        totalPages = (totalRecords == 0) ? 1 : (int) Math.ceil((double) totalRecords / pageSize);
+    // Pages through either the full list or the active search's results
+    private void loadCurrentView(String cursor) {
+        if (activeSearchTerm != null) {
+            loadSearchPage(cursor);
+        } else {
+            loadPatientsPage(cursor);
+        }
+    }
 
+    private void loadPatientsPage(String cursor) {
+        cancelSearch();
         model.setRowCount(0);
-        List<Patient> patientList = patientDAO.getPaginatedPatientsByClinic(clinicId, page, pageSize);
-        for (Patient p : patientList) {
+        // Rows and total come back from a single query (or a cached count)
+        patientPage = patientDAO.getPaginatedPatientsByClinic(clinicId, PageRequest.at(cursor, pageSize));
+        totalPages = patientPage.getTotalPages(pageSize);
+        for (Patient p : patientPage.getItems()) {
             model.addRow(new Object[] { p.getPatientId(), p.getName(), p.getGender(), p.getDob(), p.getPhone() });
         }
 
         lblPage.setText("Page " + currentPage + " of " + totalPages);
-        btnPrev.setEnabled(currentPage > 1);
-        btnNext.setEnabled(currentPage < totalPages);
+        btnPrev.setEnabled(patientPage.hasPrevious());
+        btnNext.setEnabled(patientPage.hasNext());
     }
 
     private void searchPatients() {
+        searchDebounce.stop();
         String searchTerm = tfSearch.getText().trim();
         if (searchTerm.isEmpty()) {
-            refreshPatientsList();
+            // Cleared while typing: back to the full list, keeping the form as is
+            if (activeSearchTerm != null) {
+                activeSearchTerm = null;
+                currentPage = 1;
+                loadPatientsPage(null);
+            }
             return;
         }
-        // For search, we might not use pagination, or we'd need a more complex DAO
-        // For now, let's just show all search results on one page
-        List<Patient> searchResults = patientDAO.searchPatients(clinicId, searchTerm);
+        activeSearchTerm = searchTerm;
+        currentPage = 1;
+        loadSearchPage(null);
+    }
+
+    /**
+     * Runs the active search off the EDT. A newer search (or switching back to
+     * the full list) cancels this one's query and discards its result, so a
+     * slow, stale search can never overwrite a newer one.
+     */
+    private void loadSearchPage(String cursor) {
+        cancelSearch();
+        CancellationToken token = new CancellationToken();
+        int generation = searchGeneration;
+        searchToken = token;
+        String term = activeSearchTerm;
+        lblPage.setText("Searching...");
+        btnPrev.setEnabled(false);
+        btnNext.setEnabled(false);
+
+        SwingWorker<Page<Patient>, Void> worker = new SwingWorker<>() {
+            @Override
+            protected Page<Patient> doInBackground() {
+                // Best matches first: exact phone, phone suffix, name prefix, then name substring
+                return patientSearchDAO.searchPatients(clinicId, term, PageRequest.at(cursor, pageSize), token);
+            }
+
+            @Override
+            protected void done() {
+                if (generation != searchGeneration) {
+                    return; // Superseded while running
+                }
+                searchToken = null;
+                try {
+                    showSearchPage(get());
+                } catch (Exception e) {
+                    LoggerUtil.logError("Patient search failed for term: " + term, e);
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void showSearchPage(Page<Patient> page) {
+        patientPage = page;
         model.setRowCount(0);
-        for (Patient p : searchResults) {
+        totalPages = patientPage.getTotalPages(pageSize);
+        for (Patient p : patientPage.getItems()) {
             model.addRow(new Object[] { p.getPatientId(), p.getName(), p.getGender(), p.getDob(), p.getPhone() });
         }
-        // Disable pagination controls during search
-        lblPage.setText("Search Results");
-        btnPrev.setEnabled(false);
-        btnNext.setEnabled(false);
+
+        lblPage.setText("Search Results: Page " + currentPage + " of " + totalPages
+                + " (" + patientPage.getTotal() + " matches)");
+        btnPrev.setEnabled(patientPage.hasPrevious());
+        btnNext.setEnabled(patientPage.hasNext());
+    }
+
+    // Drops the running search, if any; its worker will ignore its own result
+    private void cancelSearch() {
+        searchGeneration++;
+        if (searchToken != null) {
+            searchToken.cancel();
+            searchToken = null;
+        }
     }
 
     private void populateFormFromSelectedRow() {
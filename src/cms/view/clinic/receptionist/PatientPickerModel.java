@@ -0,0 +1,218 @@
+package cms.view.clinic.receptionist;
+
+import cms.model.dao.Page;
+import cms.model.dao.PatientSearchDAO;
+import cms.model.entities.PatientSummary;
+import cms.utils.LoggerUtil;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.swing.AbstractListModel;
+import javax.swing.ComboBoxModel;
+import javax.swing.SwingWorker;
+
+/**
+ * A combo box model over a clinic's patients that loads them lazily, a small
+ * page at a time, as the drop-down scrolls to them.
+ * <p>
+ * Only the match count and the pages that were looked at recently are kept,
+ * so memory and load time stay the same however many patients a clinic has.
+ * Rows that aren't loaded yet read as null (shown as "Loading...") and fill in
+ * when their page arrives. All methods must be called on the EDT.
+ * <p>
+ * The owning combo box must not scan the model: it needs a prototype display
+ * value, a fixed cell height on its popup list, and {@link #getSelectedIndex()}
+ * in place of {@code JComboBox.getSelectedIndex()}.
+ */
+final class PatientPickerModel extends AbstractListModel<PatientSummary> implements ComboBoxModel<PatientSummary> {
+
+    private static final int PAGE_SIZE = 50;
+    private static final int MAX_CACHED_PAGES = 8;
+    private static final long RETRY_DELAY_MILLIS = 5_000;
+
+    private final int clinicId;
+    private final PatientSearchDAO patientSearchDAO = new PatientSearchDAO();
+
+    private String filter;
+    private int size;
+    private int generation; // Bumped per filter; pages loaded for older filters are dropped
+    private Object selected; // A PatientSummary, or the typed text while nothing is picked
+    private Runnable onFiltered;
+
+    // Least recently used page first
+    private final Map<Integer, List<PatientSummary>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<PatientSummary>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> loading = new HashSet<>(); // Pages being fetched for the current filter
+    private final Map<Integer, Long> retryAt = new HashMap<>(); // Failed pages: when to fetch them again
+
+    PatientPickerModel(int clinicId) {
+        this.clinicId = clinicId;
+    }
+
+    /**
+     * @param onFiltered Run after the first page of a new filter has arrived.
+     */
+    void setOnFiltered(Runnable onFiltered) {
+        this.onFiltered = onFiltered;
+    }
+
+    /**
+     * @return The text the current choices were filtered by, or null before the
+     *         first filter or after it failed to load.
+     */
+    String getFilter() {
+        return filter;
+    }
+
+    /**
+     * Shows the patients matching {@code text} instead, once their count and
+     * first page have loaded. The typed text becomes the selected item, so
+     * nothing counts as picked until the user chooses a match.
+     */
+    void setFilter(String text) {
+        filter = text;
+        selected = text;
+        int requested = ++generation;
+        loading.clear();
+        retryAt.clear();
+
+        new SwingWorker<Page<PatientSummary>, Void>() {
+            @Override
+            protected Page<PatientSummary> doInBackground() throws SQLException {
+                return patientSearchDAO.getPatientSummaries(clinicId, text, 0, PAGE_SIZE, true);
+            }
+
+            @Override
+            protected void done() {
+                if (requested != generation) {
+                    return; // The user typed on
+                }
+                try {
+                    Page<PatientSummary> first = get();
+                    int oldSize = size;
+                    pages.clear();
+                    pages.put(0, first.getItems());
+                    size = first.getTotal();
+                    if (oldSize > 0) {
+                        fireIntervalRemoved(PatientPickerModel.this, 0, oldSize - 1);
+                    }
+                    if (size > 0) {
+                        fireIntervalAdded(PatientPickerModel.this, 0, size - 1);
+                    }
+                    if (onFiltered != null) {
+                        onFiltered.run();
+                    }
+                } catch (Exception e) {
+                    LoggerUtil.logError("Failed to load patient choices for clinic ID: " + clinicId, e);
+                    // Don't leave the old filter's matches up under the new text, and
+                    // let the same text be filtered by again
+                    filter = null;
+                    int oldSize = size;
+                    pages.clear();
+                    size = 0;
+                    if (oldSize > 0) {
+                        fireIntervalRemoved(PatientPickerModel.this, 0, oldSize - 1);
+                    }
+                }
+            }
+        }.execute();
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public PatientSummary getElementAt(int index) {
+        int page = index / PAGE_SIZE;
+        List<PatientSummary> rows = pages.get(page);
+        if (rows == null || System.currentTimeMillis() >= retryAt.getOrDefault(page, Long.MAX_VALUE)) {
+            loadPage(page);
+        }
+        if (rows == null) {
+            return null;
+        }
+        int offset = index % PAGE_SIZE;
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    private void loadPage(int page) {
+        if (!loading.add(page)) {
+            return;
+        }
+        int requested = generation;
+        String text = filter;
+
+        new SwingWorker<Page<PatientSummary>, Void>() {
+            @Override
+            protected Page<PatientSummary> doInBackground() throws SQLException {
+                return patientSearchDAO.getPatientSummaries(clinicId, text, page * PAGE_SIZE, PAGE_SIZE, false);
+            }
+
+            @Override
+            protected void done() {
+                if (requested != generation) {
+                    return;
+                }
+                loading.remove(page);
+                try {
+                    pages.put(page, get().getItems());
+                    retryAt.remove(page);
+                    int first = page * PAGE_SIZE;
+                    if (first < size) {
+                        fireContentsChanged(PatientPickerModel.this, first, Math.min(size, first + PAGE_SIZE) - 1);
+                    }
+                } catch (Exception e) {
+                    LoggerUtil.logError("Failed to load patient choices for clinic ID: " + clinicId, e);
+                    // Keep showing the page as loading rather than fetching it again on every repaint
+                    pages.putIfAbsent(page, List.of());
+                    retryAt.put(page, System.currentTimeMillis() + RETRY_DELAY_MILLIS);
+                }
+            }
+        }.execute();
+    }
+
+    @Override
+    public void setSelectedItem(Object item) {
+        if (item == selected || (item != null && item.equals(selected))) {
+            return;
+        }
+        selected = item;
+        fireContentsChanged(this, -1, -1);
+    }
+
+    @Override
+    public Object getSelectedItem() {
+        return selected;
+    }
+
+    /**
+     * @return The index of the selected patient among the loaded rows, or -1;
+     *         never loads anything.
+     */
+    int getSelectedIndex() {
+        if (!(selected instanceof PatientSummary picked)) {
+            return -1;
+        }
+        for (Map.Entry<Integer, List<PatientSummary>> page : pages.entrySet()) {
+            List<PatientSummary> rows = page.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.get(i).getPatientId() == picked.getPatientId()) {
+                    return page.getKey() * PAGE_SIZE + i;
+                }
+            }
+        }
+        return -1;
+    }
+}
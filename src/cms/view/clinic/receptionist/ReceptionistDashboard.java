@@ -1,5 +1,6 @@
 package cms.view.clinic.receptionist;
 
+import cms.controller.SessionWarmup;
 import cms.model.entities.User;
 import cms.view.components.DashboardTemplate;
 import cms.view.components.SidebarButton;
@@ -19,9 +20,15 @@ public class ReceptionistDashboard extends DashboardTemplate {
 
     // --- State ---
     private final User loggedInReceptionist;
+    private final SessionWarmup warmup;
 
     public ReceptionistDashboard(User receptionist) {
+        this(receptionist, SessionWarmup.none());
+    }
+
+    public ReceptionistDashboard(User receptionist, SessionWarmup warmup) {
         this.loggedInReceptionist = receptionist;
+        this.warmup = warmup;
         buildDashboard(getClinicName(receptionist) + " - Receptionist Dashboard");
 
         // The parent constructor calls the abstract methods to build the dashboard
@@ -43,9 +50,9 @@ public class ReceptionistDashboard extends DashboardTemplate {
     @Override
     protected void addContentPanels() {
         // Create the panels for this dashboard
-        homePanel = new HomePage(loggedInReceptionist);
+        homePanel = new HomePage(loggedInReceptionist, warmup);
         patientPanel = new PatientPage(loggedInReceptionist.getClinicId());
-        appointmentPanel = new AppointmentPage(loggedInReceptionist.getClinicId());
+        appointmentPanel = new AppointmentPage(loggedInReceptionist.getClinicId(), warmup);
         billingPanel = new BillingPage(loggedInReceptionist.getClinicId());
         
         
@@ -86,6 +93,7 @@ public class ReceptionistDashboard extends DashboardTemplate {
             int choice = JOptionPane.showConfirmDialog(this, "Are you sure you want to log out?", "Confirm Logout",
                     JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
             if (choice == JOptionPane.YES_OPTION) {
+                SessionWarmup.endSession();
                 new ClinicLoginView().setVisible(true);
                 dispose();
             }
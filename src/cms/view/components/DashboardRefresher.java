@@ -0,0 +1,78 @@
+package cms.view.components;
+
+import cms.model.entities.DashboardSnapshot;
+import cms.utils.LoggerUtil;
+import java.awt.event.HierarchyEvent;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.swing.JComponent;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+
+/**
+ * Loads a home page's {@link DashboardSnapshot} off the EDT and shows it, now
+ * and then again every {@code -Dcms.dashboard.refreshSeconds} (default 60;
+ * 0 turns auto-refresh off) while the page is on screen.
+ * <p>
+ * A refresh requested while one is still loading is dropped. Call from the
+ * EDT.
+ */
+public final class DashboardRefresher {
+
+    private static final int REFRESH_SECONDS = Integer.getInteger("cms.dashboard.refreshSeconds", 60);
+
+    private final Supplier<DashboardSnapshot> loader;
+    private final Consumer<DashboardSnapshot> view;
+    private boolean loading;
+
+    /**
+     * @param page   The home page; auto-refresh runs only while it is showing.
+     * @param loader Reads the snapshot; called on a background thread.
+     * @param view   Shows the snapshot; called on the EDT.
+     */
+    public DashboardRefresher(JComponent page, Supplier<DashboardSnapshot> loader, Consumer<DashboardSnapshot> view) {
+        this.loader = loader;
+        this.view = view;
+
+        if (REFRESH_SECONDS > 0) {
+            Timer timer = new Timer(REFRESH_SECONDS * 1000, _ -> refresh());
+            page.addHierarchyListener(e -> {
+                if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) == 0) {
+                    return;
+                }
+                if (page.isShowing()) {
+                    timer.restart();
+                } else {
+                    timer.stop();
+                }
+            });
+        }
+    }
+
+    /**
+     * Loads and shows a fresh snapshot in the background.
+     */
+    public void refresh() {
+        if (loading) {
+            return;
+        }
+        loading = true;
+
+        new SwingWorker<DashboardSnapshot, Void>() {
+            @Override
+            protected DashboardSnapshot doInBackground() {
+                return loader.get();
+            }
+
+            @Override
+            protected void done() {
+                loading = false;
+                try {
+                    view.accept(get());
+                } catch (Exception e) {
+                    LoggerUtil.logError("Failed to refresh the dashboard.", e);
+                }
+            }
+        }.execute();
+    }
+}
@@ -0,0 +1,168 @@
+package cms.view.components;
+
+import cms.controller.ClinicExport;
+import cms.utils.FontUtils;
+import cms.utils.LoggerUtil;
+import cms.utils.SwingFutures;
+import cms.utils.TitleBarManager;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.FlowLayout;
+import java.awt.Font;
+import java.awt.GridLayout;
+import java.awt.Window;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingUtilities;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+/**
+ * Asks where to save a {@link ClinicExport}, runs it and shows its progress.
+ * Cancelling, or closing the dialog, stops the export and deletes the
+ * partial archive.
+ */
+public class ExportDialog extends JDialog {
+
+    private final ClinicExport job;
+    private final JProgressBar progressBar = new JProgressBar();
+    private final JLabel lblStatus = new JLabel("Starting...");
+    private final JButton btnCancel = new JButton("Cancel");
+    private boolean running;
+
+    private ExportDialog(Window owner, String title, ClinicExport job) {
+        super(owner, title, ModalityType.APPLICATION_MODAL);
+        this.job = job;
+        initComponents(title);
+    }
+
+    /**
+     * Lets the user pick the archive and its format, then exports.
+     *
+     * @param clinicId The clinic, or {@code ReportCache.ALL_CLINICS}.
+     * @param name     Used in the title and the suggested file name.
+     */
+    public static void export(Component parent, int clinicId, String name) {
+        FileNameExtensionFilter ndjson = new FileNameExtensionFilter("ZIP of NDJSON files (*.zip)", "zip");
+        FileNameExtensionFilter csv = new FileNameExtensionFilter("ZIP of CSV files (*.zip)", "zip");
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export " + name);
+        chooser.setAcceptAllFileFilterUsed(false);
+        chooser.addChoosableFileFilter(ndjson);
+        chooser.addChoosableFileFilter(csv);
+        chooser.setFileFilter(ndjson);
+        chooser.setSelectedFile(new File(name.replaceAll("[^A-Za-z0-9]+", "-").toLowerCase() + "-export-"
+                + LocalDate.now() + ".zip"));
+        if (chooser.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path target = chooser.getSelectedFile().toPath();
+        if (!target.getFileName().toString().toLowerCase().endsWith(".zip")) {
+            target = target.resolveSibling(target.getFileName() + ".zip");
+        }
+        if (target.toFile().exists() && JOptionPane.showConfirmDialog(parent, target.getFileName()
+                + " already exists. Replace it?", "Export", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+            return;
+        }
+        ClinicExport.Format format = chooser.getFileFilter() == csv ? ClinicExport.Format.CSV
+                : ClinicExport.Format.NDJSON;
+        new ExportDialog(SwingUtilities.getWindowAncestor(parent), "Export " + name,
+                new ClinicExport(clinicId, target, format)).setVisible(true);
+    }
+
+    private void initComponents(String title) {
+        setUndecorated(true);
+        setSize(480, 200);
+        setLocationRelativeTo(getOwner());
+        setLayout(new BorderLayout());
+
+        add(TitleBarManager.createTitleBar(this, title), BorderLayout.NORTH);
+
+        JPanel body = new JPanel(new GridLayout(2, 1, 0, 10));
+        body.setBorder(BorderFactory.createEmptyBorder(20, 20, 10, 20));
+        progressBar.setIndeterminate(true); // Row counts aren't known up front
+        lblStatus.setFont(FontUtils.getUiFont(Font.PLAIN, 14));
+        body.add(progressBar);
+        body.add(lblStatus);
+        add(body, BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        UIStyler.styleButton(btnCancel, new Color(108, 117, 125)); // Gray
+        btnCancel.addActionListener(_ -> {
+            if (running) {
+                job.cancel();
+                btnCancel.setEnabled(false);
+                lblStatus.setText("Cancelling...");
+            } else {
+                dispose();
+            }
+        });
+        buttonPanel.add(btnCancel);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                start();
+            }
+
+            @Override
+            public void windowClosed(WindowEvent e) {
+                job.cancel(); // Closed from the title bar while running
+            }
+        });
+    }
+
+    private void start() {
+        running = true;
+        CompletableFuture<Map<String, Long>> run = CompletableFuture.supplyAsync(() -> {
+            try {
+                return job.run(progress -> SwingUtilities.invokeLater(() -> lblStatus.setText(String.format(
+                        "Exporting %s: %,d rows (%,d in total)", progress.getTable(), progress.getTableRows(),
+                        progress.getTotalRows()))));
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, r -> {
+            Thread t = new Thread(r, "cms-export");
+            t.setDaemon(true);
+            t.start();
+        });
+        SwingFutures.onEdt(run, SwingFutures.NOT_SHOWN, this::showResult, this::showError);
+    }
+
+    private void showResult(Map<String, Long> counts) {
+        running = false;
+        if (counts == null) {
+            dispose(); // Cancelled
+            return;
+        }
+        StringBuilder summary = new StringBuilder("Export finished:");
+        counts.forEach((table, rows) -> summary.append(String.format("%n  %s: %,d", table, rows)));
+        dispose();
+        JOptionPane.showMessageDialog(getOwner(), summary.toString(), "Export Finished",
+                JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private void showError(Throwable e) {
+        running = false;
+        LoggerUtil.logError("Export failed.", e);
+        dispose();
+        JOptionPane.showMessageDialog(getOwner(), "The export failed: " + e.getMessage(), "Export Error",
+                JOptionPane.ERROR_MESSAGE);
+    }
+}
@@ -0,0 +1,197 @@
+package cms.view.components;
+
+import cms.model.cache.ReportCache;
+import cms.utils.FontUtils;
+import cms.utils.LoggerUtil;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Font;
+import java.awt.event.HierarchyEvent;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * Holds one report chart with a line under it saying how old its data is
+ * ("Updated 3 min ago"). The age is re-read every 30 seconds while the card
+ * is on screen.
+ * <p>
+ * {@link #load} fetches the chart's data and builds the chart on a shared
+ * pool of {@code -Dcms.reports.threads} (default 4) threads, so the charts of
+ * a report page load side by side and each appears as soon as it is ready.
+ * A chart that fails to load shows an error in its own cell; the others are
+ * unaffected. A chart whose reload failed stays, with the failure noted
+ * under it.
+ */
+public class ReportChartCard extends JPanel {
+
+    private static final int THREADS = Integer.getInteger("cms.reports.threads", 4);
+
+    private static final ThreadPoolExecutor EXECUTOR;
+
+    static {
+        AtomicInteger count = new AtomicInteger();
+        // Loads only come from cards on screen and clicks, so an unbounded queue stays short
+        EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "cms-report-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Fetches a chart's data.
+     */
+    public interface Fetch<T> {
+        /**
+         * @param onRefreshed Receives the data of a later background reload.
+         */
+        ReportCache.Snapshot<T> fetch(Consumer<ReportCache.Snapshot<T>> onRefreshed) throws Exception;
+    }
+
+    private final JLabel ageLabel = new JLabel(" ", SwingConstants.RIGHT);
+    private Component content;
+    private boolean hasChart;
+    private int generation; // Bumped by every load; results of earlier loads are dropped
+    private Instant loadedAt;
+    private boolean refreshFailed; // The chart shown is older than the latest load attempt
+
+    public ReportChartCard() {
+        super(new BorderLayout());
+        setBackground(Color.WHITE);
+
+        ageLabel.setFont(FontUtils.getUiFont(Font.ITALIC, 11));
+        ageLabel.setForeground(Color.GRAY);
+        ageLabel.setBorder(BorderFactory.createEmptyBorder(2, 0, 0, 4));
+        add(ageLabel, BorderLayout.SOUTH);
+
+        Timer timer = new Timer(30_000, _ -> updateAge());
+        addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) == 0) {
+                return;
+            }
+            if (isShowing()) {
+                updateAge();
+                timer.restart();
+            } else {
+                timer.stop();
+            }
+        });
+    }
+
+    /**
+     * Fetches a snapshot and draws it, both on the report pool. Until the
+     * first chart arrives the card says it is loading. A load replaces any
+     * that is still running: the earlier one's result is not shown. Call on
+     * the EDT.
+     *
+     * @param fetch Returns the chart's data, typically from {@link ReportCache};
+     *              it is given the callback for a later background reload
+     *              of the same data.
+     * @param chart Builds the chart from the data; runs off the EDT.
+     */
+    public <T> void load(Fetch<T> fetch, Function<T, ? extends Component> chart) {
+        int load = ++generation;
+        if (!hasChart) {
+            setContent(message("Loading...", Color.GRAY));
+        }
+
+        // A reload finishes on the cache's thread; build its chart there too
+        Consumer<ReportCache.Snapshot<T>> onRefreshed = fresh -> show(load, fresh, chart);
+        EXECUTOR.execute(() -> {
+            try {
+                show(load, fetch.fetch(onRefreshed), chart);
+            } catch (Exception e) {
+                LoggerUtil.logError("Failed to load a report chart.", e);
+                SwingUtilities.invokeLater(() -> {
+                    if (load == generation) {
+                        showError();
+                    }
+                });
+            }
+        });
+    }
+
+    // Builds the chart on the calling thread and shows it if no later load has started
+    private <T> void show(int load, ReportCache.Snapshot<T> snapshot, Function<T, ? extends Component> chart) {
+        Component built = chart.apply(snapshot.getValue());
+        SwingUtilities.invokeLater(() -> {
+            if (load == generation) {
+                setChart(built, snapshot.getLoadedAt());
+                if (snapshot.getError() != null) {
+                    showError();
+                }
+            }
+        });
+    }
+
+    /**
+     * Replaces the chart. Call on the EDT.
+     *
+     * @param loadedAt When the chart's data was loaded.
+     */
+    public void setChart(Component chart, Instant loadedAt) {
+        this.hasChart = true;
+        this.loadedAt = loadedAt;
+        this.refreshFailed = false;
+        setContent(chart);
+        updateAge();
+    }
+
+    private void showError() {
+        if (hasChart) {
+            // Keep the last good chart; just say it couldn't be updated
+            refreshFailed = true;
+            updateAge();
+            return;
+        }
+        setContent(message("Could not load this report.", Color.RED));
+    }
+
+    private void setContent(Component component) {
+        if (content != null) {
+            remove(content);
+        }
+        content = component;
+        add(component, BorderLayout.CENTER);
+        revalidate();
+        repaint();
+    }
+
+    private static JLabel message(String text, Color color) {
+        JLabel label = new JLabel(text, SwingConstants.CENTER);
+        label.setFont(FontUtils.getUiFont(Font.ITALIC, 14));
+        label.setForeground(color);
+        return label;
+    }
+
+    private void updateAge() {
+        if (loadedAt == null) {
+            return;
+        }
+        long minutes = Duration.between(loadedAt, Instant.now()).toMinutes();
+        String age;
+        if (minutes < 1) {
+            age = "Updated just now";
+        } else if (minutes < 60) {
+            age = "Updated " + minutes + " min ago";
+        } else {
+            age = "Updated " + (minutes / 60) + " h ago";
+        }
+        ageLabel.setText(refreshFailed ? "Refresh failed. " + age : age);
+    }
+}
@@ -2,8 +2,12 @@ package cms.view.login;
 
 import cms.controller.AuthController;
 import cms.controller.AuthResult;
+import cms.controller.SessionWarmup;
 import cms.model.entities.User;
+import cms.utils.CredentialExecutor;
 import cms.utils.FontUtils;
+import cms.utils.LoggerUtil;
+import cms.utils.SwingFutures;
 import cms.utils.TitleBarManager;
 import cms.view.components.PlaceholderTextField;
 import cms.view.clinic.admin.ClinicAdminDashboard;
@@ -133,15 +137,27 @@ public class ClinicLoginView extends JFrame {
             JOptionPane.showMessageDialog(this, "All fields are required.", "Input Error", JOptionPane.WARNING_MESSAGE);
             return;
         }
-        AuthResult result = controller.login(clinicCode, username, password);
+        // Logging in is mostly BCrypt work, so it runs off the EDT
+        SwingFutures.onEdt(CredentialExecutor.supply(() -> controller.login(clinicCode, username, password)),
+                SwingFutures.busyCursor(this, btnLogin),
+                this::onLoginResult,
+                e -> {
+                    LoggerUtil.logError("Login failed for user: " + username, e);
+                    JOptionPane.showMessageDialog(this, "Could not log in. Please try again.", "Login Failed",
+                            JOptionPane.ERROR_MESSAGE);
+                });
+    }
+
+    private void onLoginResult(AuthResult result) {
         if (result.isSuccess()) {
             User user = result.getUser();
-            System.out.println(user.getRole());
+            // Fetch what the dashboard shows first while its frame is built
+            SessionWarmup warmup = SessionWarmup.start(user);
             // Route to the correct dashboard based on the user's role
             switch (user.getRole().name()) {
-                case "ADMIN" -> new ClinicAdminDashboard(user).setVisible(true);
-                case "DOCTOR" -> new DoctorDashboard(user).setVisible(true);
-                case "RECEPTIONIST" -> new ReceptionistDashboard(user).setVisible(true);
+                case "ADMIN" -> new ClinicAdminDashboard(user, warmup).setVisible(true);
+                case "DOCTOR" -> new DoctorDashboard(user, warmup).setVisible(true);
+                case "RECEPTIONIST" -> new ReceptionistDashboard(user, warmup).setVisible(true);
                 default -> JOptionPane.showMessageDialog(this,
                         "Login successful, but no dashboard is available for your role.", "Info",
                         JOptionPane.INFORMATION_MESSAGE);
@@ -2,7 +2,10 @@ package cms.view.login;
 
 import cms.controller.SuperAdminAuthController;
 import cms.model.entities.SuperAdmin;
+import cms.utils.CredentialExecutor;
 import cms.utils.FontUtils;
+import cms.utils.LoggerUtil;
+import cms.utils.SwingFutures;
 import cms.utils.TitleBarManager;
 import cms.view.components.PlaceholderTextField;
 import cms.view.superadmin.SuperAdminDashboardView;
@@ -134,8 +137,18 @@ public class SuperAdminLoginView extends JFrame {
             return;
         }
 
-        SuperAdmin sa = controller.login(username, password);
+        // Logging in is mostly BCrypt work, so it runs off the EDT
+        SwingFutures.onEdt(CredentialExecutor.supply(() -> controller.login(username, password)),
+                SwingFutures.busyCursor(this, btnLogin),
+                this::onLoginResult,
+                e -> {
+                    LoggerUtil.logError("Super admin login failed for user: " + username, e);
+                    JOptionPane.showMessageDialog(this, "Could not log in. Please try again.", "Login Failed",
+                            JOptionPane.ERROR_MESSAGE);
+                });
+    }
 
+    private void onLoginResult(SuperAdmin sa) {
         if (sa != null) {
             new SuperAdminDashboardView(sa).setVisible(true);
             dispose();
@@ -1,16 +1,19 @@
 package cms.view.superadmin;
 
+import cms.model.cache.ReportCache;
 import cms.model.dao.ClinicDAO;
+import cms.model.dao.Page;
+import cms.model.dao.PageRequest;
 import cms.model.dao.SuperAdminDAO;
 import cms.model.entities.Clinic;
 import cms.model.entities.Enums;
 import cms.model.entities.User;
 import cms.utils.FontUtils;
+import cms.view.components.ExportDialog;
 import cms.view.components.UIStyler;
 import cms.view.components.StatusRenderer;
 import java.awt.*;
 import java.awt.event.HierarchyEvent;
-import java.util.List;
 import java.util.Map;
 
 import javax.swing.*;
@@ -28,7 +31,7 @@ public class ClinicPanel extends JPanel {
     // --- UI Components ---
     private JTextField tfCode, tfName, tfEmail, tfPhone, tfAddress;
     private JComboBox<Enums.Status> cbStatus;
-    private JButton btnAdd, btnUpdate, btnDelete, btnClear, btnCreateAdmin;
+    private JButton btnAdd, btnUpdate, btnDelete, btnClear, btnCreateAdmin, btnExport;
     private JTable table;
     private DefaultTableModel model;
 
@@ -36,6 +39,8 @@ public class ClinicPanel extends JPanel {
     private int currentPage = 1;
     private final int pageSize = 10; // Show 10 clinics per page
     private int totalPages;
+    private String currentCursor; // Cursor of the page on screen (null = first page)
+    private Page<Clinic> clinicPage = Page.empty();
     private JButton btnPrev, btnNext;
     private JLabel lblPage;
 
@@ -128,6 +133,7 @@ public class ClinicPanel extends JPanel {
         btnDelete = new JButton("🗑️ Delete Clinic");
         btnClear = new JButton("Clear Form");
         btnCreateAdmin = new JButton("👤 Create First Admin");
+        btnExport = new JButton("📦 Export Data");
 
         btnCreateAdmin.setVisible(false); // Hide by default
 
@@ -136,12 +142,14 @@ public class ClinicPanel extends JPanel {
         UIStyler.styleButton(btnDelete, new Color(220, 53, 69)); // Red
         UIStyler.styleButton(btnClear, new Color(108, 117, 125)); // Gray
         UIStyler.styleButton(btnCreateAdmin, new Color(255, 193, 7)); // Yellow
+        UIStyler.styleButton(btnExport, new Color(0, 102, 102));
 
         buttonPanel.add(btnAdd);
         buttonPanel.add(btnUpdate);
         buttonPanel.add(btnDelete);
         buttonPanel.add(btnClear);
         buttonPanel.add(btnCreateAdmin);
+        buttonPanel.add(btnExport);
 
         return buttonPanel;
     }
@@ -215,15 +223,15 @@ public class ClinicPanel extends JPanel {
     private void initListeners() {
         // Pagination listeners
         btnPrev.addActionListener(_ -> {
-            if (currentPage > 1) {
+            if (clinicPage.hasPrevious()) {
                 currentPage--;
-                loadClinicsPage(currentPage);
+                loadClinicsPage(clinicPage.getPreviousCursor());
             }
         });
         btnNext.addActionListener(_ -> {
-            if (currentPage < totalPages) {
+            if (clinicPage.hasNext()) {
                 currentPage++;
-                loadClinicsPage(currentPage);
+                loadClinicsPage(clinicPage.getNextCursor());
             }
         });
 
@@ -233,6 +241,7 @@ public class ClinicPanel extends JPanel {
         btnDelete.addActionListener(_ -> deleteClinic());
         btnClear.addActionListener(_ -> clearForm());
         btnCreateAdmin.addActionListener(_ -> createClinicAdmin());
+        btnExport.addActionListener(_ -> exportData());
 
         // Table row selection listener
         table.getSelectionModel().addListSelectionListener(event -> {
@@ -278,23 +287,23 @@ public class ClinicPanel extends JPanel {
      * Loads a specific page of clinic data from the database and updates the
      * table.
      *
-     * @param page The page number to load.
+     * @param cursor The cursor of the page to load, or null for the first page.
      */
-    private void loadClinicsPage(int page) {
-        int totalRecords = clinicDAO.getTotalClinics();
-        totalPages = (totalRecords == 0) ? 1 : (int) Math.ceil((double) totalRecords / pageSize);
-
+    private void loadClinicsPage(String cursor) {
         model.setRowCount(0); // Clear existing data
-        List<Clinic> list = clinicDAO.getClinicsPage(page, pageSize);
-        for (Clinic c : list) {
+        currentCursor = cursor;
+        // Rows and total come back from a single query (or a cached count)
+        clinicPage = clinicDAO.getClinicsPage(PageRequest.at(cursor, pageSize));
+        totalPages = clinicPage.getTotalPages(pageSize);
+        for (Clinic c : clinicPage.getItems()) {
             model.addRow(new Object[] {
                     c.getClinicId(), c.getClinicCode(), c.getClinicName(),
                     c.getEmail(), c.getPhone(), c.getAddress(), c.getStatus()
             });
         }
         lblPage.setText("Page " + currentPage + " of " + totalPages);
-        btnPrev.setEnabled(currentPage > 1);
-        btnNext.setEnabled(currentPage < totalPages);
+        btnPrev.setEnabled(clinicPage.hasPrevious());
+        btnNext.setEnabled(clinicPage.hasNext());
     }
 
     /**
@@ -333,7 +342,8 @@ public class ClinicPanel extends JPanel {
                         "Warning", JOptionPane.WARNING_MESSAGE);
             }
 
-            refreshClinics(currentPage);
+            // The new clinic is the newest, so it appears on the first page
+            refreshClinics();
         } else if (newClinicId == -2) {
             JOptionPane.showMessageDialog(this,
                     "A clinic with this Code or Email already exists. Please use a unique value.",
@@ -368,7 +378,7 @@ public class ClinicPanel extends JPanel {
         c.setStatus((Enums.Status) cbStatus.getSelectedItem());
 
         clinicDAO.updateClinic(c);
-        loadClinicsPage(currentPage);
+        loadClinicsPage(currentCursor);
         clearForm();
     }
 
@@ -393,7 +403,7 @@ public class ClinicPanel extends JPanel {
 
         if (confirm == JOptionPane.YES_OPTION) {
             clinicDAO.deleteClinic(id);
-            loadClinicsPage(currentPage);
+            loadClinicsPage(currentCursor);
             clearForm();
         }
     }
@@ -424,6 +434,26 @@ public class ClinicPanel extends JPanel {
         }
     }
 
+    /**
+     * Exports the selected clinic's data, or every clinic's if none is
+     * selected.
+     */
+    private void exportData() {
+        int selectedRow = table.getSelectedRow();
+        if (selectedRow == -1) {
+            int choice = JOptionPane.showConfirmDialog(this,
+                    "No clinic is selected. Export the data of all clinics?", "Export Data",
+                    JOptionPane.YES_NO_OPTION);
+            if (choice == JOptionPane.YES_OPTION) {
+                ExportDialog.export(this, ReportCache.ALL_CLINICS, "All Clinics");
+            }
+            return;
+        }
+        int clinicId = (int) model.getValueAt(selectedRow, 0);
+        String name = model.getValueAt(selectedRow, 2).toString();
+        ExportDialog.export(this, clinicId, name);
+    }
+
     /**
      * Clears all form fields and the table selection.
      */
@@ -442,9 +472,9 @@ public class ClinicPanel extends JPanel {
      * Public method to refresh the panel's data, typically called when the
      * panel is shown.
      */
-    public void refreshClinics(int page) {
-        currentPage = (page > 1 ? page : 1);
-        loadClinicsPage(currentPage);
+    public void refreshClinics() {
+        currentPage = 1;
+        loadClinicsPage(null);
         clearForm();
     }
 
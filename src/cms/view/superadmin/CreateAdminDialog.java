@@ -2,8 +2,10 @@ package cms.view.superadmin;
 
 import cms.model.entities.Enums;
 import cms.model.entities.User;
+import cms.utils.CredentialExecutor;
 import cms.utils.FontUtils;
-import cms.utils.PasswordUtils;
+import cms.utils.LoggerUtil;
+import cms.utils.SwingFutures;
 import cms.utils.TitleBarManager;
 import cms.view.components.PlaceholderTextField;
 import java.awt.*;
@@ -12,6 +14,7 @@ import javax.swing.*;
 public class CreateAdminDialog extends JDialog {
 
     private final PlaceholderTextField nameField, usernameField, passwordField;
+    private final JButton btnCreate, btnCancel;
     private User newAdmin = null; // This will hold the result
 
     public CreateAdminDialog(JFrame parent) {
@@ -51,8 +54,8 @@ public class CreateAdminDialog extends JDialog {
         // --- Button Panel ---
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         buttonPanel.setBackground(Color.WHITE);
-        JButton btnCreate = new JButton("Create Admin");
-        JButton btnCancel = new JButton("Cancel");
+        btnCreate = new JButton("Create Admin");
+        btnCancel = new JButton("Cancel");
 
         // Style button
         btnCreate.setBackground(new Color(0, 102, 102));
@@ -83,17 +86,25 @@ public class CreateAdminDialog extends JDialog {
             return;
         }
 
-        // Hash the password
-        String hashedPassword = PasswordUtils.hashPassword(password);
-
-        // Create the user object to return
-        newAdmin = new User();
-        newAdmin.setName(name);
-        newAdmin.setUsername(username);
-        newAdmin.setPassword(hashedPassword); // Store the HASH
-        newAdmin.setRole(Enums.Role.ADMIN);
-
-        dispose(); // Close the dialog
+        // Hash the password off the EDT; the dialog stays open (and modal)
+        // until the hash is ready
+        SwingFutures.onEdt(CredentialExecutor.hash(password),
+                SwingFutures.busyCursor(this, btnCreate, btnCancel),
+                hashedPassword -> {
+                    // Create the user object to return
+                    newAdmin = new User();
+                    newAdmin.setName(name);
+                    newAdmin.setUsername(username);
+                    newAdmin.setPassword(hashedPassword); // Store the HASH
+                    newAdmin.setRole(Enums.Role.ADMIN);
+
+                    dispose(); // Close the dialog
+                },
+                e -> {
+                    LoggerUtil.logError("Failed to hash the password for new admin: " + username, e);
+                    JOptionPane.showMessageDialog(this, "Could not create the admin. Please try again.", "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                });
     }
 
     // This method allows the calling panel to get the result
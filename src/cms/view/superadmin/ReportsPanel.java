@@ -1,7 +1,10 @@
 package cms.view.superadmin;
 
+import cms.model.cache.ReportCache;
 import cms.model.dao.ReportDAO;
+import cms.utils.DateRange;
 import cms.utils.FontUtils;
+import cms.view.components.ReportChartCard;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
@@ -14,12 +17,21 @@ import org.jfree.data.general.DefaultPieDataset;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 public class ReportsPanel extends JPanel {
 
     private final ReportDAO reportDAO;
 
+    private final JPanel chartGrid = new JPanel(new GridLayout(2, 2, 20, 20));
+    private final List<Report> reports = new ArrayList<>();
+    private boolean chartsShown;
+
     /**
      * Constructor: Sets up the initial layout and DAO. Does NOT load data.
      */
@@ -31,6 +43,22 @@ public class ReportsPanel extends JPanel {
         setBorder(new EmptyBorder(20, 20, 20, 20));
         setBackground(Color.WHITE);
 
+        reports.add(new Report("all-patients-per-clinic", "Patient Count per Clinic", false,
+                _ -> reportDAO.getPatientCountPerClinic(), this::createPatientVolumeChart));
+        reports.add(new Report("all-users-by-role", "Staff Distribution by Role", false,
+                _ -> reportDAO.getUserCountByRole(), this::createUserRoleChart));
+        reports.add(new Report("all-new-patients-per-month", "New Patients per Month", true,
+                reportDAO::getNewPatientsPerMonth, this::createPatientGrowthChart));
+
+        chartGrid.setBackground(Color.WHITE);
+        for (Report report : reports) {
+            chartGrid.add(report.card);
+        }
+        JPanel placeholder = new JPanel();
+        placeholder.setBorder(BorderFactory.createTitledBorder("Future Report"));
+        placeholder.setBackground(Color.WHITE);
+        chartGrid.add(placeholder);
+
         // Display a loading message initially
         showLoadingState();
     }
@@ -50,72 +78,87 @@ public class ReportsPanel extends JPanel {
     }
 
     /**
-     * Public method to be called when the panel is shown. It fetches data and
-     * builds the charts.
+     * Public method to be called when the panel is shown. It shows the
+     * charts from the report cache where possible; the cross-clinic queries
+     * only run on the first load, after the cache TTL (in the background) or
+     * on "Refresh".
      */
     public void loadReportData() {
-        // Optional: If data is already loaded, don't reload unless necessary.
-        // For simplicity, we'll reload every time for now. A more advanced
-        // implementation could check a timestamp.
-
-        // Use a background thread for database calls to keep the UI responsive
-        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
-            private ChartPanel patientVolumeChart;
-            private ChartPanel userRoleChart;
-            private ChartPanel patientGrowthChart;
-
-            @Override
-            protected Void doInBackground() throws Exception {
-                // This happens on a background thread
-                patientVolumeChart = createPatientVolumeChart();
-                userRoleChart = createUserRoleChart();
-                patientGrowthChart = createPatientGrowthChart();
-                return null;
-            }
-
-            @Override
-            protected void done() {
-                // This happens on the Event Dispatch Thread (EDT) after doInBackground is
-                // finished
-                try {
-                    // This is where you update the UI
-                    removeAll();
-                    setLayout(new GridLayout(2, 2, 20, 20));
-
-                    patientVolumeChart.setBorder(BorderFactory.createTitledBorder("Patient Count per Clinic"));
-                    add(patientVolumeChart);
-
-                    userRoleChart.setBorder(BorderFactory.createTitledBorder("Staff Distribution by Role"));
-                    add(userRoleChart);
-
-                    patientGrowthChart.setBorder(BorderFactory.createTitledBorder("New Patients per Month"));
-                    add(patientGrowthChart);
-
-                    JPanel placeholder = new JPanel();
-                    placeholder.setBorder(BorderFactory.createTitledBorder("Future Report"));
-                    placeholder.setBackground(Color.WHITE);
-                    add(placeholder);
-
-                    revalidate();
-                    repaint();
-                } catch (Exception e) {
-                    // Show an error message on the panel if something went wrong
-                    removeAll();
-                    setLayout(new BorderLayout());
-                    JLabel errorLabel = new JLabel("Error loading reports. Please try again.", SwingConstants.CENTER);
-                    errorLabel.setForeground(Color.RED);
-                    add(errorLabel, BorderLayout.CENTER);
-                    revalidate();
-                    repaint();
-                }
-            }
-        };
-        worker.execute(); // Start the background task
+        load(false);
+    }
+
+    private void load(boolean force) {
+        if (!chartsShown) {
+            showCharts();
+        }
+        // Each chart loads on the report pool and appears as soon as it's ready
+        for (Report report : reports) {
+            report.load(force);
+        }
+    }
+
+    private void showCharts() {
+        chartsShown = true;
+        removeAll();
+        setLayout(new BorderLayout(0, 10));
+
+        JButton btnRefresh = new JButton("Refresh");
+        btnRefresh.setToolTipText("Reload every report from the database");
+        btnRefresh.addActionListener(_ -> load(true));
+        JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+        toolbar.setBackground(Color.WHITE);
+        toolbar.add(btnRefresh);
+
+        add(toolbar, BorderLayout.NORTH);
+        add(chartGrid, BorderLayout.CENTER);
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Loads one report's data for a range, or for none.
+     */
+    private interface Query {
+        Map<String, Integer> load(DateRange range) throws SQLException;
     }
 
-    private ChartPanel createPatientVolumeChart() {
+    /**
+     * One chart on the panel: its cache key, how to load its data and how to
+     * draw it. These reports span every clinic.
+     */
+    private static final class Report {
+        private final String name;
+        private final boolean ranged;
+        private final Query query;
+        private final Function<Map<String, Integer>, ChartPanel> chart;
+        private final ReportChartCard card = new ReportChartCard();
+
+        /**
+         * @param ranged Whether the report covers the last 12 months, which
+         *               roll over with the calendar; the others show the
+         *               current state.
+         */
+        private Report(String name, String title, boolean ranged, Query query,
+                Function<Map<String, Integer>, ChartPanel> chart) {
+            this.name = name;
+            this.ranged = ranged;
+            this.query = query;
+            this.chart = chart;
+            card.setBorder(BorderFactory.createTitledBorder(title));
+        }
+
+        private void load(boolean force) {
+            // The range ends today and is part of the key, so the chart rolls over with the date
+            DateRange range = ranged ? ReportDAO.lastTwelveMonths(LocalDate.now()) : null;
+            ReportCache.Key key = ReportCache.Key.of(name, ReportCache.ALL_CLINICS, range);
+            ReportCache.Loader<Map<String, Integer>> loader = () -> query.load(range);
+            card.load(onRefreshed -> force ? ReportCache.refresh(key, loader)
+                    : ReportCache.get(key, loader, onRefreshed), chart);
+        }
+    }
+
+    private ChartPanel createPatientVolumeChart(Map<String, Integer> data) {
         DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-        Map<String, Integer> data = reportDAO.getPatientCountPerClinic();
         for (Map.Entry<String, Integer> entry : data.entrySet()) {
             dataset.addValue(entry.getValue(), "Patients", entry.getKey());
         }
@@ -129,14 +172,11 @@ public class ReportsPanel extends JPanel {
         return new ChartPanel(barChart);
     }
 
-    private ChartPanel createUserRoleChart() {
+    private ChartPanel createUserRoleChart(Map<String, Integer> data) {
         // 1. Specify <String> as the generic type for the keys.
         DefaultPieDataset<String> dataset = new DefaultPieDataset<>();
 
-        // 2. Your DAO method already returns a correctly typed Map.
-        Map<String, Integer> data = reportDAO.getUserCountByRole();
-
-        // 3. The rest of your code now works perfectly and is type-safe.
+        // 2. The rest of your code now works perfectly and is type-safe.
         for (Map.Entry<String, Integer> entry : data.entrySet()) {
             // The compiler knows that entry.getKey() is a String and entry.getValue() is a
             // Number.
@@ -156,9 +196,8 @@ public class ReportsPanel extends JPanel {
         return new ChartPanel(pieChart);
     }
 
-    private ChartPanel createPatientGrowthChart() {
+    private ChartPanel createPatientGrowthChart(Map<String, Integer> data) {
         DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-        Map<String, Integer> data = reportDAO.getNewPatientsPerMonth();
         for (Map.Entry<String, Integer> entry : data.entrySet()) {
             dataset.addValue(entry.getValue(), "New Patients", entry.getKey());
         }
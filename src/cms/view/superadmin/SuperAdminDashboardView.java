@@ -69,7 +69,7 @@ public class SuperAdminDashboardView extends DashboardTemplate {
         btnManageClinics.addActionListener(_ -> {
             btnManageClinics.selectInSidebar();
             cardLayout.show(contentPanel, "ManageClinics");
-            clinicPanel.refreshClinics(1);
+            clinicPanel.refreshClinics();
         });
 
         btnReports.addActionListener(_ -> {
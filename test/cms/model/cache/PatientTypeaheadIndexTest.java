@@ -0,0 +1,161 @@
+package cms.model.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import cms.model.entities.PatientSummary;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Test;
+
+public class PatientTypeaheadIndexTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 9, 0);
+    private static final AtomicInteger NEXT_CLINIC = new AtomicInteger(1000);
+
+    @After
+    public void evict() {
+        PatientTypeaheadIndex.evictAll();
+    }
+
+    private static PatientSummary patient(int id, String name, String phone) {
+        return new PatientSummary(id, name, phone, "Female", null, T0);
+    }
+
+    private static PatientTypeaheadIndex load(PatientSummary... patients) throws Exception {
+        PatientTypeaheadIndex index = PatientTypeaheadIndex.forClinic(NEXT_CLINIC.incrementAndGet(),
+                (clinicId, since) -> since == null ? List.of(patients) : List.of());
+        index.whenReady().get(5, TimeUnit.SECONDS);
+        return index;
+    }
+
+    private static List<Integer> ids(List<PatientSummary> patients) {
+        List<Integer> ids = new ArrayList<>();
+        for (PatientSummary p : patients) {
+            ids.add(p.getPatientId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void namePrefixRanksAboveNameInfixThenByName() throws Exception {
+        PatientTypeaheadIndex index = load(
+                patient(1, "Priya Pillai", null),
+                patient(2, "Anil Pillai", null),
+                patient(3, "Pillai Menon", null),
+                patient(4, "Rahul Nair", null));
+        assertEquals(List.of(3, 2, 1), ids(index.search("pill", 10)));
+    }
+
+    @Test
+    public void shortInfixesMatchAnywhereInTheName() throws Exception {
+        PatientTypeaheadIndex index = load(
+                patient(1, "Priya Pillai", null),
+                patient(2, "Rahul Nair", null),
+                patient(3, "Yusuf", null));
+        assertEquals(List.of(3, 1), ids(index.search("y", 10)));
+        assertEquals(List.of(2), ids(index.search("hu", 10)));
+    }
+
+    @Test
+    public void namesIgnoreCaseAndAccents() throws Exception {
+        PatientTypeaheadIndex index = load(patient(1, "José Álvarez", null));
+        assertEquals(List.of(1), ids(index.search("ALVAREZ", 10)));
+        assertEquals(List.of(1), ids(index.search("jose", 10)));
+    }
+
+    @Test
+    public void exactPhoneRanksAboveSuffix() throws Exception {
+        PatientTypeaheadIndex index = load(
+                patient(1, "Anil", "98470-12345"),
+                patient(2, "Bindu", "12345"),
+                patient(3, "Chandra", "55512345"));
+        assertEquals(List.of(2, 1, 3), ids(index.search("12345", 10)));
+    }
+
+    @Test
+    public void phoneMiddleOnlyMatchesWhenNothingElseDoes() throws Exception {
+        PatientTypeaheadIndex index = load(
+                patient(1, "Anil", "9847012345"),
+                patient(2, "Bindu", "9000004701"));
+        // "4701" ends Bindu's number, so Anil's middle match is left out
+        assertEquals(List.of(2), ids(index.search("4701", 10)));
+        // Nobody's number ends in "8470"
+        assertEquals(List.of(1), ids(index.search("8470", 10)));
+    }
+
+    @Test
+    public void shortPhoneTermsAlsoMatchTheMiddle() throws Exception {
+        PatientTypeaheadIndex index = load(
+                patient(1, "Anil", "9847012345"),
+                patient(2, "Bindu", "47"));
+        assertEquals(List.of(2, 1), ids(index.search("47", 10)));
+    }
+
+    @Test
+    public void limitCapsTheResults() throws Exception {
+        PatientTypeaheadIndex index = load(
+                patient(1, "Anil A", null),
+                patient(2, "Anil B", null),
+                patient(3, "Anil C", null));
+        assertEquals(List.of(1, 2), ids(index.search("anil", 2)));
+    }
+
+    @Test
+    public void blankTermListsPatientsByName() throws Exception {
+        PatientTypeaheadIndex index = load(
+                patient(1, "Zara", null),
+                patient(2, "anil", null),
+                patient(3, "Bindu", null));
+        assertEquals(List.of(2, 3, 1), ids(index.search("  ", 10)));
+    }
+
+    @Test
+    public void refreshReplacesChangedPatients() throws Exception {
+        int clinicId = NEXT_CLINIC.incrementAndGet();
+        AtomicReference<List<PatientSummary>> changes = new AtomicReference<>(
+                List.of(patient(1, "Anil", "111222")));
+        PatientTypeaheadIndex index = PatientTypeaheadIndex.forClinic(clinicId,
+                (id, since) -> changes.getAndSet(List.of()));
+        index.whenReady().get(5, TimeUnit.SECONDS);
+
+        changes.set(List.of(new PatientSummary(1, "Bindu", "333444", "Female", null, T0.plusMinutes(1))));
+        PatientTypeaheadIndex.requestRefresh(clinicId);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!"Bindu".equals(index.get(1).getName()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of(1), ids(index.search("bin", 10)));
+        assertTrue(index.search("anil", 10).isEmpty());
+        assertTrue(index.search("111222", 10).isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void evictAllDropsTheIndexes() throws Exception {
+        int clinicId = NEXT_CLINIC.incrementAndGet();
+        AtomicInteger loads = new AtomicInteger();
+        PatientTypeaheadIndex.ChangeLoader loader = (id, since) -> {
+            loads.incrementAndGet();
+            return List.of();
+        };
+        PatientTypeaheadIndex first = PatientTypeaheadIndex.forClinic(clinicId, loader);
+        assertSame(first, PatientTypeaheadIndex.forClinic(clinicId, loader));
+        first.whenReady().get(5, TimeUnit.SECONDS);
+
+        PatientTypeaheadIndex.evictAll();
+        PatientTypeaheadIndex second = PatientTypeaheadIndex.forClinic(clinicId, loader);
+        assertNotSame(first, second);
+        second.whenReady().get(5, TimeUnit.SECONDS);
+        assertEquals(2, loads.get());
+        assertFalse(second.search("x", 10).iterator().hasNext());
+    }
+}
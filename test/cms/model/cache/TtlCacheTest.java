@@ -0,0 +1,86 @@
+package cms.model.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TtlCacheTest {
+
+    @Test
+    public void getReturnsWhatWasPut() {
+        TtlCache<String, Integer> cache = new TtlCache<>("test", 60_000L);
+        cache.put("a", 1);
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRatio(), 0.0);
+    }
+
+    @Test
+    public void entriesExpireAfterTheTtl() throws InterruptedException {
+        TtlCache<String, Integer> cache = new TtlCache<>("test", 20L);
+        cache.put("a", 1);
+        Thread.sleep(40);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size()); // The expired entry was dropped on read
+    }
+
+    @Test
+    public void getOrLoadLoadsOnlyOnAMiss() throws Exception {
+        TtlCache<String, Integer> cache = new TtlCache<>("test", 60_000L);
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals(Integer.valueOf(3), cache.getOrLoad("abc", key -> {
+            loads.incrementAndGet();
+            return key.length();
+        }));
+        assertEquals(Integer.valueOf(3), cache.getOrLoad("abc", key -> {
+            loads.incrementAndGet();
+            return -1;
+        }));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void failedAndNullLoadsAreNotCached() throws Exception {
+        TtlCache<String, Integer> cache = new TtlCache<>("test", 60_000L);
+        try {
+            cache.getOrLoad("a", key -> {
+                throw new IllegalStateException("down");
+            });
+            fail("The loader's exception should propagate");
+        } catch (IllegalStateException expected) {
+            // Nothing cached
+        }
+        assertNull(cache.getOrLoad("a", key -> null));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void invalidateRemovesMatchingKeys() {
+        TtlCache<String, Integer> cache = new TtlCache<>("test", 60_000L);
+        cache.put("clinic1:doctors", 1);
+        cache.put("clinic1:specializations", 2);
+        cache.put("clinic2:doctors", 3);
+
+        cache.invalidateIf(key -> key.startsWith("clinic1:"));
+        assertEquals(1, cache.size());
+        assertEquals(Integer.valueOf(3), cache.get("clinic2:doctors"));
+
+        cache.invalidate("clinic2:doctors");
+        assertEquals(0, cache.size());
+
+        cache.put("x", 1);
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void hitRatioIsZeroBeforeAnyLookup() {
+        assertEquals(0.0, new TtlCache<String, Integer>("test", 60_000L).getHitRatio(), 0.0);
+    }
+}
@@ -0,0 +1,122 @@
+package cms.model.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import cms.model.cache.TtlCache;
+import cms.model.dao.KeysetQuery.Cursor;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import org.junit.Test;
+
+public class KeysetQueryTest {
+
+    private final KeysetQuery<Object> query = new KeysetQuery<>("*", "patients", "clinic_id = ?", "patients",
+            "created_at", "patient_id", true, new TtlCache<>("test", 60_000L), rs -> null);
+
+    private static Cursor roundTrip(Cursor cursor) {
+        return Cursor.decode(cursor.encode());
+    }
+
+    @Test
+    public void timestampKeyRoundTrips() {
+        LocalDateTime created = LocalDateTime.of(2024, 3, 1, 9, 30, 15, 123_000_000);
+        Cursor cursor = roundTrip(new Cursor(true, created, 42));
+        assertTrue(cursor.forward);
+        assertEquals(Timestamp.valueOf(created), cursor.key);
+        assertEquals(42, cursor.id);
+    }
+
+    @Test
+    public void stringKeyWithSeparatorsRoundTrips() {
+        Cursor cursor = roundTrip(new Cursor(false, "O'Brien|Smith", 7));
+        assertFalse(cursor.forward);
+        assertEquals("O'Brien|Smith", cursor.key);
+        assertEquals(7, cursor.id);
+    }
+
+    @Test
+    public void nullKeyRoundTripsAsNull() {
+        Cursor cursor = roundTrip(new Cursor(true, null, 3));
+        assertNull(cursor.key);
+        assertEquals(3, cursor.id);
+    }
+
+    @Test
+    public void stringKeyNullIsNotANullKey() {
+        assertEquals("null", roundTrip(new Cursor(true, "null", 3)).key);
+    }
+
+    @Test
+    public void encodingIsUrlSafe() {
+        String encoded = new Cursor(true, "??>>~~", Integer.MAX_VALUE).encode();
+        assertTrue(encoded, encoded.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    public void noCursorDecodesToNull() {
+        assertNull(Cursor.decode(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notBase64IsRejected() {
+        Cursor.decode("not a cursor!");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooFewPartsAreRejected() {
+        Cursor.decode(encode("A|T|5"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownKeyTypeIsRejected() {
+        Cursor.decode(encode("A|X|5|abc"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownDirectionIsRejected() {
+        Cursor.decode(encode("C|S|5|abc"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonNumericIdIsRejected() {
+        Cursor.decode(encode("A|S|five|abc"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void badTimestampIsRejected() {
+        Cursor.decode(encode("A|T|5|yesterday"));
+    }
+
+    @Test
+    public void seekPastValueReadingDownIncludesNullKeys() {
+        assertEquals("(created_at < ? OR (created_at = ? AND patient_id < ?) OR created_at IS NULL)",
+                query.seekCondition(new Cursor(true, "x", 1), true));
+    }
+
+    @Test
+    public void seekPastValueReadingUp() {
+        assertEquals("(created_at > ? OR (created_at = ? AND patient_id > ?))",
+                query.seekCondition(new Cursor(true, "x", 1), false));
+    }
+
+    @Test
+    public void seekPastNullKeyReadingDownStaysOnNullKeys() {
+        assertEquals("(created_at IS NULL AND patient_id < ?)",
+                query.seekCondition(new Cursor(true, null, 1), true));
+    }
+
+    @Test
+    public void seekPastNullKeyReadingUpIncludesEveryValue() {
+        assertEquals("((created_at IS NULL AND patient_id > ?) OR created_at IS NOT NULL)",
+                query.seekCondition(new Cursor(true, null, 1), false));
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,92 @@
+package cms.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CsvReaderTest {
+
+    private static List<List<String>> readAll(String csv) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(new StringReader(csv))) {
+            List<String> record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    @Test
+    public void splitsPlainFields() throws IOException {
+        assertEquals(List.of(List.of("name", "dob"), List.of("Anil", "1990-01-01")),
+                readAll("name,dob\nAnil,1990-01-01\n"));
+    }
+
+    @Test
+    public void keepsEmptyFields() throws IOException {
+        assertEquals(List.of(List.of("", "b", "")), readAll(",b,"));
+    }
+
+    @Test
+    public void quotedFieldsHoldCommasQuotesAndLineBreaks() throws IOException {
+        assertEquals(List.of(List.of("Street 1, City", "say \"hi\"", "line 1\nline 2")),
+                readAll("\"Street 1, City\",\"say \"\"hi\"\"\",\"line 1\nline 2\"\n"));
+    }
+
+    @Test
+    public void acceptsEveryLineEnding() throws IOException {
+        assertEquals(List.of(List.of("a"), List.of("b"), List.of("c"), List.of("d")),
+                readAll("a\r\nb\rc\nd"));
+    }
+
+    @Test
+    public void skipsBlankLines() throws IOException {
+        assertEquals(List.of(List.of("a"), List.of("b")), readAll("\n\na\r\n\r\nb\n\n"));
+        assertEquals(List.of(), readAll(""));
+    }
+
+    @Test
+    public void countsRecords() throws IOException {
+        try (CsvReader reader = new CsvReader(new StringReader("h\n\n1\n2\n"))) {
+            while (reader.next() != null) {
+                // Read to the end
+            }
+            assertEquals(3, reader.getRecordCount());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsAnUnterminatedQuote() throws IOException {
+        readAll("a,\"b\nc\n");
+    }
+
+    @Test
+    public void readsFieldsLongerThanItsBuffer() throws IOException {
+        char[] chars = new char[200_000];
+        Arrays.fill(chars, 'x');
+        String longField = new String(chars);
+        assertEquals(List.of(List.of(longField, "\"" + longField), List.of("end")),
+                readAll(longField + ",\"\"\"" + longField + "\"\nend\n"));
+    }
+
+    @Test
+    public void toLineQuotesOnlyWhatNeedsIt() {
+        assertEquals("a,\"b,c\",\"say \"\"hi\"\"\",\"x\ny\",", CsvReader.toLine(
+                Arrays.asList("a", "b,c", "say \"hi\"", "x\ny", null)));
+    }
+
+    @Test
+    public void toLineRoundTrips() throws IOException {
+        List<String> fields = List.of("1501", "Data too long, for \"name\"", "Street\r\n2", "");
+        assertEquals(List.of(fields), readAll(CsvReader.toLine(fields) + "\n"));
+    }
+}
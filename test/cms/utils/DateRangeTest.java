@@ -0,0 +1,82 @@
+package cms.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class DateRangeTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 2, 28);
+
+    @Test
+    public void dayEndsAtNextMidnight() {
+        DateRange range = DateRange.ofDay(DAY);
+        assertEquals(LocalDateTime.of(2024, 2, 28, 0, 0), range.getStart());
+        assertEquals(LocalDateTime.of(2024, 2, 29, 0, 0), range.getEnd());
+    }
+
+    @Test
+    public void betweenIncludesBothDays() {
+        DateRange range = DateRange.between(LocalDate.of(2024, 12, 30), LocalDate.of(2025, 1, 2));
+        assertEquals(LocalDateTime.of(2024, 12, 30, 0, 0), range.getStart());
+        assertEquals(LocalDateTime.of(2025, 1, 3, 0, 0), range.getEnd());
+        assertEquals(DateRange.ofDay(DAY), DateRange.between(DAY, DAY));
+    }
+
+    @Test
+    public void lastDaysEndsAfterToday() {
+        LocalDate today = LocalDate.now();
+        DateRange range = DateRange.lastDays(7);
+        assertEquals(today.minusDays(6).atStartOfDay(), range.getStart());
+        assertEquals(today.plusDays(1).atStartOfDay(), range.getEnd());
+        assertEquals(DateRange.today(), DateRange.lastDays(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lastDaysRejectsZero() {
+        DateRange.lastDays(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void betweenRejectsReversedDays() {
+        DateRange.between(DAY, DAY.minusDays(2));
+    }
+
+    @Test
+    public void predicateIsHalfOpen() {
+        assertEquals("a.appointment_date >= ? AND a.appointment_date < ?",
+                DateRange.predicate("a.appointment_date"));
+    }
+
+    @Test
+    public void bindSetsStartThenEnd() throws Exception {
+        Map<Integer, Object> params = new HashMap<>();
+        PreparedStatement pst = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("setTimestamp")) {
+                        params.put((Integer) args[0], args[1]);
+                    }
+                    return null;
+                });
+
+        assertEquals(5, DateRange.ofDay(DAY).bind(pst, 3));
+        assertEquals(Timestamp.valueOf(DAY.atStartOfDay()), params.get(3));
+        assertEquals(Timestamp.valueOf(DAY.plusDays(1).atStartOfDay()), params.get(4));
+    }
+
+    @Test
+    public void equalRangesAreEqual() {
+        assertEquals(DateRange.ofDay(DAY), DateRange.ofDay(LocalDate.of(2024, 2, 28)));
+        assertEquals(DateRange.ofDay(DAY).hashCode(), DateRange.ofDay(LocalDate.of(2024, 2, 28)).hashCode());
+        assertNotEquals(DateRange.ofDay(DAY), DateRange.ofDay(DAY.plusDays(1)));
+    }
+}
@@ -0,0 +1,63 @@
+package cms.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+
+import org.junit.Test;
+
+public class GranularityTest {
+
+    // A Sunday whose week starts in a leap-year February
+    private static final LocalDate SUNDAY = LocalDate.of(2024, 3, 3);
+
+    @Test
+    public void dayIsItsOwnBucket() {
+        assertEquals(SUNDAY, Granularity.DAY.bucketOf(SUNDAY));
+        assertEquals(SUNDAY.plusDays(1), Granularity.DAY.next(SUNDAY));
+    }
+
+    @Test
+    public void weeksStartOnMonday() {
+        LocalDate monday = LocalDate.of(2024, 2, 26);
+        assertEquals(monday, Granularity.WEEK.bucketOf(SUNDAY));
+        assertEquals(monday, Granularity.WEEK.bucketOf(monday));
+        assertEquals(LocalDate.of(2024, 3, 4), Granularity.WEEK.next(monday));
+    }
+
+    @Test
+    public void weeksSpanTheYearBoundary() {
+        assertEquals(LocalDate.of(2024, 12, 30), Granularity.WEEK.bucketOf(LocalDate.of(2025, 1, 1)));
+    }
+
+    @Test
+    public void monthsStartOnTheFirst() {
+        assertEquals(LocalDate.of(2024, 2, 1), Granularity.MONTH.bucketOf(LocalDate.of(2024, 2, 29)));
+        assertEquals(LocalDate.of(2024, 3, 1), Granularity.MONTH.next(LocalDate.of(2024, 2, 1)));
+        assertEquals(LocalDate.of(2025, 1, 1), Granularity.MONTH.next(LocalDate.of(2024, 12, 1)));
+    }
+
+    @Test
+    public void bucketsTileARange() {
+        // Walking from the first bucket reaches every day's bucket in order
+        LocalDate first = LocalDate.of(2024, 1, 17);
+        LocalDate last = LocalDate.of(2024, 4, 2);
+        for (Granularity granularity : Granularity.values()) {
+            LocalDate bucket = granularity.bucketOf(first);
+            for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+                if (!granularity.bucketOf(day).equals(bucket)) {
+                    bucket = granularity.next(bucket);
+                }
+                assertEquals(granularity + " " + day, bucket, granularity.bucketOf(day));
+            }
+        }
+    }
+
+    @Test
+    public void labels() {
+        assertEquals("2024-03-03", Granularity.DAY.label(SUNDAY));
+        assertEquals("Wk 2024-02-26", Granularity.WEEK.label(LocalDate.of(2024, 2, 26)));
+        assertEquals("2024-03", Granularity.MONTH.label(LocalDate.of(2024, 3, 1)));
+        assertEquals("Week", Granularity.WEEK.toString());
+    }
+}
@@ -0,0 +1,77 @@
+package cms.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PatientSearchTermTest {
+
+    private static int tier(String term, String name, String phone) {
+        return PatientSearchTerm.of(term).tier(PatientSearchTerm.fold(name), PatientSearchTerm.phoneDigits(phone));
+    }
+
+    @Test
+    public void blankAndNullTermsAreBlank() {
+        assertTrue(PatientSearchTerm.of(null).isBlank());
+        assertTrue(PatientSearchTerm.of("   ").isBlank());
+    }
+
+    @Test
+    public void digitsWithoutLettersAreAPhoneNumber() {
+        assertTrue(PatientSearchTerm.of("+91 98470-12345").isPhone());
+        assertEquals("919847012345", PatientSearchTerm.of("+91 98470-12345").getDigits());
+        assertFalse(PatientSearchTerm.of("ward 3").isPhone());
+        assertFalse(PatientSearchTerm.of("o'brien").isPhone());
+    }
+
+    @Test
+    public void wholePhoneNumberIgnoresSeparators() {
+        assertEquals(PatientSearchTerm.TIER_EXACT_PHONE, tier("98470 12345", "Anil", "98470-12345"));
+        assertEquals(PatientSearchTerm.TIER_EXACT_PHONE, tier("9847012345", "Anil", "(98470) 123.45"));
+    }
+
+    @Test
+    public void phoneSuffixNeedsThreeDigits() {
+        assertEquals(PatientSearchTerm.TIER_PHONE_SUFFIX, tier("345", "Anil", "9847012345"));
+        assertEquals(PatientSearchTerm.NO_MATCH, tier("45", "Anil", "9847012345"));
+        assertTrue(PatientSearchTerm.of("45").isShortPhone());
+        assertFalse(PatientSearchTerm.of("345").isShortPhone());
+    }
+
+    @Test
+    public void phoneMiddleIsOnlyAContainsMatch() {
+        PatientSearchTerm term = PatientSearchTerm.of("4701");
+        assertEquals(PatientSearchTerm.NO_MATCH, term.tier("anil", "9847012345"));
+        assertTrue(term.containsPhone("9847012345"));
+        assertFalse(PatientSearchTerm.of("anil").containsPhone("9847012345"));
+    }
+
+    @Test
+    public void namesMatchByPrefixThenAnywhere() {
+        assertEquals(PatientSearchTerm.TIER_NAME_PREFIX, tier("pri", "Priya Pillai", null));
+        assertEquals(PatientSearchTerm.TIER_NAME_CONTAINS, tier("pill", "Priya Pillai", null));
+        assertEquals(PatientSearchTerm.TIER_NAME_CONTAINS, tier("y", "Priya Pillai", null));
+        assertEquals(PatientSearchTerm.NO_MATCH, tier("menon", "Priya Pillai", null));
+    }
+
+    @Test
+    public void namesIgnoreCaseAndAccents() {
+        assertEquals(PatientSearchTerm.TIER_NAME_PREFIX, tier("JOSE", "José Álvarez", null));
+        assertEquals(PatientSearchTerm.TIER_NAME_CONTAINS, tier("alvarez", "José Álvarez", null));
+        assertEquals(PatientSearchTerm.TIER_NAME_PREFIX, tier("Álv", "Álvarez", null));
+    }
+
+    @Test
+    public void termWithLettersAndDigitsIsAName() {
+        assertEquals(PatientSearchTerm.TIER_NAME_CONTAINS, tier("bed 12", "Ward bed 12", "12"));
+        assertEquals(PatientSearchTerm.NO_MATCH, tier("bed 12", "Anil", "12"));
+    }
+
+    @Test
+    public void phoneDigitsKeepOnlyTypedSeparatorsOut() {
+        assertEquals("919847012345", PatientSearchTerm.phoneDigits("+91 (98470) 123-45"));
+        assertEquals("", PatientSearchTerm.phoneDigits(null));
+    }
+}